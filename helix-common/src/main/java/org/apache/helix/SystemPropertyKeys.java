@@ -34,9 +34,21 @@ public class SystemPropertyKeys {
   // Task Driver
   public static final String TASK_CONFIG_LIMITATION = "helixTask.configsLimitation";
 
+  // Persist job contexts in the compact encoding, only enable it once all readers support it
+  public static final String TASK_COMPACT_JOB_CONTEXT_ENABLED = "helixTask.compactJobContext.enabled";
+
   // Task executor threadpool reset timeout in ms
   public static final String TASK_THREADPOOL_RESET_TIMEOUT = "helixTask.threadpool.resetTimeout";
 
+  // Run tasks on threads created on demand (virtual threads on Java 21+), limited by the target
+  // task thread pool size, instead of a fixed thread pool
+  public static final String TASK_VIRTUAL_THREAD_ENABLED = "helixTask.virtualThread.enabled";
+
+  // ZkBucketDataAccessor
+  // Write records as chunks shared by the versions, only enable it once all readers support it
+  public static final String BUCKET_DATA_CHUNKED_WRITE_ENABLED =
+      "helix.bucketDataAccessor.chunkedWrite.enabled";
+
   // ZKHelixManager
   public static final String CLUSTER_MANAGER_VERSION = "cluster-manager-version.properties";
 
@@ -71,6 +83,7 @@ public class SystemPropertyKeys {
 
   // Controller
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
+  public static final String TASK_SCHEDULING_FULL_SWEEP_INTERVAL = "helix.controller.stages.TaskSchedulingStage.fullSweepInterval";
 
   // Message
   public static final String MESSAGE_EXPECTED_COMPLETION_PERIOD = "helix.controller.message.ExpectMessageCompletionPeriod";
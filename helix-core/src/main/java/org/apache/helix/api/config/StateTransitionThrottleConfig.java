@@ -33,13 +33,15 @@ public class StateTransitionThrottleConfig {
   private static final Logger logger =
       LoggerFactory.getLogger(StateTransitionThrottleConfig.class.getName());
   public final static int DEFAULT_NUM_TRANSIT_REPLICAS = 1;
+  // No rate limit, only maxPartitionInTransition is applied
+  public final static long DEFAULT_TRANSITION_REFILL_RATE_PER_SECOND = -1L;
 
   private enum ConfigProperty {
     CONFIG_TYPE,
     REBALANCE_TYPE,
     THROTTLE_SCOPE,
-    MAX_PARTITION_IN_TRANSITION
-
+    MAX_PARTITION_IN_TRANSITION,
+    TRANSITION_REFILL_RATE_PER_SECOND
   }
 
   public enum ThrottleScope {
@@ -59,12 +61,29 @@ public class StateTransitionThrottleConfig {
   RebalanceType _rebalanceType;
   ThrottleScope _throttleScope;
   Long _maxPartitionInTransition;
+  long _transitionRefillRatePerSecond;
 
   public StateTransitionThrottleConfig(RebalanceType rebalanceType, ThrottleScope throttleScope,
       long maxPartitionInTransition) {
+    this(rebalanceType, throttleScope, maxPartitionInTransition,
+        DEFAULT_TRANSITION_REFILL_RATE_PER_SECOND);
+  }
+
+  /**
+   * Create a throttle config that also limits the rate of new state transitions. The rate is
+   * enforced by a token bucket holding up to maxPartitionInTransition tokens, refilled with
+   * transitionRefillRatePerSecond tokens every second. Each new state transition takes one token.
+   * @param rebalanceType
+   * @param throttleScope
+   * @param maxPartitionInTransition max pending transitions, also the token bucket capacity
+   * @param transitionRefillRatePerSecond tokens refilled per second, non-positive to disable
+   */
+  public StateTransitionThrottleConfig(RebalanceType rebalanceType, ThrottleScope throttleScope,
+      long maxPartitionInTransition, long transitionRefillRatePerSecond) {
     _rebalanceType = rebalanceType;
     _throttleScope = throttleScope;
     _maxPartitionInTransition = maxPartitionInTransition;
+    _transitionRefillRatePerSecond = transitionRefillRatePerSecond;
   }
 
   public RebalanceType getRebalanceType() {
@@ -79,6 +98,17 @@ public class StateTransitionThrottleConfig {
     return _maxPartitionInTransition;
   }
 
+  public long getTransitionRefillRatePerSecond() {
+    return _transitionRefillRatePerSecond;
+  }
+
+  /**
+   * @return true if the rate of new state transitions is limited by this config
+   */
+  public boolean isRateLimited() {
+    return _transitionRefillRatePerSecond > 0;
+  }
+
   private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   /**
@@ -91,6 +121,10 @@ public class StateTransitionThrottleConfig {
     configMap.put(ConfigProperty.THROTTLE_SCOPE.name(), _throttleScope.name());
     configMap.put(ConfigProperty.MAX_PARTITION_IN_TRANSITION.name(),
         String.valueOf(_maxPartitionInTransition));
+    if (isRateLimited()) {
+      configMap.put(ConfigProperty.TRANSITION_REFILL_RATE_PER_SECOND.name(),
+          String.valueOf(_transitionRefillRatePerSecond));
+    }
 
     String jsonStr = null;
     try {
@@ -143,7 +177,13 @@ public class StateTransitionThrottleConfig {
           ThrottleScope.valueOf(configsMap.get(ConfigProperty.THROTTLE_SCOPE.name()));
       Long maxPartition =
           Long.valueOf(configsMap.get(ConfigProperty.MAX_PARTITION_IN_TRANSITION.name()));
-      config = new StateTransitionThrottleConfig(rebalanceType, throttleScope, maxPartition);
+      long refillRate = DEFAULT_TRANSITION_REFILL_RATE_PER_SECOND;
+      if (configsMap.containsKey(ConfigProperty.TRANSITION_REFILL_RATE_PER_SECOND.name())) {
+        refillRate = Long.parseLong(
+            configsMap.get(ConfigProperty.TRANSITION_REFILL_RATE_PER_SECOND.name()));
+      }
+      config = new StateTransitionThrottleConfig(rebalanceType, throttleScope, maxPartition,
+          refillRate);
     } catch (IllegalArgumentException ex) {
       return null;
     }
@@ -30,17 +30,21 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.PropertyType;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.JobContext;
+import org.apache.helix.task.JobContextCodec;
 import org.apache.helix.task.RuntimeJobDag;
 import org.apache.helix.task.TaskConstants;
+import org.apache.helix.task.TaskUtil;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +54,8 @@ import org.slf4j.LoggerFactory;
 public class TaskDataCache extends AbstractDataCache {
   private static final Logger LOG = LoggerFactory.getLogger(TaskDataCache.class.getName());
   private static final String NAME = "NAME";
+  private static final boolean COMPACT_JOB_CONTEXT_ENABLED =
+      Boolean.getBoolean(SystemPropertyKeys.TASK_COMPACT_JOB_CONTEXT_ENABLED);
 
   private Map<String, JobConfig> _jobConfigMap = new HashMap<>();
   private Map<String, RuntimeJobDag> _runtimeJobDagMap = new HashMap<>();
@@ -60,6 +66,8 @@ public class TaskDataCache extends AbstractDataCache {
   private Map<String, ZNRecord> _contextMap = new HashMap<>();
   private Set<String> _contextToUpdate = new HashSet<>();
   private Set<String> _contextToRemove = new HashSet<>();
+  // Keeps the encoded tasks of the persisted job contexts, so unchanged tasks are not re-encoded
+  private final JobContextCodec _jobContextCodec = new JobContextCodec();
   // The following fields have been added for quota-based task scheduling
   private final AssignableInstanceManager _assignableInstanceManager =
       new AssignableInstanceManager();
@@ -137,6 +145,7 @@ public class TaskDataCache extends AbstractDataCache {
 
     _dispatchedJobs.clear();
     _runtimeJobDagMap.keySet().retainAll(_workflowConfigMap.keySet());
+    _jobContextCodec.retainJobs(_contextMap.keySet());
     _jobConfigMap = newJobConfigs;
     return true;
   }
@@ -160,10 +169,16 @@ public class TaskDataCache extends AbstractDataCache {
       contextPaths.add(getTaskDataPath(resourceName, TaskDataType.CONTEXT));
     }
 
-    List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(contextPaths, null, 0, true);
+    List<Stat> stats = new ArrayList<>();
+    List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(contextPaths, stats, 0, true);
 
     for (int i = 0; i < contexts.size(); i++) {
       ZNRecord context = contexts.get(i);
+      if (context != null && stats.get(i) != null) {
+        // The ZK version tells whether a context changed without comparing its content
+        context.setVersion(stats.get(i).getVersion());
+        context.setModifiedTime(stats.get(i).getMtime());
+      }
       if (context != null && context.getSimpleField(NAME) != null) {
         _contextMap.put(context.getSimpleField(NAME), context);
       } else {
@@ -290,7 +305,7 @@ public class TaskDataCache extends AbstractDataCache {
     for (String resourceName : dataUpdateNames) {
       if (dataMap.get(resourceName) != null) {
         contextUpdatePaths.add(getTaskDataPath(resourceName, taskDataType));
-        updatedData.add(dataMap.get(resourceName));
+        updatedData.add(toPersistedRecord(resourceName, dataMap.get(resourceName), taskDataType));
       }
     }
 
@@ -307,6 +322,19 @@ public class TaskDataCache extends AbstractDataCache {
     }
   }
 
+  /**
+   * Job contexts are persisted in the compact encoding if it is enabled. The in-memory context
+   * stays in the legacy format.
+   */
+  private ZNRecord toPersistedRecord(String resourceName, ZNRecord record,
+      TaskDataType taskDataType) {
+    if (COMPACT_JOB_CONTEXT_ENABLED && taskDataType == TaskDataType.CONTEXT
+        && TaskUtil.TASK_CONTEXT_KW.equals(record.getId())) {
+      return _jobContextCodec.encode(resourceName, record);
+    }
+    return record;
+  }
+
   private void batchDeleteData(HelixDataAccessor accessor, List<String> contextNamesToRemove,
       TaskDataType taskDataType) {
 
@@ -353,6 +381,7 @@ public class TaskDataCache extends AbstractDataCache {
       _contextMap.remove(resourceName);
       _contextToRemove.add(resourceName);
     }
+    _jobContextCodec.removeJob(resourceName);
   }
 
   @Override
@@ -310,6 +310,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     final ClusterEventType _clusterEventType;
     private final Optional<Boolean> _shouldRefreshCacheOption;
     private long _nextRebalanceTime;
+    private volatile boolean _started = false;
 
     public RebalanceTask(HelixManager manager, ClusterEventType clusterEventType) {
       this(manager, clusterEventType, -1);
@@ -337,8 +338,13 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
       return _nextRebalanceTime;
     }
 
+    public boolean isStarted() {
+      return _started;
+    }
+
     @Override
     public void run() {
+      _started = true;
       try {
         if (_shouldRefreshCacheOption.orElse(
             _clusterEventType.equals(ClusterEventType.PeriodicalRebalance) || _clusterEventType
@@ -502,6 +508,21 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     }
   }
 
+  /**
+   * @param delay the delay in milliseconds within which the pipeline run is needed
+   * @return true if a resource pipeline run is pending within the delay, either as a queued
+   *         cluster event or as a scheduled on demand rebalance that has not started yet and is
+   *         due no later than the delay from now.
+   */
+  public boolean isRebalancePending(long delay) {
+    if (!isEventQueueEmpty(false)) {
+      return true;
+    }
+    RebalanceTask nextRebalanceTask = _nextRebalanceTask.get();
+    return nextRebalanceTask != null && !nextRebalanceTask.isStarted()
+        && nextRebalanceTask.getNextRebalanceTime() <= System.currentTimeMillis() + delay;
+  }
+
   private static PipelineRegistry createDefaultRegistry(String pipelineName) {
     logger.info("createDefaultRegistry");
     synchronized (GenericHelixController.class) {
@@ -45,6 +45,7 @@ import org.apache.helix.controller.rebalancer.strategy.GreedyRebalanceStrategy;
 import org.apache.helix.controller.rebalancer.waged.WagedInstanceCapacity;
 import org.apache.helix.controller.rebalancer.waged.WagedResourceWeightsProvider;
 import org.apache.helix.controller.stages.MissingTopStateRecord;
+import org.apache.helix.controller.stages.StateTransitionTokenBuckets;
 import org.apache.helix.model.CustomizedState;
 import org.apache.helix.model.CustomizedStateConfig;
 import org.apache.helix.model.CustomizedView;
@@ -100,6 +101,11 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
   // TODO: cause shuffling. So it is not backward compatible.
   private final Map<String, List<String>> _stablePartitionListCache = new HashMap<>();
 
+  // Rate limit token buckets of state transition throttling, kept across pipeline runs so the
+  // unused tokens are carried over.
+  private final StateTransitionTokenBuckets _stateTransitionTokenBuckets =
+      new StateTransitionTokenBuckets();
+
   // WAGED specific capacity / weight provider
   WagedInstanceCapacity _wagedInstanceCapacity;
   WagedResourceWeightsProvider _wagedPartitionWeightProvider;
@@ -388,6 +394,10 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     return _lastTopStateLocationMap;
   }
 
+  public StateTransitionTokenBuckets getStateTransitionTokenBuckets() {
+    return _stateTransitionTokenBuckets;
+  }
+
   /**
    * Get cached resourceAssignment (bestPossible mapping) for a resource
    * @param resource
@@ -20,11 +20,18 @@ package org.apache.helix.controller.rebalancer.waged;
  */
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
-import java.util.stream.Collectors;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixProperty;
@@ -54,6 +61,12 @@ public class AssignmentMetadataStore {
   protected volatile Map<String, ResourceAssignment> _bestPossibleAssignment;
   protected volatile int _bestPossibleVersion = 0;
   protected volatile int _lastPersistedBestPossibleVersion = 0;
+  // The persisted copies of the resource assignments by the path of the assignment record.
+  // Assignments that did not change since the last persist are reused instead of being copied and
+  // serialized again. They are compared by a fingerprint of their content taken when persisted, so
+  // an in-memory assignment that is modified in place is still detected as changed.
+  private final Map<String, Map<String, PersistedAssignment>> _persistedAssignments =
+      new HashMap<>();
 
   AssignmentMetadataStore(String metadataStoreAddrs, String clusterName) {
     this(new ZkBucketDataAccessor(metadataStoreAddrs), clusterName);
@@ -104,7 +117,7 @@ public class AssignmentMetadataStore {
   private Map<String, ResourceAssignment> fetchAssignmentOrDefault(String path) {
     try {
       HelixProperty assignment = _dataAccessor.compressedBucketRead(path, HelixProperty.class);
-      return splitAssignments(assignment);
+      return splitAssignments(path, assignment);
     } catch (ZkNoNodeException ex) {
       // Metadata does not exist, so return an empty map
       return new HashMap<>();
@@ -115,18 +128,38 @@ public class AssignmentMetadataStore {
    * @param newAssignment
    * @param path the path of the assignment record
    * @param key  the key of the assignment in the record
+   * @return the persisted copy of the assignment
    * @throws HelixException if the method failed to persist the baseline.
    */
-  private void persistAssignmentToMetadataStore(Map<String, ResourceAssignment> newAssignment, String path, String key)
+  private Map<String, ResourceAssignment> persistAssignmentToMetadataStore(
+      Map<String, ResourceAssignment> newAssignment, String path, String key)
       throws HelixException {
+    // Only the resources whose assignment changed are copied and serialized again
+    Map<String, PersistedAssignment> lastPersistedAssignments =
+        _persistedAssignments.getOrDefault(path, Collections.emptyMap());
+    Map<String, PersistedAssignment> persistedAssignments = new HashMap<>();
+    newAssignment.forEach((resource, assignment) -> {
+      PersistedAssignment persistedAssignment = lastPersistedAssignments.get(resource);
+      if (persistedAssignment == null || !persistedAssignment.isSameAs(assignment)) {
+        persistedAssignment = new PersistedAssignment(assignment);
+      }
+      persistedAssignments.put(resource, persistedAssignment);
+    });
+
     // TODO: Make the write async?
     // Persist to ZK
-    HelixProperty combinedAssignments = combineAssignments(key, newAssignment);
+    HelixProperty combinedAssignments = combineAssignments(key, persistedAssignments);
     try {
       _dataAccessor.compressedBucketWrite(path, combinedAssignments);
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to persist %s assignment to path %s", key, path), e);
     }
+    _persistedAssignments.put(path, persistedAssignments);
+
+    Map<String, ResourceAssignment> assignmentCopy = new HashMap<>();
+    persistedAssignments.forEach((resource, persistedAssignment) -> assignmentCopy
+        .put(resource, persistedAssignment._assignment));
+    return assignmentCopy;
   }
 
   /**
@@ -134,12 +167,9 @@ public class AssignmentMetadataStore {
    * @param globalBaseline
    */
   public synchronized void persistBaseline(Map<String, ResourceAssignment> globalBaseline) {
-    // Create defensive copy so that the in-memory assignment is not modified after it is persisted
-    Map<String, ResourceAssignment> baselineCopy = globalBaseline.entrySet().stream().collect(
-        Collectors.toMap(Map.Entry::getKey,
-            entry -> new ResourceAssignment(entry.getValue().getRecord())));
     // write to metadata store
-    persistAssignmentToMetadataStore(baselineCopy, _baselinePath, BASELINE_KEY);
+    Map<String, ResourceAssignment> baselineCopy =
+        persistAssignmentToMetadataStore(globalBaseline, _baselinePath, BASELINE_KEY);
     // write to memory
     getBaseline().clear();
     getBaseline().putAll(baselineCopy);
@@ -151,12 +181,9 @@ public class AssignmentMetadataStore {
    * @param bestPossibleAssignment
    */
   public synchronized void persistBestPossibleAssignment(Map<String, ResourceAssignment> bestPossibleAssignment) {
-    // Create defensive copy so that the in-memory assignment is not modified after it is persisted
-    Map<String, ResourceAssignment> bestPossibleAssignmentCopy = bestPossibleAssignment.entrySet().stream().collect(
-        Collectors.toMap(Map.Entry::getKey,
-            entry -> new ResourceAssignment(entry.getValue().getRecord())));
     // write to metadata store
-    persistAssignmentToMetadataStore(bestPossibleAssignmentCopy, _bestPossiblePath, BEST_POSSIBLE_KEY);
+    Map<String, ResourceAssignment> bestPossibleAssignmentCopy = persistAssignmentToMetadataStore(
+        bestPossibleAssignment, _bestPossiblePath, BEST_POSSIBLE_KEY);
     // write to memory
     getBestPossibleAssignment().clear();
     getBestPossibleAssignment().putAll(bestPossibleAssignmentCopy);
@@ -196,6 +223,7 @@ public class AssignmentMetadataStore {
   }
 
   protected synchronized void reset() {
+    _persistedAssignments.clear();
     if (_bestPossibleAssignment != null) {
       _bestPossibleAssignment.clear();
       _bestPossibleAssignment = null;
@@ -223,30 +251,47 @@ public class AssignmentMetadataStore {
    * @return
    */
   private HelixProperty combineAssignments(String name,
-      Map<String, ResourceAssignment> assignmentMap) {
+      Map<String, PersistedAssignment> assignmentMap) {
     HelixProperty property = new HelixProperty(name);
     // Add each resource's assignment as a simple field in one ZNRecord
-    // Node that don't use Arrays.toString() for the record converting. The deserialize will fail.
-    assignmentMap.forEach((resource, assignment) -> property.getRecord().setSimpleField(resource,
-        new String(SERIALIZER.serialize(assignment.getRecord()))));
+    assignmentMap.forEach((resource, assignment) -> property.getRecord()
+        .setSimpleField(resource, assignment._serializedAssignment));
     return property;
   }
 
   /**
    * Returns a Map of (ResourceName, ResourceAssignment) pairs.
+   * @param path the path of the assignment record
    * @param property
    * @return
    */
-  private Map<String, ResourceAssignment> splitAssignments(HelixProperty property) {
+  private Map<String, ResourceAssignment> splitAssignments(String path, HelixProperty property) {
     Map<String, ResourceAssignment> assignmentMap = new HashMap<>();
+    Map<String, PersistedAssignment> persistedAssignments = new HashMap<>();
     // Convert each resource's assignment String into a ResourceAssignment object and put it in a
     // map
-    property.getRecord().getSimpleFields()
-        .forEach((resource, assignmentStr) -> assignmentMap.put(resource,
-            new ResourceAssignment((ZNRecord) SERIALIZER.deserialize(assignmentStr.getBytes()))));
+    property.getRecord().getSimpleFields().forEach((resource, assignmentStr) -> {
+      ResourceAssignment assignment =
+          new ResourceAssignment((ZNRecord) SERIALIZER.deserialize(assignmentStr.getBytes()));
+      if (isPersistingAssignments()) {
+        persistedAssignments.put(resource, new PersistedAssignment(assignment, assignmentStr));
+      }
+      assignmentMap.put(resource, assignment);
+    });
+    if (isPersistingAssignments()) {
+      _persistedAssignments.put(path, persistedAssignments);
+    }
     return assignmentMap;
   }
 
+  /**
+   * @return true if this store persists the assignments to the metadata store, so the assignments
+   *         read from it are tracked to be reused by the next persist.
+   */
+  protected boolean isPersistingAssignments() {
+    return true;
+  }
+
   protected boolean isBaselineChanged(Map<String, ResourceAssignment> newBaseline) {
     return !getBaseline().equals(newBaseline);
   }
@@ -254,4 +299,87 @@ public class AssignmentMetadataStore {
   protected boolean isBestPossibleChanged(Map<String, ResourceAssignment> newBestPossible) {
     return !getBestPossibleAssignment().equals(newBestPossible);
   }
+
+  /**
+   * A persisted copy of a resource assignment with its serialized form in the assignment record.
+   * The copy is shared with the in-memory assignments, the fingerprint of its content when it was
+   * persisted is used to detect changes.
+   */
+  private static class PersistedAssignment {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final ResourceAssignment _assignment;
+    private final long[] _fingerprint;
+    private final String _serializedAssignment;
+
+    PersistedAssignment(ResourceAssignment assignment) {
+      // Create defensive copy so the in-memory assignment is not modified after it is persisted
+      this(new ResourceAssignment(assignment.getRecord()), null);
+    }
+
+    PersistedAssignment(ResourceAssignment assignment, String serializedAssignment) {
+      _assignment = assignment;
+      _fingerprint = fingerprint(assignment.getRecord());
+      // Note that don't use Arrays.toString() for the record converting. The deserialize will fail.
+      _serializedAssignment = serializedAssignment != null ? serializedAssignment
+          : new String(SERIALIZER.serialize(assignment.getRecord()));
+    }
+
+    boolean isSameAs(ResourceAssignment assignment) {
+      return Objects.equals(_assignment.getId(), assignment.getId())
+          && Arrays.equals(_fingerprint, fingerprint(assignment.getRecord()));
+    }
+
+    /**
+     * A 128 bit murmur3 hash of the record content that does not depend on the iteration order of
+     * the fields. Every simple field, map field entry and list field is hashed on its characters
+     * and the hashes are summed, so records only match if their content is the same.
+     */
+    private static long[] fingerprint(ZNRecord record) {
+      long[] fingerprint = new long[2];
+      add(fingerprint, putString(newHasher(0), record.getId()));
+      for (Map.Entry<String, String> field : record.getSimpleFields().entrySet()) {
+        add(fingerprint, putString(putString(newHasher(1), field.getKey()), field.getValue()));
+      }
+      for (Map.Entry<String, Map<String, String>> field : record.getMapFields().entrySet()) {
+        Map<String, String> value = field.getValue();
+        add(fingerprint,
+            putString(newHasher(2), field.getKey()).putInt(value == null ? -1 : value.size()));
+        if (value != null) {
+          for (Map.Entry<String, String> entry : value.entrySet()) {
+            add(fingerprint, putString(putString(putString(newHasher(3), field.getKey()),
+                entry.getKey()), entry.getValue()));
+          }
+        }
+      }
+      for (Map.Entry<String, List<String>> field : record.getListFields().entrySet()) {
+        List<String> value = field.getValue();
+        Hasher hasher =
+            putString(newHasher(4), field.getKey()).putInt(value == null ? -1 : value.size());
+        if (value != null) {
+          for (String item : value) {
+            putString(hasher, item);
+          }
+        }
+        add(fingerprint, hasher);
+      }
+      return fingerprint;
+    }
+
+    private static Hasher newHasher(int fieldType) {
+      return HASH_FUNCTION.newHasher().putInt(fieldType);
+    }
+
+    // The length prefix keeps the boundaries of the strings, null is hashed as length -1
+    private static Hasher putString(Hasher hasher, String value) {
+      return value == null ? hasher.putInt(-1)
+          : hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+    }
+
+    private static void add(long[] fingerprint, Hasher hasher) {
+      ByteBuffer hash = ByteBuffer.wrap(hasher.hash().asBytes());
+      fingerprint[0] += hash.getLong();
+      fingerprint[1] += hash.getLong();
+    }
+  }
 }
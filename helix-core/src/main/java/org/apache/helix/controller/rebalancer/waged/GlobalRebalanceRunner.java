@@ -20,13 +20,23 @@ package org.apache.helix.controller.rebalancer.waged;
  */
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixRebalanceException;
 import org.apache.helix.controller.changedetector.ResourceChangeDetector;
@@ -35,7 +45,10 @@ import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
 import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ClusterTopologyConfig;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
@@ -73,9 +86,16 @@ class GlobalRebalanceRunner implements AutoCloseable {
   private final LatencyMetric _writeLatency;
   private final CountMetric _baselineCalcCounter;
   private final LatencyMetric _baselineCalcLatency;
+  // Provides a latency gauge per baseline shard, so the shards can be told apart
+  private final WagedRebalancerMetricCollector _shardMetricCollector;
   private final CountMetric _rebalanceFailureCount;
 
   private boolean _asyncGlobalRebalanceEnabled;
+  // To calculate the baseline shards concurrently. Only created if the parallelism is larger than 1.
+  private ExecutorService _baselineShardExecutor;
+  private int _baselineCalculationParallelism =
+      ClusterConfig.DEFAULT_GLOBAL_BASELINE_CALCULATION_PARALLELISM;
+  private boolean _closed = false;
 
   public GlobalRebalanceRunner(AssignmentManager assignmentManager,
       AssignmentMetadataStore assignmentMetadataStore,
@@ -94,6 +114,9 @@ class GlobalRebalanceRunner implements AutoCloseable {
     _baselineCalcLatency = metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.GlobalBaselineCalcLatencyGauge.name(),
         LatencyMetric.class);
+    // Other metric collectors have no shard gauges, they are only kept by an unregistered one
+    _shardMetricCollector = metricCollector instanceof WagedRebalancerMetricCollector
+        ? (WagedRebalancerMetricCollector) metricCollector : new WagedRebalancerMetricCollector();
     _rebalanceFailureCount = rebalanceFailureCount;
     _asyncGlobalRebalanceEnabled = isAsyncGlobalRebalanceEnabled;
   }
@@ -167,16 +190,9 @@ class GlobalRebalanceRunner implements AutoCloseable {
     // 2. Use the previous Baseline as the only parameter about the previous assignment.
     Map<String, ResourceAssignment> currentBaseline =
         _assignmentManager.getBaselineAssignment(_assignmentMetadataStore, currentStateOutput, resourceMap.keySet());
-    ClusterModel clusterModel;
-    try {
-      clusterModel = ClusterModelProvider.generateClusterModelForBaseline(clusterData, resourceMap,
-          allAssignableInstances, clusterChanges, currentBaseline);
-    } catch (Exception ex) {
-      throw new HelixRebalanceException("Failed to generate cluster model for global rebalance.",
-          HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
-    }
-
-    Map<String, ResourceAssignment> newBaseline = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+    Map<String, ResourceAssignment> newBaseline =
+        calculateBaseline(clusterData, resourceMap, allAssignableInstances, algorithm,
+            clusterChanges, currentBaseline);
     boolean isBaselineChanged =
         _assignmentMetadataStore != null && _assignmentMetadataStore.isBaselineChanged(newBaseline);
     // Write the new baseline to metadata store
@@ -205,6 +221,287 @@ class GlobalRebalanceRunner implements AutoCloseable {
     _asyncGlobalRebalanceEnabled = isAsyncGlobalRebalanceEnabled;
   }
 
+  /**
+   * Set the number of threads used to calculate the baseline shards.
+   * @param parallelism 1 to calculate the baseline of all the resources in one shard
+   */
+  public synchronized void setBaselineCalculationParallelism(int parallelism) {
+    parallelism = Math.max(1, parallelism);
+    if (parallelism == _baselineCalculationParallelism) {
+      return;
+    }
+    if (_baselineShardExecutor != null) {
+      // The submitted shards of a running calculation still finish on the old executor. A
+      // calculation that has not submitted its shards yet is rejected and falls back to the
+      // calculation in one shard.
+      _baselineShardExecutor.shutdown();
+      _baselineShardExecutor = null;
+    }
+    if (parallelism > 1 && !_closed) {
+      // Daemon threads, so an idle shard pool never keeps the controller JVM alive
+      _baselineShardExecutor = Executors.newFixedThreadPool(parallelism,
+          new ThreadFactoryBuilder().setNameFormat("GlobalRebalanceRunner-baseline-shard-%d")
+              .setDaemon(true).build());
+    }
+    _baselineCalculationParallelism = parallelism;
+  }
+
+  private synchronized ExecutorService getBaselineShardExecutor() {
+    return _baselineShardExecutor;
+  }
+
+  /**
+   * Calculate the new baseline. If the baseline calculation parallelism is larger than 1 and the
+   * resources can be split into independent shards, the shards are calculated concurrently and the
+   * results are merged. Otherwise, the baseline of all the resources is calculated in one model.
+   */
+  Map<String, ResourceAssignment> calculateBaseline(
+      ResourceControllerDataProvider clusterData, Map<String, Resource> resourceMap,
+      Set<String> allAssignableInstances, RebalanceAlgorithm algorithm,
+      Map<HelixConstants.ChangeType, Set<String>> clusterChanges,
+      Map<String, ResourceAssignment> currentBaseline) throws HelixRebalanceException {
+    ExecutorService shardExecutor = getBaselineShardExecutor();
+    List<BaselineShard> shards = shardExecutor == null ? Collections.emptyList()
+        : computeBaselineShards(resourceMap.keySet(),
+            getInstanceGroupTags(clusterData, resourceMap.keySet()),
+            getInstanceTags(clusterData, allAssignableInstances));
+    // Remove the latency gauges of the shards that are no longer calculated
+    _shardMetricCollector.retainBaselineShards(shards.size() > 1
+        ? shards.stream().map(BaselineShard::getTag).collect(Collectors.toList())
+        : Collections.emptyList());
+    if (shards.size() > 1) {
+      try {
+        Map<String, ResourceAssignment> newBaseline =
+            calculateShardedBaseline(shards, shardExecutor, clusterData, resourceMap, algorithm,
+                clusterChanges, currentBaseline);
+        if (newBaseline != null) {
+          return newBaseline;
+        }
+        LOG.warn("Sharded baseline calculation result conflicts, recalculate in one shard.");
+      } catch (RejectedExecutionException e) {
+        // The executor has been shut down by a parallelism change in the meantime
+        LOG.warn("Sharded baseline calculation is rejected, recalculate in one shard.", e);
+      }
+    }
+    return calculateShard(clusterData, resourceMap, allAssignableInstances, algorithm,
+        clusterChanges, currentBaseline);
+  }
+
+  /**
+   * Calculate the shards concurrently and merge the results.
+   * @return the merged baseline, or null if the shard results conflict with each other
+   * @throws RejectedExecutionException if the executor is shut down before all shards are submitted
+   */
+  private Map<String, ResourceAssignment> calculateShardedBaseline(List<BaselineShard> shards,
+      ExecutorService shardExecutor, ResourceControllerDataProvider clusterData,
+      Map<String, Resource> resourceMap, RebalanceAlgorithm algorithm,
+      Map<HelixConstants.ChangeType, Set<String>> clusterChanges,
+      Map<String, ResourceAssignment> currentBaseline) throws HelixRebalanceException {
+    LOG.info("Calculate the new baseline in {} shards.", shards.size());
+    List<Future<Map<String, ResourceAssignment>>> shardResults = new ArrayList<>();
+    for (BaselineShard shard : shards) {
+      Map<String, Resource> shardResourceMap = new HashMap<>();
+      Map<String, ResourceAssignment> shardBaseline = new HashMap<>();
+      for (String resourceName : shard.getResources()) {
+        shardResourceMap.put(resourceName, resourceMap.get(resourceName));
+        if (currentBaseline.containsKey(resourceName)) {
+          shardBaseline.put(resourceName, currentBaseline.get(resourceName));
+        }
+      }
+      try {
+        LatencyMetric shardCalcLatency =
+            _shardMetricCollector.getBaselineShardCalcLatency(shard.getTag());
+        shardResults.add(shardExecutor.submit(() -> {
+          shardCalcLatency.startMeasuringLatency();
+          Map<String, ResourceAssignment> result =
+              calculateShard(clusterData, shardResourceMap, shard.getInstances(), algorithm,
+                  clusterChanges, shardBaseline);
+          shardCalcLatency.endMeasuringLatency();
+          return result;
+        }));
+      } catch (RejectedExecutionException e) {
+        shardResults.forEach(result -> result.cancel(true));
+        throw e;
+      }
+    }
+
+    Map<String, ResourceAssignment> newBaseline = new HashMap<>();
+    for (int i = 0; i < shards.size(); i++) {
+      Map<String, ResourceAssignment> shardResult;
+      try {
+        shardResult = shardResults.get(i).get();
+      } catch (InterruptedException | ExecutionException e) {
+        shardResults.forEach(result -> result.cancel(true));
+        if (e.getCause() instanceof HelixRebalanceException) {
+          throw (HelixRebalanceException) e.getCause();
+        }
+        throw new HelixRebalanceException("Failed to execute the baseline shard calculation.",
+            HelixRebalanceException.Type.FAILED_TO_CALCULATE, e);
+      }
+      if (!isShardResultValid(shards.get(i), shardResult)) {
+        return null;
+      }
+      newBaseline.putAll(shardResult);
+    }
+    return newBaseline;
+  }
+
+  private Map<String, ResourceAssignment> calculateShard(ResourceControllerDataProvider clusterData,
+      Map<String, Resource> resourceMap, Set<String> assignableInstances,
+      RebalanceAlgorithm algorithm, Map<HelixConstants.ChangeType, Set<String>> clusterChanges,
+      Map<String, ResourceAssignment> currentBaseline) throws HelixRebalanceException {
+    ClusterModel clusterModel;
+    try {
+      clusterModel = ClusterModelProvider.generateClusterModelForBaseline(clusterData, resourceMap,
+          assignableInstances, clusterChanges, currentBaseline);
+    } catch (Exception ex) {
+      throw new HelixRebalanceException("Failed to generate cluster model for global rebalance.",
+          HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
+    }
+    return WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+  }
+
+  /**
+   * The conflict check of the merge pass. A shard result is valid only if it assigns the shard
+   * resources and only to the shard instances, so the shard results never compete for the
+   * capacity of the same instance.
+   */
+  private static boolean isShardResultValid(BaselineShard shard,
+      Map<String, ResourceAssignment> shardResult) {
+    for (Map.Entry<String, ResourceAssignment> entry : shardResult.entrySet()) {
+      if (!shard.getResources().contains(entry.getKey())) {
+        return false;
+      }
+      ResourceAssignment assignment = entry.getValue();
+      for (Partition partition : assignment.getMappedPartitions()) {
+        if (!shard.getInstances().containsAll(assignment.getReplicaMap(partition).keySet())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static Map<String, String> getInstanceGroupTags(
+      ResourceControllerDataProvider clusterData, Set<String> resources) {
+    Map<String, String> instanceGroupTags = new HashMap<>();
+    for (String resourceName : resources) {
+      IdealState idealState = clusterData.getIdealState(resourceName);
+      instanceGroupTags.put(resourceName,
+          idealState == null ? null : idealState.getInstanceGroupTag());
+    }
+    return instanceGroupTags;
+  }
+
+  private static Map<String, Collection<String>> getInstanceTags(
+      ResourceControllerDataProvider clusterData, Set<String> instances) {
+    Map<String, InstanceConfig> instanceConfigMap = clusterData.getAssignableInstanceConfigMap();
+    Map<String, Collection<String>> instanceTags = new HashMap<>();
+    for (String instance : instances) {
+      InstanceConfig instanceConfig = instanceConfigMap.get(instance);
+      instanceTags.put(instance,
+          instanceConfig == null ? Collections.emptyList() : instanceConfig.getTags());
+    }
+    return instanceTags;
+  }
+
+  /**
+   * Split the resources into shards that can be calculated independently. A resource can only be
+   * assigned to the instances that have its instance group tag, so the tags that are shared by any
+   * instance are connected, and each connected group of tags forms one shard with the resources
+   * and instances of these tags.
+   * If any resource has no instance group tag, it may be assigned to any instance, so all the
+   * resources are calculated in one shard.
+   * @param resources the resources to be calculated
+   * @param instanceGroupTags resource name -> instance group tag, null if not tagged
+   * @param instanceTags instance name -> tags of the instance
+   * @return the shards, or an empty list if the resources cannot be sharded
+   */
+  static List<BaselineShard> computeBaselineShards(Set<String> resources,
+      Map<String, String> instanceGroupTags, Map<String, Collection<String>> instanceTags) {
+    Map<String, String> tagParents = new HashMap<>();
+    for (String resource : resources) {
+      String tag = instanceGroupTags.get(resource);
+      if (tag == null || tag.isEmpty()) {
+        return Collections.emptyList();
+      }
+      tagParents.put(tag, tag);
+    }
+    // Union the resource tags that are shared by the same instance.
+    for (Collection<String> tags : instanceTags.values()) {
+      String firstTag = null;
+      for (String tag : tags) {
+        if (!tagParents.containsKey(tag)) {
+          continue;
+        }
+        if (firstTag == null) {
+          firstTag = tag;
+        } else {
+          tagParents.put(findRoot(tagParents, tag), findRoot(tagParents, firstTag));
+        }
+      }
+    }
+
+    // Sorted by the root tag so the shards are in a stable order.
+    Map<String, BaselineShard> shards = new TreeMap<>();
+    for (String resource : resources) {
+      shards.computeIfAbsent(findRoot(tagParents, instanceGroupTags.get(resource)),
+          BaselineShard::new)._resources.add(resource);
+    }
+    for (Map.Entry<String, Collection<String>> entry : instanceTags.entrySet()) {
+      for (String tag : entry.getValue()) {
+        if (tagParents.containsKey(tag)) {
+          shards.get(findRoot(tagParents, tag))._instances.add(entry.getKey());
+          break;
+        }
+      }
+    }
+    return new ArrayList<>(shards.values());
+  }
+
+  private static String findRoot(Map<String, String> parents, String tag) {
+    String root = tag;
+    while (!parents.get(root).equals(root)) {
+      root = parents.get(root);
+    }
+    // Path compression
+    while (!tag.equals(root)) {
+      String parent = parents.get(tag);
+      parents.put(tag, root);
+      tag = parent;
+    }
+    return root;
+  }
+
+  /**
+   * A group of resources and the instances they can be assigned to. Different shards share
+   * neither resources nor instances.
+   */
+  static class BaselineShard {
+    private final String _tag;
+    private final Set<String> _resources = new HashSet<>();
+    private final Set<String> _instances = new HashSet<>();
+
+    BaselineShard(String tag) {
+      _tag = tag;
+    }
+
+    /**
+     * @return the root tag of the connected tags, which identifies the shard
+     */
+    String getTag() {
+      return _tag;
+    }
+
+    Set<String> getResources() {
+      return _resources;
+    }
+
+    Set<String> getInstances() {
+      return _instances;
+    }
+  }
+
   public ResourceChangeDetector getChangeDetector() {
     return _changeDetector;
   }
@@ -217,5 +514,12 @@ class GlobalRebalanceRunner implements AutoCloseable {
     if (_baselineCalculateExecutor != null) {
       _baselineCalculateExecutor.shutdownNow();
     }
+    synchronized (this) {
+      _closed = true;
+      if (_baselineShardExecutor != null) {
+        _baselineShardExecutor.shutdownNow();
+        _baselineShardExecutor = null;
+      }
+    }
   }
 }
@@ -66,6 +66,12 @@ public class ReadOnlyWagedRebalancer extends WagedRebalancer {
       super(zkBucketDataAccessor, clusterName);
     }
 
+    @Override
+    protected boolean isPersistingAssignments() {
+      // Nothing is persisted, so there is no need to track the assignments read
+      return false;
+    }
+
     @Override
     public void persistBaseline(Map<String, ResourceAssignment> globalBaseline) {
       // Update the in-memory reference only
@@ -200,6 +200,11 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
     _globalRebalanceRunner.setGlobalRebalanceAsyncMode(isAsyncGlobalRebalanceEnabled);
   }
 
+  // Update the number of threads used to calculate the global baseline
+  public void setGlobalBaselineCalculationParallelism(int parallelism) {
+    _globalRebalanceRunner.setBaselineCalculationParallelism(parallelism);
+  }
+
   // Update the partial rebalance mode to be asynchronous or synchronous
   public void setPartialRebalanceAsyncMode(boolean isAsyncPartialRebalanceEnabled) {
     _partialRebalanceRunner.setPartialRebalanceAsyncMode(isAsyncPartialRebalanceEnabled);
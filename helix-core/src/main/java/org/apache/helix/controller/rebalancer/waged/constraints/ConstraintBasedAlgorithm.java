@@ -22,6 +22,7 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -57,17 +58,23 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintBasedAlgorithm.class);
   private final List<HardConstraint> _hardConstraints;
   private final Map<SoftConstraint, Float> _softConstraints;
+  // The nodes that fail these constraints can be pruned with the ClusterModel node indexes.
+  private final boolean _pruneByInstanceTag;
+  private final boolean _pruneByFaultZone;
 
   ConstraintBasedAlgorithm(List<HardConstraint> hardConstraints,
       Map<SoftConstraint, Float> softConstraints) {
     _hardConstraints = hardConstraints;
     _softConstraints = softConstraints;
+    _pruneByInstanceTag =
+        hardConstraints.stream().anyMatch(constraint -> constraint instanceof ValidGroupTagConstraint);
+    _pruneByFaultZone =
+        hardConstraints.stream().anyMatch(constraint -> constraint instanceof FaultZoneAwareConstraint);
   }
 
   @Override
   public OptimalAssignment calculate(ClusterModel clusterModel) throws HelixRebalanceException {
     OptimalAssignment optimalAssignment = new OptimalAssignment();
-    List<AssignableNode> nodes = new ArrayList<>(clusterModel.getAssignableNodes().values());
     Set<String> busyInstances =
         getBusyInstances(clusterModel.getContext().getBestPossibleAssignment().values());
 
@@ -97,8 +104,7 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
     for (AssignableReplicaWithScore replicaWithScore : toBeAssignedReplicas) {
       AssignableReplica replica = replicaWithScore.getAssignableReplica();
       Optional<AssignableNode> maybeBestNode =
-          getNodeWithHighestPoints(replica, nodes, clusterModel.getContext(), busyInstances,
-              optimalAssignment);
+          getNodeWithHighestPoints(replica, clusterModel, busyInstances, optimalAssignment);
       // stop immediately if any replica cannot find best assignable node
       if (!maybeBestNode.isPresent() || optimalAssignment.hasAnyFailure()) {
         String errorMessage = String.format(
@@ -118,24 +124,23 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
   }
 
   private Optional<AssignableNode> getNodeWithHighestPoints(AssignableReplica replica,
-      List<AssignableNode> assignableNodes, ClusterContext clusterContext,
-      Set<String> busyInstances, OptimalAssignment optimalAssignment) {
+      ClusterModel clusterModel, Set<String> busyInstances, OptimalAssignment optimalAssignment) {
+    ClusterContext clusterContext = clusterModel.getContext();
     Map<AssignableNode, List<HardConstraint>> hardConstraintFailures = new ConcurrentHashMap<>();
-    List<AssignableNode> candidateNodes = assignableNodes.parallelStream().filter(candidateNode -> {
-      boolean isValid = true;
-      // need to record all the failure reasons and it gives us the ability to debug/fix the runtime
-      // cluster environment
-      for (HardConstraint hardConstraint : _hardConstraints) {
-        if (!hardConstraint.isAssignmentValid(candidateNode, replica, clusterContext)) {
-          hardConstraintFailures.computeIfAbsent(candidateNode, node -> new ArrayList<>())
-              .add(hardConstraint);
-          isValid = false;
-        }
-      }
-      return isValid;
-    }).collect(Collectors.toList());
+    // Only evaluate the nodes that are not trivially rejected by the instance tag and fault zone.
+    List<AssignableNode> prunedNodes =
+        clusterModel.getCandidateNodes(replica, _pruneByInstanceTag, _pruneByFaultZone);
+    List<AssignableNode> candidateNodes =
+        filterByHardConstraints(replica, prunedNodes, clusterContext, hardConstraintFailures);
 
     if (candidateNodes.isEmpty()) {
+      if (prunedNodes.size() < clusterModel.getAssignableNodes().size()) {
+        // Evaluate the pruned nodes as well so the failure reasons cover all the nodes.
+        Set<AssignableNode> evaluatedNodes = new HashSet<>(prunedNodes);
+        filterByHardConstraints(replica, clusterModel.getAssignableNodes().values().stream()
+                .filter(node -> !evaluatedNodes.contains(node)).collect(Collectors.toList()),
+            clusterContext, hardConstraintFailures);
+      }
       LOG.info("Found no eligible candidate nodes. Enabling hard constraint level logging for cluster: {}", clusterContext.getClusterName());
       enableFullLoggingForCluster();
       optimalAssignment.recordAssignmentFailure(replica,
@@ -165,6 +170,24 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
         }).map(Map.Entry::getKey);
   }
 
+  private List<AssignableNode> filterByHardConstraints(AssignableReplica replica,
+      List<AssignableNode> assignableNodes, ClusterContext clusterContext,
+      Map<AssignableNode, List<HardConstraint>> hardConstraintFailures) {
+    return assignableNodes.parallelStream().filter(candidateNode -> {
+      boolean isValid = true;
+      // need to record all the failure reasons and it gives us the ability to debug/fix the runtime
+      // cluster environment
+      for (HardConstraint hardConstraint : _hardConstraints) {
+        if (!hardConstraint.isAssignmentValid(candidateNode, replica, clusterContext)) {
+          hardConstraintFailures.computeIfAbsent(candidateNode, node -> new ArrayList<>())
+              .add(hardConstraint);
+          isValid = false;
+        }
+      }
+      return isValid;
+    }).collect(Collectors.toList());
+  }
+
   private double getAssignmentNormalizedScore(AssignableNode node, AssignableReplica replica,
       ClusterContext clusterContext) {
     double sum = 0;
@@ -19,9 +19,11 @@ package org.apache.helix.controller.rebalancer.waged.model;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -41,6 +43,10 @@ public class ClusterModel {
   private final Map<String, AssignableNode> _assignableNodeMap;
   private final Set<String> _assignableNodeLogicalIds;
   private final Map<String, Set<String>> _assignableLogicalIdsByInstanceTag;
+  // The indexes to prune the candidate nodes of a replica without evaluating the constraints.
+  private final List<AssignableNode> _assignableNodeList;
+  private final Map<String, List<AssignableNode>> _assignableNodesByInstanceTag;
+  private final Map<String, List<AssignableNode>> _assignableNodesByFaultZone;
 
   /**
    * @param clusterContext         The initialized cluster context.
@@ -68,13 +74,21 @@ public class ClusterModel {
         assignableNodes.parallelStream().map(AssignableNode::getLogicalId)
             .collect(Collectors.toSet());
 
-    // Index all the instances by their instance tags
+    // Index all the instances by their instance tags and fault zones
     _assignableLogicalIdsByInstanceTag = new HashMap<>();
+    _assignableNodeList = new ArrayList<>(assignableNodes);
+    _assignableNodesByInstanceTag = new HashMap<>();
+    _assignableNodesByFaultZone = new HashMap<>();
     assignableNodes.forEach(node -> {
       node.getInstanceTags().forEach(tag -> {
         _assignableLogicalIdsByInstanceTag.computeIfAbsent(tag, key -> new HashSet<>())
             .add(node.getLogicalId());
+        _assignableNodesByInstanceTag.computeIfAbsent(tag, key -> new ArrayList<>()).add(node);
       });
+      if (node.hasFaultZone()) {
+        _assignableNodesByFaultZone.computeIfAbsent(node.getFaultZone(), key -> new ArrayList<>())
+            .add(node);
+      }
     });
   }
 
@@ -104,6 +118,42 @@ public class ClusterModel {
     return _assignableLogicalIdsByInstanceTag.getOrDefault(instanceTag, getAssignableLogicalIds());
   }
 
+  /**
+   * Get the nodes that may accept the given replica, pruned with the node indexes instead of
+   * evaluating the constraints against every node.
+   *
+   * @param replica           The replica to be assigned.
+   * @param filterByTag       If true, only return the nodes that have the instance group tag of the
+   *                          replica's resource.
+   * @param filterByFaultZone If true, exclude the nodes in the fault zones that already hold a
+   *                          replica of the same partition.
+   * @return The candidate nodes. The hard constraints still need to be evaluated on them.
+   */
+  public List<AssignableNode> getCandidateNodes(AssignableReplica replica, boolean filterByTag,
+      boolean filterByFaultZone) {
+    List<AssignableNode> candidates = _assignableNodeList;
+    if (filterByTag && replica.hasResourceInstanceGroupTag()) {
+      candidates = _assignableNodesByInstanceTag
+          .getOrDefault(replica.getResourceInstanceGroupTag(), Collections.emptyList());
+    }
+    if (filterByFaultZone) {
+      Set<String> occupiedFaultZones = new HashSet<>();
+      for (String faultZone : _assignableNodesByFaultZone.keySet()) {
+        if (_clusterContext
+            .getPartitionsForResourceAndFaultZone(replica.getResourceName(), faultZone)
+            .contains(replica.getPartitionName())) {
+          occupiedFaultZones.add(faultZone);
+        }
+      }
+      if (!occupiedFaultZones.isEmpty()) {
+        return candidates.stream().filter(
+            node -> !node.hasFaultZone() || !occupiedFaultZones.contains(node.getFaultZone()))
+            .collect(Collectors.toList());
+      }
+    }
+    return candidates;
+  }
+
   public Map<String, Set<AssignableReplica>> getAssignableReplicaMap() {
     return _assignableReplicaMap;
   }
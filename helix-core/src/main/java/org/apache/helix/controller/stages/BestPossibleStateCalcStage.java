@@ -404,6 +404,8 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
       wagedRebalancer.updateRebalancePreference(clusterConfig.getGlobalRebalancePreference());
       wagedRebalancer
           .setGlobalRebalanceAsyncMode(clusterConfig.isGlobalRebalanceAsyncModeEnabled());
+      wagedRebalancer.setGlobalBaselineCalculationParallelism(
+          clusterConfig.getGlobalBaselineCalculationParallelism());
     }
   }
 
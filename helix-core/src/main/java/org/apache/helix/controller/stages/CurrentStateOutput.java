@@ -21,10 +21,12 @@ package org.apache.helix.controller.stages;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import com.google.common.collect.Sets;
+import org.apache.helix.HelixDefinedState;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
@@ -60,6 +62,9 @@ public class CurrentStateOutput {
   private final Map<String, Map<Partition, Map<String, String>>> _infoMap;
   private final Map<String, String> _resourceStateModelMap;
   private final Map<String, CurrentState> _curStateMetaMap;
+  // resourceName -> partitions that have at least one replica in ERROR state, maintained when the
+  // current states are set so callers don't need to scan every partition of the resource
+  private final Map<String, Set<Partition>> _partitionsWithErrorReplica;
 
   public CurrentStateOutput() {
     _currentStateMap = new HashMap<>();
@@ -71,6 +76,7 @@ public class CurrentStateOutput {
     _curStateMetaMap = new HashMap<>();
     _requestedStateMap = new HashMap<>();
     _infoMap = new HashMap<>();
+    _partitionsWithErrorReplica = new HashMap<>();
   }
 
   public void setResourceStateModelDef(String resourceName, String stateModelDefName) {
@@ -108,7 +114,18 @@ public class CurrentStateOutput {
     if (!_currentStateMap.get(resourceName).containsKey(partition)) {
       _currentStateMap.get(resourceName).put(partition, new HashMap<String, String>());
     }
-    _currentStateMap.get(resourceName).get(partition).put(instanceName, state);
+    Map<String, String> instanceStateMap = _currentStateMap.get(resourceName).get(partition);
+    instanceStateMap.put(instanceName, state);
+
+    if (state != null && state.contains(HelixDefinedState.ERROR.name())) {
+      _partitionsWithErrorReplica.computeIfAbsent(resourceName, k -> new HashSet<>())
+          .add(partition);
+    } else if (_partitionsWithErrorReplica.containsKey(resourceName)
+        && instanceStateMap.values().stream()
+        .noneMatch(s -> s != null && s.contains(HelixDefinedState.ERROR.name()))) {
+      // the replica overwritten may have been the only ERROR replica of the partition
+      _partitionsWithErrorReplica.get(resourceName).remove(partition);
+    }
   }
 
   public void setEndTime(String resourceName, Partition partition, String instanceName,
@@ -284,6 +301,16 @@ public class CurrentStateOutput {
     return Collections.emptyMap();
   }
 
+  /**
+   * Given resource, returns the partitions that have at least one replica in ERROR state.
+   * @param resourceName
+   * @return set of partitions, or empty set if there are none
+   */
+  public Set<Partition> getPartitionsWithErrorReplica(String resourceName) {
+    Set<Partition> partitions = _partitionsWithErrorReplica.get(resourceName);
+    return partitions == null ? Collections.emptySet() : Collections.unmodifiableSet(partitions);
+  }
+
   /**
    * given (resource, partition), returns (instance->currentState) map
    * @param resourceName
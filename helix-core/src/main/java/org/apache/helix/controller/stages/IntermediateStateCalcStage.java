@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,6 +51,7 @@ import org.apache.helix.model.Resource;
 import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.monitoring.mbeans.ResourceMonitor;
+import org.apache.helix.util.RebalanceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -115,7 +117,8 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
 
     StateTransitionThrottleController throttleController =
         new StateTransitionThrottleController(resourceMap.keySet(), dataCache.getClusterConfig(),
-            dataCache.getLiveInstances().keySet());
+            dataCache.getLiveInstances().keySet(), dataCache.getStateTransitionTokenBuckets(),
+            System.currentTimeMillis());
 
     // Resource level prioritization based on the numerical (sortable) priority field.
     // If the resource priority field is null/not set, the resource will be treated as lowest
@@ -148,6 +151,11 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
       Collections.sort(prioritizedResourceList);
     }
 
+    if (dataCache.getClusterConfig().isStateTransitionThrottleFairShareEnabled()) {
+      throttleController.setFairShareWeights(
+          getFairShareWeights(prioritizedResourceList, resourceMap, dataCache, messageOutput));
+    }
+
     ClusterStatusMonitor clusterStatusMonitor =
         event.getAttribute(AttributeName.clusterStatusMonitor.name());
     List<String> failedResources = new ArrayList<>();
@@ -196,9 +204,46 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
           .setResourceRebalanceStates(output.resourceSet(), ResourceMonitor.RebalanceStatus.NORMAL);
     }
 
+    // The state transitions held off by the rate limit won't be retried by any state transition
+    // completion, so schedule a pipeline run when the tokens are refilled. If a run is already
+    // pending by then, it will check the tokens again and schedule the next run if still needed.
+    // Nothing changed in the cluster data, so the run does not refresh the cache.
+    long rateLimitRetryDelay = throttleController.getRateLimitRetryDelay();
+    if (rateLimitRetryDelay != Long.MAX_VALUE && !RebalanceUtil
+        .isPipelinePending(dataCache.getClusterName(), rateLimitRetryDelay)) {
+      LogUtil.logInfo(logger, _eventId, String.format(
+          "State transitions are held off by the rate limit, schedule a pipeline run in %d ms",
+          rateLimitRetryDelay));
+      RebalanceUtil
+          .scheduleOnDemandPipeline(dataCache.getClusterName(), rateLimitRetryDelay, false);
+    }
+
     return output;
   }
 
+  /**
+   * Get the weights used to share the cluster level throttle quota. Only the FULL_AUTO resources
+   * that have messages to throttle take a share, weighted by their number of partitions.
+   * @return resource name to weight, in resource priority order
+   */
+  private Map<String, Long> getFairShareWeights(List<ResourcePriority> prioritizedResourceList,
+      Map<String, Resource> resourceMap, ResourceControllerDataProvider dataCache,
+      MessageOutput messageOutput) {
+    Map<String, Long> weights = new LinkedHashMap<>();
+    for (ResourcePriority resourcePriority : prioritizedResourceList) {
+      String resourceName = resourcePriority.getResourceName();
+      IdealState idealState = dataCache.getIdealState(resourceName);
+      if (idealState == null || !IdealState.RebalanceMode.FULL_AUTO
+          .equals(idealState.getRebalanceMode()) || messageOutput
+          .getResourceMessageMap(resourceName).isEmpty()) {
+        continue;
+      }
+      weights.put(resourceName,
+          (long) Math.max(1, resourceMap.get(resourceName).getPartitions().size()));
+    }
+    return weights;
+  }
+
   /**
    * Go through every instance in the assignment and check that each instance does NOT have more
    * replicas for partitions assigned to it than maxPartitionsPerInstance. If the assignment
@@ -316,7 +361,6 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     // This requires a deep copy of current state map because some of the states will be overwritten by applying
     // messages to it.
 
-    Set<Partition> partitionsWithErrorStateReplica = new HashSet<>();
     Set<String> messagesForRecovery = new HashSet<>();
     Set<String> messagesForLoad = new HashSet<>();
     Set<String> messagesThrottledForRecovery = new HashSet<>();
@@ -328,13 +372,8 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     // for the new one. This is for backward-compatibility
     int threshold = 1; // Default threshold for ErrorOrRecoveryPartitionThresholdForLoadBalance
     // Keep the error count as partition level. This logic only applies to downward state transition determination
-    for (Partition partition : currentStateOutput.getCurrentStateMap(resourceName).keySet()) {
-      Map<String, String> entry =
-          currentStateOutput.getCurrentStateMap(resourceName).get(partition);
-      if (entry.values().stream().anyMatch(x -> x.contains(HelixDefinedState.ERROR.name()))) {
-        partitionsWithErrorStateReplica.add(partition);
-      }
-    }
+    Set<Partition> partitionsWithErrorStateReplica =
+        currentStateOutput.getPartitionsWithErrorReplica(resourceName);
     int numPartitionsWithErrorReplica = partitionsWithErrorStateReplica.size();
     if (clusterConfig.getErrorOrRecoveryPartitionThresholdForLoadBalance() != -1) {
       // ErrorOrRecovery is set
@@ -352,16 +391,15 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
 
     chargePendingTransition(resource, currentStateOutput, throttleController, cache,
         preferenceLists, stateModelDef);
+    // The share is taken from the quota left after charging the pending transitions
+    throttleController.allocateFairShare(resourceName);
 
-    // Sort partitions in case of urgent partition need to take the quota first.
-    List<Partition> partitions = new ArrayList<>(resource.getPartitions());
+    // Only the partitions with messages need to be throttled. Sort them in case of urgent partition
+    // need to take the quota first.
+    List<Partition> partitions = getPartitionsWithMessages(resource, resourceMessageMap);
     partitions.sort(new PartitionPriorityComparator(bestPossiblePartitionStateMap.getStateMap(),
         currentStateOutput.getCurrentStateMap(resourceName), stateModelDef.getTopState()));
     for (Partition partition : partitions) {
-      if (resourceMessageMap.get(partition) == null || resourceMessageMap.get(partition)
-          .isEmpty()) {
-        continue;
-      }
       List<Message> messagesToThrottle = new ArrayList<>(resourceMessageMap.get(partition));
       Map<String, String> derivedCurrentStateMap =
           currentStateOutput.getCurrentStateMap(resourceName, partition).entrySet().stream()
@@ -459,14 +497,35 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
   }
 
   /**
-   * Check and charge all pending transitions for throttling.
+   * Get the partitions of the resource that have messages to be throttled. The messages are only
+   * generated for partitions whose current state diverges from the best possible state, so this is
+   * usually a small subset of all partitions.
+   */
+  private List<Partition> getPartitionsWithMessages(Resource resource,
+      Map<Partition, List<Message>> resourceMessageMap) {
+    List<Partition> partitions = new ArrayList<>();
+    for (Map.Entry<Partition, List<Message>> entry : resourceMessageMap.entrySet()) {
+      if (entry.getValue() != null && !entry.getValue().isEmpty()
+          && resource.getPartition(entry.getKey().getPartitionName()) != null) {
+        partitions.add(entry.getKey());
+      }
+    }
+    return partitions;
+  }
+
+  /**
+   * Check and charge all pending transitions for throttling. Only the partitions with pending
+   * messages are visited.
    */
   private void chargePendingTransition(Resource resource, CurrentStateOutput currentStateOutput,
       StateTransitionThrottleController throttleController, ResourceControllerDataProvider cache,
       Map<String, List<String>> preferenceLists, StateModelDefinition stateModelDefinition) {
     String resourceName = resource.getResourceName();
     // check and charge pending transitions
-    for (Partition partition : resource.getPartitions()) {
+    for (Partition partition : currentStateOutput.getPendingMessageMap(resourceName).keySet()) {
+      if (resource.getPartition(partition.getPartitionName()) == null) {
+        continue;
+      }
       // To clarify that custom mode does not apply recovery/load rebalance since user can define different number of
       // replicas for different partitions. Actually, the custom will stopped from resource level checks if this resource
       // is not FULL_AUTO, we will return best possible state and do nothing.
@@ -609,12 +668,16 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
       throttleController.chargeCluster(rebalanceType);
       throttleController.chargeResource(rebalanceType, resourceName);
       throttleController.chargeInstance(rebalanceType, messageToThrottle.getTgtName());
+      throttleController
+          .chargeNewTransition(rebalanceType, resourceName, messageToThrottle.getTgtName());
     } else {
       // Intermediate Map is based on current state
       // Remove the message from MessageSelection result if it has been throttled since the message will be dispatched
       // by next stage if it is not removed.
       resourceMessageMap.get(partition).remove(messageToThrottle);
       messagesThrottled.add(messageToThrottle.getId());
+      throttleController
+          .recordThrottledTransition(rebalanceType, resourceName, messageToThrottle.getTgtName());
     }
   }
 
@@ -20,6 +20,7 @@ package org.apache.helix.controller.stages;
  */
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,10 +33,14 @@ import org.slf4j.LoggerFactory;
 /**
  * StateTransitionThrottleController is used to compute IntermediateState; it caches allowed
  * transition counts to see if any state transitions depending on the rebalance type must be held
- * off.
+ * off. If the throttle configs have a refill rate, new state transitions are also limited by the
+ * token buckets kept in {@link StateTransitionTokenBuckets} across pipeline runs.
  */
 class StateTransitionThrottleController {
   private static final Logger logger = LoggerFactory.getLogger(StateTransitionThrottleController.class);
+  // lower bound of the rate limit retry delay, so a sustained throttling won't keep the controller
+  // triggering pipeline runs in a tight loop
+  static final long MIN_RATE_LIMIT_RETRY_DELAY_MS = 100L;
 
   // pending allowed transition counts in the cluster level for recovery and load balance
   Map<StateTransitionThrottleConfig.RebalanceType, Long> _pendingTransitionAllowedInCluster;
@@ -44,17 +49,48 @@ class StateTransitionThrottleController {
   Map<String, Map<StateTransitionThrottleConfig.RebalanceType, Long>> _pendingTransitionAllowedPerInstance;
   Map<String, Map<StateTransitionThrottleConfig.RebalanceType, Long>> _pendingTransitionAllowedPerResource;
 
+  // rate limit token buckets for each level, only present for the rate limited throttle configs
+  private final Map<StateTransitionThrottleConfig.RebalanceType, StateTransitionTokenBuckets.TokenBucket>
+      _clusterTokenBuckets = new HashMap<>();
+  private final Map<String, Map<StateTransitionThrottleConfig.RebalanceType, StateTransitionTokenBuckets.TokenBucket>>
+      _resourceTokenBuckets = new HashMap<>();
+  private final Map<String, Map<StateTransitionThrottleConfig.RebalanceType, StateTransitionTokenBuckets.TokenBucket>>
+      _instanceTokenBuckets = new HashMap<>();
+  // the shortest delay until a bucket that throttled a recorded transition has a token again
+  private long _rateLimitRetryDelay = Long.MAX_VALUE;
+
+  // weights of the resources that have not taken their fair share of the cluster quota yet
+  private final Map<String, Long> _fairShareWeights = new HashMap<>();
+  private long _remainingFairShareWeight = 0L;
+  // the fair share of the cluster quota left for the resource being processed
+  private final Map<StateTransitionThrottleConfig.RebalanceType, Long> _resourceFairShare =
+      new HashMap<>();
+
   private boolean _throttleEnabled = false;
 
   StateTransitionThrottleController(Set<String> resources, ClusterConfig clusterConfig,
       Set<String> liveInstances) {
+    this(resources, clusterConfig, liveInstances, null, System.currentTimeMillis());
+  }
+
+  /**
+   * @param resources
+   * @param clusterConfig
+   * @param liveInstances
+   * @param tokenBuckets token buckets kept across pipeline runs, null to ignore the refill rates
+   * @param currentTime current time in milliseconds used to refill the token buckets
+   */
+  StateTransitionThrottleController(Set<String> resources, ClusterConfig clusterConfig,
+      Set<String> liveInstances, StateTransitionTokenBuckets tokenBuckets, long currentTime) {
     super();
     _pendingTransitionAllowedInCluster = new HashMap<>();
     _pendingTransitionAllowedPerInstance = new HashMap<>();
     _pendingTransitionAllowedPerResource = new HashMap<>();
+    Set<String> usedBucketKeys = new HashSet<>();
 
     if (clusterConfig == null) {
       logger.warn("Cluster config is not found, no throttle config set!");
+      retainTokenBuckets(tokenBuckets, usedBucketKeys);
       return;
     }
 
@@ -63,20 +99,31 @@ class StateTransitionThrottleController {
 
     if (throttleConfigs == null || throttleConfigs.isEmpty()) {
       logger.info("No throttle config is set!");
+      retainTokenBuckets(tokenBuckets, usedBucketKeys);
       return;
     }
 
     for (StateTransitionThrottleConfig config : throttleConfigs) {
+      boolean rateLimited = tokenBuckets != null && config.isRateLimited();
       switch (config.getThrottleScope()) {
       case CLUSTER:
         _pendingTransitionAllowedInCluster.put(config.getRebalanceType(),
             config.getMaxPartitionInTransition());
+        if (rateLimited) {
+          _clusterTokenBuckets.put(config.getRebalanceType(),
+              getTokenBucket(tokenBuckets, usedBucketKeys, config, "", currentTime));
+        }
         _throttleEnabled = true;
         break;
       case RESOURCE:
         for (String resource : resources) {
           _pendingTransitionAllowedPerResource.computeIfAbsent(resource, k -> new HashMap<>())
               .put(config.getRebalanceType(), config.getMaxPartitionInTransition());
+          if (rateLimited) {
+            _resourceTokenBuckets.computeIfAbsent(resource, k -> new HashMap<>())
+                .put(config.getRebalanceType(),
+                    getTokenBucket(tokenBuckets, usedBucketKeys, config, resource, currentTime));
+          }
         }
         _throttleEnabled = true;
         break;
@@ -84,11 +131,33 @@ class StateTransitionThrottleController {
         for (String instance : liveInstances) {
           _pendingTransitionAllowedPerInstance.computeIfAbsent(instance, k -> new HashMap<>())
               .put(config.getRebalanceType(), config.getMaxPartitionInTransition());
+          if (rateLimited) {
+            _instanceTokenBuckets.computeIfAbsent(instance, k -> new HashMap<>())
+                .put(config.getRebalanceType(),
+                    getTokenBucket(tokenBuckets, usedBucketKeys, config, instance, currentTime));
+          }
         }
         _throttleEnabled = true;
         break;
       }
     }
+    retainTokenBuckets(tokenBuckets, usedBucketKeys);
+  }
+
+  private static StateTransitionTokenBuckets.TokenBucket getTokenBucket(
+      StateTransitionTokenBuckets tokenBuckets, Set<String> usedBucketKeys,
+      StateTransitionThrottleConfig config, String entryName, long currentTime) {
+    String key = config.getThrottleScope() + "/" + entryName + "/" + config.getRebalanceType();
+    usedBucketKeys.add(key);
+    return tokenBuckets.getBucket(key, config.getMaxPartitionInTransition(),
+        config.getTransitionRefillRatePerSecond(), currentTime);
+  }
+
+  private static void retainTokenBuckets(StateTransitionTokenBuckets tokenBuckets,
+      Set<String> usedBucketKeys) {
+    if (tokenBuckets != null) {
+      tokenBuckets.retainBuckets(usedBucketKeys);
+    }
   }
 
   /**
@@ -112,7 +181,8 @@ class StateTransitionThrottleController {
       return true;
     }
     Long clusterThrottle = _pendingTransitionAllowedInCluster.get(rebalanceType);
-    return clusterThrottle != null && clusterThrottle <= 0;
+    return (clusterThrottle != null && clusterThrottle <= 0) || isRateLimited(rebalanceType,
+        _clusterTokenBuckets);
   }
 
   /**
@@ -124,7 +194,9 @@ class StateTransitionThrottleController {
    */
   protected boolean shouldThrottleForResource(
       StateTransitionThrottleConfig.RebalanceType rebalanceType, String resourceName) {
-    return shouldThrottleForGivenMap(rebalanceType, resourceName, _pendingTransitionAllowedPerResource);
+    return shouldThrottleForGivenMap(rebalanceType, resourceName, _pendingTransitionAllowedPerResource)
+        || isRateLimited(rebalanceType, _resourceTokenBuckets.get(resourceName))
+        || isFairShareUsedUp(rebalanceType);
   }
 
   /**
@@ -136,7 +208,8 @@ class StateTransitionThrottleController {
    */
   protected boolean shouldThrottleForInstance(
       StateTransitionThrottleConfig.RebalanceType rebalanceType, String instanceName) {
-    return shouldThrottleForGivenMap(rebalanceType, instanceName, _pendingTransitionAllowedPerInstance);
+    return shouldThrottleForGivenMap(rebalanceType, instanceName, _pendingTransitionAllowedPerInstance)
+        || isRateLimited(rebalanceType, _instanceTokenBuckets.get(instanceName));
   }
 
   private boolean shouldThrottleForGivenMap(StateTransitionThrottleConfig.RebalanceType rebalanceType, String entryName,
@@ -183,6 +256,140 @@ class StateTransitionThrottleController {
     charge(rebalanceType, _pendingTransitionAllowedPerInstance.getOrDefault(instance, new HashMap<>()));
   }
 
+  /**
+   * "Charge" for a new state transition that is allowed to be sent in this pipeline run. This
+   * takes one token from every rate limit bucket of the cluster, resource and instance and one from
+   * the fair share of the resource. Pending state transitions should not be charged here since
+   * they have been charged when they were sent.
+   * @param rebalanceType
+   * @param resource
+   * @param instance
+   */
+  protected void chargeNewTransition(StateTransitionThrottleConfig.RebalanceType rebalanceType,
+      String resource, String instance) {
+    consumeToken(rebalanceType, _clusterTokenBuckets);
+    consumeToken(rebalanceType, _resourceTokenBuckets.get(resource));
+    consumeToken(rebalanceType, _instanceTokenBuckets.get(instance));
+    charge(rebalanceType, _resourceFairShare);
+  }
+
+  /**
+   * Set the weights for sharing the cluster level quota among the resources that have state
+   * transitions to send. The shares are allocated by {@link #allocateFairShare(String)}.
+   * @param resourceWeights resource name to its weight
+   */
+  protected void setFairShareWeights(Map<String, Long> resourceWeights) {
+    _fairShareWeights.clear();
+    _fairShareWeights.putAll(resourceWeights);
+    _remainingFairShareWeight = 0L;
+    for (long weight : resourceWeights.values()) {
+      _remainingFairShareWeight += weight;
+    }
+  }
+
+  /**
+   * Allocate the fair share of the remaining cluster level quota to the given resource. The share
+   * is proportional to the weight of the resource among the resources that have not been allocated
+   * yet, so the quota left unused by one resource is carried to the following ones. The share
+   * applies until the next resource is allocated.
+   * @param resourceName
+   */
+  protected void allocateFairShare(String resourceName) {
+    _resourceFairShare.clear();
+    Long weight = _fairShareWeights.remove(resourceName);
+    if (weight == null || _remainingFairShareWeight <= 0) {
+      return;
+    }
+    long totalWeight = _remainingFairShareWeight;
+    _remainingFairShareWeight -= weight;
+    for (Map.Entry<StateTransitionThrottleConfig.RebalanceType, Long> entry : _pendingTransitionAllowedInCluster
+        .entrySet()) {
+      long remaining = Math.max(0L, entry.getValue());
+      // round up so every resource with a positive weight can make progress while quota is left
+      long share = (remaining * weight + totalWeight - 1) / totalWeight;
+      _resourceFairShare.put(entry.getKey(), share);
+    }
+  }
+
+  /**
+   * @return the delay in milliseconds until a rate limited state transition may be allowed, at
+   *         least MIN_RATE_LIMIT_RETRY_DELAY_MS. Long.MAX_VALUE if no state transition has been
+   *         held off by the rate limit.
+   */
+  protected long getRateLimitRetryDelay() {
+    if (_rateLimitRetryDelay == Long.MAX_VALUE) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(_rateLimitRetryDelay, MIN_RATE_LIMIT_RETRY_DELAY_MS);
+  }
+
+  private boolean isFairShareUsedUp(StateTransitionThrottleConfig.RebalanceType rebalanceType) {
+    if (_resourceFairShare.isEmpty()) {
+      return false;
+    }
+    Long share = _resourceFairShare.get(rebalanceType);
+    return (share != null && share <= 0) || shouldThrottleForANYType(_resourceFairShare);
+  }
+
+  /**
+   * Record a state transition that has been throttled, so the rate limit retry delay covers the
+   * empty token buckets at the cluster, resource and instance level that may have held it off.
+   * @param rebalanceType the rebalance type of the throttled transition
+   * @param resourceName the resource of the throttled transition
+   * @param instanceName the target instance of the throttled transition
+   */
+  protected void recordThrottledTransition(StateTransitionThrottleConfig.RebalanceType rebalanceType,
+      String resourceName, String instanceName) {
+    recordRateLimitRetryDelay(rebalanceType, _clusterTokenBuckets);
+    recordRateLimitRetryDelay(rebalanceType, _resourceTokenBuckets.get(resourceName));
+    recordRateLimitRetryDelay(rebalanceType, _instanceTokenBuckets.get(instanceName));
+  }
+
+  private void recordRateLimitRetryDelay(StateTransitionThrottleConfig.RebalanceType rebalanceType,
+      Map<StateTransitionThrottleConfig.RebalanceType, StateTransitionTokenBuckets.TokenBucket> buckets) {
+    if (buckets == null || buckets.isEmpty()) {
+      return;
+    }
+    for (StateTransitionThrottleConfig.RebalanceType type : new StateTransitionThrottleConfig.RebalanceType[] {
+        StateTransitionThrottleConfig.RebalanceType.ANY, rebalanceType
+    }) {
+      StateTransitionTokenBuckets.TokenBucket bucket = buckets.get(type);
+      if (bucket != null && !bucket.hasToken()) {
+        _rateLimitRetryDelay = Math.min(_rateLimitRetryDelay, bucket.getDelayToNextToken());
+      }
+    }
+  }
+
+  private boolean isRateLimited(StateTransitionThrottleConfig.RebalanceType rebalanceType,
+      Map<StateTransitionThrottleConfig.RebalanceType, StateTransitionTokenBuckets.TokenBucket> buckets) {
+    if (buckets == null || buckets.isEmpty()) {
+      return false;
+    }
+    StateTransitionTokenBuckets.TokenBucket anyBucket =
+        buckets.get(StateTransitionThrottleConfig.RebalanceType.ANY);
+    StateTransitionTokenBuckets.TokenBucket typeBucket = buckets.get(rebalanceType);
+    return (anyBucket != null && !anyBucket.hasToken())
+        || (typeBucket != null && !typeBucket.hasToken());
+  }
+
+  private void consumeToken(StateTransitionThrottleConfig.RebalanceType rebalanceType,
+      Map<StateTransitionThrottleConfig.RebalanceType, StateTransitionTokenBuckets.TokenBucket> buckets) {
+    if (buckets == null || buckets.isEmpty()) {
+      return;
+    }
+    StateTransitionTokenBuckets.TokenBucket anyBucket =
+        buckets.get(StateTransitionThrottleConfig.RebalanceType.ANY);
+    if (anyBucket != null) {
+      anyBucket.consume();
+    }
+    if (!StateTransitionThrottleConfig.RebalanceType.ANY.equals(rebalanceType)) {
+      StateTransitionTokenBuckets.TokenBucket bucket = buckets.get(rebalanceType);
+      if (bucket != null) {
+        bucket.consume();
+      }
+    }
+  }
+
   private void charge(StateTransitionThrottleConfig.RebalanceType rebalanceType,
       Map<StateTransitionThrottleConfig.RebalanceType, Long> quota) {
     if (StateTransitionThrottleConfig.RebalanceType.NONE.equals(rebalanceType)) {
@@ -0,0 +1,116 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token buckets used to limit the rate of new state transitions at cluster, resource and instance
+ * level. Unlike the per pipeline quota in {@link StateTransitionThrottleController}, the buckets
+ * are kept across pipeline runs so tokens that are not used in one run are carried to the next
+ * one, up to the bucket capacity.
+ */
+public class StateTransitionTokenBuckets {
+  private final Map<String, TokenBucket> _buckets = new ConcurrentHashMap<>();
+
+  /**
+   * Get the bucket for the given key, create it with a full capacity if it does not exist. The
+   * capacity and refill rate of an existing bucket are updated to the given values.
+   * @param key unique key of the throttled entity, e.g. scope + entity name + rebalance type
+   * @param capacity max number of tokens held by the bucket
+   * @param refillRatePerSecond tokens added to the bucket every second
+   * @param currentTime current time in milliseconds
+   * @return the refilled bucket
+   */
+  TokenBucket getBucket(String key, long capacity, long refillRatePerSecond, long currentTime) {
+    TokenBucket bucket = _buckets
+        .computeIfAbsent(key, k -> new TokenBucket(capacity, refillRatePerSecond, currentTime));
+    bucket.update(capacity, refillRatePerSecond, currentTime);
+    return bucket;
+  }
+
+  /**
+   * Remove buckets that are not used anymore, for example of removed resources or dead instances.
+   * @param keys the keys of the buckets in use
+   */
+  void retainBuckets(Set<String> keys) {
+    _buckets.keySet().retainAll(keys);
+  }
+
+  int size() {
+    return _buckets.size();
+  }
+
+  static class TokenBucket {
+    private long _capacity;
+    private long _refillRatePerSecond;
+    private double _tokens;
+    private long _lastRefillTime;
+
+    TokenBucket(long capacity, long refillRatePerSecond, long currentTime) {
+      _capacity = capacity;
+      _refillRatePerSecond = refillRatePerSecond;
+      _tokens = capacity;
+      _lastRefillTime = currentTime;
+    }
+
+    synchronized void update(long capacity, long refillRatePerSecond, long currentTime) {
+      refill(currentTime);
+      _capacity = capacity;
+      _refillRatePerSecond = refillRatePerSecond;
+      _tokens = Math.min(_tokens, _capacity);
+    }
+
+    private void refill(long currentTime) {
+      if (currentTime > _lastRefillTime) {
+        _tokens = Math.min(_capacity,
+            _tokens + (currentTime - _lastRefillTime) * _refillRatePerSecond / 1000.0);
+        _lastRefillTime = currentTime;
+      }
+    }
+
+    synchronized boolean hasToken() {
+      return _tokens >= 1;
+    }
+
+    synchronized void consume() {
+      _tokens = Math.max(0, _tokens - 1);
+    }
+
+    synchronized long getAvailableTokens() {
+      return (long) _tokens;
+    }
+
+    /**
+     * @return the delay in milliseconds until at least one token is available
+     */
+    synchronized long getDelayToNextToken() {
+      if (_tokens >= 1) {
+        return 0L;
+      }
+      if (_refillRatePerSecond <= 0) {
+        return Long.MAX_VALUE;
+      }
+      return (long) Math.ceil((1 - _tokens) * 1000.0 / _refillRatePerSecond);
+    }
+  }
+}
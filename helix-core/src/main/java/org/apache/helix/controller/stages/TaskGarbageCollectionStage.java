@@ -30,6 +30,7 @@ import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractAsyncBaseStage;
 import org.apache.helix.controller.pipeline.AsyncWorkerType;
 import org.apache.helix.controller.rebalancer.util.RebalanceScheduler;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.TaskUtil;
 import org.apache.helix.task.WorkflowConfig;
@@ -103,6 +104,13 @@ public class TaskGarbageCollectionStage extends AbstractAsyncBaseStage {
         jobsWithoutConfig.add(entry.getKey());
       }
     }
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null) {
+      clusterStatusMonitor.setTaskPurgeBacklogGauge(
+          countToBePurged(expiredJobsMap, workflowsToBePurged, jobsWithoutConfig));
+    }
+
     event.addAttribute(AttributeName.TO_BE_PURGED_JOBS_MAP.name(),
         Collections.unmodifiableMap(expiredJobsMap));
     event.addAttribute(AttributeName.TO_BE_PURGED_WORKFLOWS.name(),
@@ -130,16 +138,38 @@ public class TaskGarbageCollectionStage extends AbstractAsyncBaseStage {
     Set<String> jobsWithoutConfig =
         event.getAttribute(AttributeName.JOBS_WITHOUT_CONFIG.name());
 
-    for (Map.Entry<String, Set<String>> entry : expiredJobsMap.entrySet()) {
-      try {
-        TaskUtil.purgeExpiredJobs(entry.getKey(), entry.getValue(), manager, _rebalanceScheduler);
-      } catch (Exception e) {
-        LOG.warn("Failed to purge job for workflow {}!", entry.getKey(), e);
-      }
+    // The expired jobs of all workflows are purged together, so the ZK operations can be batched
+    long startTime = System.currentTimeMillis();
+    int numToBePurged = countToBePurged(expiredJobsMap, toBePurgedWorkflows, jobsWithoutConfig);
+    int numPurged = 0;
+    try {
+      numPurged += TaskUtil.purgeExpiredJobs(expiredJobsMap, manager, _rebalanceScheduler);
+    } catch (Exception e) {
+      LOG.warn("Failed to purge jobs for workflows {}!", expiredJobsMap.keySet(), e);
     }
 
-    TaskUtil.workflowGarbageCollection(toBePurgedWorkflows, manager);
-    TaskUtil.jobGarbageCollection(jobsWithoutConfig, manager);
+    numPurged += TaskUtil.workflowGarbageCollection(toBePurgedWorkflows, manager);
+    numPurged += TaskUtil.jobGarbageCollection(jobsWithoutConfig, manager);
+
+    long latency = System.currentTimeMillis() - startTime;
+    if (numToBePurged > 0) {
+      LOG.info("Purged {} out of {} workflows and jobs in {} ms for cluster {}.", numPurged,
+          numToBePurged, latency, event.getClusterName());
+    }
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null) {
+      clusterStatusMonitor.reportTaskPurge(numPurged, numToBePurged - numPurged, latency);
+    }
+  }
+
+  private static int countToBePurged(Map<String, Set<String>> expiredJobsMap,
+      Set<String> workflowsToBePurged, Set<String> jobsWithoutConfig) {
+    int numToBePurged = workflowsToBePurged.size() + jobsWithoutConfig.size();
+    for (Set<String> expiredJobs : expiredJobsMap.values()) {
+      numToBePurged += expiredJobs.size();
+    }
+    return numToBePurged;
   }
 
   private static void scheduleNextJobPurge(String workflow, long nextPurgeTime,
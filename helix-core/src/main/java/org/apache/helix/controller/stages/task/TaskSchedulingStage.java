@@ -21,6 +21,7 @@ package org.apache.helix.controller.stages.task;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import java.util.Set;
 import com.google.common.collect.Maps;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixManager;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
@@ -42,18 +44,33 @@ import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.task.AssignableInstanceManager;
+import org.apache.helix.task.RuntimeJobDag;
+import org.apache.helix.task.TargetState;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
 import org.apache.helix.task.WorkflowDispatcher;
 import org.apache.helix.task.assigner.AssignableInstance;
+import org.apache.helix.util.HelixUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TaskSchedulingStage extends AbstractBaseStage {
   private static final Logger logger = LoggerFactory.getLogger(TaskSchedulingStage.class.getName());
+  // Interval to re-process all workflows, including the quiescent ones. A non-positive value
+  // disables skipping quiescent workflows.
+  private static final long FULL_SWEEP_INTERVAL = HelixUtil
+      .getSystemPropertyAsLong(SystemPropertyKeys.TASK_SCHEDULING_FULL_SWEEP_INTERVAL, 5 * 60 * 1000);
+
   private Map<String, PriorityQueue<WorkflowObject>> _quotaBasedWorkflowPQs = Maps.newHashMap();
   private WorkflowDispatcher _workflowDispatcher;
+  // Finished workflows that have nothing left to dispatch. They are skipped until their config or
+  // context changes, they expire, or the next full sweep.
+  private final Map<String, QuiescentWorkflow> _quiescentWorkflows = new HashMap<>();
+  // Quiescent workflows skipped in the current pipeline run
+  private final Set<String> _skippedWorkflows = new HashSet<>();
+  private long _lastFullSweepTime = 0L;
 
   @Override
   public void process(ClusterEvent event) throws Exception {
@@ -104,6 +121,8 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     final List<String> failureResources = new ArrayList<>();
     // Queues only for Workflows
     scheduleWorkflows(resourceMap, cache, restOfResources, failureResources, currentStateOutput, output);
+    // Skipped workflows are still valid resources, they must not be processed for drop
+    restOfResources.keySet().removeAll(_skippedWorkflows);
     for (String jobName : cache.getTaskDataCache().getDispatchedJobs()) {
       updateResourceMap(jobName, resourceMap, output.getPartitionStateMap(jobName).partitionSet());
       restOfResources.remove(jobName);
@@ -150,8 +169,21 @@ public class TaskSchedulingStage extends AbstractBaseStage {
       }
     }
 
+    long currentTime = System.currentTimeMillis();
+    if (FULL_SWEEP_INTERVAL <= 0 || currentTime - _lastFullSweepTime >= FULL_SWEEP_INTERVAL) {
+      _quiescentWorkflows.clear();
+      _lastFullSweepTime = currentTime;
+    } else {
+      _quiescentWorkflows.keySet().retainAll(cache.getWorkflowConfigMap().keySet());
+    }
+    _skippedWorkflows.clear();
+
     for (String workflowId : cache.getWorkflowConfigMap().keySet()) {
       WorkflowConfig workflowConfig = cache.getWorkflowConfig(workflowId);
+      if (isQuiescent(workflowId, workflowConfig, cache, currentTime)) {
+        _skippedWorkflows.add(workflowId);
+        continue;
+      }
       String workflowType = getQuotaType(workflowConfig);
       // TODO: We can support customized sorting field for user. Currently sort by creation time
       _quotaBasedWorkflowPQs.get(workflowType)
@@ -163,6 +195,11 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     _workflowDispatcher.init(manager);
     _workflowDispatcher.setClusterStatusMonitor(monitor);
     _workflowDispatcher.updateCache(cache);
+    if (!_skippedWorkflows.isEmpty()) {
+      LogUtil.logDebug(logger, _eventId, String.format(
+          "Skip scheduling %d quiescent workflows out of %d workflows", _skippedWorkflows.size(),
+          cache.getWorkflowConfigMap().size()));
+    }
   }
 
   private void scheduleWorkflows(Map<String, Resource> resourceMap, WorkflowControllerDataProvider cache,
@@ -188,6 +225,8 @@ public class TaskSchedulingStage extends AbstractBaseStage {
             if (assignableInstanceManager.hasGlobalCapacity(quotaType)) {
               _workflowDispatcher.assignWorkflow(workflowId, cache.getWorkflowConfig(workflowId),
                   context, currentStateOutput, bestPossibleOutput);
+              markQuiescentIfFinished(workflowId, cache.getWorkflowConfig(workflowId), context,
+                  cache, currentStateOutput);
             } else {
               LogUtil.logInfo(logger, _eventId, String.format(
                   "Fail to schedule new jobs assignment for Workflow %s due to quota %s is full",
@@ -203,6 +242,93 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     }
   }
 
+  /**
+   * Check if the workflow was quiescent when it was last processed and nothing that affects its
+   * scheduling has changed since then.
+   */
+  private boolean isQuiescent(String workflowId, WorkflowConfig workflowConfig,
+      WorkflowControllerDataProvider cache, long currentTime) {
+    QuiescentWorkflow quiescentWorkflow = _quiescentWorkflows.get(workflowId);
+    if (quiescentWorkflow == null) {
+      return false;
+    }
+    ZNRecord context = cache.getTaskDataCache().getContexts().get(workflowId);
+    if (quiescentWorkflow._expiryTime > currentTime
+        && quiescentWorkflow._configVersion == workflowConfig.getRecord().getVersion()
+        && quiescentWorkflow.isSameContext(context)) {
+      return true;
+    }
+    _quiescentWorkflows.remove(workflowId);
+    return false;
+  }
+
+  /**
+   * Remember the workflow as quiescent if it is finished and none of its jobs has any inflight
+   * job, current state or pending message left, so processing it again would change nothing
+   * before it expires.
+   */
+  private void markQuiescentIfFinished(String workflowId, WorkflowConfig workflowConfig,
+      WorkflowContext context, WorkflowControllerDataProvider cache,
+      CurrentStateOutput currentStateOutput) {
+    if (FULL_SWEEP_INTERVAL <= 0 || workflowConfig == null || context == null
+        || context.getFinishTime() == WorkflowContext.UNFINISHED
+        || workflowConfig.getTargetState() == TargetState.DELETE
+        || (workflowConfig.getScheduleConfig() != null && workflowConfig.getScheduleConfig()
+        .isRecurring())) {
+      return;
+    }
+    RuntimeJobDag runtimeJobDag = cache.getTaskDataCache().getRuntimeJobDag(workflowId);
+    if (runtimeJobDag == null || !runtimeJobDag.getInflightJobList().isEmpty()) {
+      return;
+    }
+    for (String job : workflowConfig.getJobDag().getAllNodes()) {
+      if (!currentStateOutput.getCurrentStateMap(job).isEmpty()
+          || !currentStateOutput.getPendingMessageMap(job).isEmpty()) {
+        return;
+      }
+    }
+    long finishTime = context.getFinishTime();
+    long expiry = workflowConfig.getExpiry();
+    long expiryTime =
+        expiry >= Long.MAX_VALUE - finishTime ? Long.MAX_VALUE : finishTime + expiry;
+    _quiescentWorkflows.put(workflowId,
+        new QuiescentWorkflow(workflowConfig.getRecord().getVersion(),
+            cache.getTaskDataCache().getContexts().get(workflowId), expiryTime));
+  }
+
+  /**
+   * Get the workflows skipped in the last pipeline run because they are quiescent.
+   */
+  Set<String> getSkippedWorkflows() {
+    return _skippedWorkflows;
+  }
+
+  private static class QuiescentWorkflow {
+    private final int _configVersion;
+    // Contexts are re-read on every refresh, so they are compared by the ZK version and modified
+    // time of the read. The modified time tells a re-created context from the one it replaced.
+    private final boolean _hasContext;
+    private final int _contextVersion;
+    private final long _contextModifiedTime;
+    private final long _expiryTime;
+
+    QuiescentWorkflow(int configVersion, ZNRecord context, long expiryTime) {
+      _configVersion = configVersion;
+      _hasContext = context != null;
+      _contextVersion = context == null ? -1 : context.getVersion();
+      _contextModifiedTime = context == null ? -1 : context.getModifiedTime();
+      _expiryTime = expiryTime;
+    }
+
+    boolean isSameContext(ZNRecord context) {
+      if (context == null) {
+        return !_hasContext;
+      }
+      return _hasContext && _contextVersion == context.getVersion()
+          && _contextModifiedTime == context.getModifiedTime();
+    }
+  }
+
   private void updateResourceMap(String jobName, Map<String, Resource> resourceMap,
       Set<Partition> partitionSet) {
     Resource resource = new Resource(jobName);
@@ -23,16 +23,27 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixException;
@@ -50,6 +61,7 @@ import org.apache.helix.zookeeper.util.GZipCompressionUtil;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +75,23 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private static final String METADATA_KEY = "METADATA";
   private static final String LAST_SUCCESSFUL_WRITE_KEY = "LAST_SUCCESSFUL_WRITE";
   private static final String LAST_WRITE_KEY = "LAST_WRITE";
+  // Chunked format: a version only references chunks of the record by their content hash. The
+  // chunks are stored once under rootPath/CHUNKS/<hash> and shared by the versions.
+  private static final String FORMAT_KEY = "FORMAT";
+  private static final String CHUNKED_FORMAT = "CHUNKED";
+  private static final String RECORD_ID_KEY = "RECORD_ID";
+  private static final String CHUNKS_KEY = "CHUNKS";
+  private static final String CHUNK_RECORD_ID = "CHUNK";
+  // A chunk is closed at a field whose key hash is a multiple of the divisor once it reaches the
+  // min size, so the boundaries depend on the keys only and a changed field only changes its own
+  // chunk. Fields of at least the min size are put in a chunk of their own.
+  private static final int MIN_CHUNK_SIZE = 16 * 1024;
+  private static final int MAX_CHUNK_SIZE = 256 * 1024;
+  private static final int CHUNK_BOUNDARY_DIVISOR = 8;
+  // Writers referencing the chunks of a root path exclude the GC of unreferenced chunks of the
+  // same process only. Across processes, the GC is kept away from the chunks of an ongoing write
+  // by the marker touch alone, see writeChunkedVersion().
+  private static final Striped<ReadWriteLock> CHUNK_LOCKS = Striped.readWriteLock(16);
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
   // Thread pool for deleting stale versions
   // Note that newScheduledThreadPool(1) may not work. newSingleThreadScheduledExecutor guarantees
@@ -80,6 +109,7 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private final RealmAwareZkClient _zkClient;
   private final ZkBaseDataAccessor<byte[]> _zkBaseDataAccessor;
   private final Map<String, ScheduledFuture> _gcTaskFutureMap = new ConcurrentHashMap<>();
+  private final boolean _chunkedWriteEnabled;
   private boolean _usesExternalZkClient = false;
 
   /**
@@ -108,6 +138,8 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     _bucketSize = bucketSize;
     _versionTTLms = versionTTLms;
     _usesExternalZkClient = usesExternalZkClient;
+    _chunkedWriteEnabled =
+        Boolean.getBoolean(SystemPropertyKeys.BUCKET_DATA_CHUNKED_WRITE_ENABLED);
   }
 
   /**
@@ -172,47 +204,11 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
 
     // 2. Write to the incremented last write version
     String versionedDataPath = rootPath + "/" + versionStr;
-
-    // Take the ZNRecord and serialize it (get byte[])
-    byte[] serializedRecord = _zkSerializer.serialize(value.getRecord());
-    // Compress the byte[]
-    byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
-    // Compute N - number of buckets
-    int numBuckets = (compressedRecord.length + _bucketSize - 1) / _bucketSize;
-
-    List<String> paths = new ArrayList<>();
-    List<byte[]> buckets = new ArrayList<>();
-
-    int ptr = 0;
-    int counter = 0;
-    while (counter < numBuckets) {
-      paths.add(versionedDataPath + "/" + counter);
-      if (counter == numBuckets - 1) {
-        // Special treatment for the last bucket
-        buckets.add(
-            Arrays.copyOfRange(compressedRecord, ptr, ptr + compressedRecord.length % _bucketSize));
-      } else {
-        buckets.add(Arrays.copyOfRange(compressedRecord, ptr, ptr + _bucketSize));
-      }
-      ptr += _bucketSize;
-      counter++;
-    }
-
-    // 3. Include the metadata in the batch write
-    Map<String, String> metadata = ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize),
-        DATA_SIZE_KEY, Integer.toString(compressedRecord.length));
-    byte[] binaryMetadata = OBJECT_MAPPER.writeValueAsBytes(metadata);
-    paths.add(versionedDataPath + "/" + METADATA_KEY);
-    buckets.add(binaryMetadata);
-
-    // Do an async set to ZK
-    boolean[] success = _zkBaseDataAccessor.setChildren(paths, buckets, AccessOption.PERSISTENT);
-    // Exception and fail the write if any failed
-    for (boolean s : success) {
-      if (!s) {
-        throw new HelixException(
-            String.format("Failed to write the data buckets for path: %s", rootPath));
-      }
+    ZNRecord record = value.getRecord();
+    if (_chunkedWriteEnabled && record.getRawPayload() == null) {
+      writeChunkedVersion(rootPath, versionedDataPath, record);
+    } else {
+      writeVersion(rootPath, versionedDataPath, record);
     }
 
     // 4. Update lastSuccessfulWriteVersion using Updater
@@ -243,6 +239,152 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     return true;
   }
 
+  /**
+   * Writes the whole record to the buckets of the version.
+   */
+  private void writeVersion(String rootPath, String versionedDataPath, ZNRecord record)
+      throws IOException {
+    // Take the ZNRecord and serialize it (get byte[])
+    byte[] serializedRecord = _zkSerializer.serialize(record);
+    // Compress the byte[]
+    byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
+
+    List<String> paths = new ArrayList<>();
+    List<byte[]> buckets = new ArrayList<>();
+    splitIntoBuckets(compressedRecord, versionedDataPath, paths, buckets);
+
+    // 3. Include the metadata in the batch write
+    Map<String, String> metadata = ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize),
+        DATA_SIZE_KEY, Integer.toString(compressedRecord.length));
+    byte[] binaryMetadata = OBJECT_MAPPER.writeValueAsBytes(metadata);
+    paths.add(versionedDataPath + "/" + METADATA_KEY);
+    buckets.add(binaryMetadata);
+
+    // Do an async set to ZK
+    setChildren(rootPath, paths, buckets);
+  }
+
+  /**
+   * Writes the record as chunks addressed by their content hash. Only the chunks that do not
+   * exist yet are written, the version metadata references the unchanged chunks of the previous
+   * versions.
+   */
+  private void writeChunkedVersion(String rootPath, String versionedDataPath, ZNRecord record)
+      throws IOException {
+    // Compressed chunks by their hash, in the order of the fields. The hash covers the bucket size
+    // and the compressed bytes, i.e. exactly what is stored, so a chunk written by another writer
+    // with a different compression or bucket size is never referenced with the wrong layout.
+    Map<String, byte[]> chunks = new LinkedHashMap<>();
+    for (ZNRecord chunk : splitIntoChunks(record)) {
+      byte[] compressedChunk = GZipCompressionUtil.compress(_zkSerializer.serialize(chunk));
+      chunks.put(Hashing.sha256().newHasher().putInt(_bucketSize).putBytes(compressedChunk).hash()
+          .toString(), compressedChunk);
+    }
+    List<String> chunkRefs = new ArrayList<>(chunks.size());
+    List<String> markerPaths = new ArrayList<>(chunks.size());
+    for (Map.Entry<String, byte[]> chunk : chunks.entrySet()) {
+      chunkRefs.add(chunk.getKey() + ":" + chunk.getValue().length);
+      markerPaths.add(getChunkPath(rootPath, chunk.getKey()));
+    }
+
+    Lock lock = CHUNK_LOCKS.get(rootPath).readLock();
+    lock.lock();
+    try {
+      // 2.1. Find the chunks that are not complete or may expire. The marker node of a chunk is
+      // set to the size of the chunk once all the buckets of the chunk are written.
+      Stat[] stats = markerPaths.isEmpty() ? new Stat[0]
+          : _zkBaseDataAccessor.getStats(markerPaths, AccessOption.PERSISTENT);
+      // Reused chunks are touched once they are half way to expire, so the GC does not remove
+      // them before the new version references them. The lock above does not cover a GC of
+      // another process, which only skips chunks that are referenced or younger than the TTL.
+      // So across processes, a write is safe only if it references its chunks within TTL/2 of
+      // reading the stats, which also absorbs the skew between this clock and the ZK mtime.
+      // A chunk that may expire already is rewritten rather than touched, since the GC may
+      // remove it at any time and a touch alone would recreate the marker without the buckets.
+      long now = System.currentTimeMillis();
+      long touchThreshold = now - _versionTTLms / 2;
+      long expiryThreshold = now - _versionTTLms;
+      List<String> bucketPaths = new ArrayList<>();
+      List<byte[]> buckets = new ArrayList<>();
+      List<String> markersToSet = new ArrayList<>();
+      List<byte[]> markerData = new ArrayList<>();
+      int numWrittenChunks = 0;
+      int i = 0;
+      for (byte[] compressedChunk : chunks.values()) {
+        Stat stat = stats[i];
+        String markerPath = markerPaths.get(i++);
+        boolean reusable =
+            stat != null && stat.getDataLength() > 0 && stat.getMtime() >= expiryThreshold;
+        if (!reusable) {
+          splitIntoBuckets(compressedChunk, markerPath, bucketPaths, buckets);
+          numWrittenChunks++;
+        }
+        if (!reusable || stat.getMtime() < touchThreshold) {
+          markersToSet.add(markerPath);
+          markerData.add(Integer.toString(compressedChunk.length).getBytes());
+        }
+      }
+
+      // 2.2. Write the buckets of the new chunks, then mark the chunks as complete
+      setChildren(rootPath, bucketPaths, buckets);
+      setChildren(rootPath, markersToSet, markerData);
+
+      // 3. Write the metadata referencing the chunks
+      Map<String, String> metadata = new HashMap<>();
+      metadata.put(FORMAT_KEY, CHUNKED_FORMAT);
+      metadata.put(BUCKET_SIZE_KEY, Integer.toString(_bucketSize));
+      metadata.put(CHUNKS_KEY, Joiner.on(",").join(chunkRefs));
+      if (record.getId() != null) {
+        metadata.put(RECORD_ID_KEY, record.getId());
+      }
+      setChildren(rootPath,
+          Arrays.asList(versionedDataPath + "/" + METADATA_KEY),
+          Arrays.asList(OBJECT_MAPPER.writeValueAsBytes(metadata)));
+      LOG.debug("Wrote {} of {} chunks for path: {}", numWrittenChunks, chunks.size(), rootPath);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Splits the fields of the record into chunks, ordered by the field type and key.
+   */
+  private static List<ZNRecord> splitIntoChunks(ZNRecord record) {
+    ChunkSplitter splitter = new ChunkSplitter();
+    for (Map.Entry<String, String> field : new TreeMap<>(record.getSimpleFields()).entrySet()) {
+      splitter.add(field.getKey(), length(field.getValue()),
+          chunk -> chunk.setSimpleField(field.getKey(), field.getValue()));
+    }
+    for (Map.Entry<String, List<String>> field : new TreeMap<>(record.getListFields())
+        .entrySet()) {
+      int size = 0;
+      if (field.getValue() != null) {
+        for (String value : field.getValue()) {
+          size += length(value);
+        }
+      }
+      splitter.add(field.getKey(), size, chunk -> chunk.setListField(field.getKey(),
+          field.getValue() == null ? null : new ArrayList<>(field.getValue())));
+    }
+    for (Map.Entry<String, Map<String, String>> field : new TreeMap<>(record.getMapFields())
+        .entrySet()) {
+      int size = 0;
+      if (field.getValue() != null) {
+        for (Map.Entry<String, String> entry : field.getValue().entrySet()) {
+          size += length(entry.getKey()) + length(entry.getValue());
+        }
+      }
+      // Sort the map so that the same content is always serialized to the same chunk
+      splitter.add(field.getKey(), size, chunk -> chunk.setMapField(field.getKey(),
+          field.getValue() == null ? null : new TreeMap<>(field.getValue())));
+    }
+    return splitter.finish();
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : value.length();
+  }
+
   @Override
   public <T extends HelixProperty> HelixProperty compressedBucketRead(String path,
       Class<T> helixPropertySubType) {
@@ -285,6 +427,9 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     }
 
     // 3. Read the data
+    if (CHUNKED_FORMAT.equals(metadata.get(FORMAT_KEY))) {
+      return new HelixProperty(readChunkedVersion(path, metadata));
+    }
     Object bucketSizeObj = metadata.get(BUCKET_SIZE_KEY);
     Object dataSizeObj = metadata.get(DATA_SIZE_KEY);
     if (bucketSizeObj == null) {
@@ -299,8 +444,7 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     int dataSize = Integer.parseInt((String) dataSizeObj);
 
     // Compute N - number of buckets
-    int numBuckets = (dataSize + _bucketSize - 1) / _bucketSize;
-    byte[] compressedRecord = new byte[dataSize];
+    int numBuckets = (dataSize + bucketSize - 1) / bucketSize;
     String dataPath = path + "/" + versionToRead;
 
     List<String> paths = new ArrayList<>();
@@ -311,18 +455,77 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     // Async get
     List<byte[]> buckets = _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true);
 
-    // Combine buckets into one byte array
-    int copyPtr = 0;
-    for (int i = 0; i < numBuckets; i++) {
-      if (i == numBuckets - 1) {
-        // Special treatment for the last bucket
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, dataSize % bucketSize);
-      } else {
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, bucketSize);
-        copyPtr += bucketSize;
+    // Combine buckets into one byte array and deserialize the record to retrieve the original
+    ZNRecord originalRecord =
+        decompressRecord(joinBuckets(buckets, 0, dataSize, bucketSize), path);
+    return new HelixProperty(originalRecord);
+  }
+
+  /**
+   * Reads the chunks referenced by the metadata of a chunked version and merges them into the
+   * original record.
+   */
+  private ZNRecord readChunkedVersion(String path, Map metadata) {
+    Object bucketSizeObj = metadata.get(BUCKET_SIZE_KEY);
+    if (bucketSizeObj == null) {
+      throw new HelixException(
+          String.format("Metadata ZNRecord does not have %s! Path: %s", BUCKET_SIZE_KEY, path));
+    }
+    int bucketSize = Integer.parseInt((String) bucketSizeObj);
+
+    // Read the buckets of all chunks with one async get
+    List<String> chunkRefs = parseChunkRefs((String) metadata.get(CHUNKS_KEY));
+    List<Integer> chunkSizes = new ArrayList<>(chunkRefs.size());
+    List<String> paths = new ArrayList<>();
+    for (String chunkRef : chunkRefs) {
+      int separator = chunkRef.indexOf(':');
+      String chunkPath = getChunkPath(path, chunkRef.substring(0, separator));
+      int chunkSize = Integer.parseInt(chunkRef.substring(separator + 1));
+      chunkSizes.add(chunkSize);
+      for (int i = 0; i < (chunkSize + bucketSize - 1) / bucketSize; i++) {
+        paths.add(chunkPath + "/" + i);
       }
     }
+    List<byte[]> buckets = paths.isEmpty() ? new ArrayList<>()
+        : _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true);
+
+    ZNRecord record = new ZNRecord((String) metadata.get(RECORD_ID_KEY));
+    int bucketPtr = 0;
+    for (int chunkSize : chunkSizes) {
+      ZNRecord chunk =
+          decompressRecord(joinBuckets(buckets, bucketPtr, chunkSize, bucketSize), path);
+      bucketPtr += (chunkSize + bucketSize - 1) / bucketSize;
+      record.getSimpleFields().putAll(chunk.getSimpleFields());
+      record.getListFields().putAll(chunk.getListFields());
+      record.getMapFields().putAll(chunk.getMapFields());
+    }
+    return record;
+  }
+
+  /**
+   * Splits the data into buckets of the bucket size, named by their index under the data path.
+   */
+  private void splitIntoBuckets(byte[] data, String dataPath, List<String> paths,
+      List<byte[]> buckets) {
+    for (int ptr = 0, counter = 0; ptr < data.length; ptr += _bucketSize, counter++) {
+      paths.add(dataPath + "/" + counter);
+      buckets.add(Arrays.copyOfRange(data, ptr, Math.min(ptr + _bucketSize, data.length)));
+    }
+  }
+
+  /**
+   * Combines the buckets starting at the given index into one byte array of the data size.
+   */
+  private static byte[] joinBuckets(List<byte[]> buckets, int fromIndex, int dataSize,
+      int bucketSize) {
+    byte[] data = new byte[dataSize];
+    for (int ptr = 0, i = fromIndex; ptr < dataSize; ptr += bucketSize, i++) {
+      System.arraycopy(buckets.get(i), 0, data, ptr, Math.min(bucketSize, dataSize - ptr));
+    }
+    return data;
+  }
 
+  private ZNRecord decompressRecord(byte[] compressedRecord, String path) {
     // Decompress the byte array
     ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressedRecord);
     byte[] serializedRecord;
@@ -331,10 +534,33 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to decompress path: %s!", path), e);
     }
+    return (ZNRecord) _zkSerializer.deserialize(serializedRecord);
+  }
 
-    // Deserialize the record to retrieve the original
-    ZNRecord originalRecord = (ZNRecord) _zkSerializer.deserialize(serializedRecord);
-    return new HelixProperty(originalRecord);
+  private void setChildren(String rootPath, List<String> paths, List<byte[]> data) {
+    if (paths.isEmpty()) {
+      return;
+    }
+    boolean[] success = _zkBaseDataAccessor.setChildren(paths, data, AccessOption.PERSISTENT);
+    // Exception and fail the write if any failed
+    for (boolean s : success) {
+      if (!s) {
+        throw new HelixException(
+            String.format("Failed to write the data buckets for path: %s", rootPath));
+      }
+    }
+  }
+
+  private static String getChunkPath(String rootPath, String hash) {
+    return rootPath + "/" + CHUNKS_KEY + "/" + hash;
+  }
+
+  private static List<String> parseChunkRefs(String chunks) {
+    List<String> chunkRefs = new ArrayList<>();
+    if (chunks != null && !chunks.isEmpty()) {
+      chunkRefs.addAll(Arrays.asList(chunks.split(",")));
+    }
+    return chunkRefs;
   }
 
   @Override
@@ -384,6 +610,88 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
       // TODO: Should be batch delete but it doesn't work. It's okay since this runs async
       _zkBaseDataAccessor.remove(pathToDelete, AccessOption.PERSISTENT);
     }
+    if (children.contains(CHUNKS_KEY)) {
+      deleteUnreferencedChunks(rootPath);
+    }
+  }
+
+  /**
+   * Deletes the chunks that are not referenced by the remaining versions. Chunks are only deleted
+   * once they expire, since a chunk written or reused by an ongoing write is not referenced until
+   * the metadata of the new version is written. The lock only excludes the writers of this
+   * process, the writers of other processes are only protected by touching the reused chunks.
+   * @param rootPath
+   */
+  private void deleteUnreferencedChunks(String rootPath) {
+    List<String> chunkHashes =
+        _zkBaseDataAccessor.getChildNames(rootPath + "/" + CHUNKS_KEY, AccessOption.PERSISTENT);
+    if (chunkHashes == null || chunkHashes.isEmpty()) {
+      return;
+    }
+    Lock lock = CHUNK_LOCKS.get(rootPath).writeLock();
+    lock.lock();
+    try {
+      Set<String> referencedChunks = getReferencedChunks(rootPath);
+      List<String> candidatePaths = new ArrayList<>();
+      for (String hash : chunkHashes) {
+        if (!referencedChunks.contains(hash)) {
+          candidatePaths.add(getChunkPath(rootPath, hash));
+        }
+      }
+      if (candidatePaths.isEmpty()) {
+        return;
+      }
+      long expiryThreshold = System.currentTimeMillis() - _versionTTLms;
+      Stat[] stats = _zkBaseDataAccessor.getStats(candidatePaths, AccessOption.PERSISTENT);
+      for (int i = 0; i < candidatePaths.size(); i++) {
+        if (stats[i] != null && stats[i].getMtime() < expiryThreshold) {
+          _zkBaseDataAccessor.remove(candidatePaths.get(i), AccessOption.PERSISTENT);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the hashes of the chunks referenced by the versions under the root path
+   */
+  private Set<String> getReferencedChunks(String rootPath) {
+    Set<String> referencedChunks = new HashSet<>();
+    List<String> children = _zkBaseDataAccessor.getChildNames(rootPath, AccessOption.PERSISTENT);
+    if (children == null) {
+      return referencedChunks;
+    }
+    List<String> metadataPaths = new ArrayList<>();
+    for (String child : children) {
+      try {
+        Long.parseLong(child);
+        metadataPaths.add(rootPath + "/" + child + "/" + METADATA_KEY);
+      } catch (NumberFormatException ex) {
+        // Not a version
+      }
+    }
+    if (metadataPaths.isEmpty()) {
+      return referencedChunks;
+    }
+    // The metadata of a version being written may not exist yet
+    for (byte[] binaryMetadata : _zkBaseDataAccessor
+        .get(metadataPaths, null, AccessOption.PERSISTENT, false)) {
+      if (binaryMetadata == null) {
+        continue;
+      }
+      Map metadata;
+      try {
+        metadata = OBJECT_MAPPER.readValue(binaryMetadata, Map.class);
+      } catch (IOException e) {
+        throw new HelixException(
+            String.format("Failed to deserialize path metadata: %s!", rootPath), e);
+      }
+      for (String chunkRef : parseChunkRefs((String) metadata.get(CHUNKS_KEY))) {
+        referencedChunks.add(chunkRef.substring(0, chunkRef.indexOf(':')));
+      }
+    }
+    return referencedChunks;
   }
 
   /**
@@ -396,7 +704,8 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     List<String> childrenToRemove = new ArrayList<>();
     for (String child : childrenNodes) {
       // Leave out metadata
-      if (child.equals(LAST_SUCCESSFUL_WRITE_KEY) || child.equals(LAST_WRITE_KEY)) {
+      if (child.equals(LAST_SUCCESSFUL_WRITE_KEY) || child.equals(LAST_WRITE_KEY)
+          || child.equals(CHUNKS_KEY)) {
         continue;
       }
       long childVer;
@@ -437,4 +746,43 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     }
     return new String(binaryVersionToRead);
   }
+
+  /**
+   * Groups the fields of a record into chunks with content-defined boundaries.
+   */
+  private static class ChunkSplitter {
+    private final List<ZNRecord> _chunks = new ArrayList<>();
+    private ZNRecord _chunk = new ZNRecord(CHUNK_RECORD_ID);
+    private int _chunkSize = 0;
+    private int _numFields = 0;
+
+    void add(String key, int valueSize, Consumer<ZNRecord> fieldSetter) {
+      int fieldSize = length(key) + valueSize;
+      if (fieldSize >= MIN_CHUNK_SIZE) {
+        closeChunk();
+      }
+      fieldSetter.accept(_chunk);
+      _chunkSize += fieldSize;
+      _numFields++;
+      if (fieldSize >= MIN_CHUNK_SIZE || _chunkSize >= MAX_CHUNK_SIZE
+          || (_chunkSize >= MIN_CHUNK_SIZE
+          && Math.floorMod(key.hashCode(), CHUNK_BOUNDARY_DIVISOR) == 0)) {
+        closeChunk();
+      }
+    }
+
+    List<ZNRecord> finish() {
+      closeChunk();
+      return _chunks;
+    }
+
+    private void closeChunk() {
+      if (_numFields > 0) {
+        _chunks.add(_chunk);
+        _chunk = new ZNRecord(CHUNK_RECORD_ID);
+        _chunkSize = 0;
+        _numFields = 0;
+      }
+    }
+  }
 }
@@ -20,7 +20,6 @@ package org.apache.helix.messaging.handling;
  */
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -41,8 +40,8 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.Attributes;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
-import org.apache.helix.participant.statemachine.StateModelParser;
 import org.apache.helix.participant.statemachine.StateTransitionError;
+import org.apache.helix.participant.statemachine.StateTransitionTable;
 import org.apache.helix.task.TaskStateModel;
 import org.apache.helix.util.StatusUpdateUtil;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -81,7 +80,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
   private static final Logger logger = LoggerFactory.getLogger(HelixStateTransitionHandler.class);
   private final StateModel _stateModel;
   StatusUpdateUtil _statusUpdateUtil;
-  private final StateModelParser _transitionMethodFinder;
+  private final StateTransitionTable _transitionTable;
   private final CurrentState _currentStateDelta;
   private final HelixManager _manager;
   private final StateModelFactory<? extends StateModel> _stateModelFactory;
@@ -95,7 +94,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
     super(message, context);
     _stateModel = stateModel;
     _statusUpdateUtil = new StatusUpdateUtil();
-    _transitionMethodFinder = new StateModelParser();
+    _transitionTable = StateTransitionTable.getTransitionTable(stateModel.getClass());
     _currentStateDelta = currentStateDelta;
     _manager = _notificationContext.getManager();
     _stateModelFactory = stateModelFactory;
@@ -329,14 +328,11 @@ public class HelixStateTransitionHandler extends MessageHandler {
         "Message handling invoking", manager);
 
     // by default, we invoke state transition function in state model
-    Method methodToInvoke = null;
     String fromState = message.getFromState();
     String toState = message.getToState();
-    methodToInvoke = _transitionMethodFinder.getMethodForTransition(_stateModel.getClass(),
-        fromState, toState, new Class[] {
-            Message.class, NotificationContext.class
-        });
-    if (methodToInvoke != null) {
+    StateTransitionTable.TransitionInvoker transitionToInvoke =
+        _transitionTable.getTransition(fromState, toState);
+    if (transitionToInvoke != null) {
       logger.info(String.format(
           "Instance %s, partition %s received state transition from %s to %s on session %s, message id: %s",
           message.getTgtName(), message.getPartitionName(), message.getFromState(),
@@ -348,9 +344,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
             message.getToState(), message.getTgtSessionId(), message.getMsgId()));
       }
 
-      Object result = methodToInvoke.invoke(_stateModel, new Object[] {
-          message, context
-      });
+      Object result = transitionToInvoke.invoke(_stateModel, message, context);
       taskResult.setSuccess(true);
       String resultStr;
       if (result == null || result instanceof Void) {
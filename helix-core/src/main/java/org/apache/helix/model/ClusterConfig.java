@@ -62,6 +62,9 @@ public class ClusterConfig extends HelixProperty {
     DELAY_REBALANCE_TIME, // delayed time in ms that the delay time Helix should hold until
     // rebalancing.
     STATE_TRANSITION_THROTTLE_CONFIGS,
+    // Whether the cluster level state transition quota is shared fairly across resources instead
+    // of being taken greedily in resource priority order.
+    STATE_TRANSITION_THROTTLE_FAIR_SHARE_ENABLED,
     STATE_TRANSITION_CANCELLATION_ENABLED,
     MISS_TOP_STATE_DURATION_THRESHOLD,
     RESOURCE_PRIORITY_FIELD,
@@ -130,6 +133,13 @@ public class ClusterConfig extends HelixProperty {
     // Default to be true.
     GLOBAL_REBALANCE_ASYNC_MODE,
 
+    // The number of threads used to calculate the global baseline. If it is larger than 1, the
+    // resources are split into independent shards by their instance group tags and the shards are
+    // calculated concurrently. Resources that share instances always fall into the same shard.
+    //
+    // Default to be 1, which calculates the baseline of all the resources in one shard.
+    GLOBAL_BASELINE_CALCULATION_PARALLELISM,
+
     /**
      * Configure the abnormal partition states resolver classes for the corresponding state model.
      * <State Model Def Name, Full Path of the Resolver Class Name>
@@ -201,6 +211,7 @@ public class ClusterConfig extends HelixProperty {
   private final static int MIN_REBALANCE_PREFERENCE = 0;
   public final static boolean DEFAULT_GLOBAL_REBALANCE_ASYNC_MODE_ENABLED = true;
   public final static boolean DEFAULT_PARTIAL_REBALANCE_ASYNC_MODE_ENABLED = true;
+  public final static int DEFAULT_GLOBAL_BASELINE_CALCULATION_PARALLELISM = 1;
   private static final int GLOBAL_TARGET_TASK_THREAD_POOL_SIZE_NOT_SET = -1;
   private static final int OFFLINE_NODE_TIME_OUT_FOR_MAINTENANCE_MODE_NOT_SET = -1;
   private final static int DEFAULT_VIEW_CLUSTER_REFRESH_PERIOD = 30;
@@ -624,6 +635,23 @@ public class ClusterConfig extends HelixProperty {
         .getBooleanField(ClusterConfigProperty.STATE_TRANSITION_CANCELLATION_ENABLED.name(), false);
   }
 
+  /**
+   * Enable/disable fair sharing of the cluster level state transition throttle quota. If enabled,
+   * each resource with state transitions to send is capped at a share of the remaining cluster
+   * quota weighted by its partition count, so lower priority resources are not starved by higher
+   * priority ones. Resource priority still decides the order in which the shares are taken.
+   * @param enabled
+   */
+  public void setStateTransitionThrottleFairShareEnabled(boolean enabled) {
+    _record.setBooleanField(
+        ClusterConfigProperty.STATE_TRANSITION_THROTTLE_FAIR_SHARE_ENABLED.name(), enabled);
+  }
+
+  public boolean isStateTransitionThrottleFairShareEnabled() {
+    return _record.getBooleanField(
+        ClusterConfigProperty.STATE_TRANSITION_THROTTLE_FAIR_SHARE_ENABLED.name(), false);
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof ClusterConfig) {
@@ -1066,6 +1094,24 @@ public class ClusterConfig extends HelixProperty {
         DEFAULT_GLOBAL_REBALANCE_ASYNC_MODE_ENABLED);
   }
 
+  /**
+   * Set the number of threads used to calculate the global baseline.
+   * @param parallelism number of shards that can be calculated concurrently, 1 to disable sharding
+   */
+  public void setGlobalBaselineCalculationParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(
+          "Global baseline calculation parallelism must be a positive number.");
+    }
+    _record.setIntField(ClusterConfigProperty.GLOBAL_BASELINE_CALCULATION_PARALLELISM.name(),
+        parallelism);
+  }
+
+  public int getGlobalBaselineCalculationParallelism() {
+    return _record.getIntField(ClusterConfigProperty.GLOBAL_BASELINE_CALCULATION_PARALLELISM.name(),
+        DEFAULT_GLOBAL_BASELINE_CALCULATION_PARALLELISM);
+  }
+
   /**
    * Set the time out window for offline nodes during maintenance mode. If an offline node has been
    * offline for more than this specified time period, it's treated as offline for the rest of
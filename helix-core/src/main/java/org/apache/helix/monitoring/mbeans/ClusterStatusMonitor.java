@@ -87,6 +87,9 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   private AtomicLong _rebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousResourceRebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousTaskRebalanceFailureCount = new AtomicLong(0L);
+  private AtomicLong _taskPurgeBacklog = new AtomicLong(0L);
+  private AtomicLong _purgedTaskResourceCount = new AtomicLong(0L);
+  private AtomicLong _taskPurgeLatency = new AtomicLong(0L);
 
   private final ConcurrentHashMap<String, ResourceMonitor> _resourceMonitorMap =
       new ConcurrentHashMap<>();
@@ -1037,6 +1040,22 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     _continuousTaskRebalanceFailureCount.set(newValue);
   }
 
+  public void setTaskPurgeBacklogGauge(long numToBePurged) {
+    _taskPurgeBacklog.set(numToBePurged);
+  }
+
+  /**
+   * Report the result of one task garbage collection run.
+   * @param numPurged the number of workflows and jobs purged
+   * @param numFailed the number of workflows and jobs that failed to be purged
+   * @param latency the time in ms the purge took
+   */
+  public void reportTaskPurge(long numPurged, long numFailed, long latency) {
+    _purgedTaskResourceCount.addAndGet(numPurged);
+    _taskPurgeBacklog.set(numFailed);
+    _taskPurgeLatency.set(latency);
+  }
+
   @Override
   public long getRebalanceFailureCounter() {
     return _rebalanceFailureCount.get();
@@ -1052,6 +1071,21 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _continuousTaskRebalanceFailureCount.get();
   }
 
+  @Override
+  public long getTaskPurgeBacklogGauge() {
+    return _taskPurgeBacklog.get();
+  }
+
+  @Override
+  public long getPurgedTaskResourceCounter() {
+    return _purgedTaskResourceCount.get();
+  }
+
+  @Override
+  public long getTaskPurgeLatencyGauge() {
+    return _taskPurgeLatency.get();
+  }
+
   @Override
   public long getTotalResourceGauge() {
     return _resourceMonitorMap.size();
@@ -147,4 +147,20 @@ public interface ClusterStatusMonitorMBean extends SensorNameProvider {
    * state partition is larger than configured threshold (default is 1).
    */
   long getNumOfResourcesRebalanceThrottledGauge();
+
+  /**
+   * @return number of expired workflows and jobs found by the task garbage collection that are
+   * not purged yet
+   */
+  long getTaskPurgeBacklogGauge();
+
+  /**
+   * @return number of workflows and jobs purged by the task garbage collection
+   */
+  long getPurgedTaskResourceCounter();
+
+  /**
+   * @return the time in ms the last task garbage collection took to purge workflows and jobs
+   */
+  long getTaskPurgeLatencyGauge();
 }
@@ -68,6 +68,14 @@ public class JobMonitor extends DynamicMBeanProvider {
   private HistogramDynamicMetric _submissionToProcessDelayGauge;
   private HistogramDynamicMetric _submissionToScheduleDelayGauge;
   private HistogramDynamicMetric _controllerInducedDelayGauge;
+  // Latency breakdown of the tasks, from the task being scheduled by the controller to the
+  // controller processing the final state of the task
+  private HistogramDynamicMetric _taskMessageCreationDelayGauge;
+  private HistogramDynamicMetric _taskMessageDeliveryDelayGauge;
+  private HistogramDynamicMetric _taskMessageQueueDelayGauge;
+  private HistogramDynamicMetric _taskStartDelayGauge;
+  private HistogramDynamicMetric _taskExecutionTimeGauge;
+  private HistogramDynamicMetric _taskCurrentStatePropagationDelayGauge;
 
   public JobMonitor(String clusterName, String jobType, ObjectName objectName) {
     _clusterName = clusterName;
@@ -98,6 +106,18 @@ public class JobMonitor extends DynamicMBeanProvider {
     _controllerInducedDelayGauge = new HistogramDynamicMetric("ControllerInducedDelayGauge",
         new Histogram(
             new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _taskMessageCreationDelayGauge = createHistogram("TaskMessageCreationDelayGauge");
+    _taskMessageDeliveryDelayGauge = createHistogram("TaskMessageDeliveryDelayGauge");
+    _taskMessageQueueDelayGauge = createHistogram("TaskMessageQueueDelayGauge");
+    _taskStartDelayGauge = createHistogram("TaskStartDelayGauge");
+    _taskExecutionTimeGauge = createHistogram("TaskExecutionTimeGauge");
+    _taskCurrentStatePropagationDelayGauge =
+        createHistogram("TaskCurrentStatePropagationDelayGauge");
+  }
+
+  private HistogramDynamicMetric createHistogram(String name) {
+    return new HistogramDynamicMetric(name, new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
   }
 
   @Override
@@ -192,6 +212,60 @@ public class JobMonitor extends DynamicMBeanProvider {
     _controllerInducedDelayGauge.updateValue(delay);
   }
 
+  /**
+   * Update TaskMessageCreationDelay, the time from a task being scheduled to the controller creating
+   * the message to run it, to its corresponding HistogramDynamicMetric.
+   * @param delay
+   */
+  public void updateTaskMessageCreationDelayGauge(long delay) {
+    _taskMessageCreationDelayGauge.updateValue(delay);
+  }
+
+  /**
+   * Update TaskMessageDeliveryDelay, the time from the message of a task being created to the
+   * participant reading it, to its corresponding HistogramDynamicMetric.
+   * @param delay
+   */
+  public void updateTaskMessageDeliveryDelayGauge(long delay) {
+    _taskMessageDeliveryDelayGauge.updateValue(delay);
+  }
+
+  /**
+   * Update TaskMessageQueueDelay, the time the message of a task waits in the message handling
+   * queue of the participant, to its corresponding HistogramDynamicMetric.
+   * @param delay
+   */
+  public void updateTaskMessageQueueDelayGauge(long delay) {
+    _taskMessageQueueDelayGauge.updateValue(delay);
+  }
+
+  /**
+   * Update TaskStartDelay, the time from the participant handling the message of a task to the task
+   * running on a task thread, to its corresponding HistogramDynamicMetric.
+   * @param delay
+   */
+  public void updateTaskStartDelayGauge(long delay) {
+    _taskStartDelayGauge.updateValue(delay);
+  }
+
+  /**
+   * Update TaskExecutionTime, the time a task runs on the participant, to its corresponding
+   * HistogramDynamicMetric.
+   * @param time
+   */
+  public void updateTaskExecutionTimeGauge(long time) {
+    _taskExecutionTimeGauge.updateValue(time);
+  }
+
+  /**
+   * Update TaskCurrentStatePropagationDelay, the time from a task finishing to the controller
+   * processing its final state, to its corresponding HistogramDynamicMetric.
+   * @param delay
+   */
+  public void updateTaskCurrentStatePropagationDelayGauge(long delay) {
+    _taskCurrentStatePropagationDelayGauge.updateValue(delay);
+  }
+
   /**
    * This method registers the dynamic metrics.
    * @return
@@ -213,6 +287,12 @@ public class JobMonitor extends DynamicMBeanProvider {
     attributeList.add(_submissionToProcessDelayGauge);
     attributeList.add(_submissionToScheduleDelayGauge);
     attributeList.add(_controllerInducedDelayGauge);
+    attributeList.add(_taskMessageCreationDelayGauge);
+    attributeList.add(_taskMessageDeliveryDelayGauge);
+    attributeList.add(_taskMessageQueueDelayGauge);
+    attributeList.add(_taskStartDelayGauge);
+    attributeList.add(_taskExecutionTimeGauge);
+    attributeList.add(_taskCurrentStatePropagationDelayGauge);
     doRegister(attributeList, _initObjectName);
     return this;
   }
@@ -0,0 +1,100 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Monitor of the futures waiting on workflow and job states through the TaskDriver async poll
+ * methods.
+ */
+public class WorkflowContextWatcherMonitor extends DynamicMBeanProvider {
+  public static final String CLUSTER_KEY = "Cluster";
+  public static final String DEFAULT = "DEFAULT";
+
+  private static final String MBEAN_DESCRIPTION = "Helix TaskDriver State Waiter Monitor";
+  private final String _sensorName;
+  private final String _clusterName;
+
+  private SimpleDynamicMetric<Long> _outstandingWaiterGauge;
+  private SimpleDynamicMetric<Long> _watchedWorkflowGauge;
+  private SimpleDynamicMetric<Long> _waiterTimeoutCounter;
+  private HistogramDynamicMetric _waitLatencyGauge;
+
+  public WorkflowContextWatcherMonitor(String clusterName) {
+    _clusterName = clusterName == null ? DEFAULT : clusterName;
+    _sensorName =
+        String.format("%s.%s", MonitorDomainNames.TaskDriver.name(), _clusterName);
+
+    _outstandingWaiterGauge = new SimpleDynamicMetric("OutstandingWaiterGauge", 0L);
+    _watchedWorkflowGauge = new SimpleDynamicMetric("WatchedWorkflowGauge", 0L);
+    _waiterTimeoutCounter = new SimpleDynamicMetric("WaiterTimeoutCounter", 0L);
+    _waitLatencyGauge = new HistogramDynamicMetric("WaitLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  private ObjectName getMBeanName() throws MalformedObjectNameException {
+    return new ObjectName(String
+        .format("%s:%s=%s", MonitorDomainNames.TaskDriver.name(), CLUSTER_KEY, _clusterName));
+  }
+
+  public void updateWaiterGauges(long numWaiters, long numWatchedWorkflows) {
+    _outstandingWaiterGauge.updateValue(numWaiters);
+    _watchedWorkflowGauge.updateValue(numWatchedWorkflows);
+  }
+
+  public void increaseWaiterTimeoutCounter() {
+    incrementSimpleDynamicMetric(_waiterTimeoutCounter);
+  }
+
+  public void recordWaitLatency(long latency) {
+    _waitLatencyGauge.updateValue(latency);
+  }
+
+  @Override
+  public WorkflowContextWatcherMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_outstandingWaiterGauge);
+    attributeList.add(_watchedWorkflowGauge);
+    attributeList.add(_waiterTimeoutCounter);
+    attributeList.add(_waitLatencyGauge);
+
+    doRegister(attributeList, MBEAN_DESCRIPTION, getMBeanName());
+    return this;
+  }
+}
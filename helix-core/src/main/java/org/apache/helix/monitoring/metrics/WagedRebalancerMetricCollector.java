@@ -19,10 +19,16 @@ package org.apache.helix.monitoring.metrics;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.management.JMException;
 
 import org.apache.helix.HelixException;
 import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
 import org.apache.helix.monitoring.metrics.implementation.BaselineDivergenceGauge;
 import org.apache.helix.monitoring.metrics.implementation.RebalanceCounter;
 import org.apache.helix.monitoring.metrics.implementation.RebalanceFailureCount;
@@ -42,6 +48,9 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
   public enum WagedRebalancerMetricNames {
     // Per-stage latency metrics
     GlobalBaselineCalcLatencyGauge,
+    // Latency of calculating one shard of a sharded global baseline calculation. There is one
+    // gauge per shard, named by this prefix, "_" and the tag of the shard.
+    GlobalBaselineShardCalcLatencyGauge,
     PartialRebalanceLatencyGauge,
     EmergencyRebalanceLatencyGauge,
     RebalanceOverwriteLatencyGauge,
@@ -68,6 +77,9 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     RebalanceOverwriteCounter
   }
 
+  // The latency gauges of the baseline shards by the shard tag, guarded by this collector
+  private final Map<String, LatencyMetric> _baselineShardCalcLatencyMap = new HashMap<>();
+
   public WagedRebalancerMetricCollector(String clusterName) {
     super(MonitorDomainNames.Rebalancer.name(), clusterName, WAGED_REBALANCER_ENTITY_NAME);
     createMetrics();
@@ -140,4 +152,40 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     addMetric(emergencyRebalanceCounter);
     addMetric(rebalanceOverwriteCounter);
   }
+
+  /**
+   * Get the latency gauge of the baseline shard of the given tag. The gauge is added to the MBean
+   * attributes when the shard is calculated for the first time.
+   * @param shardTag the tag that identifies the shard
+   * @return the latency gauge of the shard
+   */
+  public synchronized LatencyMetric getBaselineShardCalcLatency(String shardTag) {
+    LatencyMetric latencyGauge = _baselineShardCalcLatencyMap.get(shardTag);
+    if (latencyGauge == null) {
+      // The attribute names of a histogram are split at the only ".", so the tag cannot have one
+      latencyGauge = new RebalanceLatencyGauge(
+          WagedRebalancerMetricNames.GlobalBaselineShardCalcLatencyGauge.name() + "_"
+              + shardTag.replace('.', '_'), getResetIntervalInMs());
+      _baselineShardCalcLatencyMap.put(shardTag, latencyGauge);
+      updateShardAttributesInfo();
+    }
+    return latencyGauge;
+  }
+
+  /**
+   * Remove the latency gauges of the baseline shards that no longer exist.
+   * @param shardTags the tags of the current shards, empty if the baseline is not sharded
+   */
+  public synchronized void retainBaselineShards(Collection<String> shardTags) {
+    if (_baselineShardCalcLatencyMap.keySet().retainAll(shardTags)) {
+      updateShardAttributesInfo();
+    }
+  }
+
+  private void updateShardAttributesInfo() {
+    List<DynamicMetric<?, ?>> dynamicMetrics = new ArrayList<>();
+    getMetricMap().values().forEach(metric -> dynamicMetrics.add(metric.getDynamicMetric()));
+    dynamicMetrics.addAll(_baselineShardCalcLatencyMap.values());
+    updateAttributesInfo(dynamicMetrics, null);
+  }
 }
@@ -47,6 +47,7 @@ import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
 import org.apache.helix.participant.statemachine.StateModelParser;
+import org.apache.helix.participant.statemachine.StateTransitionTable;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.TaskPartitionState;
 import org.slf4j.Logger;
@@ -112,6 +113,8 @@ public class HelixStateMachineEngine implements StateMachineEngine {
       return false;
     }
 
+    // Compile the transition table ahead of the first state transition message
+    StateTransitionTable.precompile(factory);
     _stateModelFactoryMap.get(stateModelName).put(factoryName, factory);
     sendNopMessage();
     return true;
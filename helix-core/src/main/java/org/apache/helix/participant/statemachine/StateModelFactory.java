@@ -76,6 +76,10 @@ public abstract class StateModelFactory<T extends StateModel> {
    */
   public T createAndAddStateModel(String resourceName, String partitionKey) {
     T stateModel = createNewStateModel(resourceName, partitionKey);
+    if (stateModel != null) {
+      // no-op if the transition table of this state model class is already compiled
+      StateTransitionTable.getTransitionTable(stateModel.getClass());
+    }
     synchronized (_stateModelMap) {
       if (!_stateModelMap.containsKey(resourceName)) {
         _stateModelMap.put(resourceName, new ConcurrentHashMap<String, T>());
@@ -0,0 +1,254 @@
+package org.apache.helix.participant.statemachine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Precompiled transition dispatch table of a StateModel class.
+ * The transition methods of the class are scanned once and bound to MethodHandles, so resolving
+ * the method for a (fromState, toState) pair is a map lookup instead of a scan over
+ * clazz.getMethods(). The resolution rules are the same as {@link StateModelParser}: annotated
+ * transitions first, then the "onBecome" + toState + "From" + fromState naming convention.
+ */
+public class StateTransitionTable {
+  private static final Logger logger = LoggerFactory.getLogger(StateTransitionTable.class);
+
+  private static final Class<?>[] TRANSITION_PARAM_TYPES = new Class<?>[] {
+      Message.class, NotificationContext.class
+  };
+  private static final MethodType INVOKER_TYPE = MethodType
+      .methodType(Object.class, StateModel.class, Message.class, NotificationContext.class);
+
+  /**
+   * mapping StateModel class to its transition table. The table is kept with the class, so it does
+   * not keep the class loader of a reloaded state model alive.
+   */
+  private static final ClassValue<StateTransitionTable> TABLES =
+      new ClassValue<StateTransitionTable>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected StateTransitionTable computeValue(Class<?> clazz) {
+          return new StateTransitionTable((Class<? extends StateModel>) clazz);
+        }
+      };
+
+  private final Class<? extends StateModel> _clazz;
+  // annotated transitions, in the same order as clazz.getMethods()
+  private final List<AnnotatedTransition> _annotatedTransitions;
+  // lower-cased method name -> transition method following the naming convention
+  private final Map<String, TransitionInvoker> _conventionTransitions;
+  // "fromState-toState" -> resolved transition, empty if no method matches
+  private final ConcurrentMap<String, Optional<TransitionInvoker>> _resolvedTransitions =
+      new ConcurrentHashMap<>();
+
+  private StateTransitionTable(Class<? extends StateModel> clazz) {
+    _clazz = clazz;
+    List<AnnotatedTransition> annotatedTransitions = new ArrayList<>();
+    Map<String, TransitionInvoker> conventionTransitions = new HashMap<>();
+    boolean useAnnotation = clazz.getAnnotation(StateModelInfo.class) != null;
+
+    for (Method method : clazz.getMethods()) {
+      if (!Arrays.equals(TRANSITION_PARAM_TYPES, method.getParameterTypes())) {
+        continue;
+      }
+      Transition annotation = method.getAnnotation(Transition.class);
+      String name = method.getName().toLowerCase(Locale.ROOT);
+      boolean isConventionTransition =
+          name.startsWith("onbecome") && !conventionTransitions.containsKey(name);
+      if ((useAnnotation && annotation != null) || isConventionTransition) {
+        TransitionInvoker invoker = compile(method);
+        if (useAnnotation && annotation != null) {
+          annotatedTransitions
+              .add(new AnnotatedTransition(annotation.from(), annotation.to(), invoker));
+        }
+        if (isConventionTransition) {
+          conventionTransitions.put(name, invoker);
+        }
+      }
+    }
+    _annotatedTransitions = Collections.unmodifiableList(annotatedTransitions);
+    _conventionTransitions = Collections.unmodifiableMap(conventionTransitions);
+  }
+
+  /**
+   * Get the transition table of a StateModel class, build it if it has not been compiled yet.
+   * @param clazz the StateModel class
+   * @return the transition table
+   */
+  public static StateTransitionTable getTransitionTable(Class<? extends StateModel> clazz) {
+    return TABLES.get(clazz);
+  }
+
+  /**
+   * Precompile the transition table for the StateModel type created by the given factory.
+   * The StateModel class is resolved from the generic type argument of the factory; if it cannot
+   * be resolved, the table will be compiled when the first state model is created.
+   * @param factory the StateModelFactory being registered
+   */
+  public static void precompile(StateModelFactory<? extends StateModel> factory) {
+    Class<? extends StateModel> clazz = resolveStateModelClass(factory.getClass());
+    if (clazz != null) {
+      getTransitionTable(clazz);
+      logger.info("Precompiled state transition table for {}", clazz.getName());
+    }
+  }
+
+  /**
+   * Find the transition for the given states.
+   * @param fromState
+   * @param toState
+   * @return TransitionInvoker if found else null
+   */
+  public TransitionInvoker getTransition(String fromState, String toState) {
+    String key = fromState + "-" + toState;
+    Optional<TransitionInvoker> transition = _resolvedTransitions.get(key);
+    if (transition == null) {
+      transition = Optional.ofNullable(resolve(fromState, toState));
+      _resolvedTransitions.putIfAbsent(key, transition);
+    }
+    return transition.orElse(null);
+  }
+
+  public Class<? extends StateModel> getStateModelClass() {
+    return _clazz;
+  }
+
+  private TransitionInvoker resolve(String fromState, String toState) {
+    for (AnnotatedTransition transition : _annotatedTransitions) {
+      if (transition.matches(fromState, toState)) {
+        return transition._invoker;
+      }
+    }
+    String methodName = "onBecome" + toState + "From" + fromState;
+    if (fromState.equals("*")) {
+      methodName = "onBecome" + toState;
+    }
+    return _conventionTransitions.get(methodName.toLowerCase(Locale.ROOT));
+  }
+
+  private static TransitionInvoker compile(Method method) {
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.lookup().unreflect(method).asType(INVOKER_TYPE);
+    } catch (IllegalAccessException e) {
+      // Not accessible through a method handle, fall back to reflective invocation which reports
+      // the access error on invoke, the same as before.
+      logger.warn("Unable to create method handle for {}, use reflection instead", method, e);
+      handle = null;
+    }
+    return new TransitionInvoker(method, handle);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends StateModel> resolveStateModelClass(Class<?> factoryClass) {
+    Class<?> clazz = factoryClass;
+    while (clazz != null && clazz != StateModelFactory.class) {
+      Type superType = clazz.getGenericSuperclass();
+      if (superType instanceof ParameterizedType
+          && ((ParameterizedType) superType).getRawType() == StateModelFactory.class) {
+        Type stateModelType = ((ParameterizedType) superType).getActualTypeArguments()[0];
+        if (stateModelType instanceof Class && StateModel.class
+            .isAssignableFrom((Class<?>) stateModelType)) {
+          return (Class<? extends StateModel>) stateModelType;
+        }
+        return null;
+      }
+      clazz = clazz.getSuperclass();
+    }
+    return null;
+  }
+
+  private static class AnnotatedTransition {
+    private final String _from;
+    private final String _to;
+    private final TransitionInvoker _invoker;
+
+    AnnotatedTransition(String from, String to, TransitionInvoker invoker) {
+      _from = from;
+      _to = to;
+      _invoker = invoker;
+    }
+
+    boolean matches(String fromState, String toState) {
+      boolean matchesFrom = "*".equals(_from) || _from.equalsIgnoreCase(fromState);
+      boolean matchesTo = "*".equals(_to) || _to.equalsIgnoreCase(toState);
+      return matchesFrom && matchesTo;
+    }
+  }
+
+  /**
+   * A compiled transition method of a StateModel class.
+   */
+  public static class TransitionInvoker {
+    private final Method _method;
+    private final MethodHandle _handle;
+
+    TransitionInvoker(Method method, MethodHandle handle) {
+      _method = method;
+      _handle = handle;
+    }
+
+    public Method getMethod() {
+      return _method;
+    }
+
+    /**
+     * Invoke the transition on the state model. Any exception thrown by the transition method is
+     * wrapped in an InvocationTargetException, the same as {@link Method#invoke}.
+     * @param stateModel
+     * @param message
+     * @param context
+     * @return the value returned by the transition method
+     */
+    public Object invoke(StateModel stateModel, Message message, NotificationContext context)
+        throws IllegalAccessException, InvocationTargetException {
+      if (_handle == null) {
+        return _method.invoke(stateModel, message, context);
+      }
+      try {
+        return (Object) _handle.invokeExact(stateModel, message, context);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+}
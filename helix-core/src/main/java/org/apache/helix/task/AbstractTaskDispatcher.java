@@ -41,7 +41,9 @@ import org.apache.helix.controller.pipeline.AbstractBaseStage;
 import org.apache.helix.controller.rebalancer.util.RebalanceScheduler;
 import org.apache.helix.controller.stages.BestPossibleStateOutput;
 import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.ResourceAssignment;
@@ -143,8 +145,13 @@ public abstract class AbstractTaskDispatcher {
         }
 
         // Update job context based on current state
+        TaskPartitionState prevCtxState = jobCtx.getPartitionState(pId);
         updatePartitionInformationInJobContext(currStateOutput, jobResource, currState, jobCtx,
             pId, pName, instance);
+        if (currState != prevCtxState && isTaskRunFinished(currState)) {
+          reportTaskLatency(cache, _clusterStatusMonitor, jobCfg, jobResource, pName, instance,
+              jobCtx.getPartitionStartTime(pId), System.currentTimeMillis());
+        }
 
         if (!instance.equals(jobCtx.getAssignedParticipant(pId))) {
           LOG.warn(
@@ -432,6 +439,15 @@ public abstract class AbstractTaskDispatcher {
     }
   }
 
+  /**
+   * @return true if the task state is the final state reported by the participant once the task
+   *         has finished running
+   */
+  private static boolean isTaskRunFinished(TaskPartitionState state) {
+    return state == TaskPartitionState.COMPLETED || state == TaskPartitionState.TASK_ERROR
+        || state == TaskPartitionState.TASK_ABORTED || state == TaskPartitionState.TIMED_OUT;
+  }
+
   /**
    * Create an assignment based on an already-existing pending message. This effectively lets the
    * Controller to "wait" until the pending state transition has been processed.
@@ -1387,4 +1403,80 @@ public abstract class AbstractTaskDispatcher {
       return null;
     });
   }
+
+  /**
+   * TODO: Move this logic to Task Framework metrics class for refactoring.
+   * Breaks the latency of a finished task down into the hops between the controller and the
+   * participant, and passes them on to the dynamic metrics. The hops on the participant are
+   * computed from the timestamps the participant reports in the current state of the task. Hops
+   * whose timestamps are not reported, for example by participants of an older version, are
+   * skipped.
+   * @param dataProvider
+   * @param clusterStatusMonitor
+   * @param jobConfig
+   * @param jobResource
+   * @param pName
+   * @param instance
+   * @param scheduleTimestamp the time at which the task was scheduled by the controller
+   * @param currentTimestamp
+   */
+  private static void reportTaskLatency(WorkflowControllerDataProvider dataProvider,
+      final ClusterStatusMonitor clusterStatusMonitor, final JobConfig jobConfig,
+      final String jobResource, final String pName, final String instance,
+      final long scheduleTimestamp, final long currentTimestamp) {
+    if (clusterStatusMonitor == null) {
+      return;
+    }
+    LiveInstance liveInstance = dataProvider.getLiveInstances().get(instance);
+    final WorkflowConfig workflowConfig = dataProvider.getWorkflowConfig(jobConfig.getWorkflow());
+    if (liveInstance == null || workflowConfig == null) {
+      return;
+    }
+    String sessionId = liveInstance.getEphemeralOwner();
+    CurrentState currentState =
+        dataProvider.getTaskCurrentState(instance, sessionId).get(jobResource);
+    if (currentState == null) {
+      currentState = dataProvider.getCurrentState(instance, sessionId).get(jobResource);
+    }
+    if (currentState == null) {
+      return;
+    }
+    final CurrentState taskCurrentState = currentState;
+
+    AbstractBaseStage.asyncExecute(dataProvider.getAsyncTasksThreadPool(), () -> {
+      // Asynchronously update the appropriate JobMonitor
+      JobMonitor jobMonitor = clusterStatusMonitor
+          .getJobMonitor(TaskAssignmentCalculator.getQuotaType(workflowConfig, jobConfig));
+      if (jobMonitor == null) {
+        return null;
+      }
+
+      long messageCreateTime = TaskTimestamp.MESSAGE_CREATE_TIME.get(taskCurrentState, pName);
+      long messageReadTime = TaskTimestamp.MESSAGE_READ_TIME.get(taskCurrentState, pName);
+      long transitionStartTime = TaskTimestamp.TRANSITION_START_TIME.get(taskCurrentState, pName);
+      long taskStartTime = TaskTimestamp.TASK_START_TIME.get(taskCurrentState, pName);
+      long taskFinishTime = TaskTimestamp.TASK_FINISH_TIME.get(taskCurrentState, pName);
+      // NOTE: the hops from the controller to the participant and back compare timestamps of
+      // different hosts, so they include the clock skew between the hosts
+      if (scheduleTimestamp > 0 && messageCreateTime > 0) {
+        jobMonitor.updateTaskMessageCreationDelayGauge(messageCreateTime - scheduleTimestamp);
+      }
+      if (messageCreateTime > 0 && messageReadTime > 0) {
+        jobMonitor.updateTaskMessageDeliveryDelayGauge(messageReadTime - messageCreateTime);
+      }
+      if (messageReadTime > 0 && transitionStartTime > 0) {
+        jobMonitor.updateTaskMessageQueueDelayGauge(transitionStartTime - messageReadTime);
+      }
+      if (transitionStartTime > 0 && taskStartTime > 0) {
+        jobMonitor.updateTaskStartDelayGauge(taskStartTime - transitionStartTime);
+      }
+      if (taskStartTime > 0 && taskFinishTime > 0) {
+        jobMonitor.updateTaskExecutionTimeGauge(taskFinishTime - taskStartTime);
+      }
+      if (taskFinishTime > 0) {
+        jobMonitor.updateTaskCurrentStatePropagationDelayGauge(currentTimestamp - taskFinishTime);
+      }
+      return null;
+    });
+  }
 }
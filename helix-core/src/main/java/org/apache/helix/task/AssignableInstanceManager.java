@@ -21,9 +21,12 @@ package org.apache.helix.task;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -59,6 +62,11 @@ public class AssignableInstanceManager {
   // This map is quota type -> remaining global quota
   private Map<String, Integer> _globalThreadBasedQuotaMap;
 
+  // Quota type -> AssignableInstances ordered by remaining capacity of the quota type. An index is
+  // built on the first lookup of its quota type and kept in order by assign() and release(), so
+  // every job does not need to sort all the instances again.
+  private Map<String, CapacityIndex> _capacityIndexMap;
+
   /**
    * Basic constructor for AssignableInstanceManager to allow an empty instantiation.
    * buildAssignableInstances() must be explicitly called after instantiation.
@@ -67,6 +75,7 @@ public class AssignableInstanceManager {
     _assignableInstanceMap = new ConcurrentHashMap<>();
     _taskAssignResultMap = new ConcurrentHashMap<>();
     _globalThreadBasedQuotaMap = new ConcurrentHashMap<>();
+    _capacityIndexMap = new ConcurrentHashMap<>();
   }
 
   /**
@@ -82,6 +91,7 @@ public class AssignableInstanceManager {
     // Reset all cached information
     _assignableInstanceMap.clear();
     _taskAssignResultMap.clear();
+    _capacityIndexMap.clear();
 
     // Create all AssignableInstance objects based on what's in liveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -197,8 +207,11 @@ public class AssignableInstanceManager {
       TaskDataCache taskDataCache, Map<String, LiveInstance> liveInstances,
       Map<String, InstanceConfig> instanceConfigs, CurrentStateOutput currentStateOutput,
       Map<String, Resource> resourceMap) {
+    Map<String, AssignableInstance> previousAssignableInstanceMap =
+        new HashMap<>(_assignableInstanceMap);
     _assignableInstanceMap.clear();
     _taskAssignResultMap.clear();
+    _capacityIndexMap.clear();
 
     // Create all AssignableInstance objects based on what's in liveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -210,11 +223,18 @@ public class AssignableInstanceManager {
       }
       InstanceConfig instanceConfig = instanceConfigs.get(instanceName);
 
-      // Create an AssignableInstance
-      AssignableInstance assignableInstance =
-          new AssignableInstance(clusterConfig, instanceConfig, liveInstance);
+      AssignableInstance assignableInstance = previousAssignableInstanceMap.get(instanceName);
+      if (assignableInstance != null
+          && assignableInstance.hasSameCapacity(clusterConfig, liveInstance)) {
+        // The capacity is not changed, so only the usage needs to be rebuilt from CurrentState
+        assignableInstance.updateConfigs(clusterConfig, instanceConfig, liveInstance);
+        assignableInstance.resetAssignments();
+      } else {
+        // Create an AssignableInstance
+        assignableInstance = new AssignableInstance(clusterConfig, instanceConfig, liveInstance);
+        LOG.debug("AssignableInstance created for instance: {}", instanceName);
+      }
       _assignableInstanceMap.put(instanceConfig.getInstanceName(), assignableInstance);
-      LOG.debug("AssignableInstance created for instance: {}", instanceName);
     }
 
     Map<String, JobConfig> jobConfigMap = taskDataCache.getJobConfigMap();
@@ -417,6 +437,7 @@ public class AssignableInstanceManager {
           "Non-live AssignableInstance removed for instance: {} during updateAssignableInstances",
           instanceToBeRemoved.getInstanceName());
     }
+    _capacityIndexMap.clear();
     LOG.info(
         "AssignableInstanceManager updated AssignableInstances due to LiveInstance/InstanceConfig change.");
     computeGlobalThreadBasedCapacity();
@@ -500,6 +521,7 @@ public class AssignableInstanceManager {
     }
     if (_assignableInstanceMap.containsKey(instanceName)) {
       _assignableInstanceMap.get(instanceName).release(taskConfig, quotaType);
+      updateCapacityIndex(instanceName);
     }
 
     if (_globalThreadBasedQuotaMap.containsKey(quotaType)) {
@@ -533,6 +555,7 @@ public class AssignableInstanceManager {
     if (result != null && _assignableInstanceMap.containsKey(instanceName)) {
       _assignableInstanceMap.get(instanceName).assign(result);
       _taskAssignResultMap.put(result.getTaskConfig().getId(), result);
+      updateCapacityIndex(instanceName);
     }
 
     if (_globalThreadBasedQuotaMap.containsKey(result.getQuotaType())) {
@@ -541,6 +564,29 @@ public class AssignableInstanceManager {
     }
   }
 
+  /**
+   * Returns the AssignableInstance with the most remaining capacity of the given quota type. The
+   * lookup takes O(log n) once the index of the quota type is built.
+   * @param quotaType
+   * @return the AssignableInstance, or null if there is no AssignableInstance
+   */
+  public AssignableInstance getAssignableInstanceWithMostCapacity(String quotaType) {
+    CapacityIndex capacityIndex = _capacityIndexMap.computeIfAbsent(quotaType,
+        type -> new CapacityIndex(type, _assignableInstanceMap.values()));
+    return capacityIndex.getFirst();
+  }
+
+  /**
+   * Re-position the instance in all the capacity indices after its usage is changed
+   * @param instanceName
+   */
+  private void updateCapacityIndex(String instanceName) {
+    AssignableInstance assignableInstance = _assignableInstanceMap.get(instanceName);
+    for (CapacityIndex capacityIndex : _capacityIndexMap.values()) {
+      capacityIndex.update(assignableInstance);
+    }
+  }
+
   /**
    * Get all the AssignableInstance names
    * @return
@@ -630,4 +676,60 @@ public class AssignableInstanceManager {
       }
     }
   }
+
+  /**
+   * AssignableInstances of one quota type, ordered by remaining capacity (descending) and then by
+   * instance name. Each entry keeps the remaining capacity it is sorted by, so the entry can still
+   * be found and re-positioned if the AssignableInstance was changed without the index being
+   * updated. A stale entry on the top is re-positioned before an instance is returned.
+   */
+  private static class CapacityIndex {
+    private final String _quotaType;
+    private final TreeSet<CapacityEntry> _entries = new TreeSet<>(
+        Comparator.comparingInt((CapacityEntry entry) -> entry._remainingCapacity).reversed()
+            .thenComparing(entry -> entry._assignableInstance.getInstanceName()));
+    private final Map<String, CapacityEntry> _entryMap = new HashMap<>();
+
+    CapacityIndex(String quotaType, Collection<AssignableInstance> assignableInstances) {
+      _quotaType = quotaType;
+      for (AssignableInstance assignableInstance : assignableInstances) {
+        update(assignableInstance);
+      }
+    }
+
+    AssignableInstance getFirst() {
+      while (!_entries.isEmpty()) {
+        CapacityEntry first = _entries.first();
+        if (first._remainingCapacity == first._assignableInstance
+            .getRemainingCapacity(_quotaType)) {
+          return first._assignableInstance;
+        }
+        update(first._assignableInstance);
+      }
+      return null;
+    }
+
+    void update(AssignableInstance assignableInstance) {
+      if (assignableInstance == null) {
+        return;
+      }
+      CapacityEntry entry = new CapacityEntry(assignableInstance,
+          assignableInstance.getRemainingCapacity(_quotaType));
+      CapacityEntry oldEntry = _entryMap.put(assignableInstance.getInstanceName(), entry);
+      if (oldEntry != null) {
+        _entries.remove(oldEntry);
+      }
+      _entries.add(entry);
+    }
+  }
+
+  private static class CapacityEntry {
+    private final AssignableInstance _assignableInstance;
+    private final int _remainingCapacity;
+
+    CapacityEntry(AssignableInstance assignableInstance, int remainingCapacity) {
+      _assignableInstance = assignableInstance;
+      _remainingCapacity = remainingCapacity;
+    }
+  }
 }
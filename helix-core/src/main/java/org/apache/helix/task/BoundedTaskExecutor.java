@@ -0,0 +1,146 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task executor that limits the number of tasks running at the same time to the task thread pool
+ * size of the instance, which is the quota the controller assigns tasks by. Tasks over the limit
+ * wait for a running task to finish.
+ * When the JVM supports virtual threads (Java 21+), every task gets a virtual thread on demand and
+ * waits for a permit on it, as a waiting virtual thread costs next to nothing. Otherwise the tasks
+ * run on a pool of at most that many platform threads and wait in the queue, so a burst of tasks
+ * does not create a blocked platform thread per task. Idle platform threads are released after a
+ * minute.
+ */
+class BoundedTaskExecutor extends ThreadPoolExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(BoundedTaskExecutor.class);
+  private static final String THREAD_NAME_PREFIX = "TaskStateModelFactory-task_thread-";
+
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  private final int _maxConcurrentTasks;
+  // Null when the tasks run on platform threads, the pool size bounds them then
+  private final Semaphore _permits;
+
+  BoundedTaskExecutor(int maxConcurrentTasks) {
+    this(maxConcurrentTasks, createVirtualThreadFactory());
+  }
+
+  /**
+   * @param maxConcurrentTasks the max number of tasks running at the same time
+   * @param virtualThreadFactory the factory of the virtual threads, null to run the tasks on a
+   *          bounded pool of platform threads
+   */
+  BoundedTaskExecutor(int maxConcurrentTasks, ThreadFactory virtualThreadFactory) {
+    super(virtualThreadFactory != null ? 0 : maxConcurrentTasks,
+        virtualThreadFactory != null ? Integer.MAX_VALUE : maxConcurrentTasks, KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        virtualThreadFactory != null ? new SynchronousQueue<>() : new LinkedBlockingQueue<>(),
+        virtualThreadFactory != null ? virtualThreadFactory
+            : new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_PREFIX + "%d").build());
+    _maxConcurrentTasks = maxConcurrentTasks;
+    if (virtualThreadFactory != null) {
+      _permits = new Semaphore(maxConcurrentTasks, true);
+    } else {
+      _permits = null;
+      allowCoreThreadTimeOut(true);
+    }
+  }
+
+  /**
+   * @return the max number of tasks running at the same time
+   */
+  int getMaxConcurrentTasks() {
+    return _maxConcurrentTasks;
+  }
+
+  /**
+   * @return the number of tasks that are running, not including the tasks waiting for a slot
+   */
+  @Override
+  public int getActiveCount() {
+    return _permits == null ? super.getActiveCount()
+        : _maxConcurrentTasks - _permits.availablePermits();
+  }
+
+  /**
+   * @return the number of tasks waiting for a running task to finish
+   */
+  int getNumWaitingTasks() {
+    return _permits == null ? getQueue().size() : _permits.getQueueLength();
+  }
+
+  @Override
+  protected void beforeExecute(Thread thread, Runnable runnable) {
+    if (_permits == null) {
+      super.beforeExecute(thread, runnable);
+      return;
+    }
+    try {
+      _permits.acquire();
+    } catch (InterruptedException e) {
+      // The executor is shut down now, the task is dropped like a queued task of a thread pool
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting to run the task", e);
+    }
+    super.beforeExecute(thread, runnable);
+  }
+
+  @Override
+  protected void afterExecute(Runnable runnable, Throwable throwable) {
+    super.afterExecute(runnable, throwable);
+    if (_permits != null) {
+      _permits.release();
+    }
+  }
+
+  /**
+   * @return the factory of the task virtual threads, null if the JVM does not support them
+   */
+  static ThreadFactory createVirtualThreadFactory() {
+    try {
+      // Thread.ofVirtual().name(THREAD_NAME_PREFIX, 0).factory(). Looked up by reflection because
+      // Helix still builds for Java 8.
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, THREAD_NAME_PREFIX, 0L);
+      ThreadFactory threadFactory =
+          (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      LOG.info("Running tasks on virtual threads.");
+      return threadFactory;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.info("Virtual threads are not supported by the JVM. Running tasks on platform threads.");
+      return null;
+    }
+  }
+}
@@ -56,6 +56,8 @@ public class JobContext extends HelixProperty {
 
   public JobContext(ZNRecord record) {
     super(record);
+    // Contexts persisted in the compact format are expanded to the map fields when loaded
+    JobContextCodec.decode(record);
     isModified = false;
   }
 
@@ -361,8 +363,7 @@ public class JobContext extends HelixProperty {
    * @param partitionSeqNumber
    */
   public void removePartition(int partitionSeqNumber) {
-    if (getPartitionSet().contains(partitionSeqNumber)) {
-      _record.getMapFields().remove(String.valueOf(partitionSeqNumber));
+    if (_record.getMapFields().remove(String.valueOf(partitionSeqNumber)) != null) {
       markJobContextAsModified();
     }
   }
@@ -0,0 +1,419 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.apache.helix.HelixException;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * Compact binary encoding of the per task fields of a {@link JobContext}.
+ * In the legacy format, every task is a map field of the context record keyed by the partition
+ * id, and all values are strings. The compact format keeps the simple and list fields as they are
+ * and moves the map fields into the raw payload of the record. The well-known task fields are
+ * written as a one byte tag followed by a typed value, i.e. varints for numbers and an index for
+ * the task state. Any other field, or a value that would not be restored to the same string by
+ * the typed encoding, is written as a key and value string, so the encoding is lossless.
+ * Tasks are encoded independently of each other, so an encoder instance keeps the bytes and a
+ * hash of the fields of the tasks it has encoded, and only re-encodes the tasks whose hash changed
+ * since the last write.
+ */
+public class JobContextCodec {
+  public static final String ENCODING_KEY = "CONTEXT_ENCODING";
+  public static final String COMPACT_ENCODING_V1 = "COMPACT_V1";
+
+  private static final int FORMAT_VERSION = 1;
+  private static final int GENERIC_FIELD_TAG = 0;
+
+  private enum FieldType {
+    STATE,
+    INT,
+    LONG,
+    STRING
+  }
+
+  // The tag of a field is its index + 1. Never reorder these arrays, only append to them.
+  private static final String[] FIELD_NAMES = {
+      "STATE", "NUM_ATTEMPTS", "START_TIME", "FINISH_TIME", "NEXT_RETRY_TIME", "TARGET",
+      "TASK_ID", "ASSIGNED_PARTICIPANT", "INFO"
+  };
+  private static final FieldType[] FIELD_TYPES = {
+      FieldType.STATE, FieldType.INT, FieldType.LONG, FieldType.LONG, FieldType.LONG,
+      FieldType.STRING, FieldType.STRING, FieldType.STRING, FieldType.STRING
+  };
+  private static final String[] STATES = {
+      "INIT", "RUNNING", "STOPPED", "COMPLETED", "TIMED_OUT", "TASK_ERROR", "TASK_ABORTED", "ERROR",
+      "DROPPED"
+  };
+  private static final Map<String, Integer> FIELD_TAGS = new HashMap<>();
+  private static final Map<String, Integer> STATE_INDEXES = new HashMap<>();
+
+  static {
+    for (int i = 0; i < FIELD_NAMES.length; i++) {
+      FIELD_TAGS.put(FIELD_NAMES[i], i + 1);
+    }
+    for (int i = 0; i < STATES.length; i++) {
+      STATE_INDEXES.put(STATES[i], i);
+    }
+  }
+
+  // job name -> partition -> the last encoded task, dropped when the job context is removed
+  private final Map<String, Map<String, EncodedTask>> _encodedTasks = new HashMap<>();
+
+  /**
+   * Check if the context record is in the compact format.
+   * @param record
+   * @return true if the map fields are encoded in the raw payload
+   */
+  public static boolean isCompact(ZNRecord record) {
+    return record != null && COMPACT_ENCODING_V1.equals(record.getSimpleField(ENCODING_KEY));
+  }
+
+  /**
+   * Restore the map fields of a compact context record, the record is converted to the legacy
+   * format in place. Records in the legacy format are not changed.
+   * @param record the job context record
+   */
+  public static void decode(ZNRecord record) {
+    if (record == null) {
+      return;
+    }
+    synchronized (record) {
+      if (!isCompact(record)) {
+        return;
+      }
+      byte[] payload = record.getRawPayload();
+      Map<String, Map<String, String>> tasks = new TreeMap<>();
+      if (payload != null && payload.length > 0) {
+        Reader reader = new Reader(payload);
+        int version = reader.readByte();
+        if (version != FORMAT_VERSION) {
+          throw new HelixException(String
+              .format("Unsupported compact job context version %d in %s", version,
+                  record.getSimpleField("NAME")));
+        }
+        int taskCount = reader.readVarInt();
+        for (int i = 0; i < taskCount; i++) {
+          String partition = reader.readPartition();
+          tasks.put(partition, reader.readTask());
+        }
+      }
+      for (Map.Entry<String, Map<String, String>> task : tasks.entrySet()) {
+        record.setMapField(task.getKey(), task.getValue());
+      }
+      record.getSimpleFields().remove(ENCODING_KEY);
+      record.setRawPayload(null);
+    }
+  }
+
+  /**
+   * Encode the job context record to the compact format. The given record is not modified.
+   * Tasks that are the same as in the last encoded context of the job are not encoded again.
+   * @param jobName the job of the context
+   * @param record the job context record in the legacy format
+   * @return a new record in the compact format, or the given record if it cannot be encoded
+   */
+  public ZNRecord encode(String jobName, ZNRecord record) {
+    if (isCompact(record) || (record.getRawPayload() != null
+        && record.getRawPayload().length > 0)) {
+      // Already encoded, or the payload is used for something else
+      return record;
+    }
+    Map<String, EncodedTask> previousTasks = _encodedTasks.get(jobName);
+    Map<String, EncodedTask> encodedTasks = new HashMap<>();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(FORMAT_VERSION);
+    writeVarInt(out, record.getMapFields().size());
+    for (Map.Entry<String, Map<String, String>> task : record.getMapFields().entrySet()) {
+      EncodedTask encodedTask = previousTasks == null ? null : previousTasks.get(task.getKey());
+      long fieldsHash = hashFields(task.getValue());
+      if (encodedTask == null || encodedTask._fieldsHash != fieldsHash) {
+        byte[] bytes = encodeTask(task.getKey(), task.getValue());
+        if (bytes == null) {
+          return record;
+        }
+        encodedTask = new EncodedTask(fieldsHash, bytes);
+      }
+      encodedTasks.put(task.getKey(), encodedTask);
+      out.write(encodedTask._bytes, 0, encodedTask._bytes.length);
+    }
+    _encodedTasks.put(jobName, encodedTasks);
+
+    ZNRecord encoded = new ZNRecord(record.getId());
+    encoded.setSimpleFields(new HashMap<>(record.getSimpleFields()));
+    encoded.setListFields(record.getListFields());
+    encoded.setSimpleField(ENCODING_KEY, COMPACT_ENCODING_V1);
+    encoded.setRawPayload(out.toByteArray());
+    return encoded;
+  }
+
+  /**
+   * Drop the encoded tasks of the jobs that are not in the given collection.
+   * @param jobNames
+   */
+  public void retainJobs(Collection<String> jobNames) {
+    _encodedTasks.keySet().retainAll(jobNames);
+  }
+
+  /**
+   * Drop the encoded tasks of the job, e.g. when its context is removed.
+   * @param jobName
+   */
+  public void removeJob(String jobName) {
+    _encodedTasks.remove(jobName);
+  }
+
+  /**
+   * A 64 bit hash of the task fields that does not depend on the iteration order of the map. Each
+   * field is mixed before being summed, so changed fields are practically never missed.
+   */
+  private static long hashFields(Map<String, String> fields) {
+    if (fields == null) {
+      return 0L;
+    }
+    long hash = mix(fields.size());
+    for (Map.Entry<String, String> field : fields.entrySet()) {
+      hash += mix(mix(Objects.hashCode(field.getKey())) + Objects.hashCode(field.getValue()));
+    }
+    return hash;
+  }
+
+  // The finalizer of MurmurHash3, spreads every input bit over the 64 bit result
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+
+  /**
+   * @return the encoded task, or null if the task has null fields that cannot be encoded
+   */
+  private static byte[] encodeTask(String partition, Map<String, String> fields) {
+    if (fields == null) {
+      return null;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Integer partitionId = parseCanonicalInt(partition);
+    if (partitionId != null && partitionId >= 0) {
+      writeVarInt(out, partitionId + 1);
+    } else {
+      writeVarInt(out, 0);
+      writeString(out, partition);
+    }
+    writeVarInt(out, fields.size());
+    for (Map.Entry<String, String> field : fields.entrySet()) {
+      if (field.getKey() == null || field.getValue() == null) {
+        return null;
+      }
+      if (!writeTypedField(out, field.getKey(), field.getValue())) {
+        out.write(GENERIC_FIELD_TAG);
+        writeString(out, field.getKey());
+        writeString(out, field.getValue());
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static boolean writeTypedField(ByteArrayOutputStream out, String key, String value) {
+    Integer tag = FIELD_TAGS.get(key);
+    if (tag == null) {
+      return false;
+    }
+    switch (FIELD_TYPES[tag - 1]) {
+    case STATE:
+      Integer stateIndex = STATE_INDEXES.get(value);
+      if (stateIndex == null) {
+        return false;
+      }
+      out.write(tag);
+      writeVarInt(out, stateIndex);
+      return true;
+    case INT:
+      Integer intValue = parseCanonicalInt(value);
+      if (intValue == null) {
+        return false;
+      }
+      out.write(tag);
+      writeVarLong(out, zigZag(intValue));
+      return true;
+    case LONG:
+      Long longValue = parseCanonicalLong(value);
+      if (longValue == null) {
+        return false;
+      }
+      out.write(tag);
+      writeVarLong(out, zigZag(longValue));
+      return true;
+    default:
+      out.write(tag);
+      writeString(out, value);
+      return true;
+    }
+  }
+
+  private static Integer parseCanonicalInt(String value) {
+    Long longValue = parseCanonicalLong(value);
+    if (longValue == null || longValue != longValue.intValue()) {
+      return null;
+    }
+    return longValue.intValue();
+  }
+
+  /**
+   * @return the value if it is restored to the same string by String.valueOf(), otherwise null
+   */
+  private static Long parseCanonicalLong(String value) {
+    if (value == null || value.isEmpty() || value.length() > 20) {
+      return null;
+    }
+    try {
+      long longValue = Long.parseLong(value);
+      return String.valueOf(longValue).equals(value) ? longValue : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static void writeVarInt(ByteArrayOutputStream out, int value) {
+    writeVarLong(out, value & 0xFFFFFFFFL);
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, bytes.length);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static class EncodedTask {
+    private final long _fieldsHash;
+    private final byte[] _bytes;
+
+    EncodedTask(long fieldsHash, byte[] bytes) {
+      _fieldsHash = fieldsHash;
+      _bytes = bytes;
+    }
+  }
+
+  private static class Reader {
+    private final byte[] _bytes;
+    private int _position = 0;
+
+    Reader(byte[] bytes) {
+      _bytes = bytes;
+    }
+
+    int readByte() {
+      if (_position >= _bytes.length) {
+        throw new HelixException("Unexpected end of compact job context");
+      }
+      return _bytes[_position++] & 0xFF;
+    }
+
+    int readVarInt() {
+      return (int) readVarLong();
+    }
+
+    long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new HelixException("Malformed varint in compact job context");
+    }
+
+    long readZigZag() {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+      int length = readVarInt();
+      if (length < 0 || length > _bytes.length - _position) {
+        throw new HelixException("Unexpected end of compact job context");
+      }
+      String value = new String(_bytes, _position, length, StandardCharsets.UTF_8);
+      _position += length;
+      return value;
+    }
+
+    String readPartition() {
+      int partitionId = readVarInt();
+      return partitionId == 0 ? readString() : String.valueOf(partitionId - 1);
+    }
+
+    Map<String, String> readTask() {
+      Map<String, String> fields = new TreeMap<>();
+      int fieldCount = readVarInt();
+      for (int i = 0; i < fieldCount; i++) {
+        int tag = readByte();
+        if (tag == GENERIC_FIELD_TAG) {
+          String key = readString();
+          fields.put(key, readString());
+          continue;
+        }
+        if (tag > FIELD_NAMES.length) {
+          throw new HelixException("Unknown field tag " + tag + " in compact job context");
+        }
+        switch (FIELD_TYPES[tag - 1]) {
+        case STATE:
+          int stateIndex = readVarInt();
+          if (stateIndex < 0 || stateIndex >= STATES.length) {
+            throw new HelixException("Unknown task state " + stateIndex + " in compact job context");
+          }
+          fields.put(FIELD_NAMES[tag - 1], STATES[stateIndex]);
+          break;
+        case INT:
+        case LONG:
+          fields.put(FIELD_NAMES[tag - 1], String.valueOf(readZigZag()));
+          break;
+        default:
+          fields.put(FIELD_NAMES[tag - 1], readString());
+        }
+      }
+      return fields;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.helix.AccessOption;
@@ -50,8 +51,11 @@ import org.apache.helix.store.HelixPropertyStore;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +83,16 @@ public class TaskDriver {
   /** Default sleep time for requests */
   private final static long DEFAULT_SLEEP = 1000L; /* 1 second */
 
+  /** Max number of job configs updated in one ZK transaction when adding tasks in batch */
+  private final static int MAX_JOB_CONFIGS_PER_TRANSACTION = 10;
+
+  /**
+   * Max serialized bytes of the job configs updated in one ZK transaction. A ZK multi request must
+   * fit in jute.maxbuffer, so half of it is used to leave room for the paths and the headers.
+   */
+  private final static int MAX_JOB_CONFIG_BYTES_PER_TRANSACTION =
+      Integer.getInteger(ZkSystemPropertyKeys.JUTE_MAXBUFFER, ZNRecord.SIZE_LIMIT) / 2;
+
   /** The illegal job states for job to accept new tasks */
   private final static Set<TaskState> ILLEGAL_JOB_STATES_FOR_TASK_MODIFICATION = new HashSet<>(
       Arrays.asList(TaskState.TIMING_OUT, TaskState.TIMED_OUT, TaskState.FAILING, TaskState.FAILED,
@@ -101,6 +115,7 @@ public class TaskDriver {
   private final HelixPropertyStore<ZNRecord> _propertyStore;
   private final HelixAdmin _admin;
   private final String _clusterName;
+  private final WorkflowContextWatcher _workflowContextWatcher;
 
   public TaskDriver(HelixManager manager) {
     this(manager.getClusterManagmentTool(), manager.getHelixDataAccessor(),
@@ -133,6 +148,7 @@ public class TaskDriver {
     _accessor = accessor;
     _propertyStore = propertyStore;
     _clusterName = clusterName;
+    _workflowContextWatcher = new WorkflowContextWatcher(propertyStore, clusterName);
   }
 
   /**
@@ -417,30 +433,47 @@ public class TaskDriver {
               capacity, jobs.toString()));
     }
 
-    validateZKNodeLimitation(1);
+    validateZKNodeLimitation(jobs.size());
     final List<JobConfig> jobConfigs = new ArrayList<>();
     final List<String> namespacedJobNames = new ArrayList<>();
     final List<String> jobTypeList = new ArrayList<>();
-
-    try {
-      for (int i = 0; i < jobBuilders.size(); i++) {
-        // Create the job to ensure that it validates
-        JobConfig jobConfig = jobBuilders.get(i).setWorkflow(queue).build();
-        String namespacedJobName = TaskUtil.getNamespacedJobName(queue, jobs.get(i));
-
-        // add job config first.
-        addJobConfig(namespacedJobName, jobConfig);
-        jobConfigs.add(jobConfig);
-        namespacedJobNames.add(namespacedJobName);
-        jobTypeList.add(jobConfig.getJobType());
+    List<String> jobConfigPaths = new ArrayList<>();
+    List<ZNRecord> jobConfigRecords = new ArrayList<>();
+
+    for (int i = 0; i < jobBuilders.size(); i++) {
+      // Create the job to ensure that it validates
+      JobConfig jobConfig = jobBuilders.get(i).setWorkflow(queue).build();
+      String namespacedJobName = TaskUtil.getNamespacedJobName(queue, jobs.get(i));
+      jobConfigs.add(jobConfig);
+      namespacedJobNames.add(namespacedJobName);
+      jobTypeList.add(jobConfig.getJobType());
+      jobConfigPaths.add(_accessor.keyBuilder().resourceConfig(namespacedJobName).getPath());
+      jobConfigRecords.add(new JobConfig(namespacedJobName, jobConfig).getRecord());
+    }
+
+    // add job configs first. They are created with one batch of async requests instead of one
+    // round trip per job.
+    long startTime = System.currentTimeMillis();
+    boolean[] created = _accessor.getBaseDataAccessor()
+        .createChildren(jobConfigPaths, jobConfigRecords, AccessOption.PERSISTENT);
+    List<String> failedJobs = new ArrayList<>();
+    for (int i = 0; i < created.length; i++) {
+      if (!created[i]) {
+        failedJobs.add(jobs.get(i));
       }
-    } catch (HelixException e) {
-      LOG.error("Failed to add job configs {}. Remove them all!", jobs.toString());
-      for (String job : jobs) {
-        String namespacedJobName = TaskUtil.getNamespacedJobName(queue, job);
-        TaskUtil.removeJobConfig(_accessor, namespacedJobName);
+    }
+    if (!failedJobs.isEmpty()) {
+      LOG.error("Failed to add job configs {}. Remove the created ones!", failedJobs);
+      for (int i = 0; i < created.length; i++) {
+        if (created[i]) {
+          TaskUtil.removeJobConfig(_accessor, namespacedJobNames.get(i));
+        }
       }
+      throw new HelixException("Failed to add job configuration for jobs " + failedJobs
+          + ". It's possible that a job of the same name already exists or there was a connection issue");
     }
+    LOG.info("Added {} job configs to queue {} in {} ms", jobs.size(), queue,
+        System.currentTimeMillis() - startTime);
 
     // update the job dag to append the job to the end of the queue.
     DataUpdater<ZNRecord> updater = currentData -> {
@@ -525,8 +558,8 @@ public class TaskDriver {
     boolean status = _accessor.getBaseDataAccessor().update(path, updater, AccessOption.PERSISTENT);
     if (!status) {
       LOG.error("Failed to update WorkflowConfig, remove all jobs {}", jobs.toString());
-      for (String job : jobs) {
-        TaskUtil.removeJobConfig(_accessor, job);
+      for (String namespacedJobName : namespacedJobNames) {
+        TaskUtil.removeJobConfig(_accessor, namespacedJobName);
       }
       throw new HelixException("Failed to enqueue job");
     }
@@ -586,28 +619,8 @@ public class TaskDriver {
 
     long endTime = System.currentTimeMillis() + timeoutMs;
 
-    validateConfigsForTaskModifications(workflowName, jobName, taskConfig);
-
+    validateTasksForAddition(workflowName, jobName, Collections.singletonList(taskConfig));
     String nameSpaceJobName = TaskUtil.getNamespacedJobName(workflowName, jobName);
-    JobConfig jobConfig = TaskUtil.getJobConfig(_accessor, nameSpaceJobName);
-    for (String taskEntry : jobConfig.getMapConfigs().keySet()) {
-      if (taskEntry.equals(taskConfig.getId())) {
-        throw new HelixException(
-            "Task cannot be added because another task with the same ID already exists!");
-      }
-    }
-
-    WorkflowContext workflowContext = getWorkflowContext(workflowName);
-    JobContext jobContext = getJobContext(nameSpaceJobName);
-    // If workflow context or job context is null. It means job has not been started. Hence task can
-    // be added to the job
-    if (workflowContext != null && jobContext != null) {
-      TaskState jobState = workflowContext.getJobState(nameSpaceJobName);
-      if (jobState != null && ILLEGAL_JOB_STATES_FOR_TASK_MODIFICATION.contains(jobState)) {
-        throw new HelixException("Job " + nameSpaceJobName
-            + " is in illegal state for task addition. Job State is " + jobState);
-      }
-    }
 
     DataUpdater<ZNRecord> updater = currentData -> {
       if (currentData != null) {
@@ -620,9 +633,9 @@ public class TaskDriver {
 
     updateTaskInJobConfig(workflowName, jobName, updater);
 
-    workflowContext =
+    WorkflowContext workflowContext =
         _accessor.getProperty(_accessor.keyBuilder().workflowContextZNode(workflowName));
-    jobContext =
+    JobContext jobContext =
         _accessor.getProperty(_accessor.keyBuilder().jobContextZNode(workflowName, jobName));
 
     if (workflowContext == null || jobContext == null) {
@@ -645,6 +658,151 @@ public class TaskDriver {
     throw new TimeoutException("An unexpected issue happened while task being added to the job!");
   }
 
+  /**
+   * Add a batch of tasks to a running (IN-PROGRESS) job or a job which has not started yet. Timeout
+   * for this operation is the default timeout which is 5 minutes. {@link TaskDriver#DEFAULT_TIMEOUT}
+   * See {@link TaskDriver#addTasks(String, Map, long)}.
+   * @param workflowName
+   * @param jobName
+   * @param taskConfigs
+   * @throws TimeoutException if the outcome of the task addition is unknown and cannot be verified
+   * @throws IllegalArgumentException if the inputs are invalid
+   * @throws HelixException if the job is not in the states to accept new tasks or if there is any
+   *           issue in updating jobConfig.
+   */
+  public void addTasks(String workflowName, String jobName, List<TaskConfig> taskConfigs)
+      throws TimeoutException, InterruptedException {
+    addTasks(workflowName, Collections.singletonMap(jobName, taskConfigs), DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * Add batches of tasks to running (IN-PROGRESS) jobs or jobs which have not started yet, all in
+   * the same workflow. Compared with calling {@link TaskDriver#addTask} for every task, all the
+   * tasks of a job are written with a single update of the job config, the job configs are updated
+   * together in a few ZK transactions, and the completion of all the tasks is verified with one
+   * wait.
+   * Note1: Tasks cannot be added if a job is in an illegal state. A job can accept new tasks if
+   * the job is in-progress or it has not started yet.
+   * Note2: The tasks can only be added to non-targeted jobs.
+   * Note3: The taskIDs of the new tasks should be unique. If not, this API throws an exception
+   * and no task is added.
+   * Note4: The job configs are updated in transactions of up to
+   * {@link TaskDriver#MAX_JOB_CONFIGS_PER_TRANSACTION} jobs and
+   * {@link TaskDriver#MAX_JOB_CONFIG_BYTES_PER_TRANSACTION} serialized bytes. A job config that is
+   * larger than that alone is updated by itself outside of a transaction. If an update fails, the
+   * jobs of the previous updates keep their new tasks.
+   * Note5: In case of timeout exception, it is the user's responsibility to check whether the
+   * tasks have been successfully added or not.
+   * Note6: timeout is the time that this API checks whether the tasks have been successfully added
+   * or not.
+   * @param workflowName
+   * @param taskConfigsByJob the tasks to add, keyed by the job name (not namespaced)
+   * @param timeoutMs
+   * @throws TimeoutException if the outcome of the task addition is unknown and cannot be verified
+   * @throws IllegalArgumentException if the inputs are invalid
+   * @throws HelixException if a job is not in the states to accept new tasks or if there is any
+   *           issue in updating jobConfig.
+   */
+  public void addTasks(String workflowName, Map<String, List<TaskConfig>> taskConfigsByJob,
+      long timeoutMs) throws TimeoutException, InterruptedException {
+    if (timeoutMs < DEFAULT_SLEEP) {
+      throw new IllegalArgumentException(
+          String.format("Timeout is less than the minimum acceptable timeout value which is %s ms",
+              DEFAULT_SLEEP));
+    }
+    if (taskConfigsByJob == null || taskConfigsByJob.isEmpty()) {
+      throw new IllegalArgumentException("No task to add!");
+    }
+
+    long endTime = System.currentTimeMillis() + timeoutMs;
+
+    Map<String, DataUpdater<ZNRecord>> updaterByPath = new HashMap<>();
+    Map<String, Integer> sizeByPath = new HashMap<>();
+    for (Map.Entry<String, List<TaskConfig>> entry : taskConfigsByJob.entrySet()) {
+      String jobName = entry.getKey();
+      List<TaskConfig> taskConfigs = entry.getValue();
+      JobConfig jobConfig = validateTasksForAddition(workflowName, jobName, taskConfigs);
+
+      String nameSpaceJobName = TaskUtil.getNamespacedJobName(workflowName, jobName);
+      DataUpdater<ZNRecord> updater = currentData -> {
+        if (currentData != null) {
+          for (TaskConfig taskConfig : taskConfigs) {
+            currentData.setMapField(taskConfig.getId(), taskConfig.getConfigMap());
+          }
+        } else {
+          LOG.error("JobConfig DataUpdater: Fails to update JobConfig. CurrentData is null.");
+        }
+        return currentData;
+      };
+      String path = _accessor.keyBuilder().resourceConfig(nameSpaceJobName).getPath();
+      updaterByPath.put(path, updater);
+      sizeByPath.put(path, getSerializedSize(updater.update(new ZNRecord(jobConfig.getRecord()))));
+    }
+
+    // Update the job configs in batches, so the controller gets a few notifications for all the
+    // jobs instead of one per task
+    for (List<String> batchPaths : getTransactionBatches(new ArrayList<>(updaterByPath.keySet()),
+        sizeByPath, MAX_JOB_CONFIGS_PER_TRANSACTION, MAX_JOB_CONFIG_BYTES_PER_TRANSACTION)) {
+      long startTime = System.currentTimeMillis();
+      boolean success;
+      if (batchPaths.size() == 1) {
+        // A job config too large to share a transaction is updated by itself
+        success = _accessor.getBaseDataAccessor()
+            .update(batchPaths.get(0), updaterByPath.get(batchPaths.get(0)),
+                AccessOption.PERSISTENT);
+      } else {
+        Map<String, DataUpdater<ZNRecord>> batch = new HashMap<>();
+        for (String path : batchPaths) {
+          batch.put(path, updaterByPath.get(path));
+        }
+        success = _accessor.getBaseDataAccessor().multiSet(batch);
+      }
+      if (!success) {
+        LOG.error("Failed to add tasks to the jobs {} of workflow {}", batchPaths, workflowName);
+        throw new HelixException("Failed to update tasks in the jobs " + batchPaths);
+      }
+      LOG.info("Added tasks to {} jobs of workflow {} in {} ms", batchPaths.size(), workflowName,
+          System.currentTimeMillis() - startTime);
+    }
+
+    // Only the jobs that have started need to be verified
+    Map<String, List<TaskConfig>> startedJobs = new HashMap<>();
+    for (Map.Entry<String, List<TaskConfig>> entry : taskConfigsByJob.entrySet()) {
+      if (_accessor.getProperty(
+          _accessor.keyBuilder().jobContextZNode(workflowName, entry.getKey())) != null) {
+        startedJobs.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (startedJobs.isEmpty() || _accessor
+        .getProperty(_accessor.keyBuilder().workflowContextZNode(workflowName)) == null) {
+      return;
+    }
+
+    long startTime = System.currentTimeMillis();
+    while (System.currentTimeMillis() <= endTime) {
+      WorkflowContext workflowContext =
+          _accessor.getProperty(_accessor.keyBuilder().workflowContextZNode(workflowName));
+      startedJobs.entrySet().removeIf(entry -> {
+        JobContext jobContext = _accessor
+            .getProperty(_accessor.keyBuilder().jobContextZNode(workflowName, entry.getKey()));
+        String nameSpaceJobName = TaskUtil.getNamespacedJobName(workflowName, entry.getKey());
+        return workflowContext != null && jobContext != null
+            && workflowContext.getJobState(nameSpaceJobName) == TaskState.IN_PROGRESS
+            && entry.getValue().stream().allMatch(
+                taskConfig -> jobContext.getTaskIdPartitionMap().containsKey(taskConfig.getId()));
+      });
+      if (startedJobs.isEmpty()) {
+        LOG.info("Tasks of workflow {} are scheduled in {} ms", workflowName,
+            System.currentTimeMillis() - startTime);
+        return;
+      }
+
+      Thread.sleep(DEFAULT_SLEEP);
+    }
+    throw new TimeoutException(
+        "An unexpected issue happened while tasks being added to the jobs " + startedJobs.keySet());
+  }
+
   /**
    * Delete an existing task from a running (IN-PROGRESS) job or a job which has not started yet.
    * Timeout for this operation is the default timeout which is 5 minutes.
@@ -809,6 +967,87 @@ public class TaskDriver {
     }
   }
 
+  /**
+   * The helper method which checks whether the tasks can be added to the job
+   * @param workflowName
+   * @param jobName
+   * @param taskConfigs
+   */
+  private JobConfig validateTasksForAddition(String workflowName, String jobName,
+      List<TaskConfig> taskConfigs) {
+    if (taskConfigs == null || taskConfigs.isEmpty()) {
+      throw new IllegalArgumentException(String.format("No task to add to job %s!", jobName));
+    }
+    for (TaskConfig taskConfig : taskConfigs) {
+      validateConfigsForTaskModifications(workflowName, jobName, taskConfig);
+    }
+
+    String nameSpaceJobName = TaskUtil.getNamespacedJobName(workflowName, jobName);
+    JobConfig jobConfig = TaskUtil.getJobConfig(_accessor, nameSpaceJobName);
+    Set<String> taskIds = new HashSet<>(jobConfig.getMapConfigs().keySet());
+    for (TaskConfig taskConfig : taskConfigs) {
+      if (!taskIds.add(taskConfig.getId())) {
+        throw new HelixException(
+            "Task cannot be added because another task with the same ID already exists!");
+      }
+    }
+
+    WorkflowContext workflowContext = getWorkflowContext(workflowName);
+    JobContext jobContext = getJobContext(nameSpaceJobName);
+    // If workflow context or job context is null. It means job has not been started. Hence task can
+    // be added to the job
+    if (workflowContext != null && jobContext != null) {
+      TaskState jobState = workflowContext.getJobState(nameSpaceJobName);
+      if (jobState != null && ILLEGAL_JOB_STATES_FOR_TASK_MODIFICATION.contains(jobState)) {
+        throw new HelixException("Job " + nameSpaceJobName
+            + " is in illegal state for task addition. Job State is " + jobState);
+      }
+    }
+    return jobConfig;
+  }
+
+  /**
+   * Split the paths into transaction batches of at most maxCount paths and maxBytes serialized
+   * bytes. A path whose size alone exceeds maxBytes gets a batch of its own.
+   * @param paths the paths to update, in update order
+   * @param sizeByPath the serialized size in bytes of the data written to each path
+   * @param maxCount the max number of paths in a batch
+   * @param maxBytes the max total serialized bytes of a batch
+   * @return the batches of paths
+   */
+  static List<List<String>> getTransactionBatches(List<String> paths,
+      Map<String, Integer> sizeByPath, int maxCount, int maxBytes) {
+    List<List<String>> batches = new ArrayList<>();
+    List<String> batch = new ArrayList<>();
+    long batchBytes = 0L;
+    for (String path : paths) {
+      int size = sizeByPath.getOrDefault(path, 0);
+      if (!batch.isEmpty() && (batch.size() >= maxCount || batchBytes + size > maxBytes)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        batchBytes = 0L;
+      }
+      batch.add(path);
+      batchBytes += size;
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  /**
+   * @return the size of the record as written to ZK, Integer.MAX_VALUE if it is too large to be
+   *         written
+   */
+  private static int getSerializedSize(ZNRecord record) {
+    try {
+      return new ZNRecordSerializer().serialize(record).length;
+    } catch (ZkMarshallingError e) {
+      return Integer.MAX_VALUE;
+    }
+  }
+
   /**
    * A helper method which updates the tasks within a the job config.
    * @param workflowName
@@ -1271,6 +1510,92 @@ public class TaskDriver {
     return pollForJobState(workflowName, jobName, DEFAULT_TIMEOUT, states);
   }
 
+  /**
+   * Non-blocking version of {@link #pollForWorkflowState(String, long, TaskState...)}. Instead of
+   * polling the workflow context, the future is completed by a watch on the context, which is
+   * shared by all the futures waiting on the same workflow.
+   * @param workflowName The workflow to be monitored
+   * @param timeout A long integer presents the time out, in milliseconds
+   * @param targetStates Specified states that user would like to stop monitoring
+   * @return A future of the workflow state once it is in one of the target states. The future is
+   *         completed exceptionally with a HelixException if timeout happens.
+   */
+  public CompletableFuture<TaskState> pollForWorkflowStateAsync(String workflowName,
+      long timeout, TaskState... targetStates) {
+    Set<TaskState> allowedStates = new HashSet<>(Arrays.asList(targetStates));
+    return _workflowContextWatcher.waitFor(workflowName,
+        ctx -> ctx != null && allowedStates.contains(ctx.getWorkflowState())
+            ? ctx.getWorkflowState() : null, timeout, () -> {
+          WorkflowContext ctx = getWorkflowContext(workflowName);
+          return String.format(
+              "Workflow %s context is empty or not in states: %s, current state: %s.",
+              workflowName, Arrays.asList(targetStates),
+              ctx == null ? "null" : String.valueOf(ctx.getWorkflowState()));
+        });
+  }
+
+  /**
+   * Non-blocking version of {@link #pollForJobState(String, String, long, TaskState...)}. Instead
+   * of polling the workflow context, the future is completed by a watch on the context, which is
+   * shared by all the futures waiting on the same workflow. For a recurring workflow, the timeout
+   * includes the time waiting for the workflow to be scheduled.
+   * @param workflowName The workflow that contains the job to monitor
+   * @param jobName The specified job to monitor
+   * @param timeout A long integer presents the time out, in milliseconds
+   * @param states Specified states that user would like to stop monitoring
+   * @return A future of the job state once it is in one of the given states. The future is
+   *         completed exceptionally with a HelixException if timeout happens.
+   */
+  public CompletableFuture<TaskState> pollForJobStateAsync(String workflowName, String jobName,
+      long timeout, TaskState... states) {
+    WorkflowConfig workflowConfig = getWorkflowConfig(workflowName);
+    if (workflowConfig == null) {
+      throw new HelixException(String.format("Workflow %s does not exists!", workflowName));
+    }
+
+    Set<TaskState> allowedStates = new HashSet<>(Arrays.asList(states));
+    if (!workflowConfig.isRecurring()) {
+      return waitForJobState(workflowName, jobName, timeout, allowedStates);
+    }
+    // if it's recurring, need to reconstruct workflow and job name
+    long deadline = System.currentTimeMillis() + timeout;
+    String scheduledJobName = jobName.substring(workflowName.length() + 1);
+    return _workflowContextWatcher
+        .waitFor(workflowName, ctx -> ctx == null ? null : ctx.getLastScheduledSingleWorkflow(),
+            timeout, () -> String
+                .format("Recurring workflow %s has not scheduled any workflow", workflowName))
+        .thenCompose(scheduledWorkflow -> waitForJobState(scheduledWorkflow, scheduledJobName,
+            Math.max(0L, deadline - System.currentTimeMillis()), allowedStates));
+  }
+
+  private CompletableFuture<TaskState> waitForJobState(String workflowName, String jobName,
+      long timeout, Set<TaskState> allowedStates) {
+    return _workflowContextWatcher.waitFor(workflowName, ctx -> {
+      TaskState jobState = ctx == null ? null : ctx.getJobState(jobName);
+      return jobState != null && allowedStates.contains(jobState) ? jobState : null;
+    }, timeout, () -> {
+      WorkflowContext ctx = getWorkflowContext(workflowName);
+      return String.format(
+          "Workflow %s context is null or job %s is not in states: %s; ctx is %s, jobState is %s",
+          workflowName, jobName, allowedStates, ctx == null ? "null" : ctx,
+          ctx != null ? ctx.getJobState(jobName) : "null");
+    });
+  }
+
+  /**
+   * @return the number of futures returned by the async poll methods that are not completed yet
+   */
+  public int getNumOutstandingStateWaiters() {
+    return _workflowContextWatcher.getNumWaiters();
+  }
+
+  /**
+   * @return the number of workflows whose context is watched for the async poll methods
+   */
+  public int getNumWatchedWorkflows() {
+    return _workflowContextWatcher.getNumWatchedWorkflows();
+  }
+
   /**
    * This function returns the timestamp of the very last task that was scheduled. It is provided to
    * help determine
@@ -0,0 +1,191 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Joiner;
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixManager;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyPathBuilder;
+import org.apache.helix.store.HelixPropertyStore;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the znodes of workflows and jobs in batches. Instead of removing the config, IS/EV and
+ * context of one resource after another with sync calls, every step is done for a batch of
+ * resources with async ZK operations. The batch size bounds the number of outstanding ZK requests.
+ *
+ * The znodes of a resource are still removed in the order of config, IS/EV and context, and a
+ * resource is skipped for the rest of the steps once one of its removals fails, so it will be
+ * found and purged again later.
+ */
+public class TaskPurger {
+  private static final Logger LOG = LoggerFactory.getLogger(TaskPurger.class);
+  // Max number of resources whose znodes are removed in one batch of async requests
+  static final int DEFAULT_BATCH_SIZE = 200;
+
+  private final HelixDataAccessor _accessor;
+  private final BaseDataAccessor<ZNRecord> _baseAccessor;
+  private final HelixPropertyStore<ZNRecord> _propertyStore;
+  private final String _contextRootPath;
+  private final int _batchSize;
+
+  public TaskPurger(HelixManager manager) {
+    this(manager, DEFAULT_BATCH_SIZE);
+  }
+
+  TaskPurger(HelixManager manager, int batchSize) {
+    _accessor = manager.getHelixDataAccessor();
+    _baseAccessor = _accessor.getBaseDataAccessor();
+    _propertyStore = manager.getHelixPropertyStore();
+    _contextRootPath = PropertyPathBuilder.propertyStore(manager.getClusterName())
+        + TaskConstants.REBALANCER_CONTEXT_ROOT;
+    _batchSize = batchSize;
+  }
+
+  /**
+   * Remove the config (optional), IS/EV and context of the workflows or jobs.
+   * @param resources the workflow names or the namespaced job names
+   * @param removeConfig whether to remove the resource config as well
+   * @return the resources that are fully removed
+   */
+  public Set<String> removeResources(Collection<String> resources, boolean removeConfig) {
+    Set<String> removed = new HashSet<>();
+    List<String> batch = new ArrayList<>(_batchSize);
+    for (String resource : resources) {
+      batch.add(resource);
+      if (batch.size() == _batchSize) {
+        removed.addAll(removeBatch(batch, removeConfig));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      removed.addAll(removeBatch(batch, removeConfig));
+    }
+    return removed;
+  }
+
+  private List<String> removeBatch(List<String> resources, boolean removeConfig) {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+    List<String> remaining = resources;
+    if (removeConfig) {
+      remaining = removePaths(remaining, 1,
+          (resource, i) -> keyBuilder.resourceConfig(resource).getPath(), "config");
+    }
+    // TODO: Task Framework no longer uses IdealState; this is left in for backward compability
+    remaining = removePaths(remaining, 2,
+        (resource, i) -> i == 0 ? keyBuilder.idealStates(resource).getPath()
+            : keyBuilder.externalView(resource).getPath(), "idealstate/externalview");
+    remaining = removePaths(remaining, 2,
+        (resource, i) -> Joiner.on("/").join(_contextRootPath, resource,
+            i == 0 ? TaskUtil.CONTEXT_NODE : TaskUtil.USER_CONTENT_NODE), "context");
+
+    // The context root of a resource is removed at last, since a resource is only found by the
+    // garbage collection again while its context exists
+    List<String> contextRoots = new ArrayList<>(remaining.size());
+    for (String resource : remaining) {
+      contextRoots.add(Joiner.on("/").join(_contextRootPath, resource));
+    }
+    boolean[] success = _baseAccessor.remove(contextRoots, AccessOption.PERSISTENT);
+    List<String> removed = new ArrayList<>(remaining.size());
+    for (int i = 0; i < remaining.size(); i++) {
+      // The node is missing, has other children, or is in the fallback property store. Remove it
+      // the same way as a single resource.
+      if (success[i] || TaskUtil.removeJobContext(_propertyStore, remaining.get(i))) {
+        removed.add(remaining.get(i));
+      } else {
+        LOG.warn("Error occurred while trying to remove context for {}.", remaining.get(i));
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Remove the given znodes of every resource with async requests. A missing znode counts as
+   * removed.
+   * @param resources the resources to remove the znodes of
+   * @param pathsPerResource the number of znodes of every resource
+   * @param pathBuilder returns the i-th znode path of a resource
+   * @param description the type of the znodes for logging
+   * @return the resources whose znodes are all removed, in the same order
+   */
+  private List<String> removePaths(List<String> resources, int pathsPerResource,
+      PathBuilder pathBuilder, String description) {
+    if (resources.isEmpty()) {
+      return resources;
+    }
+    List<String> paths = new ArrayList<>(resources.size() * pathsPerResource);
+    for (String resource : resources) {
+      for (int i = 0; i < pathsPerResource; i++) {
+        paths.add(pathBuilder.build(resource, i));
+      }
+    }
+
+    Stat[] stats = _baseAccessor.getStats(paths, AccessOption.PERSISTENT);
+    List<String> existingPaths = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      if (stats[i] != null) {
+        existingPaths.add(paths.get(i));
+      }
+    }
+    Set<String> failedPaths = new HashSet<>();
+    if (!existingPaths.isEmpty()) {
+      boolean[] success = _baseAccessor.remove(existingPaths, AccessOption.PERSISTENT);
+      for (int i = 0; i < existingPaths.size(); i++) {
+        // The node may have been removed by others in the meantime
+        if (!success[i] && _baseAccessor.exists(existingPaths.get(i), AccessOption.PERSISTENT)) {
+          failedPaths.add(existingPaths.get(i));
+        }
+      }
+    }
+
+    List<String> removed = new ArrayList<>(resources.size());
+    for (int r = 0; r < resources.size(); r++) {
+      boolean success = true;
+      for (int i = 0; i < pathsPerResource; i++) {
+        String path = paths.get(r * pathsPerResource + i);
+        if (failedPaths.contains(path)) {
+          LOG.warn("Error occurred while trying to remove {} for {}. Failed to remove node {}.",
+              description, resources.get(r), path);
+          success = false;
+        }
+      }
+      if (success) {
+        removed.add(resources.get(r));
+      }
+    }
+    return removed;
+  }
+
+  private interface PathBuilder {
+    String build(String resource, int index);
+  }
+}
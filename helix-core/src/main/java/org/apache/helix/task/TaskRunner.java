@@ -25,6 +25,7 @@ import org.apache.helix.HelixManager;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.Message;
 import org.apache.helix.task.TaskResult.Status;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +55,12 @@ public class TaskRunner implements Runnable {
   // If true, indicates that the task has finished.
   private volatile boolean _done = false;
   private TaskStateModel _stateModel;
+  // Timestamps of the message that started the task, and of the task run itself
+  private volatile long _messageCreateTime = -1L;
+  private volatile long _messageReadTime = -1L;
+  private volatile long _transitionStartTime = -1L;
+  private volatile long _startTime = -1L;
+  private volatile long _finishTime = -1L;
 
 
   public TaskRunner(Task task, String taskName, String taskPartition, String instance,
@@ -67,9 +74,21 @@ public class TaskRunner implements Runnable {
     _stateModel = stateModel;
   }
 
+  /**
+   * Record the timestamps of the state transition message that started the task. They are reported
+   * to the controller together with the final state of the task.
+   * @param message the state transition message
+   */
+  void setMessageTimestamps(Message message) {
+    _messageCreateTime = message.getCreateTimeStamp();
+    _messageReadTime = message.getReadTimeStamp();
+    _transitionStartTime = message.getExecuteStartTimeStamp();
+  }
+
   @Override
   public void run() {
     try {
+      _startTime = System.currentTimeMillis();
       signalStarted();
       try {
         _result = _task.run();
@@ -79,6 +98,7 @@ public class TaskRunner implements Runnable {
         LOG.error("Problem running the task, report task as FAILED.", t);
         _result = new TaskResult(Status.FAILED, "Exception happened in running task: " + t.getMessage());
       }
+      _finishTime = System.currentTimeMillis();
 
       switch (_result.getStatus()) {
       case COMPLETED:
@@ -224,6 +244,11 @@ public class TaskRunner implements Runnable {
       currentStateDelta.setState(partition, state.name());
       currentStateDelta.setInfo(partition, _result.getInfo());
       currentStateDelta.setPreviousState(partition, prevState);
+      TaskTimestamp.MESSAGE_CREATE_TIME.set(currentStateDelta, partition, _messageCreateTime);
+      TaskTimestamp.MESSAGE_READ_TIME.set(currentStateDelta, partition, _messageReadTime);
+      TaskTimestamp.TRANSITION_START_TIME.set(currentStateDelta, partition, _transitionStartTime);
+      TaskTimestamp.TASK_START_TIME.set(currentStateDelta, partition, _startTime);
+      TaskTimestamp.TASK_FINISH_TIME.set(currentStateDelta, partition, _finishTime);
 
       return accessor.updateProperty(key, currentStateDelta);
     } catch (Exception e) {
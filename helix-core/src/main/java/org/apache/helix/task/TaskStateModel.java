@@ -21,6 +21,7 @@ package org.apache.helix.task;
 
 import java.util.Map;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -38,7 +39,7 @@ import org.slf4j.LoggerFactory;
 public class TaskStateModel extends StateModel {
   private static final Logger LOG = LoggerFactory.getLogger(TaskStateModel.class);
   private final HelixManager _manager;
-  private final ScheduledExecutorService _taskExecutor;
+  private final ExecutorService _taskExecutor;
   private final Map<String, TaskFactory> _taskFactoryRegistry;
   private ScheduledFuture _timeoutTask;
   private TaskRunner _taskRunner;
@@ -46,6 +47,11 @@ public class TaskStateModel extends StateModel {
 
   public TaskStateModel(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry,
       ScheduledExecutorService taskExecutor, ScheduledExecutorService timerTaskExecutor) {
+    this(manager, taskFactoryRegistry, (ExecutorService) taskExecutor, timerTaskExecutor);
+  }
+
+  public TaskStateModel(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry,
+      ExecutorService taskExecutor, ScheduledExecutorService timerTaskExecutor) {
     _manager = manager;
     _taskFactoryRegistry = taskFactoryRegistry;
     _taskExecutor = taskExecutor;
@@ -329,6 +335,7 @@ public class TaskStateModel extends StateModel {
     _taskRunner =
         new TaskRunner(task, msg.getResourceName(), taskPartition, msg.getTgtName(), _manager,
             msg.getTgtSessionId(), this);
+    _taskRunner.setMessageTimestamps(msg);
     _taskExecutor.submit(_taskRunner);
     _taskRunner.waitTillStarted();
 
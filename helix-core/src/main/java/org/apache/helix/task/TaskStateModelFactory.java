@@ -21,6 +21,7 @@ package org.apache.helix.task;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -56,7 +57,7 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
 
   private final HelixManager _manager;
   private final Map<String, TaskFactory> _taskFactoryRegistry;
-  private final ScheduledExecutorService _taskExecutor;
+  private final ExecutorService _taskExecutor;
   private final ScheduledExecutorService _timerTaskExecutor;
   private ThreadPoolExecutorMonitor _monitor;
 
@@ -70,6 +71,11 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
   @Deprecated
   public TaskStateModelFactory(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry,
       ScheduledExecutorService taskExecutor) {
+    this(manager, taskFactoryRegistry, (ExecutorService) taskExecutor);
+  }
+
+  private TaskStateModelFactory(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry,
+      ExecutorService taskExecutor) {
     _manager = manager;
     _taskFactoryRegistry = taskFactoryRegistry;
     _taskExecutor = taskExecutor;
@@ -169,7 +175,7 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
             clientConfig.createHelixZkClientConfig());
   }
 
-  private static ScheduledExecutorService createThreadPoolExecutor(HelixManager manager) {
+  private static ExecutorService createThreadPoolExecutor(HelixManager manager) {
     // TODO: revisit the logic here - we are creating a connection although we already have a
     // manager. We cannot use the connection within manager because some users connect the manager
     // after registering the state model factory (in which case we cannot use manager's connection),
@@ -187,6 +193,15 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
       zkClient.close();
     }
 
+    if (Boolean.getBoolean(SystemPropertyKeys.TASK_VIRTUAL_THREAD_ENABLED)) {
+      // Threads are created on demand, so the target thread pool size can be set to the number of
+      // IO-bound tasks the instance should run at the same time.
+      LOG.info(
+          "Obtained target thread pool size: {} from cluster {} for instance {}. Creating bounded task executor.",
+          targetThreadPoolSize, manager.getClusterName(), manager.getInstanceName());
+      return new BoundedTaskExecutor(targetThreadPoolSize);
+    }
+
     LOG.info(
         "Obtained target thread pool size: {} from cluster {} for instance {}. Creating thread pool.",
         targetThreadPoolSize, manager.getClusterName(), manager.getInstanceName());
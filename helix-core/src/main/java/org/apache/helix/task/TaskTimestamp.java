@@ -0,0 +1,63 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+
+import org.apache.helix.model.CurrentState;
+
+/**
+ * Timestamps of a task run that the participant reports in the current state of the task
+ * partition together with the final state of the task. The controller uses them to break the
+ * latency of the task down into the hops between the controller and the participant.
+ */
+enum TaskTimestamp {
+  MESSAGE_CREATE_TIME, // Time at which the controller created the message to run the task
+  MESSAGE_READ_TIME, // Time at which the participant read the message
+  TRANSITION_START_TIME, // Time at which the participant started to handle the message
+  TASK_START_TIME, // Time at which the task started running on a task thread
+  TASK_FINISH_TIME; // Time at which the task finished running
+
+  /**
+   * @return the timestamp of the partition in the current state, or -1 if it is not reported
+   */
+  long get(CurrentState currentState, String partition) {
+    Map<String, String> partitionFields = currentState.getRecord().getMapField(partition);
+    if (partitionFields == null || partitionFields.get(name()) == null) {
+      return -1L;
+    }
+    try {
+      return Long.parseLong(partitionFields.get(name()));
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  /**
+   * Set the timestamp of the partition in the current state. Timestamps that are not known are
+   * skipped.
+   */
+  void set(CurrentState currentState, String partition, long timestamp) {
+    Map<String, String> partitionFields = currentState.getRecord().getMapField(partition);
+    if (partitionFields != null && timestamp > 0) {
+      partitionFields.put(name(), String.valueOf(timestamp));
+    }
+  }
+}
@@ -1078,26 +1078,49 @@ public class TaskUtil {
    */
   public static void purgeExpiredJobs(String workflow, Set<String> expiredJobs,
       HelixManager manager, RebalanceScheduler rebalanceScheduler) {
-    Set<String> failedJobRemovals = new HashSet<>();
-    for (String job : expiredJobs) {
-      if (!TaskUtil
-          .removeJob(manager.getHelixDataAccessor(), manager.getHelixPropertyStore(), job)) {
-        failedJobRemovals.add(job);
-        LOG.warn("Failed to clean up expired and completed jobs from workflow {}!", workflow);
-      }
-      rebalanceScheduler.removeScheduledRebalance(job);
-    }
+    purgeExpiredJobs(Collections.singletonMap(workflow, expiredJobs), manager,
+        rebalanceScheduler);
+  }
 
-    // If the job removal failed, make sure we do NOT prematurely delete it from DAG so that the
-    // removal will be tried again at next purge
-    expiredJobs.removeAll(failedJobRemovals);
+  /**
+   * Clean up all jobs that are marked as expired, for all the workflows at once. The znodes of the
+   * jobs are removed in batches across the workflows, see {@link TaskPurger}.
+   * @param expiredJobsMap workflow name -> the expired jobs of the workflow
+   * @param manager
+   * @param rebalanceScheduler
+   * @return the number of purged jobs
+   */
+  public static int purgeExpiredJobs(Map<String, Set<String>> expiredJobsMap,
+      HelixManager manager, RebalanceScheduler rebalanceScheduler) {
+    Set<String> allExpiredJobs = new HashSet<>();
+    for (Set<String> expiredJobs : expiredJobsMap.values()) {
+      allExpiredJobs.addAll(expiredJobs);
+    }
+    Set<String> removedJobs = new TaskPurger(manager).removeResources(allExpiredJobs, true);
 
-    if (!TaskUtil.removeJobsFromDag(manager.getHelixDataAccessor(), workflow, expiredJobs, true)) {
-      LOG.warn("Error occurred while trying to remove jobs {} from the workflow {}!", expiredJobs,
-          workflow);
+    for (Map.Entry<String, Set<String>> entry : expiredJobsMap.entrySet()) {
+      String workflow = entry.getKey();
+      for (String job : entry.getValue()) {
+        rebalanceScheduler.removeScheduledRebalance(job);
+      }
+      // If the job removal failed, make sure we do NOT prematurely delete it from DAG so that the
+      // removal will be tried again at next purge
+      Set<String> purgedJobs = new HashSet<>(Sets.intersection(entry.getValue(), removedJobs));
+      if (purgedJobs.size() < entry.getValue().size()) {
+        LOG.warn("Failed to clean up expired and completed jobs {} from workflow {}!",
+            Sets.difference(entry.getValue(), removedJobs), workflow);
+      }
+      if (purgedJobs.isEmpty()) {
+        continue;
+      }
+      if (!TaskUtil.removeJobsFromDag(manager.getHelixDataAccessor(), workflow, purgedJobs,
+          true)) {
+        LOG.warn("Error occurred while trying to remove jobs {} from the workflow {}!",
+            purgedJobs, workflow);
+      }
     }
 
-    if (expiredJobs.size() > 0) {
+    if (removedJobs.size() > 0) {
       // Update workflow context will be in main pipeline not here. Otherwise, it will cause
       // concurrent write issue. It is possible that jobs got purged but there is no event to
       // trigger the pipeline to clean context.
@@ -1108,9 +1131,10 @@ public class TaskUtil {
         RebalanceUtil.scheduleOnDemandPipeline(manager.getClusterName(), 0L);
       } else {
         LOG.warn("No resource config to trigger rebalance for clean up contexts for {}!",
-            expiredJobs);
+            removedJobs);
       }
     }
+    return removedJobs.size();
   }
 
   /**
@@ -1118,28 +1142,24 @@ public class TaskUtil {
    * deleted.
    * @param toBePurgedWorkflows
    * @param manager
+   * @return the number of purged workflows
    */
-  public static void workflowGarbageCollection(final Set<String> toBePurgedWorkflows,
+  public static int workflowGarbageCollection(final Set<String> toBePurgedWorkflows,
       final HelixManager manager) {
-    HelixDataAccessor accessor = manager.getHelixDataAccessor();
-    HelixPropertyStore<ZNRecord> propertyStore = manager.getHelixPropertyStore();
-
     for (String workflowName : toBePurgedWorkflows) {
       LOG.warn(
           "WorkflowContext exists for workflow {}. However, Workflow Config is missing! Deleting the WorkflowContext and IdealState!!",
           workflowName);
+    }
 
-      // TODO: We dont need this in the future when TF is not relying on IS/EV anymore.
-      if (!cleanupWorkflowIdealStateExtView(accessor, workflowName)) {
-        LOG.warn("Error occurred while trying to remove workflow idealstate/externalview for {}.",
-            workflowName);
-        continue;
-      }
-
-      if (!removeWorkflowContext(propertyStore, workflowName)) {
-        LOG.warn("Error occurred while trying to remove workflow context for {}.", workflowName);
-      }
+    // TODO: We dont need to remove IS/EV in the future when TF is not relying on IS/EV anymore.
+    Set<String> removedWorkflows =
+        new TaskPurger(manager).removeResources(toBePurgedWorkflows, false);
+    if (removedWorkflows.size() < toBePurgedWorkflows.size()) {
+      LOG.warn("Failed to clean up the workflows {}",
+          Sets.difference(toBePurgedWorkflows, removedWorkflows));
     }
+    return removedWorkflows.size();
   }
 
   /**
@@ -1149,18 +1169,21 @@ public class TaskUtil {
    * config.
    * @param jobsWithoutConfig
    * @param manager
+   * @return the number of purged jobs
    */
-  public static void jobGarbageCollection(final Set<String> jobsWithoutConfig,
+  public static int jobGarbageCollection(final Set<String> jobsWithoutConfig,
       final HelixManager manager) {
     for (String jobName : jobsWithoutConfig) {
       LOG.warn(
           "JobContext exists for job {}. However, job Config is missing! Deleting the JobContext and IdealState!!",
           jobName);
-      if (!TaskUtil.removeJob(manager.getHelixDataAccessor(), manager.getHelixPropertyStore(),
-          jobName)) {
-        LOG.warn("Failed to clean up the job {}", jobName);
-      }
     }
+
+    Set<String> removedJobs = new TaskPurger(manager).removeResources(jobsWithoutConfig, true);
+    if (removedJobs.size() < jobsWithoutConfig.size()) {
+      LOG.warn("Failed to clean up the jobs {}", Sets.difference(jobsWithoutConfig, removedJobs));
+    }
+    return removedJobs.size();
   }
 
   /**
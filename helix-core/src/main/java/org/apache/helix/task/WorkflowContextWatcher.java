@@ -0,0 +1,262 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.management.JMException;
+
+import org.apache.helix.HelixException;
+import org.apache.helix.monitoring.mbeans.WorkflowContextWatcherMonitor;
+import org.apache.helix.store.HelixPropertyStore;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.IZkDataListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Completes futures when a workflow context reaches an expected condition.
+ * All waiters on the same workflow share one data watch on the workflow context znode. The
+ * context is read once per change and evaluated against every waiter, instead of every waiter
+ * polling the context from ZK. The watch is removed once the last waiter of the workflow is done.
+ * The watches are subscribed and unsubscribed outside of the map updates, so the ZK calls do not
+ * hold the lock of the map bin. The number of waiters, the watched workflows, the timeouts and the
+ * wait latency are reported by a WorkflowContextWatcherMonitor, which is only registered while
+ * there are waiters.
+ */
+class WorkflowContextWatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(WorkflowContextWatcher.class);
+
+  // Shared by all watchers, only used to fail the waiters that time out
+  private static final ScheduledExecutorService TIMEOUT_THREAD =
+      Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "WorkflowContextWatcherTimeoutThread");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final HelixPropertyStore<ZNRecord> _propertyStore;
+  private final Map<String, WatchedWorkflow> _watchedWorkflows = new ConcurrentHashMap<>();
+  private final AtomicInteger _numWaiters = new AtomicInteger();
+  private final WorkflowContextWatcherMonitor _monitor;
+
+  WorkflowContextWatcher(HelixPropertyStore<ZNRecord> propertyStore, String clusterName) {
+    _propertyStore = propertyStore;
+    _monitor = new WorkflowContextWatcherMonitor(clusterName);
+  }
+
+  /**
+   * Wait until the condition returns a non-null value for the context of the workflow.
+   * The condition is also evaluated with a null context if the workflow context does not exist.
+   * @param workflow the workflow to watch
+   * @param condition returns the result of the future once the context is in the expected state,
+   *          otherwise null
+   * @param timeout timeout in milliseconds
+   * @param timeoutMessage the message of the HelixException that fails the future on timeout
+   * @return a future completed with the result of the condition
+   */
+  <T> CompletableFuture<T> waitFor(String workflow, Function<WorkflowContext, T> condition,
+      long timeout, Supplier<String> timeoutMessage) {
+    long startTime = System.currentTimeMillis();
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Waiter<T> waiter = new Waiter<>(condition, future);
+    ScheduledFuture<?> timeoutTask = TIMEOUT_THREAD.schedule(() -> {
+      String message;
+      try {
+        message = timeoutMessage.get();
+      } catch (Exception e) {
+        message = String.format("Timed out waiting for workflow %s", workflow);
+      }
+      // Only updated by the timeout thread
+      if (future.completeExceptionally(new HelixException(message))) {
+        _monitor.increaseWaiterTimeoutCounter();
+      }
+    }, timeout, TimeUnit.MILLISECONDS);
+    WatchedWorkflow watchedWorkflow = _watchedWorkflows.compute(workflow, (name, watched) -> {
+      if (watched == null) {
+        watched = new WatchedWorkflow(name);
+      }
+      watched._waiters.add(waiter);
+      return watched;
+    });
+    _numWaiters.incrementAndGet();
+    updateMonitor();
+    future.whenComplete((result, e) -> {
+      timeoutTask.cancel(false);
+      _monitor.recordWaitLatency(System.currentTimeMillis() - startTime);
+      removeWaiter(workflow, waiter);
+    });
+    try {
+      watchedWorkflow.updateSubscription();
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+    // The context may already be in the expected state before the watch was set
+    watchedWorkflow.evaluate();
+    return future;
+  }
+
+  /**
+   * @return the number of futures that are not completed yet
+   */
+  int getNumWaiters() {
+    return _numWaiters.get();
+  }
+
+  /**
+   * @return the number of workflows with a watch on their context
+   */
+  int getNumWatchedWorkflows() {
+    return _watchedWorkflows.size();
+  }
+
+  private void removeWaiter(String workflow, Waiter<?> waiter) {
+    WatchedWorkflow[] removedWorkflow = new WatchedWorkflow[1];
+    _watchedWorkflows.computeIfPresent(workflow, (name, watched) -> {
+      if (watched._waiters.remove(waiter)) {
+        _numWaiters.decrementAndGet();
+      }
+      if (watched._waiters.isEmpty()) {
+        watched._removed = true;
+        removedWorkflow[0] = watched;
+        return null;
+      }
+      return watched;
+    });
+    if (removedWorkflow[0] != null) {
+      try {
+        removedWorkflow[0].updateSubscription();
+      } catch (Exception e) {
+        LOG.warn("Failed to unsubscribe the context of workflow {}", workflow, e);
+      }
+    }
+    updateMonitor();
+  }
+
+  // Registers the monitor while there are waiters, so idle task drivers do not keep an MBean
+  private void updateMonitor() {
+    synchronized (_monitor) {
+      int numWaiters = _numWaiters.get();
+      _monitor.updateWaiterGauges(numWaiters, _watchedWorkflows.size());
+      if (numWaiters > 0) {
+        try {
+          _monitor.register();
+        } catch (JMException e) {
+          LOG.warn("Failed to register the workflow context watcher monitor", e);
+        }
+      } else {
+        _monitor.unregister();
+      }
+    }
+  }
+
+  private class WatchedWorkflow implements IZkDataListener {
+    private final String _workflow;
+    private final String _path;
+    private final Set<Waiter<?>> _waiters = ConcurrentHashMap.newKeySet();
+    // Set once the workflow is removed from the watched workflows, guarded by the map bin
+    private volatile boolean _removed = false;
+    // Guarded by this
+    private boolean _subscribed = false;
+
+    WatchedWorkflow(String workflow) {
+      _workflow = workflow;
+      _path = TaskUtil.getWorkflowContextKey(workflow) + "/" + TaskUtil.CONTEXT_NODE;
+    }
+
+    /**
+     * Subscribe the watch while the workflow is watched, and unsubscribe it once it is removed.
+     * Called after every change of the removed flag, so the last call leaves the right state.
+     */
+    synchronized void updateSubscription() {
+      if (!_removed && !_subscribed) {
+        _propertyStore.subscribeDataChanges(_path, this);
+        _subscribed = true;
+      } else if (_removed && _subscribed) {
+        _propertyStore.unsubscribeDataChanges(_path, this);
+        _subscribed = false;
+      }
+    }
+
+    @Override
+    public void handleDataChange(String dataPath, Object data) {
+      evaluate();
+    }
+
+    @Override
+    public void handleDataDeleted(String dataPath) {
+      evaluate();
+    }
+
+    private void evaluate() {
+      if (_waiters.isEmpty()) {
+        return;
+      }
+      WorkflowContext context;
+      try {
+        context = TaskUtil.getWorkflowContext(_propertyStore, _workflow);
+      } catch (Exception e) {
+        // Waiters will be evaluated again on the next change, or fail on timeout
+        LOG.warn("Failed to read the context of workflow {}", _workflow, e);
+        return;
+      }
+      for (Waiter<?> waiter : _waiters) {
+        waiter.evaluate(context);
+      }
+    }
+  }
+
+  private static class Waiter<T> {
+    private final Function<WorkflowContext, T> _condition;
+    private final CompletableFuture<T> _future;
+
+    Waiter(Function<WorkflowContext, T> condition, CompletableFuture<T> future) {
+      _condition = condition;
+      _future = future;
+    }
+
+    void evaluate(WorkflowContext context) {
+      if (_future.isDone()) {
+        return;
+      }
+      // Complete outside of the ZK event thread, so dependent actions of the caller cannot block
+      // the notifications
+      try {
+        T result = _condition.apply(context);
+        if (result != null) {
+          ForkJoinPool.commonPool().execute(() -> _future.complete(result));
+        }
+      } catch (Exception e) {
+        ForkJoinPool.commonPool().execute(() -> _future.completeExceptionally(e));
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ package org.apache.helix.task.assigner;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.apache.helix.model.ClusterConfig;
@@ -240,6 +241,54 @@ public class AssignableInstance {
     logger.debug("Updated configs for AssignableInstance {}", _instanceConfig.getInstanceName());
   }
 
+  /**
+   * Checks whether the given configs give this instance the same total capacity as the current
+   * configs, so the instance can be reused instead of being re-created.
+   * @param clusterConfig cluster config
+   * @param liveInstance live instance object
+   * @return true if the quota ratio and the resource capacity of the instance are unchanged
+   */
+  public boolean hasSameCapacity(ClusterConfig clusterConfig, LiveInstance liveInstance) {
+    return clusterConfig != null && liveInstance != null
+        && Objects.equals(clusterConfig.getTaskQuotaRatioMap(),
+            _clusterConfig.getTaskQuotaRatioMap())
+        && Objects.equals(liveInstance.getResourceCapacityMap(),
+            _liveInstance.getResourceCapacityMap())
+        && liveInstance.getCurrentTaskThreadPoolSize() == _liveInstance
+            .getCurrentTaskThreadPoolSize();
+  }
+
+  /**
+   * Releases all the tasks assigned to this instance. Total capacity is not changed.
+   */
+  public synchronized void resetAssignments() {
+    _currentAssignments.clear();
+    for (Map<String, Integer> quotaUsage : _usedCapacity.values()) {
+      quotaUsage.replaceAll((quotaType, usage) -> 0);
+    }
+    logger.debug("Reset assignments of instance {}", _instanceConfig.getInstanceName());
+  }
+
+  /**
+   * Returns the remaining task thread capacity of the given quota type. If the quota type is not
+   * supported by this instance, the remaining capacity of DEFAULT type is returned because tasks of
+   * the quota type will be assigned as DEFAULT.
+   * @param quotaType quota type
+   * @return remaining capacity, or 0 if this instance has no task thread resource
+   */
+  public int getRemainingCapacity(String quotaType) {
+    String resourceType = LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name();
+    Map<String, Integer> capacity = _totalCapacity.get(resourceType);
+    Map<String, Integer> usage = _usedCapacity.get(resourceType);
+    if (capacity == null || usage == null) {
+      return 0;
+    }
+    if (!capacity.containsKey(quotaType)) {
+      quotaType = DEFAULT_QUOTA_TYPE;
+    }
+    return capacity.getOrDefault(quotaType, 0) - usage.getOrDefault(quotaType, 0);
+  }
+
   /**
    * Tries to assign the given task on this instance and returns TaskAssignResult. Instance capacity
    * profile is NOT modified by tryAssign.
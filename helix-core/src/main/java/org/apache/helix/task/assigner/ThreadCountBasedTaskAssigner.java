@@ -28,7 +28,6 @@ import java.util.Map;
 import java.util.PriorityQueue;
 
 import java.util.Set;
-import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.TaskConfig;
 import org.slf4j.Logger;
@@ -75,16 +74,11 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
   public Map<String, TaskAssignResult> assignTasks(
       AssignableInstanceManager assignableInstanceManager, Collection<String> instances,
       Iterable<TaskConfig> tasks, String quotaType) {
-    Set<AssignableInstance> assignableInstances = new HashSet<>();
-    // Only add the AssignableInstances that are also in instances
-    for (String instance : instances) {
-      assignableInstances.add(assignableInstanceManager.getAssignableInstance(instance));
-    }
-
     if (tasks == null || !tasks.iterator().hasNext()) {
       return Collections.emptyMap();
     }
-    if (assignableInstances.isEmpty()) {
+    Set<String> candidateInstances = new HashSet<>(instances);
+    if (candidateInstances.isEmpty()) {
       return buildNoInstanceAssignment(tasks, quotaType);
     }
     if (quotaType == null || quotaType.equals("") || quotaType.equals("null")) {
@@ -95,8 +89,20 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
 
     logger.info("Assigning tasks with quota type {}", quotaType);
 
-    // Build a sched queue
-    PriorityQueue<AssignableInstance> queue = buildSchedQueue(quotaType, assignableInstances);
+    // When all the instances are candidates, which is the common case, pick the instances from the
+    // capacity index kept by AssignableInstanceManager. Otherwise, build a sched queue of the
+    // candidate instances.
+    boolean useCapacityIndex =
+        candidateInstances.equals(assignableInstanceManager.getAssignableInstanceNames());
+    PriorityQueue<AssignableInstance> queue = null;
+    if (!useCapacityIndex) {
+      Set<AssignableInstance> assignableInstances = new HashSet<>();
+      // Only add the AssignableInstances that are also in instances
+      for (String instance : candidateInstances) {
+        assignableInstances.add(assignableInstanceManager.getAssignableInstance(instance));
+      }
+      queue = buildSchedQueue(quotaType, assignableInstances);
+    }
 
     // Assign
     Map<String, TaskAssignResult> assignResults = new HashMap<>();
@@ -109,7 +115,9 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
       }
 
       // Try to assign the task to least used instance
-      AssignableInstance instance = queue.poll();
+      AssignableInstance instance = useCapacityIndex
+          ? assignableInstanceManager.getAssignableInstanceWithMostCapacity(quotaType)
+          : queue.poll();
       TaskAssignResult result = instance.tryAssign(task, quotaType);
       assignResults.put(task.getId(), result);
 
@@ -119,7 +127,9 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
       }
 
       // requeue the instance to rank again
-      queue.offer(instance);
+      if (!useCapacityIndex) {
+        queue.offer(instance);
+      }
     }
     logger.info("Finished assigning tasks with quota type {}", quotaType);
     return assignResults;
@@ -148,11 +158,6 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
 
   private static class AssignableInstanceComparator implements Comparator<AssignableInstance> {
 
-    /**
-     * Resource type this comparator needs to compare
-     */
-    private final String RESOURCE_TYPE = LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name();
-
     /**
      * Resource quota type this comparator needs to compare
      */
@@ -172,23 +177,8 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
      */
     @Override
     public int compare(AssignableInstance o1, AssignableInstance o2) {
-      Integer o1RemainingCapacity = getRemainingUsage(o1.getTotalCapacity(), o1.getUsedCapacity());
-      Integer o2RemainingCapacity = getRemainingUsage(o2.getTotalCapacity(), o2.getUsedCapacity());
-      return o2RemainingCapacity - o1RemainingCapacity;
-    }
-
-    private Integer getRemainingUsage(Map<String, Map<String, Integer>> capacity,
-        Map<String, Map<String, Integer>> used) {
-      if (capacity.containsKey(RESOURCE_TYPE)) {
-        String quotaType = AssignableInstance.DEFAULT_QUOTA_TYPE;
-        if (capacity.get(RESOURCE_TYPE).containsKey(_quotaType)) {
-          // If the quotaType is not supported, sort as DEFAULT because it will be assigned as
-          // DEFAULT
-          quotaType = _quotaType;
-        }
-        return capacity.get(RESOURCE_TYPE).get(quotaType) - used.get(RESOURCE_TYPE).get(quotaType);
-      }
-      return 0;
+      // If the quotaType is not supported, sort as DEFAULT because it will be assigned as DEFAULT
+      return o2.getRemainingCapacity(_quotaType) - o1.getRemainingCapacity(_quotaType);
     }
   }
 
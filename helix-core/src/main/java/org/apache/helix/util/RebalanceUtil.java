@@ -192,6 +192,20 @@ public class RebalanceUtil {
     }
   }
 
+  /**
+   * Check if the leader controller of the cluster already has a resource pipeline run pending
+   * within the given delay.
+   * @param clusterName target cluster name
+   * @param delay the delay in milliseconds within which the pipeline run is needed
+   * @return true if a pipeline run is pending within the delay, false otherwise or if there is no
+   *         leader controller
+   */
+  public static boolean isPipelinePending(String clusterName, long delay) {
+    GenericHelixController leaderController =
+        GenericHelixController.getLeaderController(clusterName);
+    return leaderController != null && leaderController.isRebalancePending(delay);
+  }
+
   /**
    * Build best possible state out by copying the state map from current state output.
    * It'll be used for generating pending ST cancellation messages.
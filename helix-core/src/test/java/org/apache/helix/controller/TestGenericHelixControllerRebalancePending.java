@@ -0,0 +1,52 @@
+package org.apache.helix.controller;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestGenericHelixControllerRebalancePending {
+
+  @Test
+  public void testLongDelayRebalanceIsNotPendingForShortDelay() throws Exception {
+    GenericHelixController controller = new GenericHelixController();
+    try {
+      Assert.assertFalse(controller.isRebalancePending(100L));
+
+      // A delayed rebalance timer minutes away does not cover a retry needed within 100 ms
+      long delayedRebalanceTime = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10);
+      controller._nextRebalanceTask.set(controller.new RebalanceTask(null,
+          ClusterEventType.OnDemandRebalance, delayedRebalanceTime));
+      Assert.assertFalse(controller.isRebalancePending(100L));
+      Assert.assertTrue(controller.isRebalancePending(TimeUnit.MINUTES.toMillis(20)));
+
+      // A rebalance due within the delay is pending
+      controller._nextRebalanceTask.set(controller.new RebalanceTask(null,
+          ClusterEventType.OnDemandRebalance, System.currentTimeMillis() + 50L));
+      Assert.assertTrue(controller.isRebalancePending(100L));
+    } finally {
+      controller._nextRebalanceTask.set(null);
+      controller.shutdown();
+    }
+  }
+}
@@ -162,6 +162,74 @@ public class TestAssignmentMetadataStore extends ZkTestBase {
     Assert.assertEquals(getExistingVersionNumbers(BEST_POSSIBLE_KEY).size(), bestPossibleVersionCount + 1);
   }
 
+  @Test(dependsOnMethods = "testClearAssignment")
+  public void testPersistChangedAssignments() {
+    Map<String, ResourceAssignment> assignment = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      String resource = TEST_DB + i;
+      ResourceAssignment resourceAssignment = new ResourceAssignment(resource);
+      resourceAssignment.addReplicaMap(new Partition(resource + "_0"),
+          Collections.singletonMap("localhost_" + i, "MASTER"));
+      assignment.put(resource, resourceAssignment);
+    }
+    _store.persistBaseline(assignment);
+    Map<String, ResourceAssignment> persistedBaseline = new HashMap<>(_store._globalBaseline);
+    // The in-memory baseline is a copy of the new assignment
+    Assert.assertEquals(persistedBaseline, assignment);
+    Assert.assertNotSame(persistedBaseline.get(TEST_DB + 0), assignment.get(TEST_DB + 0));
+
+    // Move a partition of one resource, the assignments of the other resources are not copied again
+    Map<String, ResourceAssignment> newAssignment = new HashMap<>();
+    assignment.forEach((resource, resourceAssignment) -> newAssignment
+        .put(resource, new ResourceAssignment(resourceAssignment.getRecord())));
+    newAssignment.get(TEST_DB + 0).addReplicaMap(new Partition(TEST_DB + "0_0"),
+        Collections.singletonMap("localhost_1", "MASTER"));
+    _store.persistBaseline(newAssignment);
+    Assert.assertEquals(_store._globalBaseline, newAssignment);
+    Assert.assertNotSame(_store._globalBaseline.get(TEST_DB + 0),
+        persistedBaseline.get(TEST_DB + 0));
+    Assert.assertSame(_store._globalBaseline.get(TEST_DB + 1), persistedBaseline.get(TEST_DB + 1));
+    Assert.assertSame(_store._globalBaseline.get(TEST_DB + 2), persistedBaseline.get(TEST_DB + 2));
+
+    // The persisted baseline is read back as one consistent version
+    _store.reset();
+    Assert.assertEquals(_store.getBaseline(), newAssignment);
+  }
+
+  @Test(dependsOnMethods = "testPersistChangedAssignments")
+  public void testPersistAssignmentModifiedInPlace() {
+    // Modify a resource assignment of the in-memory baseline in place and persist it again
+    Map<String, ResourceAssignment> baseline = new HashMap<>(_store.getBaseline());
+    ResourceAssignment resourceAssignment = baseline.get(TEST_DB + 1);
+    resourceAssignment.getRecord().getMapField(TEST_DB + "1_0").put("localhost_2", "SLAVE");
+    _store.persistBaseline(baseline);
+    Assert.assertEquals(_store.getBaseline().get(TEST_DB + 1), resourceAssignment);
+
+    // The modification is persisted, not the serialized form of the previous version
+    _store.reset();
+    Assert.assertEquals(_store.getBaseline().get(TEST_DB + 1).getRecord()
+        .getMapField(TEST_DB + "1_0").get("localhost_2"), "SLAVE");
+  }
+
+  @Test(dependsOnMethods = "testPersistAssignmentModifiedInPlace")
+  public void testPersistAssignmentWithSameStringHashCode() {
+    // "Aa" and "BB" have the same String hashCode, the change must still be detected
+    Assert.assertEquals("localhost_Aa".hashCode(), "localhost_BB".hashCode());
+    Map<String, ResourceAssignment> baseline = new HashMap<>(_store.getBaseline());
+    ResourceAssignment resourceAssignment = baseline.get(TEST_DB + 2);
+    Map<String, String> replicaMap = resourceAssignment.getRecord().getMapField(TEST_DB + "2_0");
+    replicaMap.clear();
+    replicaMap.put("localhost_Aa", "MASTER");
+    _store.persistBaseline(baseline);
+
+    replicaMap.clear();
+    replicaMap.put("localhost_BB", "MASTER");
+    _store.persistBaseline(baseline);
+    _store.reset();
+    Assert.assertEquals(_store.getBaseline().get(TEST_DB + 2).getRecord()
+        .getMapField(TEST_DB + "2_0"), Collections.singletonMap("localhost_BB", "MASTER"));
+  }
+
   private Map<String, ResourceAssignment> getDummyAssignment() {
     // Generate a dummy assignment
     Map<String, ResourceAssignment> dummyAssignment = new HashMap<>();
@@ -0,0 +1,286 @@
+package org.apache.helix.controller.rebalancer.waged;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.management.MBeanAttributeInfo;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.waged.model.AbstractTestClusterModel;
+import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
+import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
+import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
+import org.apache.helix.controller.rebalancer.waged.model.OptimalAssignment;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.monitoring.metrics.WagedRebalancerMetricCollector;
+import org.apache.helix.monitoring.metrics.model.CountMetric;
+import org.apache.helix.monitoring.metrics.model.LatencyMetric;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class TestGlobalRebalanceRunner extends AbstractTestClusterModel {
+  private static final Map<String, String> RESOURCE_TAGS =
+      ImmutableMap.of("Resource1", "tagA", "Resource2", "tagB");
+  private static final Map<String, String> INSTANCE_TAGS =
+      ImmutableMap.of("hostA0", "tagA", "hostA1", "tagA", "hostB0", "tagB", "hostB1", "tagB");
+
+  @Test
+  public void testComputeBaselineShards() {
+    Map<String, String> instanceGroupTags =
+        ImmutableMap.of("db1", "tagA", "db2", "tagB", "db3", "tagC", "db4", "tagA");
+    Map<String, Collection<String>> instanceTags = new HashMap<>();
+    instanceTags.put("host1", Collections.singletonList("tagA"));
+    instanceTags.put("host2", Arrays.asList("tagA", "otherTag"));
+    // host3 connects tagB and tagC, so their resources must be calculated together.
+    instanceTags.put("host3", Arrays.asList("tagB", "tagC"));
+    instanceTags.put("host4", Collections.singletonList("tagC"));
+    instanceTags.put("host5", Collections.emptyList());
+
+    List<GlobalRebalanceRunner.BaselineShard> shards = GlobalRebalanceRunner
+        .computeBaselineShards(instanceGroupTags.keySet(), instanceGroupTags, instanceTags);
+
+    Assert.assertEquals(shards.size(), 2);
+    Assert.assertEquals(shards.get(0).getResources(), ImmutableSet.of("db1", "db4"));
+    Assert.assertEquals(shards.get(0).getInstances(), ImmutableSet.of("host1", "host2"));
+    Assert.assertEquals(shards.get(1).getResources(), ImmutableSet.of("db2", "db3"));
+    Assert.assertEquals(shards.get(1).getInstances(), ImmutableSet.of("host3", "host4"));
+  }
+
+  @Test
+  public void testComputeBaselineShardsWithUntaggedResource() {
+    Map<String, String> instanceGroupTags = new HashMap<>();
+    instanceGroupTags.put("db1", "tagA");
+    instanceGroupTags.put("db2", null);
+    Map<String, Collection<String>> instanceTags =
+        ImmutableMap.of("host1", Collections.singletonList("tagA"), "host2",
+            Collections.emptyList());
+
+    Assert.assertTrue(GlobalRebalanceRunner
+        .computeBaselineShards(instanceGroupTags.keySet(), instanceGroupTags, instanceTags)
+        .isEmpty());
+  }
+
+  @Test
+  public void testCalculateShardedBaseline() throws IOException, HelixRebalanceException {
+    ResourceControllerDataProvider clusterData = setupShardedClusterDataCache();
+    Map<String, Resource> resourceMap = getResourceMap(clusterData);
+
+    // The resources of the two tags are calculated in two shards, each with its own gauge
+    WagedRebalancerMetricCollector metricCollector = new WagedRebalancerMetricCollector();
+    TagAwareRebalanceAlgorithm shardedAlgorithm = new TagAwareRebalanceAlgorithm(false);
+    Map<String, ResourceAssignment> shardedBaseline =
+        calculateBaseline(clusterData, resourceMap, shardedAlgorithm, 2, metricCollector);
+    Assert.assertEquals(shardedAlgorithm.getNumCalculations(), 2);
+    Set<String> shardGaugeAttributes = getShardGaugeAttributes(metricCollector);
+    Assert.assertTrue(
+        shardGaugeAttributes.contains("GlobalBaselineShardCalcLatencyGauge_tagA.Max"));
+    Assert.assertTrue(
+        shardGaugeAttributes.contains("GlobalBaselineShardCalcLatencyGauge_tagB.Max"));
+    for (String tag : Arrays.asList("tagA", "tagB")) {
+      Assert.assertTrue(
+          metricCollector.getBaselineShardCalcLatency(tag).getLastEmittedMetricValue() >= 0);
+    }
+
+    // The shard gauges are removed once the baseline is calculated in one shard
+    TagAwareRebalanceAlgorithm algorithm = new TagAwareRebalanceAlgorithm(false);
+    Map<String, ResourceAssignment> baseline =
+        calculateBaseline(clusterData, resourceMap, algorithm, 1, metricCollector);
+    Assert.assertEquals(algorithm.getNumCalculations(), 1);
+    Assert.assertTrue(getShardGaugeAttributes(metricCollector).isEmpty());
+
+    Assert.assertEquals(shardedBaseline.keySet(), RESOURCE_TAGS.keySet());
+    Assert.assertEquals(shardedBaseline, baseline);
+  }
+
+  @Test
+  public void testCalculateShardedBaselineWithConflict()
+      throws IOException, HelixRebalanceException {
+    ResourceControllerDataProvider clusterData = setupShardedClusterDataCache();
+    Map<String, Resource> resourceMap = getResourceMap(clusterData);
+
+    // The shard results assign replicas outside of the shards, so the baseline is recalculated in
+    // one shard
+    TagAwareRebalanceAlgorithm shardedAlgorithm = new TagAwareRebalanceAlgorithm(true);
+    Map<String, ResourceAssignment> shardedBaseline =
+        calculateBaseline(clusterData, resourceMap, shardedAlgorithm, 2);
+    Assert.assertEquals(shardedAlgorithm.getNumCalculations(), 3);
+
+    TagAwareRebalanceAlgorithm algorithm = new TagAwareRebalanceAlgorithm(true);
+    Map<String, ResourceAssignment> baseline =
+        calculateBaseline(clusterData, resourceMap, algorithm, 1);
+    Assert.assertEquals(algorithm.getNumCalculations(), 1);
+
+    Assert.assertEquals(shardedBaseline, baseline);
+  }
+
+  private Map<String, ResourceAssignment> calculateBaseline(
+      ResourceControllerDataProvider clusterData, Map<String, Resource> resourceMap,
+      RebalanceAlgorithm algorithm, int parallelism) throws HelixRebalanceException {
+    return calculateBaseline(clusterData, resourceMap, algorithm, parallelism,
+        new WagedRebalancerMetricCollector());
+  }
+
+  private Map<String, ResourceAssignment> calculateBaseline(
+      ResourceControllerDataProvider clusterData, Map<String, Resource> resourceMap,
+      RebalanceAlgorithm algorithm, int parallelism,
+      WagedRebalancerMetricCollector metricCollector) throws HelixRebalanceException {
+    try (GlobalRebalanceRunner runner = new GlobalRebalanceRunner(
+        new AssignmentManager(metricCollector.getMetric(
+            WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateReadLatencyGauge.name(),
+            LatencyMetric.class)), null, metricCollector, metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateWriteLatencyGauge.name(),
+        LatencyMetric.class), metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.RebalanceFailureCounter.name(),
+        CountMetric.class), false)) {
+      runner.setBaselineCalculationParallelism(parallelism);
+      return runner.calculateBaseline(clusterData, resourceMap,
+          clusterData.getAssignableInstances(), algorithm, Collections.emptyMap(),
+          Collections.emptyMap());
+    }
+  }
+
+  private Set<String> getShardGaugeAttributes(WagedRebalancerMetricCollector metricCollector) {
+    return Arrays.stream(metricCollector.getMBeanInfo().getAttributes())
+        .map(MBeanAttributeInfo::getName)
+        .filter(name -> name.startsWith("GlobalBaselineShardCalcLatencyGauge"))
+        .collect(Collectors.toSet());
+  }
+
+  private Map<String, Resource> getResourceMap(ResourceControllerDataProvider clusterData) {
+    return clusterData.getIdealStates().entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+          Resource resource = new Resource(entry.getKey());
+          entry.getValue().getPartitionSet().forEach(resource::addPartition);
+          return resource;
+        }));
+  }
+
+  /**
+   * Set up two tagged resources and two instances for each of the tags.
+   */
+  private ResourceControllerDataProvider setupShardedClusterDataCache() throws IOException {
+    ResourceControllerDataProvider testCache = setupClusterDataCache();
+
+    Map<String, IdealState> isMap = new HashMap<>();
+    for (String resource : _resourceNames) {
+      IdealState is = new IdealState(resource);
+      is.setNumPartitions(_partitionNames.size());
+      is.setRebalanceMode(IdealState.RebalanceMode.FULL_AUTO);
+      is.setStateModelDefRef("MasterSlave");
+      is.setReplicas("2");
+      is.setRebalancerClassName(WagedRebalancer.class.getName());
+      is.setInstanceGroupTag(RESOURCE_TAGS.get(resource));
+      _partitionNames
+          .forEach(partition -> is.setPreferenceList(partition, Collections.emptyList()));
+      isMap.put(resource, is);
+    }
+    when(testCache.getIdealState(anyString()))
+        .thenAnswer(invocation -> isMap.get(invocation.getArguments()[0]));
+    when(testCache.getIdealStates()).thenReturn(isMap);
+
+    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
+    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
+    INSTANCE_TAGS.forEach((instance, tag) -> {
+      InstanceConfig instanceConfig = createMockInstanceConfig(instance);
+      instanceConfig.addTag(tag);
+      instanceConfigMap.put(instance, instanceConfig);
+      liveInstanceMap.put(instance, createMockLiveInstance(instance));
+    });
+    when(testCache.getAssignableInstanceConfigMap()).thenReturn(instanceConfigMap);
+    when(testCache.getInstanceConfigMap()).thenReturn(instanceConfigMap);
+    when(testCache.getAssignableLiveInstances()).thenReturn(liveInstanceMap);
+    when(testCache.getLiveInstances()).thenReturn(liveInstanceMap);
+    when(testCache.getEnabledLiveInstances()).thenReturn(liveInstanceMap.keySet());
+    when(testCache.getAssignableInstances()).thenReturn(instanceConfigMap.keySet());
+    when(testCache.getAllInstances()).thenReturn(instanceConfigMap.keySet());
+    return testCache;
+  }
+
+  /**
+   * Assigns the replicas of every resource round robin to the instances with the resource tag, so
+   * the result of a resource does not depend on the other resources in the cluster model.
+   */
+  private static class TagAwareRebalanceAlgorithm implements RebalanceAlgorithm {
+    private final boolean _assignOutsideOfModel;
+    private final AtomicInteger _numCalculations = new AtomicInteger();
+
+    /**
+     * @param assignOutsideOfModel also assign every partition to an instance that is not in the
+     *          cluster model
+     */
+    TagAwareRebalanceAlgorithm(boolean assignOutsideOfModel) {
+      _assignOutsideOfModel = assignOutsideOfModel;
+    }
+
+    @Override
+    public OptimalAssignment calculate(ClusterModel clusterModel) {
+      _numCalculations.incrementAndGet();
+      Map<String, ResourceAssignment> result = new HashMap<>();
+      for (Map.Entry<String, Set<AssignableReplica>> entry : clusterModel
+          .getAssignableReplicaMap().entrySet()) {
+        String tag = RESOURCE_TAGS.get(entry.getKey());
+        List<String> instances = clusterModel.getAssignableNodes().values().stream()
+            .filter(node -> node.getInstanceTags().contains(tag))
+            .map(AssignableNode::getInstanceName).sorted().collect(Collectors.toList());
+        ResourceAssignment assignment = new ResourceAssignment(entry.getKey());
+        int index = 0;
+        for (AssignableReplica replica : entry.getValue().stream().sorted()
+            .collect(Collectors.toList())) {
+          Partition partition = new Partition(replica.getPartitionName());
+          Map<String, String> replicaMap = new HashMap<>(assignment.getReplicaMap(partition));
+          replicaMap.put(instances.get(index++ % instances.size()), replica.getReplicaState());
+          if (_assignOutsideOfModel) {
+            replicaMap.put("unknownHost", replica.getReplicaState());
+          }
+          assignment.addReplicaMap(partition, replicaMap);
+        }
+        result.put(entry.getKey(), assignment);
+      }
+      OptimalAssignment optimalAssignment = Mockito.mock(OptimalAssignment.class);
+      when(optimalAssignment.getOptimalResourceAssignment()).thenReturn(result);
+      return optimalAssignment;
+    }
+
+    int getNumCalculations() {
+      return _numCalculations.get();
+    }
+  }
+}
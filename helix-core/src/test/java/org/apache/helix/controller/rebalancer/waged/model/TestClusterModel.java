@@ -98,4 +98,36 @@ public class TestClusterModel extends AbstractTestClusterModel {
     Assert.assertFalse(clusterModel.getAssignableNodes().values().stream()
         .anyMatch(node -> node.getAssignedReplicaCount() != 0));
   }
+
+  @Test
+  public void testGetCandidateNodes() throws IOException {
+    ResourceControllerDataProvider testCache = setupClusterDataCache();
+    Set<AssignableReplica> assignableReplicas = generateReplicas(testCache);
+    Set<AssignableNode> assignableNodes = generateNodes(testCache);
+
+    ClusterContext context =
+        new ClusterContext(assignableReplicas, assignableNodes, Collections.emptyMap(),
+            Collections.emptyMap());
+    ClusterModel clusterModel = new ClusterModel(context, assignableReplicas, assignableNodes);
+
+    AssignableReplica replica = assignableReplicas.iterator().next();
+    AssignableNode assignableNode = assignableNodes.iterator().next();
+    // The resource has no instance group tag, so all the nodes are candidates.
+    Assert.assertEquals(clusterModel.getCandidateNodes(replica, true, true),
+        Collections.singletonList(assignableNode));
+
+    // The fault zone of the node holds the partition after the assignment.
+    clusterModel
+        .assign(replica.getResourceName(), replica.getPartitionName(), replica.getReplicaState(),
+            assignableNode.getInstanceName());
+    Assert.assertTrue(clusterModel.getCandidateNodes(replica, true, true).isEmpty());
+    Assert.assertEquals(clusterModel.getCandidateNodes(replica, true, false),
+        Collections.singletonList(assignableNode));
+
+    clusterModel
+        .release(replica.getResourceName(), replica.getPartitionName(), replica.getReplicaState(),
+            assignableNode.getInstanceName());
+    Assert.assertEquals(clusterModel.getCandidateNodes(replica, true, true),
+        Collections.singletonList(assignableNode));
+  }
 }
@@ -0,0 +1,47 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.model.Partition;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCurrentStateOutput {
+
+  @Test
+  public void testPartitionsWithErrorReplica() {
+    String resource = "testResource";
+    Partition partition0 = new Partition(resource + "_0");
+    Partition partition1 = new Partition(resource + "_1");
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    Assert.assertTrue(currentStateOutput.getPartitionsWithErrorReplica(resource).isEmpty());
+
+    currentStateOutput.setCurrentState(resource, partition0, "localhost_0", "MASTER");
+    currentStateOutput.setCurrentState(resource, partition0, "localhost_1", "ERROR");
+    currentStateOutput.setCurrentState(resource, partition1, "localhost_0", "SLAVE");
+    Assert.assertEquals(currentStateOutput.getPartitionsWithErrorReplica(resource).size(), 1);
+    Assert.assertTrue(
+        currentStateOutput.getPartitionsWithErrorReplica(resource).contains(partition0));
+
+    // Overwriting the only ERROR replica removes the partition from the index
+    currentStateOutput.setCurrentState(resource, partition0, "localhost_1", "SLAVE");
+    Assert.assertTrue(currentStateOutput.getPartitionsWithErrorReplica(resource).isEmpty());
+  }
+}
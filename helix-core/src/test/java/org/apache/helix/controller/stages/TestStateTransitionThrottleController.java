@@ -21,7 +21,9 @@ package org.apache.helix.controller.stages;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -166,6 +168,124 @@ public class TestStateTransitionThrottleController {
         loadResourceLevelQuota - 1);
   }
 
+  @Test
+  public void testRateLimitConfigSerialization() {
+    StateTransitionThrottleConfig config = new StateTransitionThrottleConfig(ANY,
+        StateTransitionThrottleConfig.ThrottleScope.CLUSTER, 10, 5);
+    StateTransitionThrottleConfig deserialized =
+        StateTransitionThrottleConfig.fromJSON(config.toJSON());
+    Assert.assertNotNull(deserialized);
+    Assert.assertTrue(deserialized.isRateLimited());
+    Assert.assertEquals(deserialized.getTransitionRefillRatePerSecond(), 5L);
+    Assert.assertEquals(deserialized.getMaxPartitionInTransition().longValue(), 10L);
+
+    deserialized = StateTransitionThrottleConfig.fromJSON(new StateTransitionThrottleConfig(ANY,
+        StateTransitionThrottleConfig.ThrottleScope.CLUSTER, 10).toJSON());
+    Assert.assertNotNull(deserialized);
+    Assert.assertFalse(deserialized.isRateLimited());
+  }
+
+  @Test
+  public void testRateLimitAcrossPipelineRuns() {
+    ClusterConfig clusterConfig = new ClusterConfig("config");
+    // Allow 100 pending transitions in the cluster, but refill only 1 token every second and hold
+    // at most 2 tokens.
+    clusterConfig.setStateTransitionThrottleConfigs(ImmutableList.of(
+        new StateTransitionThrottleConfig(ANY, StateTransitionThrottleConfig.ThrottleScope.CLUSTER,
+            100),
+        new StateTransitionThrottleConfig(LOAD_BALANCE,
+            StateTransitionThrottleConfig.ThrottleScope.INSTANCE, 2, 1)));
+    StateTransitionTokenBuckets tokenBuckets = new StateTransitionTokenBuckets();
+    long time = 0L;
+
+    StateTransitionThrottleController controller =
+        new StateTransitionThrottleController(ImmutableSet.of(RESOURCE), clusterConfig,
+            ImmutableSet.of(INSTANCE), tokenBuckets, time);
+    Assert.assertEquals(tokenBuckets.size(), 1);
+    for (int i = 0; i < 2; i++) {
+      Assert.assertFalse(controller.shouldThrottleForInstance(LOAD_BALANCE, INSTANCE));
+      controller.chargeNewTransition(LOAD_BALANCE, RESOURCE, INSTANCE);
+    }
+    Assert.assertTrue(controller.shouldThrottleForInstance(LOAD_BALANCE, INSTANCE));
+    // Recovery is not limited by the LOAD_BALANCE bucket
+    Assert.assertFalse(controller.shouldThrottleForInstance(RECOVERY_BALANCE, INSTANCE));
+    // Checking the throttle does not record a retry, only a throttled transition does
+    Assert.assertEquals(controller.getRateLimitRetryDelay(), Long.MAX_VALUE);
+    controller.recordThrottledTransition(RECOVERY_BALANCE, RESOURCE, INSTANCE);
+    Assert.assertEquals(controller.getRateLimitRetryDelay(), Long.MAX_VALUE);
+    controller.recordThrottledTransition(LOAD_BALANCE, RESOURCE, INSTANCE);
+    Assert.assertEquals(controller.getRateLimitRetryDelay(), 1000L);
+
+    // Next pipeline run half a second later, still no token
+    time += 500;
+    controller = new StateTransitionThrottleController(ImmutableSet.of(RESOURCE), clusterConfig,
+        ImmutableSet.of(INSTANCE), tokenBuckets, time);
+    Assert.assertTrue(controller.shouldThrottleForInstance(LOAD_BALANCE, INSTANCE));
+    controller.recordThrottledTransition(LOAD_BALANCE, RESOURCE, INSTANCE);
+    Assert.assertEquals(controller.getRateLimitRetryDelay(), 500L);
+
+    // The next token is due in 1 ms, but the retry delay is not shorter than the lower bound
+    time += 499;
+    controller = new StateTransitionThrottleController(ImmutableSet.of(RESOURCE), clusterConfig,
+        ImmutableSet.of(INSTANCE), tokenBuckets, time);
+    Assert.assertTrue(controller.shouldThrottleForInstance(LOAD_BALANCE, INSTANCE));
+    controller.recordThrottledTransition(LOAD_BALANCE, RESOURCE, INSTANCE);
+    Assert.assertEquals(controller.getRateLimitRetryDelay(),
+        StateTransitionThrottleController.MIN_RATE_LIMIT_RETRY_DELAY_MS);
+
+    // One token is refilled after a second
+    time += 1;
+    controller = new StateTransitionThrottleController(ImmutableSet.of(RESOURCE), clusterConfig,
+        ImmutableSet.of(INSTANCE), tokenBuckets, time);
+    Assert.assertFalse(controller.shouldThrottleForInstance(LOAD_BALANCE, INSTANCE));
+    controller.chargeNewTransition(LOAD_BALANCE, RESOURCE, INSTANCE);
+    Assert.assertTrue(controller.shouldThrottleForInstance(LOAD_BALANCE, INSTANCE));
+
+    // Buckets of instances that are gone are removed
+    new StateTransitionThrottleController(ImmutableSet.of(RESOURCE), clusterConfig,
+        Collections.emptySet(), tokenBuckets, time);
+    Assert.assertEquals(tokenBuckets.size(), 0);
+  }
+
+  @Test
+  public void testFairShareOfClusterQuota() {
+    ClusterConfig clusterConfig = new ClusterConfig("config");
+    clusterConfig.setStateTransitionThrottleConfigs(ImmutableList.of(
+        new StateTransitionThrottleConfig(ANY, StateTransitionThrottleConfig.ThrottleScope.CLUSTER,
+            10)));
+    String lowPriorityResource = "db1";
+    StateTransitionThrottleController controller = new StateTransitionThrottleController(
+        ImmutableSet.of(RESOURCE, lowPriorityResource), clusterConfig, ImmutableSet.of(INSTANCE));
+    Map<String, Long> weights = new LinkedHashMap<>();
+    weights.put(RESOURCE, 3L);
+    weights.put(lowPriorityResource, 2L);
+    controller.setFairShareWeights(weights);
+
+    // The first resource can take 3/5 of the cluster quota only
+    controller.allocateFairShare(RESOURCE);
+    int allowed = chargeUntilThrottled(controller, RESOURCE);
+    Assert.assertEquals(allowed, 6);
+
+    // The second resource takes all that is left
+    controller.allocateFairShare(lowPriorityResource);
+    allowed = chargeUntilThrottled(controller, lowPriorityResource);
+    Assert.assertEquals(allowed, 4);
+    Assert.assertTrue(controller.shouldThrottleForCluster(ANY));
+  }
+
+  private int chargeUntilThrottled(StateTransitionThrottleController controller,
+      String resource) {
+    int allowed = 0;
+    while (!controller.shouldThrottleForResource(LOAD_BALANCE, resource)) {
+      controller.chargeCluster(LOAD_BALANCE);
+      controller.chargeResource(LOAD_BALANCE, resource);
+      controller.chargeInstance(LOAD_BALANCE, INSTANCE);
+      controller.chargeNewTransition(LOAD_BALANCE, resource, INSTANCE);
+      allowed++;
+    }
+    return allowed;
+  }
+
   // The inner class just to fetch the protected fields of {@link StateTransitionThrottleController}
   private static class StateTransitionThrottleControllerAccessor
       extends StateTransitionThrottleController {
@@ -0,0 +1,87 @@
+package org.apache.helix.controller.stages.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.TestHelper;
+import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
+import org.apache.helix.integration.task.MockTask;
+import org.apache.helix.integration.task.TaskTestUtil;
+import org.apache.helix.integration.task.WorkflowGenerator;
+import org.apache.helix.task.JobConfig;
+import org.apache.helix.task.TaskState;
+import org.apache.helix.task.TaskSynchronizedTestBase;
+import org.apache.helix.task.TaskUtil;
+import org.apache.helix.task.Workflow;
+import org.apache.helix.task.WorkflowContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestTaskSchedulingStage extends TaskSynchronizedTestBase {
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    setSingleTestEnvironment();
+    super.beforeClass();
+  }
+
+  @Test
+  public void testSkipQuiescentWorkflows() throws Exception {
+    String workflowName = TestHelper.getTestMethodName();
+    Workflow.Builder builder = new Workflow.Builder(workflowName);
+    JobConfig.Builder jobBuilder =
+        new JobConfig.Builder().setTargetResource(WorkflowGenerator.DEFAULT_TGT_DB)
+            .setCommand(MockTask.TASK_COMMAND)
+            .setJobCommandConfigMap(WorkflowGenerator.DEFAULT_COMMAND_CONFIG);
+    builder.addJob("JOB0", jobBuilder);
+    _driver.start(builder.build());
+
+    WorkflowContext workflowContext = TaskTestUtil
+        .buildWorkflowContext(workflowName, TaskState.COMPLETED, null, TaskState.COMPLETED);
+    workflowContext.setFinishTime(System.currentTimeMillis());
+    setWorkflowContext(workflowName, workflowContext);
+
+    WorkflowControllerDataProvider cache =
+        TaskTestUtil.buildDataProvider(_manager.getHelixDataAccessor(), CLUSTER_NAME);
+    TaskSchedulingStage stage = new TaskSchedulingStage();
+
+    // The finished workflow is processed once, which finishes its completed job and leaves the
+    // context as is, then it is skipped as long as the context is not written again
+    TaskTestUtil.calculateTaskSchedulingStage(cache, _manager, stage);
+    Assert.assertFalse(stage.getSkippedWorkflows().contains(workflowName));
+    TaskTestUtil.calculateTaskSchedulingStage(cache, _manager, stage);
+    Assert.assertTrue(stage.getSkippedWorkflows().contains(workflowName));
+    TaskTestUtil.calculateTaskSchedulingStage(cache, _manager, stage);
+    Assert.assertTrue(stage.getSkippedWorkflows().contains(workflowName));
+
+    // A context change makes the workflow dirty again
+    workflowContext.setWorkflowState(TaskState.FAILED);
+    setWorkflowContext(workflowName, workflowContext);
+    TaskTestUtil.calculateTaskSchedulingStage(cache, _manager, stage);
+    Assert.assertFalse(stage.getSkippedWorkflows().contains(workflowName));
+  }
+
+  private void setWorkflowContext(String workflowName, WorkflowContext workflowContext) {
+    _manager.getHelixPropertyStore().set(
+        TaskUtil.getWorkflowContextKey(workflowName) + "/" + TaskUtil.CONTEXT_NODE,
+        workflowContext.getRecord(), AccessOption.PERSISTENT);
+  }
+}
@@ -295,6 +295,11 @@ public class TaskTestUtil {
 
   public static BestPossibleStateOutput calculateTaskSchedulingStage(WorkflowControllerDataProvider cache,
       HelixManager manager) throws Exception {
+    return calculateTaskSchedulingStage(cache, manager, new TaskSchedulingStage());
+  }
+
+  public static BestPossibleStateOutput calculateTaskSchedulingStage(WorkflowControllerDataProvider cache,
+      HelixManager manager, TaskSchedulingStage taskSchedulingStage) throws Exception {
     ClusterEvent event = new ClusterEvent(ClusterEventType.Unknown);
     event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
     event.addAttribute(AttributeName.helixmanager.name(), manager);
@@ -319,7 +324,7 @@ public class TaskTestUtil {
     stages.add(new ReadClusterDataStage());
     stages.add(new ResourceComputationStage());
     stages.add(new CurrentStateComputationStage());
-    stages.add(new TaskSchedulingStage());
+    stages.add(taskSchedulingStage);
     stages.add(new TaskPersistDataStage());
     stages.add(new TaskGarbageCollectionStage());
 
@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -314,6 +315,74 @@ public class TestAddDeleteTask extends TaskTestBase {
     _driver.stop(workflowName);
   }
 
+  @Test(dependsOnMethods = "testAddTaskTwice")
+  public void testAddTasksInBatch() throws Exception {
+    String workflowName = TestHelper.getTestMethodName();
+    String jobName0 = "JOB0";
+    String jobName1 = "JOB1";
+
+    JobConfig.Builder jobBuilder = new JobConfig.Builder().setWorkflow(workflowName)
+        .setNumberOfTasks(1).setNumConcurrentTasksPerInstance(100).setCommand(MockTask.TASK_COMMAND)
+        .setJobCommandConfigMap(ImmutableMap.of(MockTask.JOB_DELAY, "99999999"));
+
+    Workflow.Builder workflowBuilder = new Workflow.Builder(workflowName)
+        .setWorkflowConfig(new WorkflowConfig.Builder(workflowName).setParallelJobs(2).build())
+        .addJob(jobName0, jobBuilder).addJob(jobName1, jobBuilder);
+    _driver.start(workflowBuilder.build());
+
+    _driver.pollForJobState(workflowName, TaskUtil.getNamespacedJobName(workflowName, jobName0),
+        TaskState.IN_PROGRESS);
+    _driver.pollForJobState(workflowName, TaskUtil.getNamespacedJobName(workflowName, jobName1),
+        TaskState.IN_PROGRESS);
+
+    // Add short running tasks to both jobs
+    Map<String, List<TaskConfig>> tasksByJob = new HashMap<>();
+    for (String jobName : Arrays.asList(jobName0, jobName1)) {
+      List<TaskConfig> tasks = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        tasks.add(new TaskConfig(null,
+            new HashMap<String, String>(ImmutableMap.of(MockTask.JOB_DELAY, "1000")), null, null));
+      }
+      tasksByJob.put(jobName, tasks);
+    }
+    _driver.addTasks(workflowName, tasksByJob, TestHelper.WAIT_DURATION);
+
+    for (String jobName : Arrays.asList(jobName0, jobName1)) {
+      JobContext jobContext =
+          _driver.getJobContext(TaskUtil.getNamespacedJobName(workflowName, jobName));
+      for (TaskConfig task : tasksByJob.get(jobName)) {
+        Assert.assertTrue(jobContext.getTaskIdPartitionMap().containsKey(task.getId()));
+      }
+    }
+
+    // A batch with a duplicated task is rejected as a whole
+    TaskConfig task = new TaskConfig(null,
+        new HashMap<String, String>(ImmutableMap.of(MockTask.JOB_DELAY, "1000")), null, null);
+    try {
+      _driver.addTasks(workflowName, jobName0, Arrays.asList(task, task));
+      Assert.fail("Exception is expected because the same task is added twice");
+    } catch (HelixException e) {
+      // Helix Exception is expected because the same task is added twice
+    }
+    Assert.assertFalse(_driver.getJobConfig(TaskUtil.getNamespacedJobName(workflowName, jobName0))
+        .getTaskConfigMap().containsKey(task.getId()));
+
+    Assert.assertTrue(TestHelper.verify(() -> {
+      for (String jobName : Arrays.asList(jobName0, jobName1)) {
+        JobContext jobContext =
+            _driver.getJobContext(TaskUtil.getNamespacedJobName(workflowName, jobName));
+        for (int i = 1; i <= 3; i++) {
+          if (jobContext.getPartitionState(i) != TaskPartitionState.COMPLETED) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }, TestHelper.WAIT_DURATION));
+
+    _driver.stop(workflowName);
+  }
+
   @Test(dependsOnMethods = "testAddTaskTwice")
   public void testAddTaskToJobNotStarted() throws Exception {
     String workflowName = TestHelper.getTestMethodName();
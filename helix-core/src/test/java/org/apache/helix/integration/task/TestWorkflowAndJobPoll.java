@@ -19,7 +19,17 @@ package org.apache.helix.integration.task;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.helix.HelixException;
 import org.apache.helix.TestHelper;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.WorkflowContextWatcherMonitor;
 import org.apache.helix.task.TaskState;
 import org.apache.helix.task.Workflow;
 import org.testng.Assert;
@@ -56,4 +66,47 @@ public class TestWorkflowAndJobPoll extends TaskTestBase {
             TaskState.COMPLETED, TaskState.FAILED);
     Assert.assertEquals(TaskState.COMPLETED, polledState);
   }
+
+  @Test
+  public void testAsyncPoll() throws Exception {
+    String jobResource = TestHelper.getTestMethodName();
+    Workflow.Builder builder =
+        WorkflowGenerator.generateDefaultSingleJobWorkflowBuilder(jobResource);
+
+    // Futures on the same workflow share one watch
+    CompletableFuture<TaskState> workflowFuture =
+        _driver.pollForWorkflowStateAsync(jobResource, 10000L, TaskState.COMPLETED);
+    _driver.start(builder.build());
+    CompletableFuture<TaskState> jobFuture = _driver
+        .pollForJobStateAsync(jobResource, String.format("%s_%s", jobResource, jobResource),
+            10000L, TaskState.COMPLETED, TaskState.FAILED);
+    Assert.assertEquals(_driver.getNumWatchedWorkflows(), 1);
+    // The waiters are reported by the monitor while they are outstanding
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName monitorName = new ObjectName(String
+        .format("%s:%s=%s", MonitorDomainNames.TaskDriver.name(),
+            WorkflowContextWatcherMonitor.CLUSTER_KEY, CLUSTER_NAME));
+    Assert.assertTrue(beanServer.isRegistered(monitorName));
+    Assert.assertEquals(beanServer.getAttribute(monitorName, "WatchedWorkflowGauge"), 1L);
+
+    Assert.assertEquals(workflowFuture.get(10000L, TimeUnit.MILLISECONDS), TaskState.COMPLETED);
+    Assert.assertEquals(jobFuture.get(10000L, TimeUnit.MILLISECONDS), TaskState.COMPLETED);
+    Assert.assertTrue(TestHelper.verify(() -> _driver.getNumOutstandingStateWaiters() == 0
+        && _driver.getNumWatchedWorkflows() == 0, TestHelper.WAIT_DURATION));
+    Assert.assertTrue(TestHelper.verify(() -> !beanServer.isRegistered(monitorName),
+        TestHelper.WAIT_DURATION));
+
+    // Already in the expected state
+    Assert.assertEquals(_driver.pollForWorkflowStateAsync(jobResource, 1000L, TaskState.COMPLETED)
+        .get(1000L, TimeUnit.MILLISECONDS), TaskState.COMPLETED);
+
+    try {
+      _driver.pollForWorkflowStateAsync(jobResource, 100L, TaskState.FAILED).get();
+      Assert.fail("Should time out since the workflow is completed");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof HelixException);
+    }
+    Assert.assertTrue(TestHelper.verify(() -> _driver.getNumOutstandingStateWaiters() == 0,
+        TestHelper.WAIT_DURATION));
+  }
 }
@@ -22,18 +22,23 @@ package org.apache.helix.manager.zk;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixProperty;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.TestHelper;
 import org.apache.helix.common.ZkTestBase;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
@@ -41,6 +46,7 @@ import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.apache.zookeeper.data.Stat;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -52,12 +58,15 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
   private static final String LAST_SUCCESSFUL_WRITE_KEY = "LAST_SUCCESSFUL_WRITE";
   private static final String LAST_WRITE_KEY = "LAST_WRITE";
   private static final long VERSION_TTL_MS = 1000L;
+  private static final long RANDOM_SEED = 1234L;
 
   // Populate list and map fields for content comparison
   private static final List<String> LIST_FIELD = ImmutableList.of("1", "2");
   private static final Map<String, String> MAP_FIELD = ImmutableMap.of("1", "2");
 
   private final ZNRecord record = new ZNRecord(NAME_KEY);
+  // Seeded so that the generated records, hence the chunks, are the same in every run
+  private final Random _random = new Random(RANDOM_SEED);
 
   private HelixZkClient _zkClient;
   private BucketDataAccessor _bucketDataAccessor;
@@ -227,14 +236,194 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
     }, TestHelper.WAIT_DURATION));
   }
 
+  /**
+   * Test that a chunked write only writes the chunks that changed, and that the chunks which are
+   * no longer referenced are cleaned up.
+   */
+  @Test(dependsOnMethods = "testGCCompletesUnderHighFrequency")
+  public void testChunkedWrite() throws Exception {
+    String path = PATH + "_" + TestHelper.getTestMethodName();
+    String chunksPath = path + "/CHUNKS";
+    System.setProperty(SystemPropertyKeys.BUCKET_DATA_CHUNKED_WRITE_ENABLED, "true");
+    ZkBucketDataAccessor chunkedBucketDataAccessor;
+    try {
+      chunkedBucketDataAccessor = new ZkBucketDataAccessor(_zkClient, 50 * 1024, VERSION_TTL_MS);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.BUCKET_DATA_CHUNKED_WRITE_ENABLED);
+    }
+
+    try {
+      // Resource assignments of a few KB each
+      HelixProperty property = new HelixProperty(TestHelper.getTestMethodName());
+      for (int i = 0; i < 200; i++) {
+        property.getRecord().setSimpleField("resource_" + i, createRandomString(2000));
+      }
+      property.getRecord().setListField(NAME_KEY, LIST_FIELD);
+      property.getRecord().setMapField(NAME_KEY, MAP_FIELD);
+      Assert.assertTrue(chunkedBucketDataAccessor.compressedBucketWrite(path, property));
+      Assert.assertEquals(chunkedBucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+      // The record is read back by an accessor that writes the legacy format as well
+      Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+      Set<String> chunks =
+          new HashSet<>(_zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT));
+      Assert.assertTrue(chunks.size() > 1);
+
+      // Change one resource, only the chunk of that resource is written
+      Thread.sleep(10);
+      property.getRecord().setSimpleField("resource_100", createRandomString(2000));
+      Assert.assertTrue(chunkedBucketDataAccessor.compressedBucketWrite(path, property));
+      Assert.assertEquals(chunkedBucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+      Set<String> newChunks =
+          new HashSet<>(_zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT));
+      newChunks.removeAll(chunks);
+      Assert.assertEquals(newChunks.size(), 1);
+
+      // The replaced chunk is removed once the previous version expires. Keep writing the same
+      // record, which does not add chunks, so that the GC is scheduled again.
+      int numReferencedChunks = chunks.size();
+      Assert.assertTrue(TestHelper.verify(() -> {
+        Assert.assertTrue(chunkedBucketDataAccessor.compressedBucketWrite(path, property));
+        Thread.sleep(VERSION_TTL_MS / 4);
+        return _zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT).size()
+            == numReferencedChunks;
+      }, TestHelper.WAIT_DURATION));
+      Assert.assertEquals(chunkedBucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+
+      // A version in the legacy format is still read by the chunked accessor
+      Assert.assertTrue(_bucketDataAccessor.compressedBucketWrite(path, new HelixProperty(record)));
+      Assert.assertEquals(chunkedBucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          new HelixProperty(record));
+    } finally {
+      chunkedBucketDataAccessor.compressedBucketDelete(path);
+    }
+  }
+
+  /**
+   * Test that the chunks reused by a write are not removed by the GC of another process, which is
+   * not excluded by the chunk lock of this process. The other process is simulated by a GC that
+   * removes the unreferenced and expired chunks directly, while the same chunks go in and out of
+   * use by the versions that are written.
+   */
+  @Test(dependsOnMethods = "testChunkedWrite")
+  public void testChunkReusedDuringConcurrentGC() throws Exception {
+    String path = PATH + "_" + TestHelper.getTestMethodName();
+    System.setProperty(SystemPropertyKeys.BUCKET_DATA_CHUNKED_WRITE_ENABLED, "true");
+    ZkBucketDataAccessor chunkedBucketDataAccessor;
+    try {
+      chunkedBucketDataAccessor = new ZkBucketDataAccessor(_zkClient, 50 * 1024, VERSION_TTL_MS);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.BUCKET_DATA_CHUNKED_WRITE_ENABLED);
+    }
+
+    // Two records that only differ in one resource, so they share most of their chunks
+    HelixProperty first = new HelixProperty(TestHelper.getTestMethodName());
+    for (int i = 0; i < 200; i++) {
+      first.getRecord().setSimpleField("resource_" + i, createRandomString(2000));
+    }
+    HelixProperty second = new HelixProperty(new ZNRecord(first.getRecord()));
+    second.getRecord().setSimpleField("resource_100", createRandomString(2000));
+
+    AtomicBoolean stopped = new AtomicBoolean(false);
+    AtomicInteger numDeletedChunks = new AtomicInteger(0);
+    Thread otherProcessGC = new Thread(() -> {
+      while (!stopped.get()) {
+        try {
+          numDeletedChunks.addAndGet(deleteUnreferencedChunks(path));
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          return;
+        } catch (Exception e) {
+          // The versions change underneath, try again
+        }
+      }
+    });
+    otherProcessGC.start();
+    try {
+      // Write each record for a few rounds so that the versions of the other one are removed and
+      // its chunk expires, then the chunk is reused at every age up to and past the TTL
+      for (int i = 0; i < 24; i++) {
+        HelixProperty property = (i / 6) % 2 == 0 ? first : second;
+        Assert.assertTrue(chunkedBucketDataAccessor.compressedBucketWrite(path, property));
+        Thread.sleep(VERSION_TTL_MS / 4);
+        Assert.assertEquals(
+            chunkedBucketDataAccessor.compressedBucketRead(path, HelixProperty.class), property);
+      }
+    } finally {
+      stopped.set(true);
+      otherProcessGC.join();
+    }
+    // Make sure the chunks did expire and get removed while the records were written
+    Assert.assertTrue(numDeletedChunks.get() > 0);
+    chunkedBucketDataAccessor.compressedBucketDelete(path);
+  }
+
+  /**
+   * Removes the chunks that are not referenced by any version and are older than the TTL, the
+   * same way the GC of another ZkBucketDataAccessor process does, but without any lock.
+   * @return the number of removed chunks
+   */
+  private int deleteUnreferencedChunks(String path) throws IOException {
+    String chunksPath = path + "/CHUNKS";
+    List<String> chunkHashes =
+        _zkBaseDataAccessor.getChildNames(chunksPath, AccessOption.PERSISTENT);
+    List<String> children = _zkBaseDataAccessor.getChildNames(path, AccessOption.PERSISTENT);
+    if (chunkHashes == null || children == null) {
+      return 0;
+    }
+    Set<String> referencedChunks = new HashSet<>();
+    ObjectMapper objectMapper = new ObjectMapper();
+    for (String child : children) {
+      if (!child.matches("\\d+")) {
+        continue;
+      }
+      byte[] metadata =
+          _zkBaseDataAccessor.get(path + "/" + child + "/METADATA", null, AccessOption.PERSISTENT);
+      if (metadata == null) {
+        // The version is being written or removed
+        continue;
+      }
+      String chunks = (String) objectMapper.readValue(metadata, Map.class).get("CHUNKS");
+      if (chunks != null && !chunks.isEmpty()) {
+        for (String chunkRef : chunks.split(",")) {
+          referencedChunks.add(chunkRef.substring(0, chunkRef.indexOf(':')));
+        }
+      }
+    }
+    int numDeletedChunks = 0;
+    long expiryThreshold = System.currentTimeMillis() - VERSION_TTL_MS;
+    for (String hash : chunkHashes) {
+      if (referencedChunks.contains(hash)) {
+        continue;
+      }
+      Stat stat = _zkBaseDataAccessor.getStat(chunksPath + "/" + hash, AccessOption.PERSISTENT);
+      if (stat != null && stat.getMtime() < expiryThreshold && _zkBaseDataAccessor
+          .remove(chunksPath + "/" + hash, AccessOption.PERSISTENT)) {
+        numDeletedChunks++;
+      }
+    }
+    return numDeletedChunks;
+  }
+
+  private String createRandomString(int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append((char) ('a' + _random.nextInt(26)));
+    }
+    return builder.toString();
+  }
+
   private HelixProperty createLargeHelixProperty(String name, int numEntries) {
     HelixProperty property = new HelixProperty(name);
     for (int i = 0; i < numEntries; i++) {
       // Create a random string every time
       byte[] arrayKey = new byte[20];
       byte[] arrayVal = new byte[20];
-      new Random().nextBytes(arrayKey);
-      new Random().nextBytes(arrayVal);
+      _random.nextBytes(arrayKey);
+      _random.nextBytes(arrayVal);
       String randomStrKey = new String(arrayKey, StandardCharsets.UTF_8);
       String randomStrVal = new String(arrayVal, StandardCharsets.UTF_8);
 
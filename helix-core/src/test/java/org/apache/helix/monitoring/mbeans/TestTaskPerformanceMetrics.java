@@ -21,6 +21,7 @@ package org.apache.helix.monitoring.mbeans;
 
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -132,6 +133,31 @@ public class TestTaskPerformanceMetrics extends TaskSynchronizedTestBase {
     }
   }
 
+  /**
+   * Test the latency of the finished tasks of the workflow started by
+   * testTaskPerformanceMetrics is broken down into the per hop histograms. Every task runs for
+   * TASK_LATENCY, so that is the lower bound of the execution time.
+   * @throws Exception
+   */
+  @Test(dependsOnMethods = "testTaskPerformanceMetrics")
+  public void testTaskLatencyBreakdownMetrics() throws Exception {
+    Assert.assertTrue(TestHelper.verify(() -> {
+      extractMetrics();
+      return ((double) _beanValueMap.getOrDefault("TaskExecutionTimeGauge.Mean", 0.0d))
+          >= TASK_LATENCY;
+    }, TestHelper.WAIT_DURATION));
+
+    for (String gauge : Arrays.asList("TaskMessageCreationDelayGauge",
+        "TaskMessageDeliveryDelayGauge", "TaskMessageQueueDelayGauge", "TaskStartDelayGauge",
+        "TaskExecutionTimeGauge", "TaskCurrentStatePropagationDelayGauge")) {
+      Assert.assertTrue(_beanValueMap.containsKey(gauge + ".Mean"), gauge);
+      Assert.assertTrue(_beanValueMap.containsKey(gauge + ".Max"), gauge);
+      // The controller and the participants share the clock in this test, so no hop is negative
+      Assert.assertTrue((double) _beanValueMap.get(gauge + ".Mean") >= 0.0d, gauge);
+      Assert.assertTrue(((Number) _beanValueMap.get(gauge + ".Max")).longValue() >= 0L, gauge);
+    }
+  }
+
   /**
    * Queries for all MBeans from the MBean Server and only looks at the relevant MBean and gets its
    * metric numbers.
@@ -0,0 +1,212 @@
+package org.apache.helix.participant.statemachine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStateTransitionTable {
+  private static Logger LOG = LoggerFactory.getLogger(TestStateTransitionTable.class);
+  private static final Class<?>[] PARAM_TYPES = new Class[] {
+      Message.class, NotificationContext.class
+  };
+
+  @StateModelInfo(initialState = "OFFLINE", states = {
+      "MASTER", "SLAVE", "ERROR"
+  })
+  public static class AnnotatedStateModel extends StateModel {
+    int _transitionCount = 0;
+
+    @Transition(to = "SLAVE", from = "OFFLINE")
+    public void onBecomeSlaveFromOffline(Message message, NotificationContext context) {
+      _transitionCount++;
+    }
+
+    @Transition(to = "MASTER", from = "SLAVE")
+    public String onBecomeMasterFromSlave(Message message, NotificationContext context) {
+      return "master";
+    }
+
+    @Transition(to = "OFFLINE", from = "SLAVE")
+    public void onBecomeOfflineFromSlave(Message message, NotificationContext context)
+        throws InterruptedException {
+      throw new InterruptedException("interrupted");
+    }
+  }
+
+  public static class ConventionStateModel extends StateModel {
+    public void onBecomeOnlineFromOffline(Message message, NotificationContext context) {
+    }
+  }
+
+  public static class AnnotatedStateModelFactory extends StateModelFactory<AnnotatedStateModel> {
+    @Override
+    public AnnotatedStateModel createNewStateModel(String resourceName, String partitionName) {
+      return new AnnotatedStateModel();
+    }
+  }
+
+  @Test
+  public void testResolveSameAsParser() {
+    StateModelParser parser = new StateModelParser();
+    String[][] transitions = new String[][] {
+        {"OFFLINE", "SLAVE"}, {"offline", "slave"}, {"SLAVE", "MASTER"}, {"ERROR", "DROPPED"},
+        {"OFFLINE", "DROPPED"}, {"MASTER", "OFFLINE"}
+    };
+    for (Class<? extends StateModel> clazz : new Class[] {
+        AnnotatedStateModel.class, ConventionStateModel.class
+    }) {
+      StateTransitionTable table = StateTransitionTable.getTransitionTable(clazz);
+      Assert.assertSame(StateTransitionTable.getTransitionTable(clazz), table);
+      for (String[] transition : transitions) {
+        Method expected =
+            parser.getMethodForTransition(clazz, transition[0], transition[1], PARAM_TYPES);
+        StateTransitionTable.TransitionInvoker invoker =
+            table.getTransition(transition[0], transition[1]);
+        if (expected == null) {
+          Assert.assertNull(invoker);
+        } else {
+          Assert.assertEquals(invoker.getMethod(), expected);
+        }
+      }
+    }
+    Assert.assertNotNull(StateTransitionTable.getTransitionTable(ConventionStateModel.class)
+        .getTransition("OFFLINE", "ONLINE"));
+  }
+
+  @Test
+  public void testInvoke() throws Exception {
+    AnnotatedStateModel stateModel = new AnnotatedStateModel();
+    StateTransitionTable table = StateTransitionTable.getTransitionTable(stateModel.getClass());
+
+    Assert.assertNull(table.getTransition("OFFLINE", "SLAVE").invoke(stateModel, null, null));
+    Assert.assertEquals(stateModel._transitionCount, 1);
+    Assert.assertEquals(table.getTransition("SLAVE", "MASTER").invoke(stateModel, null, null),
+        "master");
+
+    try {
+      table.getTransition("SLAVE", "OFFLINE").invoke(stateModel, null, null);
+      Assert.fail("Should throw InvocationTargetException");
+    } catch (InvocationTargetException e) {
+      Assert.assertTrue(e.getCause() instanceof InterruptedException);
+    }
+  }
+
+  @Test
+  public void testPrecompileFromFactory() {
+    StateTransitionTable.precompile(new AnnotatedStateModelFactory());
+    Assert.assertEquals(StateTransitionTable.getTransitionTable(AnnotatedStateModel.class)
+        .getStateModelClass(), AnnotatedStateModel.class);
+  }
+
+  /**
+   * Repeated lookups are served from the resolved transitions of the table, they keep returning
+   * the same invoker for a matching transition, and null for a transition without a method.
+   */
+  @Test
+  public void testRepeatedLookup() throws Exception {
+    StateModelParser parser = new StateModelParser();
+    AnnotatedStateModel stateModel = new AnnotatedStateModel();
+    StateTransitionTable table = StateTransitionTable.getTransitionTable(stateModel.getClass());
+    StateTransitionTable.TransitionInvoker invoker = table.getTransition("OFFLINE", "SLAVE");
+    Assert.assertEquals(invoker.getMethod(), parser
+        .getMethodForTransition(stateModel.getClass(), "OFFLINE", "SLAVE", PARAM_TYPES));
+
+    int iterations = 1000;
+    for (int i = 0; i < iterations; i++) {
+      Assert.assertSame(StateTransitionTable.getTransitionTable(stateModel.getClass()), table);
+      Assert.assertSame(table.getTransition("OFFLINE", "SLAVE"), invoker);
+      Assert.assertSame(table.getTransition("offline", "slave"), invoker);
+      Assert.assertNull(table.getTransition("MASTER", "OFFLINE"));
+      table.getTransition("OFFLINE", "SLAVE").invoke(stateModel, null, null);
+    }
+    Assert.assertEquals(stateModel._transitionCount, iterations);
+  }
+
+  /**
+   * Compare per-message dispatch cost of the precompiled table with the reflective lookup and
+   * invocation used previously, and the ClassValue lookup of the table with the ConcurrentMap
+   * lookup it replaced. Only logs the result since timing is environment dependent.
+   */
+  @Test
+  public void testDispatchBenchmark() throws Exception {
+    StateModelParser parser = new StateModelParser();
+    AnnotatedStateModel stateModel = new AnnotatedStateModel();
+    ConcurrentMap<Class<? extends StateModel>, StateTransitionTable> mapTables =
+        new ConcurrentHashMap<>();
+    int iterations = 200000;
+
+    // warm up all the paths
+    runReflectiveDispatch(parser, stateModel, iterations);
+    runMapTableDispatch(mapTables, stateModel, iterations);
+    runTableDispatch(stateModel, iterations);
+
+    long start = System.nanoTime();
+    runReflectiveDispatch(parser, stateModel, iterations);
+    long reflectiveNs = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    runMapTableDispatch(mapTables, stateModel, iterations);
+    long mapTableNs = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    runTableDispatch(stateModel, iterations);
+    long tableNs = System.nanoTime() - start;
+
+    LOG.info("Dispatched {} transitions: reflective lookup {} ms, transition table in a "
+            + "ConcurrentMap {} ms, transition table in a ClassValue {} ms", iterations,
+        reflectiveNs / 1000000, mapTableNs / 1000000, tableNs / 1000000);
+    Assert.assertEquals(stateModel._transitionCount, 6 * iterations);
+  }
+
+  private void runReflectiveDispatch(StateModelParser parser, StateModel stateModel,
+      int iterations) throws Exception {
+    for (int i = 0; i < iterations; i++) {
+      Method method =
+          parser.getMethodForTransition(stateModel.getClass(), "OFFLINE", "SLAVE", PARAM_TYPES);
+      method.invoke(stateModel, null, null);
+    }
+  }
+
+  private void runMapTableDispatch(
+      ConcurrentMap<Class<? extends StateModel>, StateTransitionTable> mapTables,
+      StateModel stateModel, int iterations) throws Exception {
+    for (int i = 0; i < iterations; i++) {
+      mapTables.computeIfAbsent(stateModel.getClass(), StateTransitionTable::getTransitionTable)
+          .getTransition("OFFLINE", "SLAVE").invoke(stateModel, null, null);
+    }
+  }
+
+  private void runTableDispatch(StateModel stateModel, int iterations) throws Exception {
+    for (int i = 0; i < iterations; i++) {
+      StateTransitionTable.getTransitionTable(stateModel.getClass())
+          .getTransition("OFFLINE", "SLAVE").invoke(stateModel, null, null);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.TestHelper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBoundedTaskExecutor {
+
+  @Test
+  public void testConcurrencyLimit() throws Exception {
+    testConcurrencyLimit(new BoundedTaskExecutor(3));
+  }
+
+  @Test
+  public void testPlatformThreadsAreBounded() throws Exception {
+    BoundedTaskExecutor executor = new BoundedTaskExecutor(3, null);
+    testConcurrencyLimit(executor);
+    // The waiting tasks are queued instead of blocking a thread each
+    Assert.assertEquals(executor.getLargestPoolSize(), 3);
+  }
+
+  private void testConcurrencyLimit(BoundedTaskExecutor executor) throws Exception {
+    int maxConcurrentTasks = executor.getMaxConcurrentTasks();
+    int numTasks = 10;
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger finished = new AtomicInteger();
+    try {
+      for (int i = 0; i < numTasks; i++) {
+        executor.submit(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          running.decrementAndGet();
+          finished.incrementAndGet();
+        });
+      }
+
+      // Tasks over the limit wait for a slot instead of running
+      Assert.assertTrue(TestHelper.verify(() -> running.get() == maxConcurrentTasks
+          && executor.getActiveCount() == maxConcurrentTasks
+          && executor.getNumWaitingTasks() == numTasks - maxConcurrentTasks,
+          TestHelper.WAIT_DURATION));
+
+      release.countDown();
+      Assert.assertTrue(TestHelper.verify(
+          () -> finished.get() == numTasks && executor.getActiveCount() == 0,
+          TestHelper.WAIT_DURATION));
+      Assert.assertEquals(maxRunning.get(), maxConcurrentTasks);
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertTrue(executor.awaitTermination(TestHelper.WAIT_DURATION, TimeUnit.MILLISECONDS));
+  }
+}
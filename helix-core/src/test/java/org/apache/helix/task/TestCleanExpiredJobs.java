@@ -19,12 +19,17 @@ package org.apache.helix.task;
  * under the License.
  */
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.TestHelper;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
+import org.apache.helix.controller.rebalancer.util.RebalanceScheduler;
 import org.apache.helix.integration.task.MockTask;
 import org.apache.helix.integration.task.TaskTestUtil;
 import org.apache.helix.integration.task.WorkflowGenerator;
@@ -161,4 +166,51 @@ public class TestCleanExpiredJobs extends TaskSynchronizedTestBase {
     WorkflowConfig workflowConfig = _driver.getWorkflowConfig(queue);
     Assert.assertEquals(workflowConfig.getJobDag().getAllNodes().size(), capacity - 1);
   }
+
+  @Test
+  public void testPurgeExpiredJobsOfMultipleWorkflows() throws Exception {
+    String queuePrefix = TestHelper.getTestMethodName();
+    JobConfig.Builder jobBuilder =
+        new JobConfig.Builder().setTargetResource(WorkflowGenerator.DEFAULT_TGT_DB)
+            .setCommand(MockTask.TASK_COMMAND).setMaxAttemptsPerTask(2)
+            .setJobCommandConfigMap(WorkflowGenerator.DEFAULT_COMMAND_CONFIG).setExpiry(1L);
+    long startTime = System.currentTimeMillis();
+    Map<String, Set<String>> expiredJobsMap = new HashMap<>();
+    for (int q = 0; q < 3; q++) {
+      String queue = queuePrefix + q;
+      JobQueue.Builder builder = TaskTestUtil.buildJobQueue(queue);
+      for (int i = 0; i < 3; i++) {
+        builder.enqueueJob("JOB" + i, jobBuilder);
+      }
+      _driver.start(builder.build());
+
+      Set<String> expiredJobs = new HashSet<>();
+      for (int i = 0; i < 2; i++) {
+        String job = TaskUtil.getNamespacedJobName(queue, "JOB" + i);
+        TaskUtil.setJobContext(_manager, job,
+            TaskTestUtil.buildJobContext(startTime, startTime, TaskPartitionState.COMPLETED));
+        TaskUtil.addWorkflowJobUserContent(_manager, job, "key", "value");
+        expiredJobs.add(job);
+      }
+      expiredJobsMap.put(queue, expiredJobs);
+    }
+    // A job whose config is already removed is purged as well
+    String jobWithoutConfig = TaskUtil.getNamespacedJobName(queuePrefix + 0, "JOB0");
+    TaskUtil.removeJobConfig(_manager.getHelixDataAccessor(), jobWithoutConfig);
+
+    Assert.assertEquals(
+        TaskUtil.purgeExpiredJobs(expiredJobsMap, _manager, new RebalanceScheduler()), 6);
+
+    HelixDataAccessor accessor = _manager.getHelixDataAccessor();
+    for (Map.Entry<String, Set<String>> entry : expiredJobsMap.entrySet()) {
+      Set<String> jobsLeft = _driver.getWorkflowConfig(entry.getKey()).getJobDag().getAllNodes();
+      Assert.assertEquals(jobsLeft.size(), 1);
+      for (String job : entry.getValue()) {
+        Assert.assertFalse(jobsLeft.contains(job));
+        Assert.assertNull(accessor.getProperty(accessor.keyBuilder().resourceConfig(job)));
+        Assert.assertFalse(_manager.getHelixPropertyStore().exists(
+            TaskConstants.REBALANCER_CONTEXT_ROOT + "/" + job, AccessOption.PERSISTENT));
+      }
+    }
+  }
 }
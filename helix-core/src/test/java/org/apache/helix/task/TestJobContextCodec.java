@@ -0,0 +1,111 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestJobContextCodec {
+
+  @Test
+  public void testRoundTrip() {
+    JobContext jobContext = buildJobContext(100);
+    ZNRecord legacy = new ZNRecord(jobContext.getRecord());
+    // Values that are not restored to the same string by the typed encoding
+    legacy.getMapField("3").put("NUM_ATTEMPTS", "007");
+    legacy.getMapField("4").put("STATE", "UNKNOWN_STATE");
+    legacy.getMapField("5").put("CUSTOM_FIELD", "value");
+    legacy.setMapField("not_a_partition", Collections.singletonMap("INFO", "info"));
+
+    ZNRecord encoded = new JobContextCodec().encode("job", legacy);
+    Assert.assertTrue(JobContextCodec.isCompact(encoded));
+    Assert.assertTrue(encoded.getMapFields().isEmpty());
+    Assert.assertFalse(JobContextCodec.isCompact(legacy));
+
+    // The payload is persisted by the serializer
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    byte[] legacyBytes = serializer.serialize(legacy);
+    ZNRecord persisted = (ZNRecord) serializer.deserialize(serializer.serialize(encoded));
+    Assert.assertTrue(serializer.serialize(encoded).length < legacyBytes.length / 2);
+
+    JobContext decoded = new JobContext(persisted);
+    Assert.assertFalse(JobContextCodec.isCompact(persisted));
+    Assert.assertEquals(persisted.getMapFields(), legacy.getMapFields());
+    Assert.assertEquals(persisted.getSimpleFields(), legacy.getSimpleFields());
+    Assert.assertEquals(decoded.getPartitionState(10), TaskPartitionState.COMPLETED);
+    Assert.assertEquals(decoded.getPartitionFinishTime(10), jobContext.getPartitionFinishTime(10));
+    Assert.assertEquals(decoded.getAssignedParticipant(10), "localhost_10");
+  }
+
+  @Test
+  public void testLegacyRecordNotChanged() {
+    JobContext jobContext = buildJobContext(10);
+    ZNRecord legacy = new ZNRecord(jobContext.getRecord());
+    JobContext loaded = new JobContext(legacy);
+    Assert.assertEquals(legacy, jobContext.getRecord());
+    Assert.assertFalse(loaded.isJobContextModified());
+  }
+
+  @Test
+  public void testReuseEncodedTasks() {
+    JobContextCodec codec = new JobContextCodec();
+    JobContext jobContext = buildJobContext(10);
+    ZNRecord first = codec.encode("job", jobContext.getRecord());
+
+    jobContext.setPartitionState(3, TaskPartitionState.TASK_ERROR);
+    ZNRecord second = codec.encode("job", jobContext.getRecord());
+    Assert.assertFalse(Arrays.equals(first.getRawPayload(), second.getRawPayload()));
+    // Encoding with a fresh codec gives the same result as re-using the unchanged tasks
+    Assert.assertTrue(Arrays.equals(second.getRawPayload(),
+        new JobContextCodec().encode("job", jobContext.getRecord()).getRawPayload()));
+
+    ZNRecord decoded = new ZNRecord(second);
+    JobContextCodec.decode(decoded);
+    Assert.assertEquals(new JobContext(decoded).getPartitionState(3),
+        TaskPartitionState.TASK_ERROR);
+
+    // After the job is removed from the codec, all the tasks are encoded again
+    codec.removeJob("job");
+    Assert.assertTrue(Arrays.equals(second.getRawPayload(),
+        codec.encode("job", jobContext.getRecord()).getRawPayload()));
+  }
+
+  private JobContext buildJobContext(int numTasks) {
+    JobContext jobContext = new JobContext(new ZNRecord(TaskUtil.TASK_CONTEXT_KW));
+    long startTime = 1600000000000L;
+    jobContext.setName("workflow_job");
+    jobContext.setStartTime(startTime);
+    for (int i = 0; i < numTasks; i++) {
+      jobContext.setPartitionState(i, TaskPartitionState.COMPLETED);
+      jobContext.setPartitionNumAttempts(i, 1);
+      jobContext.setPartitionStartTime(i, startTime + i);
+      jobContext.setPartitionFinishTime(i, startTime + 1000 + i);
+      jobContext.setAssignedParticipant(i, "localhost_" + i);
+      jobContext.setTaskIdForPartition(i, "task_" + i);
+      jobContext.setPartitionTarget(i, "TestDB_" + i);
+    }
+    return jobContext;
+  }
+}
@@ -19,6 +19,11 @@ package org.apache.helix.task;
  * under the License.
  */
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
 import org.apache.helix.ConfigAccessor;
 import org.apache.helix.integration.task.TaskTestBase;
 import org.apache.helix.model.ClusterConfig;
@@ -97,4 +102,19 @@ public class TestTaskDriver extends TaskTestBase {
   public void testGetCurrentTaskThreadPoolSizeWrongInstanceName() {
     _taskDriver.getCurrentTaskThreadPoolSize(NON_EXISTENT_INSTANCE_NAME);
   }
+
+  @Test
+  public void testGetTransactionBatches() {
+    List<String> paths = Arrays.asList("a", "b", "c", "d", "e");
+    Map<String, Integer> sizeByPath =
+        ImmutableMap.of("a", 40, "b", 40, "c", 30, "d", 500, "e", 10);
+
+    // Bounded by bytes: a and b fit, c would exceed 100 bytes, d is too large alone
+    Assert.assertEquals(TaskDriver.getTransactionBatches(paths, sizeByPath, 10, 100), Arrays
+        .asList(Arrays.asList("a", "b"), Arrays.asList("c"), Arrays.asList("d"),
+            Arrays.asList("e")));
+    // Bounded by count
+    Assert.assertEquals(TaskDriver.getTransactionBatches(paths, sizeByPath, 2, 1000), Arrays
+        .asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Arrays.asList("e")));
+  }
 }
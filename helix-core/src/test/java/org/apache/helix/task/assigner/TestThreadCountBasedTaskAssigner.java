@@ -138,6 +138,31 @@ public class TestThreadCountBasedTaskAssigner extends AssignerTestBase {
     assertAssignmentResults(results.values(), true);
   }
 
+  @Test
+  public void testAssignmentAfterRelease() {
+    TaskAssigner assigner = new ThreadCountBasedTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(5, 10);
+    String quotaType = testQuotaTypes[0];
+    List<TaskConfig> tasks = createTaskConfigs(10);
+    Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+        assignableInstanceManager.getAssignableInstanceNames(), tasks, quotaType);
+    assertAssignmentResults(results.values(), true);
+
+    // Release the tasks of one instance, the next tasks go to the instance with the freed quota
+    String releasedInstance = "instance-0";
+    for (TaskAssignResult result : results.values()) {
+      if (result.getInstanceName().equals(releasedInstance)) {
+        assignableInstanceManager.release(releasedInstance, result.getTaskConfig(), quotaType);
+      }
+    }
+    results = assigner.assignTasks(assignableInstanceManager,
+        assignableInstanceManager.getAssignableInstanceNames(), createTaskConfigs(2), quotaType);
+    for (TaskAssignResult result : results.values()) {
+      Assert.assertTrue(result.isSuccessful());
+      Assert.assertEquals(result.getInstanceName(), releasedInstance);
+    }
+  }
+
   @Test(enabled = false, description = "Not enabling profiling tests")
   public void testAssignerProfiling() {
     int instanceCount = 1000;
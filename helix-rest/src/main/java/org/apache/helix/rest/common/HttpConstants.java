@@ -35,4 +35,7 @@ public class HttpConstants {
 
   /** REST request categorized as write. Can be used to categorize metric names */
   public static final String WRITE_REQUEST = "write";
+
+  /** Response header carrying the cursor of the next page of a paginated listing */
+  public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
 }
@@ -22,4 +22,19 @@ package org.apache.helix.rest.common;
 public class RestSystemPropertyKeys {
   // System property for REST HTTP request timeout
   public static final String REST_HTTP_TIMEOUT_MS = "rest.http.timeout.ms";
+
+  // System property to enable gzip encoding of the responses for clients that accept it
+  public static final String REST_GZIP_ENCODING_ENABLED = "rest.gzip.encoding.enabled";
+
+  // System properties for the watch-backed per cluster read cache, disabled by default
+  public static final String CLUSTER_READ_CACHE_ENABLED = "rest.cluster.read.cache.enabled";
+  // Max number of clusters cached at the same time, least recently accessed cluster is evicted
+  public static final String CLUSTER_READ_CACHE_MAX_CLUSTERS =
+      "rest.cluster.read.cache.max.clusters";
+  // Clusters that are not accessed for longer than this timeout are evicted
+  public static final String CLUSTER_READ_CACHE_IDLE_TIMEOUT_MS =
+      "rest.cluster.read.cache.idle.timeout.ms";
+  // Max number of records and of child name lists cached per cluster, least recently used first out
+  public static final String CLUSTER_READ_CACHE_MAX_ENTRIES_PER_CLUSTER =
+      "rest.cluster.read.cache.max.entries.per.cluster";
 }
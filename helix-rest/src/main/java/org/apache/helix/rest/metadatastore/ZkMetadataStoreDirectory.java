@@ -334,7 +334,10 @@ public class ZkMetadataStoreDirectory implements MetadataStoreDirectory, Routing
 
     TrieRoutingData trieRoutingData;
     try {
-      trieRoutingData = new TrieRoutingData(rawRoutingData);
+      MetadataStoreRoutingData previousRoutingData = _routingDataMap.get(namespace);
+      trieRoutingData = TrieRoutingData.update(
+          previousRoutingData instanceof TrieRoutingData ? (TrieRoutingData) previousRoutingData
+              : null, rawRoutingData);
     } catch (InvalidRoutingDataException e) {
       LOG.warn("TrieRoutingData is not created for namespace {}", namespace, e);
       _routingDataMap.remove(namespace);
@@ -0,0 +1,862 @@
+package org.apache.helix.rest.server;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyPathBuilder;
+import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.rest.common.RestSystemPropertyKeys;
+import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.DataUpdater;
+import org.apache.helix.zookeeper.zkclient.IZkChildListener;
+import org.apache.helix.zookeeper.zkclient.IZkDataListener;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.server.DataTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in read cache of the cluster metadata served by the REST server. Each cluster gets a
+ * caching data accessor that loads a znode or a child list from ZooKeeper on its first read,
+ * watches it, and serves the following reads from memory until the watch reports a change. So
+ * repeated GETs on configs, ideal states, external views and live instances do not go to
+ * ZooKeeper, while nothing is read or watched before it is requested. Writes always go straight
+ * to ZooKeeper and only drop the written znodes from the cache.
+ * The number of cached clusters is bounded, the least recently accessed cluster is evicted when
+ * the limit is reached, and clusters that are not accessed within the idle timeout are evicted
+ * in the background. Evicting a cluster unsubscribes all its watches from the shared zk client.
+ * The number of records and of child name lists cached per cluster is bounded as well, the least
+ * recently used entry is evicted and its watch unsubscribed when the limit is reached.
+ * Every change of the cached data moves the cluster to a new data version, which lets callers
+ * memoize values derived from the cached data until the cluster changes.
+ */
+public class ClusterReadCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterReadCache.class);
+
+  private static final int DEFAULT_MAX_CLUSTERS = 100;
+  private static final long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+  private static final int DEFAULT_MAX_ENTRIES_PER_CLUSTER = 100000;
+  private static final long MAX_EVICTION_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+  // Max number of memoized values per cluster, the least recently used value is dropped first
+  private static final int MAX_MEMOIZED_VALUES = 64;
+  // Data versions are unique across clusters and reloads, so a version is never reused
+  private static final AtomicLong DATA_VERSION_SEQUENCE = new AtomicLong();
+
+  // Metric names of the cluster read cache
+  static final String CACHE_HITS = MetricRegistry.name(ClusterReadCache.class, "cache_hits");
+  static final String CACHE_MISSES = MetricRegistry.name(ClusterReadCache.class, "cache_misses");
+  static final String CACHE_HIT_RATIO =
+      MetricRegistry.name(ClusterReadCache.class, "cache_hit_ratio");
+  static final String CACHED_CLUSTERS =
+      MetricRegistry.name(ClusterReadCache.class, "cached_clusters");
+  static final String CACHE_EVICTIONS =
+      MetricRegistry.name(ClusterReadCache.class, "cache_evictions");
+  static final String CACHE_ENTRY_EVICTIONS =
+      MetricRegistry.name(ClusterReadCache.class, "cache_entry_evictions");
+
+  private final RealmAwareZkClient _zkClient;
+  private final int _maxClusters;
+  private final long _idleTimeoutMs;
+  private final int _maxEntriesPerCluster;
+  private final Map<String, CachedCluster> _clusters = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService _evictionExecutor;
+
+  private final Meter _hits;
+  private final Meter _misses;
+  private final Counter _cachedClusters;
+  private final Counter _evictions;
+  private final Meter _entryEvictions;
+
+  /**
+   * @return true if the cluster read cache is enabled by system property
+   */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(RestSystemPropertyKeys.CLUSTER_READ_CACHE_ENABLED);
+  }
+
+  /**
+   * Create a cluster read cache with the limits configured by system properties.
+   * @param zkClient the ZNRecord zk client shared by the server context
+   * @param namespace the REST namespace used to register the metrics, may be null
+   */
+  public ClusterReadCache(RealmAwareZkClient zkClient, String namespace) {
+    this(zkClient, namespace,
+        Integer.getInteger(RestSystemPropertyKeys.CLUSTER_READ_CACHE_MAX_CLUSTERS,
+            DEFAULT_MAX_CLUSTERS),
+        Long.getLong(RestSystemPropertyKeys.CLUSTER_READ_CACHE_IDLE_TIMEOUT_MS,
+            DEFAULT_IDLE_TIMEOUT_MS),
+        Integer.getInteger(RestSystemPropertyKeys.CLUSTER_READ_CACHE_MAX_ENTRIES_PER_CLUSTER,
+            DEFAULT_MAX_ENTRIES_PER_CLUSTER));
+  }
+
+  ClusterReadCache(RealmAwareZkClient zkClient, String namespace, int maxClusters,
+      long idleTimeoutMs) {
+    this(zkClient, namespace, maxClusters, idleTimeoutMs, DEFAULT_MAX_ENTRIES_PER_CLUSTER);
+  }
+
+  ClusterReadCache(RealmAwareZkClient zkClient, String namespace, int maxClusters,
+      long idleTimeoutMs, int maxEntriesPerCluster) {
+    if (maxClusters <= 0 || idleTimeoutMs <= 0 || maxEntriesPerCluster <= 0) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid cluster read cache limits, max clusters: %d, idle timeout: %d ms, "
+              + "max entries per cluster: %d", maxClusters, idleTimeoutMs, maxEntriesPerCluster));
+    }
+    _zkClient = zkClient;
+    _maxClusters = maxClusters;
+    _idleTimeoutMs = idleTimeoutMs;
+    _maxEntriesPerCluster = maxEntriesPerCluster;
+
+    MetricRegistry metrics =
+        namespace == null ? new MetricRegistry() : SharedMetricRegistries.getOrCreate(namespace);
+    _hits = metrics.meter(CACHE_HITS);
+    _misses = metrics.meter(CACHE_MISSES);
+    _cachedClusters = metrics.counter(CACHED_CLUSTERS);
+    _evictions = metrics.counter(CACHE_EVICTIONS);
+    _entryEvictions = metrics.meter(CACHE_ENTRY_EVICTIONS);
+    metrics.gauge(CACHE_HIT_RATIO, () -> new RatioGauge() {
+      @Override
+      protected Ratio getRatio() {
+        return Ratio.of(_hits.getOneMinuteRate(),
+            _hits.getOneMinuteRate() + _misses.getOneMinuteRate());
+      }
+    });
+
+    _evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ClusterReadCacheEviction");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long evictionIntervalMs = Math.min(_idleTimeoutMs, MAX_EVICTION_INTERVAL_MS);
+    _evictionExecutor.scheduleWithFixedDelay(this::evictIdleClusters, evictionIntervalMs,
+        evictionIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Get the cached data accessor of the cluster, load the cluster into the cache if it is not
+   * cached yet.
+   * @param clusterName
+   * @return HelixDataAccessor backed by the cluster read cache
+   */
+  public HelixDataAccessor getDataAccessor(String clusterName) {
+    return getCachedCluster(clusterName)._dataAccessor;
+  }
+
+  /**
+   * Get the current data version of the cluster, load the cluster into the cache if it is not
+   * cached yet. The version changes whenever the cached data of the cluster changes.
+   * @param clusterName
+   * @return the data version
+   */
+  public long getDataVersion(String clusterName) {
+    return getCachedCluster(clusterName).getDataVersion();
+  }
+
+  /**
+   * Get a value memoized by {@link #memoize(String, String, long, Object)}.
+   * @param clusterName
+   * @param key
+   * @param dataVersion the data version the value is derived from
+   * @return the memoized value, null if there is none or the cluster has changed since the version
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getMemoized(String clusterName, String key, long dataVersion) {
+    CachedCluster cluster = _clusters.get(clusterName);
+    if (cluster == null || cluster.getDataVersion() != dataVersion) {
+      return null;
+    }
+    synchronized (cluster._memoizedValues) {
+      if (cluster._memoizedVersion != dataVersion) {
+        return null;
+      }
+      return (T) cluster._memoizedValues.get(key);
+    }
+  }
+
+  /**
+   * Memoize a value derived from the cached data of the cluster. The value is dropped as soon as
+   * the cached data of the cluster changes; it is not memoized at all if the data has already
+   * changed since the given version was read.
+   * @param clusterName
+   * @param key
+   * @param dataVersion the data version read before deriving the value
+   * @param value
+   */
+  public void memoize(String clusterName, String key, long dataVersion, Object value) {
+    CachedCluster cluster = _clusters.get(clusterName);
+    if (cluster == null || cluster.getDataVersion() != dataVersion) {
+      return;
+    }
+    synchronized (cluster._memoizedValues) {
+      if (cluster._memoizedVersion != dataVersion) {
+        cluster._memoizedValues.clear();
+        cluster._memoizedVersion = dataVersion;
+      }
+      cluster._memoizedValues.put(key, value);
+    }
+  }
+
+  private CachedCluster getCachedCluster(String clusterName) {
+    CachedCluster cluster = _clusters.get(clusterName);
+    if (cluster == null) {
+      synchronized (this) {
+        cluster = _clusters.get(clusterName);
+        if (cluster == null) {
+          if (_clusters.size() >= _maxClusters) {
+            evictLeastRecentlyAccessedCluster();
+          }
+          cluster = new CachedCluster(clusterName);
+          _clusters.put(clusterName, cluster);
+          _cachedClusters.inc();
+          LOG.info("ClusterReadCache: loaded cluster {}", clusterName);
+        }
+      }
+    }
+    cluster._lastAccessTime = System.currentTimeMillis();
+    return cluster;
+  }
+
+  /**
+   * @return the names of the clusters currently cached
+   */
+  public Set<String> getCachedClusters() {
+    return _clusters.keySet();
+  }
+
+  /**
+   * Evict the cluster from the cache and release its watches.
+   * @param clusterName
+   */
+  public synchronized void evict(String clusterName) {
+    CachedCluster cluster = _clusters.remove(clusterName);
+    if (cluster != null) {
+      cluster.release();
+      _cachedClusters.dec();
+      _evictions.inc();
+      LOG.info("ClusterReadCache: evicted cluster {}", clusterName);
+    }
+  }
+
+  /**
+   * Evict all the cached clusters.
+   */
+  public synchronized void clear() {
+    for (String clusterName : new ArrayList<>(_clusters.keySet())) {
+      evict(clusterName);
+    }
+  }
+
+  /**
+   * Evict all the cached clusters and stop the background eviction.
+   */
+  public void close() {
+    _evictionExecutor.shutdownNow();
+    clear();
+  }
+
+  synchronized void evictIdleClusters() {
+    long idleSince = System.currentTimeMillis() - _idleTimeoutMs;
+    try {
+      for (Map.Entry<String, CachedCluster> entry : new ArrayList<>(_clusters.entrySet())) {
+        if (entry.getValue()._lastAccessTime < idleSince) {
+          evict(entry.getKey());
+        }
+      }
+    } catch (Exception e) {
+      LOG.warn("ClusterReadCache: failed to evict idle clusters", e);
+    }
+  }
+
+  private void evictLeastRecentlyAccessedCluster() {
+    String lruCluster = null;
+    long lruAccessTime = Long.MAX_VALUE;
+    for (Map.Entry<String, CachedCluster> entry : _clusters.entrySet()) {
+      if (entry.getValue()._lastAccessTime < lruAccessTime) {
+        lruAccessTime = entry.getValue()._lastAccessTime;
+        lruCluster = entry.getKey();
+      }
+    }
+    if (lruCluster != null) {
+      evict(lruCluster);
+    }
+  }
+
+  /**
+   * The read mostly paths of a cluster that are cached. Current states, messages and the property
+   * store change too often or are too large to be worth caching.
+   */
+  static List<String> getCachedPaths(String clusterName) {
+    return Arrays.asList(PropertyPathBuilder.clusterConfig(clusterName),
+        PropertyPathBuilder.instanceConfig(clusterName),
+        PropertyPathBuilder.resourceConfig(clusterName),
+        PropertyPathBuilder.stateModelDef(clusterName),
+        PropertyPathBuilder.idealState(clusterName),
+        PropertyPathBuilder.externalView(clusterName),
+        PropertyPathBuilder.liveInstance(clusterName));
+  }
+
+  private class CachedCluster {
+    private final CachingDataAccessor _baseDataAccessor;
+    private final HelixDataAccessor _dataAccessor;
+    private volatile long _lastAccessTime;
+    // Values derived from the data of _memoizedVersion, in access order for LRU eviction
+    private final Map<String, Object> _memoizedValues =
+        new LinkedHashMap<String, Object>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_MEMOIZED_VALUES;
+          }
+        };
+    private long _memoizedVersion = -1;
+
+    CachedCluster(String clusterName) {
+      _baseDataAccessor = new CachingDataAccessor(_zkClient, getCachedPaths(clusterName));
+      _dataAccessor = new ZKHelixDataAccessor(clusterName, _baseDataAccessor);
+      _lastAccessTime = System.currentTimeMillis();
+    }
+
+    long getDataVersion() {
+      return _baseDataAccessor._dataVersion;
+    }
+
+    void release() {
+      _baseDataAccessor.release();
+    }
+  }
+
+  /**
+   * ZkBaseDataAccessor on the shared zk client that caches the records, stats and child names read
+   * under the cached paths. An entry is loaded on the first read after subscribing its watch, and
+   * dropped when the watch fires or the znode is written through this accessor. The writes are not
+   * cached. Returned records are copies, so REST resources modifying a record in place do not
+   * corrupt the cache.
+   * The records and the child name lists are each kept in access order and bounded by the max
+   * entries per cluster. Evicting an entry also unsubscribes its watch, so an entry is only cached
+   * while its path is watched.
+   */
+  private class CachingDataAccessor extends ZkBaseDataAccessor<ZNRecord>
+      implements IZkDataListener, IZkChildListener {
+    private final List<String> _cachedPaths;
+    // Guarded by this accessor, in access order for LRU eviction
+    private final Map<String, CachedRecord> _records =
+        new LinkedHashMap<String, CachedRecord>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedRecord> eldest) {
+            if (size() <= _maxEntriesPerCluster) {
+              return false;
+            }
+            unwatch(eldest.getKey(), _dataWatches, true);
+            _entryEvictions.mark();
+            return true;
+          }
+        };
+    private final Map<String, List<String>> _childNames =
+        new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            if (size() <= _maxEntriesPerCluster) {
+              return false;
+            }
+            unwatch(eldest.getKey(), _childWatches, false);
+            _entryEvictions.mark();
+            return true;
+          }
+        };
+    // The paths watched by this accessor, all of them are unsubscribed on release
+    private final Set<String> _dataWatches = ConcurrentHashMap.newKeySet();
+    private final Set<String> _childWatches = ConcurrentHashMap.newKeySet();
+    private final Object _watchLock = new Object();
+    private boolean _released = false;
+    private volatile long _dataVersion = DATA_VERSION_SEQUENCE.incrementAndGet();
+
+    CachingDataAccessor(RealmAwareZkClient zkClient, List<String> cachedPaths) {
+      super(zkClient);
+      _cachedPaths = cachedPaths;
+    }
+
+    @Override
+    public ZNRecord get(String path, Stat stat, int options) {
+      if (!isCachedPath(path)) {
+        return super.get(path, stat, options);
+      }
+      CachedRecord cachedRecord = getCachedRecord(path);
+      if (cachedRecord != null) {
+        _hits.mark();
+        return cachedRecord.copyTo(stat);
+      }
+      _misses.mark();
+      long dataVersion = _dataVersion;
+      boolean watched = watchData(path);
+      Stat readStat = new Stat();
+      ZNRecord record = super.get(path, readStat, options);
+      if (record == null) {
+        return null;
+      }
+      if (stat != null) {
+        DataTree.copyStat(readStat, stat);
+      }
+      if (watched) {
+        cache(_records, _dataWatches, path, new CachedRecord(new ZNRecord(record), readStat),
+            dataVersion);
+      }
+      return record;
+    }
+
+    @Deprecated
+    @Override
+    public List<ZNRecord> get(List<String> paths, List<Stat> stats, int options) {
+      return get(paths, stats, options, false);
+    }
+
+    @Override
+    public List<ZNRecord> get(List<String> paths, List<Stat> stats, int options,
+        boolean throwException) throws HelixMetaDataAccessException {
+      List<ZNRecord> records = new ArrayList<>(Collections.nCopies(paths.size(), null));
+      List<Stat> resultStats = new ArrayList<>(Collections.nCopies(paths.size(), null));
+      List<Integer> missIndexes = new ArrayList<>();
+      for (int i = 0; i < paths.size(); i++) {
+        CachedRecord cachedRecord =
+            isCachedPath(paths.get(i)) ? getCachedRecord(paths.get(i)) : null;
+        if (cachedRecord == null) {
+          missIndexes.add(i);
+        } else {
+          Stat stat = new Stat();
+          records.set(i, cachedRecord.copyTo(stat));
+          resultStats.set(i, stat);
+        }
+      }
+      int hitCount = paths.size() - missIndexes.size();
+      if (hitCount > 0) {
+        _hits.mark(hitCount);
+      }
+
+      if (!missIndexes.isEmpty()) {
+        long dataVersion = _dataVersion;
+        List<String> missPaths = new ArrayList<>(missIndexes.size());
+        boolean[] watched = new boolean[missIndexes.size()];
+        for (int j = 0; j < missIndexes.size(); j++) {
+          String path = paths.get(missIndexes.get(j));
+          missPaths.add(path);
+          if (isCachedPath(path)) {
+            _misses.mark();
+            watched[j] = watchData(path);
+          }
+        }
+        List<Stat> missStats = new ArrayList<>();
+        List<ZNRecord> missRecords = super.get(missPaths, missStats, options, throwException);
+        for (int j = 0; j < missIndexes.size(); j++) {
+          ZNRecord record = missRecords.get(j);
+          Stat stat = missStats.get(j);
+          records.set(missIndexes.get(j), record);
+          resultStats.set(missIndexes.get(j), stat);
+          if (watched[j] && record != null && stat != null) {
+            cache(_records, _dataWatches, missPaths.get(j),
+                new CachedRecord(new ZNRecord(record), stat), dataVersion);
+          }
+        }
+      }
+
+      if (stats != null) {
+        stats.clear();
+        stats.addAll(resultStats);
+      }
+      return records;
+    }
+
+    @Override
+    public List<String> getChildNames(String parentPath, int options) {
+      if (!isCachedPath(parentPath)) {
+        return super.getChildNames(parentPath, options);
+      }
+      List<String> childNames = getCachedChildNames(parentPath);
+      if (childNames != null) {
+        _hits.mark();
+        return new ArrayList<>(childNames);
+      }
+      _misses.mark();
+      long dataVersion = _dataVersion;
+      boolean watched = watchChildren(parentPath);
+      childNames = super.getChildNames(parentPath, options);
+      if (childNames != null && watched) {
+        cache(_childNames, _childWatches, parentPath, new ArrayList<>(childNames), dataVersion);
+      }
+      return childNames;
+    }
+
+    @Deprecated
+    @Override
+    public List<ZNRecord> getChildren(String parentPath, List<Stat> stats, int options) {
+      return getChildren(parentPath, stats, options, false);
+    }
+
+    @Override
+    public List<ZNRecord> getChildren(String parentPath, List<Stat> stats, int options,
+        int retryCount, int retryInterval) throws HelixMetaDataAccessException {
+      int readCount = retryCount + 1;
+      while (true) {
+        try {
+          return getChildren(parentPath, stats, options, true);
+        } catch (HelixMetaDataAccessException e) {
+          if (--readCount <= 0) {
+            throw new HelixMetaDataAccessException(
+                String.format("Failed to get full list of %s", parentPath), e);
+          }
+          try {
+            Thread.sleep(retryInterval);
+          } catch (InterruptedException interruptedException) {
+            throw new HelixMetaDataAccessException("Fail to interrupt the sleep",
+                interruptedException);
+          }
+        }
+      }
+    }
+
+    private List<ZNRecord> getChildren(String parentPath, List<Stat> stats, int options,
+        boolean throwException) {
+      List<String> childNames = getChildNames(parentPath, options);
+      if (childNames == null || childNames.isEmpty()) {
+        if (stats != null) {
+          stats.clear();
+        }
+        return Collections.emptyList();
+      }
+      List<String> paths = new ArrayList<>(childNames.size());
+      for (String childName : childNames) {
+        paths.add(parentPath + "/" + childName);
+      }
+      List<Stat> curStats = new ArrayList<>(paths.size());
+      List<ZNRecord> records = get(paths, curStats, options, throwException);
+      // Remove the children deleted after their names were read
+      List<ZNRecord> children = new ArrayList<>(records.size());
+      List<Stat> childStats = new ArrayList<>(records.size());
+      for (int i = 0; i < records.size(); i++) {
+        if (curStats.get(i) != null) {
+          children.add(records.get(i));
+          childStats.add(curStats.get(i));
+        }
+      }
+      if (stats != null) {
+        stats.clear();
+        stats.addAll(childStats);
+      }
+      return children;
+    }
+
+    // Writes go to ZooKeeper, the written znodes are dropped from the cache so the next read
+    // returns the written data even before the watch fires.
+
+    @Override
+    public AccessResult doCreate(String path, ZNRecord record, int options, long ttl) {
+      try {
+        return super.doCreate(path, record, options, ttl);
+      } finally {
+        invalidate(path);
+      }
+    }
+
+    @Override
+    public AccessResult doSet(String path, ZNRecord record, int expectVersion, int options) {
+      try {
+        return super.doSet(path, record, expectVersion, options);
+      } finally {
+        invalidate(path);
+      }
+    }
+
+    @Override
+    public AccessResult doUpdate(String path, DataUpdater<ZNRecord> updater, int options) {
+      try {
+        return super.doUpdate(path, updater, options);
+      } finally {
+        invalidate(path);
+      }
+    }
+
+    @Override
+    public boolean multiSet(Map<String, DataUpdater<ZNRecord>> updaterByPath) {
+      try {
+        return super.multiSet(updaterByPath);
+      } finally {
+        invalidate(updaterByPath.keySet());
+      }
+    }
+
+    @Override
+    public boolean remove(String path, int options) {
+      try {
+        return super.remove(path, options);
+      } finally {
+        invalidate(path);
+      }
+    }
+
+    @Override
+    public boolean removeWithExpectedVersion(String path, int options, int expectedVersion) {
+      try {
+        return super.removeWithExpectedVersion(path, options, expectedVersion);
+      } finally {
+        invalidate(path);
+      }
+    }
+
+    @Override
+    public boolean[] createChildren(List<String> paths, List<ZNRecord> records, int options) {
+      try {
+        return super.createChildren(paths, records, options);
+      } finally {
+        invalidate(paths);
+      }
+    }
+
+    @Override
+    public boolean[] createChildren(List<String> paths, List<ZNRecord> records, int options,
+        long ttl) {
+      try {
+        return super.createChildren(paths, records, options, ttl);
+      } finally {
+        invalidate(paths);
+      }
+    }
+
+    @Override
+    public boolean[] setChildren(List<String> paths, List<ZNRecord> records, int options) {
+      try {
+        return super.setChildren(paths, records, options);
+      } finally {
+        invalidate(paths);
+      }
+    }
+
+    @Override
+    public boolean[] updateChildren(List<String> paths, List<DataUpdater<ZNRecord>> updaters,
+        int options) {
+      try {
+        return super.updateChildren(paths, updaters, options);
+      } finally {
+        invalidate(paths);
+      }
+    }
+
+    @Override
+    public boolean[] remove(List<String> paths, int options) {
+      try {
+        return super.remove(paths, options);
+      } finally {
+        invalidate(paths);
+      }
+    }
+
+    @Override
+    public void handleDataChange(String dataPath, Object data) {
+      invalidate(dataPath);
+    }
+
+    @Override
+    public void handleDataDeleted(String dataPath) {
+      // Stop watching the deleted znode, it is watched again if it is read after being recreated
+      synchronized (_watchLock) {
+        if (_dataWatches.remove(dataPath)) {
+          super.unsubscribeDataChanges(dataPath, this);
+        }
+        if (_childWatches.remove(dataPath)) {
+          super.unsubscribeChildChanges(dataPath, this);
+        }
+      }
+      synchronized (this) {
+        invalidate(dataPath);
+        _childNames.remove(dataPath);
+      }
+    }
+
+    @Override
+    public void handleChildChange(String parentPath, List<String> currentChildren) {
+      synchronized (this) {
+        _childNames.remove(parentPath);
+        _dataVersion = DATA_VERSION_SEQUENCE.incrementAndGet();
+      }
+    }
+
+    /**
+     * Unsubscribe all the watches from the shared zk client and stop caching. Reads after the
+     * release go to ZooKeeper directly.
+     */
+    void release() {
+      synchronized (_watchLock) {
+        _released = true;
+        for (String path : _dataWatches) {
+          super.unsubscribeDataChanges(path, this);
+        }
+        for (String path : _childWatches) {
+          super.unsubscribeChildChanges(path, this);
+        }
+        _dataWatches.clear();
+        _childWatches.clear();
+      }
+      synchronized (this) {
+        _records.clear();
+        _childNames.clear();
+      }
+    }
+
+    private boolean isCachedPath(String path) {
+      for (String cachedPath : _cachedPaths) {
+        if (path.startsWith(cachedPath)
+            && (path.length() == cachedPath.length() || path.charAt(cachedPath.length()) == '/')) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Subscribe the data watch of the path if it is not watched yet.
+     * @return true if the path is watched, so its record can be cached
+     */
+    private boolean watchData(String path) {
+      synchronized (_watchLock) {
+        if (_released) {
+          return false;
+        }
+        if (_dataWatches.add(path)) {
+          super.subscribeDataChanges(path, this);
+        }
+        return true;
+      }
+    }
+
+    /**
+     * Subscribe the child watch of the path if it is not watched yet.
+     * @return true if the path is watched, so its child names can be cached
+     */
+    private boolean watchChildren(String path) {
+      synchronized (_watchLock) {
+        if (_released) {
+          return false;
+        }
+        if (_childWatches.add(path)) {
+          super.subscribeChildChanges(path, this);
+        }
+        return true;
+      }
+    }
+
+    private synchronized CachedRecord getCachedRecord(String path) {
+      return _records.get(path);
+    }
+
+    private synchronized List<String> getCachedChildNames(String path) {
+      return _childNames.get(path);
+    }
+
+    /**
+     * Cache the value read from ZooKeeper unless any cached data changed since the read started,
+     * in which case the value may be stale already, or the path is not watched anymore because
+     * its entry was evicted meanwhile.
+     */
+    private synchronized <V> void cache(Map<String, V> cache, Set<String> watches, String path,
+        V value, long dataVersion) {
+      if (_dataVersion == dataVersion && watches.contains(path)) {
+        cache.put(path, value);
+      }
+    }
+
+    /**
+     * Unsubscribe the watch of an evicted entry, it is watched again if it is read later.
+     */
+    private void unwatch(String path, Set<String> watches, boolean dataWatch) {
+      synchronized (_watchLock) {
+        if (watches.remove(path)) {
+          if (dataWatch) {
+            super.unsubscribeDataChanges(path, this);
+          } else {
+            super.unsubscribeChildChanges(path, this);
+          }
+        }
+      }
+    }
+
+    private synchronized void invalidate(String path) {
+      _records.remove(path);
+      // The child list of the parent may have changed as well
+      int index = path.lastIndexOf('/');
+      if (index > 0) {
+        _childNames.remove(path.substring(0, index));
+      }
+      _dataVersion = DATA_VERSION_SEQUENCE.incrementAndGet();
+    }
+
+    private void invalidate(Iterable<String> paths) {
+      for (String path : paths) {
+        invalidate(path);
+      }
+    }
+  }
+
+  /**
+   * A cached record with the stat it was read with. The returned records copy every map and list
+   * field value, as the ZNRecord copy constructor shares them with the cached record.
+   */
+  private static class CachedRecord {
+    private final ZNRecord _record;
+    private final Stat _stat;
+
+    CachedRecord(ZNRecord record, Stat stat) {
+      _record = record;
+      _stat = stat;
+    }
+
+    ZNRecord copyTo(Stat stat) {
+      if (stat != null) {
+        DataTree.copyStat(_stat, stat);
+      }
+      ZNRecord record = new ZNRecord(_record);
+      for (Map.Entry<String, Map<String, String>> mapField : _record.getMapFields().entrySet()) {
+        record.setMapField(mapField.getKey(), mapField.getValue() == null ? null
+            : new TreeMap<>(mapField.getValue()));
+      }
+      for (Map.Entry<String, List<String>> listField : _record.getListFields().entrySet()) {
+        record.setListField(listField.getKey(), listField.getValue() == null ? null
+            : new ArrayList<>(listField.getValue()));
+      }
+      return record;
+    }
+  }
+}
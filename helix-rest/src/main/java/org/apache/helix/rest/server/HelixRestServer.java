@@ -40,6 +40,7 @@ import org.apache.helix.rest.acl.AclRegister;
 import org.apache.helix.rest.acl.NoopAclRegister;
 import org.apache.helix.rest.common.ContextPropertyKeys;
 import org.apache.helix.rest.common.HelixRestNamespace;
+import org.apache.helix.rest.common.RestSystemPropertyKeys;
 import org.apache.helix.rest.common.ServletType;
 import org.apache.helix.rest.server.auditlog.AuditLogger;
 import org.apache.helix.rest.server.authValidator.AuthValidator;
@@ -63,8 +64,10 @@ import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.glassfish.jersey.message.GZipEncoder;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
+import org.glassfish.jersey.server.filter.EncodingFilter;
 import org.glassfish.jersey.servlet.ServletContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -214,7 +217,7 @@ public class HelixRestServer {
 
     cfg.property(ContextPropertyKeys.SERVER_CONTEXT.name(),
         new ServerContext(namespace.getMetadataStoreAddress(), namespace.isMultiZkEnabled(),
-            namespace.getMsdsEndpoint()));
+            namespace.getMsdsEndpoint(), namespace.getName()));
     if (type == ServletType.DEFAULT_SERVLET) {
       cfg.property(ContextPropertyKeys.ALL_NAMESPACES.name(), _helixNamespaces);
     }
@@ -225,6 +228,10 @@ public class HelixRestServer {
       // NOTE: CORS is disabled by default unless otherwise specified in System Properties.
       cfg.register(new CORSFilter());
     }
+    if (Boolean.getBoolean(RestSystemPropertyKeys.REST_GZIP_ENCODING_ENABLED)) {
+      // NOTE: responses are only encoded if the request has the Accept-Encoding: gzip header.
+      EncodingFilter.enableFor(cfg, GZipEncoder.class);
+    }
     cfg.register(new AuditLogFilter(_auditLoggers));
     cfg.register(new ClusterAuthFilter(_clusterAuthValidator));
     cfg.register(new NamespaceAuthFilter(_namespaceAuthValidator));
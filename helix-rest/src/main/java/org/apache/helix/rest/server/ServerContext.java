@@ -64,6 +64,7 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
   private final String _zkAddr;
   private final String _msdsEndpoint;
   private final boolean _isMultiZkEnabled;
+  private final String _namespace;
   private volatile RealmAwareZkClient _zkClient;
   private volatile RealmAwareZkClient _byteArrayZkClient;
 
@@ -79,6 +80,8 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
   private final Map<String, TaskDriver> _taskDriverPool;
   // Create ZkBucketDataAccessor for ReadOnlyWagedRebalancer.
   private volatile ZkBucketDataAccessor _zkBucketDataAccessor;
+  // Watch-backed per cluster read cache, only used if enabled by system property
+  private volatile ClusterReadCache _clusterReadCache;
 
   /**
    * Multi-ZK support
@@ -98,9 +101,22 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
    * @param msdsEndpoint if given, this server context will try to read routing data from this MSDS.
    */
   public ServerContext(String zkAddr, boolean isMultiZkEnabled, String msdsEndpoint) {
+    this(zkAddr, isMultiZkEnabled, msdsEndpoint, null);
+  }
+
+  /**
+   * Initializes a ServerContext for this namespace.
+   * @param zkAddr routing ZK address (on multi-zk mode)
+   * @param isMultiZkEnabled boolean flag for whether multi-zk mode is enabled
+   * @param msdsEndpoint if given, this server context will try to read routing data from this MSDS.
+   * @param namespace name of the namespace, used to register the metrics of this server context
+   */
+  public ServerContext(String zkAddr, boolean isMultiZkEnabled, String msdsEndpoint,
+      String namespace) {
     _zkAddr = zkAddr;
     _isMultiZkEnabled = isMultiZkEnabled;
     _msdsEndpoint = msdsEndpoint; // only applicable on multi-zk mode
+    _namespace = namespace;
 
     // We should NOT initiate _zkClient and anything that depends on _zkClient in
     // constructor, as it is reasonable to start up HelixRestServer first and then
@@ -250,6 +266,9 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
   }
 
   public HelixDataAccessor getDataAccessor(String clusterName) {
+    if (ClusterReadCache.isEnabled()) {
+      return getClusterReadCache().getDataAccessor(clusterName);
+    }
     HelixDataAccessor dataAccessor = _helixDataAccessorPool.get(clusterName);
     if (dataAccessor == null) {
       synchronized (this) {
@@ -265,6 +284,21 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
     return dataAccessor;
   }
 
+  /**
+   * Returns a lazily-instantiated watch-backed read cache of the cluster metadata.
+   * @return
+   */
+  public ClusterReadCache getClusterReadCache() {
+    if (_clusterReadCache == null) {
+      synchronized (this) {
+        if (_clusterReadCache == null) {
+          _clusterReadCache = new ClusterReadCache(getRealmAwareZkClient(), _namespace);
+        }
+      }
+    }
+    return _clusterReadCache;
+  }
+
   /**
    * Returns a lazily-instantiated ZkBaseDataAccessor for the byte array type.
    * @return
@@ -293,6 +327,9 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
   }
 
   public void close() {
+    if (_clusterReadCache != null) {
+      _clusterReadCache.close();
+    }
     if (_zkClient != null) {
       _zkClient.close();
     }
@@ -381,6 +418,12 @@ public class ServerContext implements IZkDataListener, IZkChildListener, IZkStat
         // Reset RoutingDataManager's cache
         RoutingDataManager.getInstance().reset(true);
 
+        // Release the watches of the cached clusters before closing the ZkClient
+        if (_clusterReadCache != null) {
+          _clusterReadCache.close();
+          _clusterReadCache = null;
+        }
+
         // Close all ZkClients
         if (_zkClient != null && !_zkClient.isClosed()) {
           _zkClient.close();
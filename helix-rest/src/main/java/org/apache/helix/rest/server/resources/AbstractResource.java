@@ -29,8 +29,11 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Application;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -99,6 +102,9 @@ public class AbstractResource {
 
   @Context
   protected HttpServletRequest _servletRequest;
+
+  @Context
+  protected Request _request;
   protected AuditLog.Builder _auditLogBuilder;
 
   protected void addExceptionToAuditLog(Exception ex) {
@@ -186,6 +192,40 @@ public class AbstractResource {
     }
   }
 
+  /**
+   * Writes a JSON response with a Jackson generator.
+   */
+  @FunctionalInterface
+  protected interface JsonWriter {
+    void write(JsonGenerator generator) throws IOException;
+  }
+
+  protected Response StreamingJSONRepresentation(JsonWriter writer) {
+    return StreamingJSONRepresentation(writer, null, null);
+  }
+
+  /**
+   * Stream the JSON response to the client while it is generated, instead of serializing the whole
+   * response into a String first. The output is formatted the same as {@link #toJson(Object)}.
+   * Note that the status is committed before the entity is written, so errors must be detected
+   * before calling this method.
+   */
+  protected Response StreamingJSONRepresentation(JsonWriter writer, String headerName,
+      Object headerValue) {
+    StreamingOutput output = outputStream -> {
+      try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream)) {
+        generator.useDefaultPrettyPrinter();
+        writer.write(generator);
+        generator.writeRaw('\n');
+      }
+    };
+    Response.ResponseBuilder builder = Response.ok(output, MediaType.APPLICATION_JSON_TYPE);
+    if (headerName != null && headerName.length() != 0) {
+      builder.header(headerName, headerValue);
+    }
+    return builder.build();
+  }
+
   protected static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   // Needs a separate object reader for ZNRecord annotated with Jackson 1
@@ -20,13 +20,25 @@ package org.apache.helix.rest.server.resources.helix;
  */
 
 import java.io.IOException;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.ConfigAccessor;
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.manager.zk.ZkBucketDataAccessor;
 import org.apache.helix.rest.common.ContextPropertyKeys;
+import org.apache.helix.rest.server.ClusterReadCache;
 import org.apache.helix.rest.server.ServerContext;
 import org.apache.helix.rest.server.resources.AbstractResource;
 import org.apache.helix.task.TaskDriver;
@@ -34,6 +46,9 @@ import org.apache.helix.tools.ClusterSetup;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.impl.client.ZkClient;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -42,6 +57,7 @@ import org.apache.helix.zookeeper.impl.client.ZkClient;
  * metadata store.
  */
 public class AbstractHelixResource extends AbstractResource {
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractHelixResource.class);
 
   public RealmAwareZkClient getRealmAwareZkClient() {
     ServerContext serverContext = getServerContext();
@@ -86,6 +102,113 @@ public class AbstractHelixResource extends AbstractResource {
     return getServerContext().getZkBucketDataAccessor();
   }
 
+  protected ClusterReadCache getClusterReadCache() {
+    return getServerContext().getClusterReadCache();
+  }
+
+  /**
+   * Serve a read request of a single znode as a conditional GET. The znode data and stat are read
+   * together, and the response carries an ETag derived from that stat, so the tag always matches
+   * the returned content. If the If-None-Match header of the request matches the ETag, 304 Not
+   * Modified is returned without serializing the znode data.
+   * Znodes with children, e.g. bucketized ideal states and external views, are served without
+   * ETag since their content is not covered by the stat of the parent znode.
+   * @param clusterId
+   * @param key the property key of the znode returned by the request
+   * @param responseBuilder builds the response from the znode record, which is null if the znode
+   *                        does not exist
+   * @return
+   */
+  protected Response conditionalGet(String clusterId, PropertyKey key,
+      Function<ZNRecord, Response> responseBuilder) {
+    HelixDataAccessor accessor = getDataAccssor(clusterId);
+    Stat stat = new Stat();
+    ZNRecord record;
+    try {
+      record = accessor.getBaseDataAccessor().get(key.getPath(), stat, AccessOption.PERSISTENT);
+      if (record != null && stat.getNumChildren() > 0) {
+        // Read the merged content of the bucketized znode, it is served without ETag.
+        HelixProperty property = accessor.getProperty(key);
+        return responseBuilder.apply(property == null ? null : property.getRecord());
+      }
+    } catch (Exception e) {
+      LOG.error("Failed to read {} of cluster {}.", key.getPath(), clusterId, e);
+      return serverError(e);
+    }
+    if (record == null) {
+      return responseBuilder.apply(null);
+    }
+
+    // Weak tag since the representation may be gzip encoded
+    EntityTag entityTag =
+        new EntityTag(Long.toHexString(stat.getMzxid()) + "-" + stat.getVersion(), true);
+    Response.ResponseBuilder notModified = _request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      return notModified.tag(entityTag).build();
+    }
+    Response response = responseBuilder.apply(record);
+    if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+      return response;
+    }
+    return Response.fromResponse(response).tag(entityTag).build();
+  }
+
+  /**
+   * Get the page of names that follow the cursor in natural order. If neither cursor nor limit is
+   * given, all the names are returned in their original order.
+   * @param names all the names of the listing
+   * @param cursor the last name of the previous page, null for the first page
+   * @param limit max number of names in the page, no limit if not positive
+   * @return the page of names and the cursor of the next page
+   */
+  protected static NamePage getNamePage(Collection<String> names, String cursor, int limit) {
+    if (cursor == null && limit <= 0) {
+      return new NamePage(new ArrayList<>(names), null);
+    }
+    List<String> sortedNames = new ArrayList<>(names);
+    Collections.sort(sortedNames);
+    int fromIndex = 0;
+    if (cursor != null) {
+      int index = Collections.binarySearch(sortedNames, cursor);
+      fromIndex = index >= 0 ? index + 1 : -index - 1;
+    }
+    int toIndex = limit > 0 ? (int) Math.min(sortedNames.size(), (long) fromIndex + limit)
+        : sortedNames.size();
+    List<String> page = new ArrayList<>(sortedNames.subList(fromIndex, toIndex));
+    String nextCursor = toIndex < sortedNames.size() ? sortedNames.get(toIndex - 1) : null;
+    return new NamePage(page, nextCursor);
+  }
+
+  protected static void writeStringArray(JsonGenerator generator, String fieldName,
+      List<String> values) throws IOException {
+    generator.writeArrayFieldStart(fieldName);
+    for (String value : values) {
+      generator.writeString(value);
+    }
+    generator.writeEndArray();
+  }
+
+  protected static class NamePage {
+    private final List<String> _names;
+    private final String _nextCursor;
+
+    NamePage(List<String> names, String nextCursor) {
+      _names = names;
+      _nextCursor = nextCursor;
+    }
+
+    public List<String> getNames() {
+      return _names;
+    }
+
+    /**
+     * @return the cursor of the next page, null if this is the last page
+     */
+    public String getNextCursor() {
+      return _nextCursor;
+    }
+  }
+
   protected static ZNRecord toZNRecord(String data)
       throws IOException {
     return ZNRECORD_READER.readValue(data);
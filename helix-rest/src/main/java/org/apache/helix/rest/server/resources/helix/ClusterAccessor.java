@@ -110,14 +110,16 @@ public class ClusterAccessor extends AbstractHelixResource {
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
   @ApiOperation (value = "Return list of all clusters", notes = "Helix REST Cluster Get API")
-  public Response getClusters() {
+  public Response getClusters(@QueryParam("cursor") String cursor,
+      @DefaultValue("0") @QueryParam("limit") int limit) {
     HelixAdmin helixAdmin = getHelixAdmin();
-    List<String> clusters = helixAdmin.getClusters();
+    NamePage page = getNamePage(helixAdmin.getClusters(), cursor, limit);
 
-    Map<String, List<String>> dataMap = new HashMap<>();
-    dataMap.put(ClusterProperties.clusters.name(), clusters);
-
-    return JSONRepresentation(dataMap);
+    return StreamingJSONRepresentation(generator -> {
+      generator.writeStartObject();
+      writeStringArray(generator, ClusterProperties.clusters.name(), page.getNames());
+      generator.writeEndObject();
+    }, HttpConstants.NEXT_CURSOR_HEADER, page.getNextCursor());
   }
 
   @ClusterAuth
@@ -492,22 +494,15 @@ public class ClusterAccessor extends AbstractHelixResource {
   @GET
   @Path("{clusterId}/configs")
   public Response getClusterConfig(@PathParam("clusterId") String clusterId) {
-    ConfigAccessor accessor = getConfigAccessor();
-    ClusterConfig config = null;
-    try {
-      config = accessor.getClusterConfig(clusterId);
-    } catch (HelixException ex) {
-      // cluster not found.
-      LOG.info("Failed to get cluster config for cluster {}, cluster not found. Exception: {}.",
-          clusterId, ex);
-    } catch (Exception ex) {
-      LOG.error("Failed to get cluster config for cluster {}. Exception: {}", clusterId, ex);
-      return serverError(ex);
-    }
-    if (config == null) {
-      return notFound();
-    }
-    return JSONRepresentation(config.getRecord());
+    PropertyKey key = new PropertyKey.Builder(clusterId).clusterConfig();
+    return conditionalGet(clusterId, key, record -> {
+      if (record == null) {
+        // cluster not found.
+        LOG.info("Failed to get cluster config for cluster {}, cluster not found.", clusterId);
+        return notFound();
+      }
+      return JSONRepresentation(record);
+    });
   }
 
 
@@ -20,6 +20,7 @@ package org.apache.helix.rest.server.resources.helix;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -37,12 +38,12 @@ import javax.ws.rs.core.Response;
 import com.codahale.metrics.annotation.ResponseMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
@@ -67,6 +68,8 @@ import static org.apache.helix.rest.clusterMaintenanceService.MaintenanceManagem
 @Path("/clusters/{clusterId}/instances")
 public class InstancesAccessor extends AbstractHelixResource {
   private final static Logger _logger = LoggerFactory.getLogger(InstancesAccessor.class);
+  // Number of instance configs read in one bulk read when listing instances
+  private static final int INSTANCE_CONFIG_BATCH_SIZE = 1000;
 
   public enum InstancesProperties {
     instances,
@@ -92,7 +95,8 @@ public class InstancesAccessor extends AbstractHelixResource {
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
   public Response getAllInstances(@PathParam("clusterId") String clusterId,
-      @DefaultValue("getAllInstances") @QueryParam("command") String command) {
+      @DefaultValue("getAllInstances") @QueryParam("command") String command,
+      @QueryParam("cursor") String cursor, @DefaultValue("0") @QueryParam("limit") int limit) {
     // Get the command. If not provided, the default would be "getAllInstances"
     Command cmd;
     try {
@@ -109,32 +113,43 @@ public class InstancesAccessor extends AbstractHelixResource {
 
     switch (cmd) {
     case getAllInstances:
-      ObjectNode root = JsonNodeFactory.instance.objectNode();
-      root.put(Properties.id.name(), JsonNodeFactory.instance.textNode(clusterId));
+      NamePage page = getNamePage(instances, cursor, limit);
+      List<String> onlineInstances = new ArrayList<>();
+      List<String> disabledInstances = new ArrayList<>();
 
-      ArrayNode instancesNode =
-          root.putArray(InstancesAccessor.InstancesProperties.instances.name());
-      instancesNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(instances));
-      ArrayNode onlineNode = root.putArray(InstancesAccessor.InstancesProperties.online.name());
-      ArrayNode disabledNode = root.putArray(InstancesAccessor.InstancesProperties.disabled.name());
-
-      List<String> liveInstances = accessor.getChildNames(accessor.keyBuilder().liveInstances());
+      Set<String> liveInstances =
+          new HashSet<>(accessor.getChildNames(accessor.keyBuilder().liveInstances()));
       ClusterConfig clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
 
-      for (String instanceName : instances) {
-        InstanceConfig instanceConfig =
-            accessor.getProperty(accessor.keyBuilder().instanceConfig(instanceName));
-        if (instanceConfig != null) {
-          if (!InstanceValidationUtil.isInstanceEnabled(instanceConfig, clusterConfig)) {
-            disabledNode.add(JsonNodeFactory.instance.textNode(instanceName));
-          }
+      // Read the instance configs in batches so only one batch is held in memory at a time
+      for (List<String> batch : Lists.partition(page.getNames(), INSTANCE_CONFIG_BATCH_SIZE)) {
+        List<PropertyKey> instanceConfigKeys = new ArrayList<>(batch.size());
+        for (String instanceName : batch) {
+          instanceConfigKeys.add(accessor.keyBuilder().instanceConfig(instanceName));
+        }
+        List<InstanceConfig> instanceConfigs = accessor.getProperty(instanceConfigKeys, false);
+        for (int i = 0; i < batch.size(); i++) {
+          InstanceConfig instanceConfig = instanceConfigs.get(i);
+          if (instanceConfig != null) {
+            String instanceName = batch.get(i);
+            if (!InstanceValidationUtil.isInstanceEnabled(instanceConfig, clusterConfig)) {
+              disabledInstances.add(instanceName);
+            }
 
-          if (liveInstances.contains(instanceName)) {
-            onlineNode.add(JsonNodeFactory.instance.textNode(instanceName));
+            if (liveInstances.contains(instanceName)) {
+              onlineInstances.add(instanceName);
+            }
           }
         }
       }
-      return JSONRepresentation(root);
+      return StreamingJSONRepresentation(generator -> {
+        generator.writeStartObject();
+        generator.writeStringField(Properties.id.name(), clusterId);
+        writeStringArray(generator, InstancesProperties.instances.name(), page.getNames());
+        writeStringArray(generator, InstancesProperties.online.name(), onlineInstances);
+        writeStringArray(generator, InstancesProperties.disabled.name(), disabledInstances);
+        generator.writeEndObject();
+      }, HttpConstants.NEXT_CURSOR_HEADER, page.getNextCursor());
     case validateWeight:
       // Validate all instances for WAGED rebalance
       HelixAdmin admin = getHelixAdmin();
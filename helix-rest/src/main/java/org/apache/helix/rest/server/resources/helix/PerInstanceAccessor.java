@@ -49,6 +49,7 @@ import org.apache.helix.ConfigAccessor;
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
@@ -549,14 +550,14 @@ public class PerInstanceAccessor extends AbstractHelixResource {
   public Response getInstanceConfig(@PathParam("clusterId") String clusterId,
       @PathParam("instanceName") String instanceName) throws IOException {
     HelixDataAccessor accessor = getDataAccssor(clusterId);
-    InstanceConfig instanceConfig =
-        accessor.getProperty(accessor.keyBuilder().instanceConfig(instanceName));
-
-    if (instanceConfig != null) {
-      return JSONRepresentation(instanceConfig.getRecord());
-    }
+    PropertyKey key = accessor.keyBuilder().instanceConfig(instanceName);
+    return conditionalGet(clusterId, key, record -> {
+      if (record != null) {
+        return JSONRepresentation(record);
+      }
 
-    return notFound();
+      return notFound();
+    });
   }
 
   @ResponseMetered(name = HttpConstants.WRITE_REQUEST)
@@ -20,13 +20,16 @@ package org.apache.helix.rest.server.resources.helix;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -40,12 +43,12 @@ import javax.ws.rs.core.Response;
 import com.codahale.metrics.annotation.ResponseMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
 import org.apache.helix.ConfigAccessor;
 import org.apache.helix.HelixAdmin;
+import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.model.CustomizedView;
 import org.apache.helix.model.ExternalView;
@@ -65,6 +68,9 @@ import org.slf4j.LoggerFactory;
 @Path("/clusters/{clusterId}/resources")
 public class ResourceAccessor extends AbstractHelixResource {
   private final static Logger _logger = LoggerFactory.getLogger(ResourceAccessor.class);
+  // Number of resources whose ideal states and external views are read in one batch when
+  // computing the health of all resources
+  private static final int RESOURCE_HEALTH_BATCH_SIZE = 500;
 
   public enum ResourceProperties {
     idealState,
@@ -77,81 +83,170 @@ public class ResourceAccessor extends AbstractHelixResource {
   public enum HealthStatus {
     HEALTHY,
     PARTIAL_HEALTHY,
-    UNHEALTHY
+    UNHEALTHY,
+    // The health can't be computed, e.g. the resource is removed while it is checked
+    UNKNOWN
   }
 
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
-  public Response getResources(@PathParam("clusterId") String clusterId) {
-    ObjectNode root = JsonNodeFactory.instance.objectNode();
-    root.put(Properties.id.name(), JsonNodeFactory.instance.textNode(clusterId));
-
+  public Response getResources(@PathParam("clusterId") String clusterId,
+      @QueryParam("cursor") String cursor, @DefaultValue("0") @QueryParam("limit") int limit) {
     RealmAwareZkClient zkClient = getRealmAwareZkClient();
 
-    ArrayNode idealStatesNode = root.putArray(ResourceProperties.idealStates.name());
-    ArrayNode externalViewsNode = root.putArray(ResourceProperties.externalViews.name());
-
     List<String> idealStates = zkClient.getChildren(PropertyPathBuilder.idealState(clusterId));
     List<String> externalViews = zkClient.getChildren(PropertyPathBuilder.externalView(clusterId));
 
-    if (idealStates != null) {
-      idealStatesNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(idealStates));
-    } else {
+    if (idealStates == null) {
       return notFound();
     }
 
-    if (externalViews != null) {
-      externalViewsNode.addAll((ArrayNode) OBJECT_MAPPER.valueToTree(externalViews));
+    NamePage page = getNamePage(idealStates, cursor, limit);
+    List<String> externalViewNames =
+        externalViews == null ? Collections.emptyList() : externalViews;
+    if (cursor != null || limit > 0) {
+      // Paginate by ideal state names, only the external views in the name range of the page are
+      // returned
+      String lastName = page.getNextCursor();
+      externalViewNames = externalViewNames.stream()
+          .filter(name -> cursor == null || name.compareTo(cursor) > 0)
+          .filter(name -> lastName == null || name.compareTo(lastName) <= 0).sorted()
+          .collect(Collectors.toList());
     }
-
-    return JSONRepresentation(root);
+    List<String> pageExternalViews = externalViewNames;
+
+    return StreamingJSONRepresentation(generator -> {
+      generator.writeStartObject();
+      generator.writeStringField(Properties.id.name(), clusterId);
+      writeStringArray(generator, ResourceProperties.idealStates.name(), page.getNames());
+      writeStringArray(generator, ResourceProperties.externalViews.name(), pageExternalViews);
+      generator.writeEndObject();
+    }, HttpConstants.NEXT_CURSOR_HEADER, page.getNextCursor());
   }
 
   /**
-   * Returns health profile of all resources in the cluster
+   * Returns health profile of all resources in the cluster.
+   * The ideal states and external views are read in batches with bulk reads, and the health of
+   * the resources in a batch is computed in parallel. If stream is true, the result of each batch
+   * is written to the response as soon as it is computed instead of once all resources are done.
    * @param clusterId
+   * @param stream whether to stream the result batch by batch
    * @return JSON result
    */
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
   @Timed(name = HttpConstants.READ_REQUEST)
   @GET
   @Path("health")
-  public Response getResourceHealth(@PathParam("clusterId") String clusterId) {
-
-    RealmAwareZkClient zkClient = getRealmAwareZkClient();
+  public Response getResourceHealth(@PathParam("clusterId") String clusterId,
+      @DefaultValue("false") @QueryParam("stream") boolean stream) {
+    HelixDataAccessor accessor = getDataAccssor(clusterId);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    List<String> resourcesInIdealState = accessor.getChildNames(keyBuilder.idealStates());
+    Set<String> resourcesInExternalView =
+        new HashSet<>(accessor.getChildNames(keyBuilder.externalViews()));
+    Map<String, StateModelDefinition> stateModelDefs =
+        accessor.getChildValuesMap(keyBuilder.stateModelDefs(), true);
+    List<List<String>> batches =
+        Lists.partition(resourcesInIdealState, RESOURCE_HEALTH_BATCH_SIZE);
+
+    if (!stream) {
+      Map<String, String> resourceHealthResult = new HashMap<>();
+      for (List<String> batch : batches) {
+        resourceHealthResult.putAll(
+            computeResourceHealth(accessor, batch, resourcesInExternalView, stateModelDefs));
+      }
+      return JSONRepresentation(resourceHealthResult);
+    }
 
-    List<String> resourcesInIdealState =
-        zkClient.getChildren(PropertyPathBuilder.idealState(clusterId));
-    List<String> resourcesInExternalView =
-        zkClient.getChildren(PropertyPathBuilder.externalView(clusterId));
-
-    Map<String, String> resourceHealthResult = new HashMap<>();
-
-    for (String resourceName : resourcesInIdealState) {
-      if (resourcesInExternalView.contains(resourceName)) {
-        Map<String, String> partitionHealth = computePartitionHealth(clusterId, resourceName);
-
-        if (partitionHealth.isEmpty()
-            || partitionHealth.values().contains(HealthStatus.UNHEALTHY.name())) {
-          // No partitions for a resource or there exists one or more UNHEALTHY partitions in this
-          // resource, UNHEALTHY
-          resourceHealthResult.put(resourceName, HealthStatus.UNHEALTHY.name());
-        } else if (partitionHealth.values().contains(HealthStatus.PARTIAL_HEALTHY.name())) {
-          // No UNHEALTHY partition, but one or more partially healthy partitions, resource is
-          // partially healthy
-          resourceHealthResult.put(resourceName, HealthStatus.PARTIAL_HEALTHY.name());
-        } else {
-          // No UNHEALTHY or partially healthy partitions and non-empty, resource is healthy
-          resourceHealthResult.put(resourceName, HealthStatus.HEALTHY.name());
+    return StreamingJSONRepresentation(generator -> {
+      generator.writeStartObject();
+      for (List<String> batch : batches) {
+        for (Map.Entry<String, String> entry : computeResourceHealth(accessor, batch,
+            resourcesInExternalView, stateModelDefs).entrySet()) {
+          generator.writeStringField(entry.getKey(), entry.getValue());
         }
-      } else {
+        generator.flush();
+      }
+      generator.writeEndObject();
+    });
+  }
+
+  /**
+   * Compute the health of a batch of resources. The ideal states and external views of the batch
+   * are read with one bulk read each.
+   */
+  private Map<String, String> computeResourceHealth(HelixDataAccessor accessor,
+      List<String> resourceNames, Set<String> resourcesInExternalView,
+      Map<String, StateModelDefinition> stateModelDefs) {
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    List<PropertyKey> idealStateKeys = new ArrayList<>(resourceNames.size());
+    List<PropertyKey> externalViewKeys = new ArrayList<>(resourceNames.size());
+    for (String resourceName : resourceNames) {
+      idealStateKeys.add(keyBuilder.idealStates(resourceName));
+      externalViewKeys.add(keyBuilder.externalView(resourceName));
+    }
+    List<IdealState> idealStates = accessor.getProperty(idealStateKeys, false);
+    // Only read the external views that exist
+    List<ExternalView> externalViews = new ArrayList<>(Collections.nCopies(resourceNames.size(),
+        (ExternalView) null));
+    List<Integer> externalViewIndexes = new ArrayList<>();
+    List<PropertyKey> existingExternalViewKeys = new ArrayList<>();
+    for (int i = 0; i < resourceNames.size(); i++) {
+      if (resourcesInExternalView.contains(resourceNames.get(i))) {
+        externalViewIndexes.add(i);
+        existingExternalViewKeys.add(externalViewKeys.get(i));
+      }
+    }
+    List<ExternalView> existingExternalViews =
+        accessor.getProperty(existingExternalViewKeys, false);
+    for (int i = 0; i < externalViewIndexes.size(); i++) {
+      externalViews.set(externalViewIndexes.get(i), existingExternalViews.get(i));
+    }
+
+    // The reads are already batched, so the health is computed in the request thread
+    Map<String, String> resourceHealthResult = new LinkedHashMap<>();
+    for (int i = 0; i < resourceNames.size(); i++) {
+      String resourceName = resourceNames.get(i);
+      IdealState idealState = idealStates.get(i);
+      if (idealState == null) {
+        // The resource has been removed after listing the ideal states
+        resourceHealthResult.put(resourceName, HealthStatus.UNKNOWN.name());
+        continue;
+      }
+      if (!resourcesInExternalView.contains(resourceName)) {
         // If a resource is not in ExternalView, then it is UNHEALTHY
         resourceHealthResult.put(resourceName, HealthStatus.UNHEALTHY.name());
+        continue;
+      }
+      ExternalView externalView = externalViews.get(i);
+      StateModelDefinition stateModelDef = stateModelDefs.get(idealState.getStateModelDefRef());
+      if (externalView == null || stateModelDef == null) {
+        // The external view or the state model is removed after listing, the health is unknown
+        resourceHealthResult.put(resourceName, HealthStatus.UNKNOWN.name());
+        continue;
       }
+      Map<String, String> partitionHealth =
+          computePartitionHealth(idealState, externalView, stateModelDef);
+      resourceHealthResult.put(resourceName, getResourceHealthStatus(partitionHealth));
     }
+    return resourceHealthResult;
+  }
 
-    return JSONRepresentation(resourceHealthResult);
+  private static String getResourceHealthStatus(Map<String, String> partitionHealth) {
+    if (partitionHealth.isEmpty()
+        || partitionHealth.values().contains(HealthStatus.UNHEALTHY.name())) {
+      // No partitions for a resource or there exists one or more UNHEALTHY partitions in this
+      // resource, UNHEALTHY
+      return HealthStatus.UNHEALTHY.name();
+    } else if (partitionHealth.values().contains(HealthStatus.PARTIAL_HEALTHY.name())) {
+      // No UNHEALTHY partition, but one or more partially healthy partitions, resource is
+      // partially healthy
+      return HealthStatus.PARTIAL_HEALTHY.name();
+    }
+    // No UNHEALTHY or partially healthy partitions and non-empty, resource is healthy
+    return HealthStatus.HEALTHY.name();
   }
 
   /**
@@ -390,13 +485,14 @@ public class ResourceAccessor extends AbstractHelixResource {
   @Path("{resourceName}/configs")
   public Response getResourceConfig(@PathParam("clusterId") String clusterId,
       @PathParam("resourceName") String resourceName) {
-    ConfigAccessor accessor = getConfigAccessor();
-    ResourceConfig resourceConfig = accessor.getResourceConfig(clusterId, resourceName);
-    if (resourceConfig != null) {
-      return JSONRepresentation(resourceConfig.getRecord());
-    }
+    PropertyKey key = getDataAccssor(clusterId).keyBuilder().resourceConfig(resourceName);
+    return conditionalGet(clusterId, key, record -> {
+      if (record != null) {
+        return JSONRepresentation(record);
+      }
 
-    return notFound();
+      return notFound();
+    });
   }
 
   @ResponseMetered(name = HttpConstants.WRITE_REQUEST)
@@ -461,13 +557,14 @@ public class ResourceAccessor extends AbstractHelixResource {
   @Path("{resourceName}/idealState")
   public Response getResourceIdealState(@PathParam("clusterId") String clusterId,
       @PathParam("resourceName") String resourceName) {
-    HelixAdmin admin = getHelixAdmin();
-    IdealState idealState = admin.getResourceIdealState(clusterId, resourceName);
-    if (idealState != null) {
-      return JSONRepresentation(idealState.getRecord());
-    }
+    PropertyKey key = getDataAccssor(clusterId).keyBuilder().idealStates(resourceName);
+    return conditionalGet(clusterId, key, record -> {
+      if (record != null) {
+        return JSONRepresentation(record);
+      }
 
-    return notFound();
+      return notFound();
+    });
   }
 
   @ResponseMetered(name = HttpConstants.WRITE_REQUEST)
@@ -526,13 +623,14 @@ public class ResourceAccessor extends AbstractHelixResource {
   @Path("{resourceName}/externalView")
   public Response getResourceExternalView(@PathParam("clusterId") String clusterId,
       @PathParam("resourceName") String resourceName) {
-    HelixAdmin admin = getHelixAdmin();
-    ExternalView externalView = admin.getResourceExternalView(clusterId, resourceName);
-    if (externalView != null) {
-      return JSONRepresentation(externalView.getRecord());
-    }
+    PropertyKey key = getDataAccssor(clusterId).keyBuilder().externalView(resourceName);
+    return conditionalGet(clusterId, key, record -> {
+      if (record != null) {
+        return JSONRepresentation(record);
+      }
 
-    return notFound();
+      return notFound();
+    });
   }
 
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
@@ -558,6 +656,11 @@ public class ResourceAccessor extends AbstractHelixResource {
     ExternalView externalView = admin.getResourceExternalView(clusterId, resourceName);
     StateModelDefinition stateModelDef =
         admin.getStateModelDef(clusterId, idealState.getStateModelDefRef());
+    return computePartitionHealth(idealState, externalView, stateModelDef);
+  }
+
+  private static Map<String, String> computePartitionHealth(IdealState idealState,
+      ExternalView externalView, StateModelDefinition stateModelDef) {
     String initialState = stateModelDef.getInitialState();
     List<String> statesPriorityList = stateModelDef.getStatesPriorityList();
     statesPriorityList = statesPriorityList.subList(0, statesPriorityList.indexOf(initialState)); // Trim
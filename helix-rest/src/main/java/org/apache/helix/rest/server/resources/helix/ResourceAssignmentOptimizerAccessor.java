@@ -31,9 +31,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import com.codahale.metrics.annotation.ResponseMetered;
@@ -41,8 +44,6 @@ import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.helix.ConfigAccessor;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.controller.rebalancer.strategy.AutoRebalanceStrategy;
@@ -55,6 +56,7 @@ import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.rest.common.HttpConstants;
+import org.apache.helix.rest.server.ClusterReadCache;
 import org.apache.helix.rest.server.filters.ClusterAuth;
 import org.apache.helix.util.HelixUtil;
 import org.slf4j.Logger;
@@ -79,14 +81,28 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     Set<String> instanceFilter = new HashSet<>();
     Set<String> resourceFilter = new HashSet<>();
     AssignmentFormat returnFormat = AssignmentFormat.IdealStateFormat;
+    Set<String> resourcePage = null; // resources of the requested page, null if not paginated.
   }
 
-  // TODO: We could add a data cache here to avoid read latency.
+  // Cluster state read from the cluster read cache, with the input instance changes applied.
   private static class ClusterState {
+    HelixDataAccessor dataAccessor;
     List<InstanceConfig> instanceConfigs = new ArrayList<>();
     ClusterConfig clusterConfig;
     List<String> resources = new ArrayList<>();
     List<String> liveInstances; // cluster LiveInstance + activatedInstances - deactivatedInstances
+    boolean hasWagedResources = false;
+  }
+
+  // A computed assignment memoized in the cluster read cache.
+  private static class MemoizedAssignment {
+    final AssignmentResult result;
+    final String nextCursor;
+
+    MemoizedAssignment(AssignmentResult result, String nextCursor) {
+      this.result = result;
+      this.nextCursor = nextCursor;
+    }
   }
 
   // Result format. User can choose from IdealState or CurrentState format,
@@ -132,22 +148,45 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
   @Timed(name = HttpConstants.WRITE_REQUEST)
   @POST
   public Response computePotentialAssignment(@PathParam("clusterId") String clusterId,
+      @QueryParam("cursor") String cursor, @DefaultValue("0") @QueryParam("limit") int limit,
       String content) {
 
     InputFields inputFields;
-    ClusterState clusterState;
-    AssignmentResult result;
 
     try {
       // 1.  Try to parse the content string. If parseable, use it as a KV map. Otherwise, return a REASON String
       inputFields = readInput(content);
-      // 2. Read cluster status from ZK.
-      clusterState = readClusterStateAndValidateInput(clusterId, inputFields);
-      // 3. Call rebalancer tools for each resource.
-      result = computeOptimalAssignmentForResources(inputFields, clusterState, clusterId);
-      // 4. Serialize result to JSON and return.
+      MemoizedAssignment assignment;
+      if (ClusterReadCache.isEnabled()) {
+        // 2. Reuse the assignment computed for the same input if the cluster has not changed since.
+        ClusterReadCache readCache = getClusterReadCache();
+        long dataVersion = readCache.getDataVersion(clusterId);
+        String memoKey = buildMemoKey(inputFields, cursor, limit);
+        assignment = readCache.getMemoized(clusterId, memoKey, dataVersion);
+        if (assignment == null) {
+          // 3. Read cluster status from the cluster read cache.
+          ClusterState clusterState = readClusterStateAndValidateInput(clusterId,
+              readCache.getDataAccessor(clusterId), inputFields);
+          assignment = computeAssignment(inputFields, clusterState, cursor, limit);
+          // WAGED assignment also depends on the assignment metadata which is not in the cache.
+          if (!clusterState.hasWagedResources) {
+            readCache.memoize(clusterId, memoKey, dataVersion, assignment);
+          }
+        }
+      } else {
+        // 3. Read cluster status from ZK.
+        ClusterState clusterState =
+            readClusterStateAndValidateInput(clusterId, getDataAccssor(clusterId), inputFields);
+        assignment = computeAssignment(inputFields, clusterState, cursor, limit);
+      }
+      // 6. Stream the result as JSON, so the serialized response is never held in memory. The
+      // result itself is still computed in memory, which is guarded against OutOfMemoryError below.
       // TODO: We will need to include user input to response header since user may do async call.
-      return JSONRepresentation(result, RESPONSE_HEADER_KEY, buildResponseHeaders(inputFields));
+      AssignmentResult result = assignment.result;
+      Response response = StreamingJSONRepresentation(generator -> generator.writeObject(result),
+          RESPONSE_HEADER_KEY, buildResponseHeaders(inputFields));
+      return Response.fromResponse(response)
+          .header(HttpConstants.NEXT_CURSOR_HEADER, assignment.nextCursor).build();
     } catch (InvalidParameterException ex) {
       return badRequest(ex.getMessage());
     } catch (JsonProcessingException e) {
@@ -162,11 +201,19 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     }
   }
 
+  private MemoizedAssignment computeAssignment(InputFields inputFields, ClusterState clusterState,
+      String cursor, int limit) throws Exception {
+    // 4. Select the resources of the requested page, if the request is paginated.
+    String nextCursor = selectResourcePage(inputFields, clusterState, cursor, limit);
+    // 5. Call rebalancer tools for each resource.
+    return new MemoizedAssignment(
+        computeOptimalAssignmentForResources(inputFields, clusterState), nextCursor);
+  }
+
   private InputFields readInput(String content)
       throws JsonProcessingException, IllegalArgumentException {
 
-    ObjectMapper objectMapper = new ObjectMapper();
-    InputJsonContent inputJsonContent = objectMapper.readValue(content, InputJsonContent.class);
+    InputJsonContent inputJsonContent = OBJECT_MAPPER.readValue(content, InputJsonContent.class);
     InputFields inputFields = new InputFields();
 
     if (inputJsonContent.instanceChangeMap != null) {
@@ -190,8 +237,26 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     return inputFields;
   }
 
-  private ClusterState readClusterStateAndValidateInput(String clusterId, InputFields inputFields)
-      throws InvalidParameterException {
+  /**
+   * Build the key of the memoized assignment from everything in the request that affects the
+   * result. Sets are sorted so the same input in a different order maps to the same key.
+   */
+  private String buildMemoKey(InputFields inputFields, String cursor, int limit) {
+    return String.join("|", "partitionAssignment",
+        new TreeSet<>(inputFields.activatedInstances).toString(),
+        new TreeSet<>(inputFields.deactivatedInstances).toString(),
+        new TreeSet<>(inputFields.instanceConfigs).toString(),
+        new TreeSet<>(inputFields.instanceFilter).toString(),
+        new TreeSet<>(inputFields.resourceFilter).toString(), inputFields.returnFormat.name(),
+        String.valueOf(cursor), String.valueOf(limit));
+  }
+
+  /**
+   * Read the cluster state and apply the instance changes of the input. The records read from the
+   * cluster read cache are copies, so the changes never leak into the cache or other requests.
+   */
+  private ClusterState readClusterStateAndValidateInput(String clusterId,
+      HelixDataAccessor dataAccessor, InputFields inputFields) throws InvalidParameterException {
 
     // One instance can only exist in one of the list in InstanceChange.
     // Validate the intersection is empty.
@@ -199,8 +264,7 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
 
     // Add instances to current liveInstances
     ClusterState clusterState = new ClusterState();
-    ConfigAccessor cfgAccessor = getConfigAccessor();
-    HelixDataAccessor dataAccessor = getDataAccssor(clusterId);
+    clusterState.dataAccessor = dataAccessor;
     clusterState.resources = dataAccessor.getChildNames(dataAccessor.keyBuilder().idealStates());
     // Add existing live instances and new instances from user input to instances list.
     Set<String> liveInstancesSet =
@@ -246,7 +310,12 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     // but `getImmediateAssignmentForWagedFullAuto` will honor current timestamp and delayed
     // rebalance window. We are disabling delayed rebalance for now. Could add a cluster option to
     // honor delayed rebalance window in the future.
-    ClusterConfig clusterConfig = cfgAccessor.getClusterConfig(clusterId);
+    ClusterConfig clusterConfig =
+        dataAccessor.getProperty(dataAccessor.keyBuilder().clusterConfig());
+    if (clusterConfig == null) {
+      throw new InvalidParameterException(
+          "Cluster config does not exist for cluster " + clusterId);
+    }
     clusterConfig.setDelayRebalaceEnabled(false);
     clusterState.clusterConfig = clusterConfig;
     clusterState.liveInstances = new ArrayList<>(liveInstancesSet);
@@ -254,12 +323,37 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     return clusterState;
   }
 
+  /**
+   * Paginate the result by resource name. The page applies on top of the resource filter.
+   * @return the cursor of the next page, null if this is the last page or no page is requested
+   */
+  private String selectResourcePage(InputFields inputFields, ClusterState clusterState,
+      String cursor, int limit) {
+    if (cursor == null && limit <= 0) {
+      return null;
+    }
+    List<String> resources = new ArrayList<>();
+    for (String resource : clusterState.resources) {
+      if (inputFields.resourceFilter.isEmpty() || inputFields.resourceFilter.contains(resource)) {
+        resources.add(resource);
+      }
+    }
+    NamePage page = getNamePage(resources, cursor, limit);
+    inputFields.resourcePage = new HashSet<>(page.getNames());
+    return page.getNextCursor();
+  }
+
+  private boolean isResourceSelected(InputFields inputFields, String resource) {
+    return (inputFields.resourceFilter.isEmpty() || inputFields.resourceFilter.contains(resource))
+        && (inputFields.resourcePage == null || inputFields.resourcePage.contains(resource));
+  }
+
   private AssignmentResult computeOptimalAssignmentForResources(InputFields inputFields,
-      ClusterState clusterState, String clusterId) throws Exception {
+      ClusterState clusterState) throws Exception {
 
     AssignmentResult result = new AssignmentResult();
     // Iterate through resources, read resource level info and get potential assignment.
-    HelixDataAccessor dataAccessor = getDataAccssor(clusterId);
+    HelixDataAccessor dataAccessor = clusterState.dataAccessor;
     List<IdealState> wagedResourceIdealState = new ArrayList<>();
 
     for (String resource : clusterState.resources) {
@@ -271,8 +365,8 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
         wagedResourceIdealState.add(idealState);
         continue;
       }
-      // For non Waged resources, we don't compute resources not in white list.
-      if (!inputFields.resourceFilter.isEmpty() && !inputFields.resourceFilter.contains(resource)) {
+      // For non Waged resources, we don't compute resources not in white list or page.
+      if (!isResourceSelected(inputFields, resource)) {
         continue;
       }
       // Use getIdealAssignmentForFullAuto for FULL_AUTO resource.
@@ -295,8 +389,8 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     }
 
     if (!wagedResourceIdealState.isEmpty()) {
-      computeWagedAssignmentResult(wagedResourceIdealState, inputFields, clusterState, clusterId,
-          result);
+      clusterState.hasWagedResources = true;
+      computeWagedAssignmentResult(wagedResourceIdealState, inputFields, clusterState, result);
     }
 
     return updateAssignmentFormat(inputFields, result);
@@ -347,14 +441,14 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
   }
 
   private void computeWagedAssignmentResult(List<IdealState> wagedResourceIdealState,
-      InputFields inputFields, ClusterState clusterState, String clusterId,
-      AssignmentResult result) {
+      InputFields inputFields, ClusterState clusterState, AssignmentResult result) {
 
     // Use getTargetAssignmentForWagedFullAuto for Waged resources.
-    ConfigAccessor cfgAccessor = getConfigAccessor();
+    HelixDataAccessor dataAccessor = clusterState.dataAccessor;
     List<ResourceConfig> wagedResourceConfigs = new ArrayList<>();
     for (IdealState idealState : wagedResourceIdealState) {
-      ResourceConfig resourceConfig = cfgAccessor.getResourceConfig(clusterId, idealState.getResourceName());
+      ResourceConfig resourceConfig = dataAccessor
+          .getProperty(dataAccessor.keyBuilder().resourceConfig(idealState.getResourceName()));
       if (resourceConfig != null) {
         wagedResourceConfigs.add(resourceConfig);
       }
@@ -369,7 +463,7 @@ public class ResourceAssignmentOptimizerAccessor extends AbstractHelixResource {
     // Convert ResourceAssignment to plain map.
     for (Map.Entry<String, ResourceAssignment> wagedAssignment : wagedAssignmentResult.entrySet()) {
       String resource = wagedAssignment.getKey();
-      if (!inputFields.resourceFilter.isEmpty() && !inputFields.resourceFilter.contains(resource)) {
+      if (!isResourceSelected(inputFields, resource)) {
         continue;
       }
       Map<String, Map<String, String>> partitionAssignments = new TreeMap<>();
@@ -22,6 +22,7 @@ package org.apache.helix.rest.server;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -29,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -63,6 +65,7 @@ import org.apache.helix.model.MaintenanceSignal;
 import org.apache.helix.model.PauseSignal;
 import org.apache.helix.model.RESTConfig;
 import org.apache.helix.rest.common.HelixRestNamespace;
+import org.apache.helix.rest.common.HttpConstants;
 import org.apache.helix.rest.server.auditlog.AuditLog;
 import org.apache.helix.rest.server.resources.AbstractResource;
 import org.apache.helix.rest.server.resources.AbstractResource.Command;
@@ -110,6 +113,40 @@ public class TestClusterAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetClusters")
+  public void testGetClustersPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    String body = get("clusters", null, Response.Status.OK.getStatusCode(), true);
+    List<String> allClusters = OBJECT_MAPPER.convertValue(
+        OBJECT_MAPPER.readTree(body).get(ClusterAccessor.ClusterProperties.clusters.name()),
+        new TypeReference<List<String>>() {
+        });
+
+    List<String> clusters = new ArrayList<>();
+    String cursor = null;
+    do {
+      WebTarget webTarget = target("clusters").queryParam("limit", 2);
+      if (cursor != null) {
+        webTarget = webTarget.queryParam("cursor", cursor);
+      }
+      Response response = webTarget.request().get();
+      Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+      List<String> page = OBJECT_MAPPER.convertValue(
+          OBJECT_MAPPER.readTree(response.readEntity(String.class))
+              .get(ClusterAccessor.ClusterProperties.clusters.name()),
+          new TypeReference<List<String>>() {
+          });
+      Assert.assertTrue(page.size() <= 2);
+      clusters.addAll(page);
+      cursor = response.getHeaderString(HttpConstants.NEXT_CURSOR_HEADER);
+    } while (cursor != null);
+
+    // The pages list every cluster once, in name order
+    Collections.sort(allClusters);
+    Assert.assertEquals(clusters, allClusters);
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testGetClusters")
   public void testGetClusterTopology() {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
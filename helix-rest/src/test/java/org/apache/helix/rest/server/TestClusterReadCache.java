@@ -0,0 +1,208 @@
+package org.apache.helix.rest.server;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.TestHelper;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestClusterReadCache extends AbstractTestClass {
+  private static final String NAMESPACE = "TestClusterReadCache";
+  private final String _clusterName = TestHelper.getTestClassName() + "_cluster";
+  private final String _otherClusterName = TestHelper.getTestClassName() + "_otherCluster";
+
+  @BeforeClass
+  public void beforeClass() {
+    _gSetupTool.addCluster(_clusterName, true);
+    _gSetupTool.addCluster(_otherClusterName, true);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _gSetupTool.deleteCluster(_clusterName);
+    _gSetupTool.deleteCluster(_otherClusterName);
+    SharedMetricRegistries.remove(NAMESPACE);
+  }
+
+  @Test
+  public void testReadFromCache() throws Exception {
+    ClusterReadCache cache = new ClusterReadCache(_gZkClient, NAMESPACE, 10,
+        TimeUnit.MINUTES.toMillis(10));
+    try {
+      MetricRegistry metrics = SharedMetricRegistries.getOrCreate(NAMESPACE);
+      HelixDataAccessor accessor = cache.getDataAccessor(_clusterName);
+      PropertyKey clusterConfigKey = accessor.keyBuilder().clusterConfig();
+
+      // The first read loads the record from ZK, the next one is served from the cache
+      long hits = metrics.meter(ClusterReadCache.CACHE_HITS).getCount();
+      long misses = metrics.meter(ClusterReadCache.CACHE_MISSES).getCount();
+      Assert.assertNotNull(accessor.getProperty(clusterConfigKey));
+      Assert.assertEquals(metrics.meter(ClusterReadCache.CACHE_MISSES).getCount(), misses + 1);
+      ClusterConfig clusterConfig = accessor.getProperty(clusterConfigKey);
+      Assert.assertNotNull(clusterConfig);
+      Assert.assertEquals(metrics.meter(ClusterReadCache.CACHE_HITS).getCount(), hits + 1);
+      Assert.assertSame(cache.getDataAccessor(_clusterName), accessor);
+
+      // Records are copied, modifying the returned record must not change the cache
+      clusterConfig.getRecord().setSimpleField("localChange", "true");
+      Assert.assertNull(accessor.getProperty(clusterConfigKey).getRecord()
+          .getSimpleField("localChange"));
+
+      // Changes made by other clients are picked up by the watches
+      ClusterConfig delta = new ClusterConfig(_clusterName);
+      delta.setMaxPartitionsPerInstance(7);
+      _configAccessor.updateClusterConfig(_clusterName, delta);
+      Assert.assertTrue(TestHelper.verify(() -> ((ClusterConfig) accessor
+          .getProperty(clusterConfigKey)).getMaxPartitionsPerInstance() == 7,
+          TestHelper.WAIT_DURATION));
+    } finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testReturnedRecordsAreDeepCopies() throws Exception {
+    ClusterReadCache cache = new ClusterReadCache(_gZkClient, NAMESPACE, 10,
+        TimeUnit.MINUTES.toMillis(10));
+    try {
+      HelixDataAccessor accessor = cache.getDataAccessor(_clusterName);
+      PropertyKey stateModelDefKey = accessor.keyBuilder().stateModelDef("MasterSlave");
+      ZNRecord record = ((StateModelDefinition) accessor.getProperty(stateModelDefKey)).getRecord();
+      String mapFieldKey = record.getMapFields().keySet().iterator().next();
+      String listFieldKey = record.getListFields().keySet().iterator().next();
+      int listFieldSize = record.getListField(listFieldKey).size();
+
+      // Modifying the map and list field values of a returned record must not change the cache
+      record.getMapField(mapFieldKey).put("localChange", "true");
+      record.getListField(listFieldKey).add("localChange");
+      ZNRecord cachedRecord =
+          ((StateModelDefinition) accessor.getProperty(stateModelDefKey)).getRecord();
+      Assert.assertFalse(cachedRecord.getMapField(mapFieldKey).containsKey("localChange"));
+      Assert.assertEquals(cachedRecord.getListField(listFieldKey).size(), listFieldSize);
+    } finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testEntryEviction() throws Exception {
+    ClusterReadCache cache = new ClusterReadCache(_gZkClient, NAMESPACE, 10,
+        TimeUnit.MINUTES.toMillis(10), 1);
+    try {
+      MetricRegistry metrics = SharedMetricRegistries.getOrCreate(NAMESPACE);
+      HelixDataAccessor accessor = cache.getDataAccessor(_clusterName);
+      PropertyKey clusterConfigKey = accessor.keyBuilder().clusterConfig();
+      PropertyKey stateModelDefKey = accessor.keyBuilder().stateModelDef("MasterSlave");
+
+      long hits = metrics.meter(ClusterReadCache.CACHE_HITS).getCount();
+      long misses = metrics.meter(ClusterReadCache.CACHE_MISSES).getCount();
+      long evictions = metrics.meter(ClusterReadCache.CACHE_ENTRY_EVICTIONS).getCount();
+      Assert.assertNotNull(accessor.getProperty(clusterConfigKey));
+      Assert.assertNotNull(accessor.getProperty(clusterConfigKey));
+      Assert.assertEquals(metrics.meter(ClusterReadCache.CACHE_HITS).getCount(), hits + 1);
+
+      // Only one record is cached per cluster, reading another record evicts the cluster config
+      Assert.assertNotNull(accessor.getProperty(stateModelDefKey));
+      Assert.assertEquals(metrics.meter(ClusterReadCache.CACHE_ENTRY_EVICTIONS).getCount(),
+          evictions + 1);
+      Assert.assertNotNull(accessor.getProperty(clusterConfigKey));
+      Assert.assertEquals(metrics.meter(ClusterReadCache.CACHE_HITS).getCount(), hits + 1);
+      Assert.assertEquals(metrics.meter(ClusterReadCache.CACHE_MISSES).getCount(), misses + 3);
+
+      // The evicted record is loaded and watched again, changes are still picked up
+      ClusterConfig delta = new ClusterConfig(_clusterName);
+      delta.setMaxPartitionsPerInstance(11);
+      _configAccessor.updateClusterConfig(_clusterName, delta);
+      Assert.assertTrue(TestHelper.verify(() -> ((ClusterConfig) accessor
+          .getProperty(clusterConfigKey)).getMaxPartitionsPerInstance() == 11,
+          TestHelper.WAIT_DURATION));
+    } finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testDataVersionAndMemoize() throws Exception {
+    ClusterReadCache cache = new ClusterReadCache(_gZkClient, NAMESPACE, 10,
+        TimeUnit.MINUTES.toMillis(10));
+    try {
+      // Only the data that was read is watched, so read the cluster config the value derives from
+      HelixDataAccessor accessor = cache.getDataAccessor(_clusterName);
+      Assert.assertNotNull(accessor.getProperty(accessor.keyBuilder().clusterConfig()));
+      long version = cache.getDataVersion(_clusterName);
+      cache.memoize(_clusterName, "key", version, "value");
+      Assert.assertEquals(cache.getMemoized(_clusterName, "key", version), "value");
+      Assert.assertNull(cache.getMemoized(_otherClusterName, "key", version));
+
+      // Any change of the cached data moves the cluster to a new version
+      ClusterConfig delta = new ClusterConfig(_clusterName);
+      delta.setMaxPartitionsPerInstance(9);
+      _configAccessor.updateClusterConfig(_clusterName, delta);
+      Assert.assertTrue(TestHelper.verify(() -> cache.getDataVersion(_clusterName) != version,
+          TestHelper.WAIT_DURATION));
+      long newVersion = cache.getDataVersion(_clusterName);
+      Assert.assertNull(cache.getMemoized(_clusterName, "key", newVersion));
+
+      // Values derived from an outdated version are not memoized
+      cache.memoize(_clusterName, "key", version, "stale");
+      Assert.assertNull(cache.getMemoized(_clusterName, "key", newVersion));
+      Assert.assertNull(cache.getMemoized(_clusterName, "key", version));
+    } finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    ClusterReadCache cache = new ClusterReadCache(_gZkClient, NAMESPACE, 1,
+        TimeUnit.MINUTES.toMillis(10));
+    try {
+      cache.getDataAccessor(_clusterName);
+      cache.getDataAccessor(_otherClusterName);
+      // Max clusters is 1, so the least recently accessed cluster is evicted
+      Assert.assertEquals(cache.getCachedClusters().size(), 1);
+      Assert.assertTrue(cache.getCachedClusters().contains(_otherClusterName));
+    } finally {
+      cache.close();
+    }
+    Assert.assertTrue(cache.getCachedClusters().isEmpty());
+
+    cache = new ClusterReadCache(_gZkClient, NAMESPACE, 10, 1L);
+    try {
+      cache.getDataAccessor(_clusterName);
+      Thread.sleep(10L);
+      cache.evictIdleClusters();
+      Assert.assertTrue(cache.getCachedClusters().isEmpty());
+    } finally {
+      cache.close();
+    }
+  }
+}
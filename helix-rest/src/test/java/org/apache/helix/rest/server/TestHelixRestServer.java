@@ -19,14 +19,24 @@ package org.apache.helix.rest.server;
  * under the License.
  */
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 
 import org.apache.helix.HelixException;
 import org.apache.helix.TestHelper;
 import org.apache.helix.rest.common.HelixRestNamespace;
+import org.apache.helix.rest.common.HttpConstants;
+import org.apache.helix.rest.common.RestSystemPropertyKeys;
 import org.apache.helix.rest.server.auditlog.AuditLogger;
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -87,4 +97,51 @@ public class TestHelixRestServer extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test
+  public void testGzipEncoding() throws IOException, InterruptedException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    int port = getBaseUri().getPort() + 2;
+    List<HelixRestNamespace> namespaces = new ArrayList<>();
+    namespaces.add(new HelixRestNamespace(HelixRestNamespace.DEFAULT_NAMESPACE_NAME,
+        HelixRestNamespace.HelixMetadataStoreType.ZOOKEEPER, ZK_ADDR, true));
+
+    // The encoding is configured when the servlets are initialized by the constructor
+    System.setProperty(RestSystemPropertyKeys.REST_GZIP_ENCODING_ENABLED, "true");
+    HelixRestServer server;
+    try {
+      server = new HelixRestServer(namespaces, port, getBaseUri().getPath(),
+          Collections.<AuditLogger>emptyList());
+    } finally {
+      System.clearProperty(RestSystemPropertyKeys.REST_GZIP_ENCODING_ENABLED);
+    }
+    server.start();
+    // Content compression of the client is disabled, so it neither sends Accept-Encoding nor
+    // strips the Content-Encoding header of the response
+    try (CloseableHttpClient httpClient = HttpClients.custom().disableContentCompression()
+        .build()) {
+      String url = HttpConstants.HTTP_PROTOCOL_PREFIX + getBaseUri().getHost() + ":" + port
+          + "/clusters";
+
+      // Responses are only encoded for clients that accept gzip
+      HttpGet request = new HttpGet(url);
+      request.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+      try (CloseableHttpResponse response = httpClient.execute(request)) {
+        Assert.assertEquals(response.getStatusLine().getStatusCode(),
+            Response.Status.OK.getStatusCode());
+        Header contentEncoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        Assert.assertNotNull(contentEncoding);
+        Assert.assertEquals(contentEncoding.getValue(), "gzip");
+      }
+
+      try (CloseableHttpResponse response = httpClient.execute(new HttpGet(url))) {
+        Assert.assertEquals(response.getStatusLine().getStatusCode(),
+            Response.Status.OK.getStatusCode());
+        Assert.assertNull(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+      }
+    } finally {
+      server.shutdown();
+    }
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
 }
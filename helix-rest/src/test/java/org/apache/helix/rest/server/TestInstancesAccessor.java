@@ -27,10 +27,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -41,6 +43,7 @@ import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.RESTConfig;
+import org.apache.helix.rest.common.HttpConstants;
 import org.apache.helix.rest.server.resources.helix.InstancesAccessor;
 import org.apache.helix.rest.server.util.JerseyUriRequestBuilder;
 import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
@@ -466,6 +469,45 @@ public class TestInstancesAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetAllInstances")
+  public void testGetAllInstancesPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    Set<String> instances = new HashSet<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      WebTarget webTarget =
+          target("clusters/" + CLUSTER_NAME + "/instances").queryParam("limit", 3);
+      if (cursor != null) {
+        webTarget = webTarget.queryParam("cursor", cursor);
+      }
+      Response response = webTarget.request().get();
+      Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+      JsonNode node = OBJECT_MAPPER.readTree(response.readEntity(String.class));
+      List<String> page = OBJECT_MAPPER.convertValue(
+          node.get(InstancesAccessor.InstancesProperties.instances.name()),
+          new TypeReference<List<String>>() {
+          });
+      Assert.assertTrue(page.size() <= 3);
+      // The online and disabled lists only cover the instances of the page
+      Assert.assertTrue(page.containsAll(OBJECT_MAPPER.convertValue(
+          node.get(InstancesAccessor.InstancesProperties.online.name()),
+          new TypeReference<List<String>>() {
+          })));
+      Assert.assertTrue(page.containsAll(OBJECT_MAPPER.convertValue(
+          node.get(InstancesAccessor.InstancesProperties.disabled.name()),
+          new TypeReference<List<String>>() {
+          })));
+      instances.addAll(page);
+      cursor = response.getHeaderString(HttpConstants.NEXT_CURSOR_HEADER);
+      pages++;
+    } while (cursor != null);
+
+    Assert.assertEquals(instances, _instancesMap.get(CLUSTER_NAME));
+    Assert.assertEquals(pages, (_instancesMap.get(CLUSTER_NAME).size() + 2) / 3);
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(enabled = false)
   public void testUpdateInstances() throws IOException {
     // TODO: Reenable the test after storage node fix the problem
@@ -24,11 +24,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -50,6 +53,7 @@ import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.builder.FullAutoModeISBuilder;
+import org.apache.helix.rest.common.HttpConstants;
 import org.apache.helix.rest.server.resources.helix.ResourceAccessor;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.testng.Assert;
@@ -82,6 +86,36 @@ public class TestResourceAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetResources")
+  public void testGetResourcesPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    Set<String> resources = new HashSet<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      WebTarget webTarget =
+          target("clusters/" + CLUSTER_NAME + "/resources").queryParam("limit", 2);
+      if (cursor != null) {
+        webTarget = webTarget.queryParam("cursor", cursor);
+      }
+      Response response = webTarget.request().get();
+      Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+      JsonNode node = OBJECT_MAPPER.readTree(response.readEntity(String.class));
+      List<String> page = OBJECT_MAPPER.convertValue(
+          node.get(ResourceAccessor.ResourceProperties.idealStates.name()),
+          new TypeReference<List<String>>() {
+          });
+      Assert.assertTrue(page.size() <= 2);
+      resources.addAll(page);
+      cursor = response.getHeaderString(HttpConstants.NEXT_CURSOR_HEADER);
+      pages++;
+    } while (cursor != null);
+
+    Assert.assertEquals(resources, _resourcesMap.get(CLUSTER_NAME));
+    Assert.assertEquals(pages, (_resourcesMap.get(CLUSTER_NAME).size() + 1) / 2);
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testGetResources")
   public void testGetResource() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -182,6 +216,28 @@ public class TestResourceAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testExternalView")
+  public void testConditionalGet() {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    String uri = "clusters/" + CLUSTER_NAME + "/resources/" + RESOURCE_NAME + "/idealState";
+    Response response = target(uri).request().get();
+    Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    String eTag = response.getHeaderString(HttpHeaders.ETAG);
+    Assert.assertNotNull(eTag);
+
+    // Same version of the ideal state, nothing is returned
+    response = target(uri).request().header(HttpHeaders.IF_NONE_MATCH, eTag).get();
+    Assert.assertEquals(response.getStatus(), Response.Status.NOT_MODIFIED.getStatusCode());
+    Assert.assertFalse(response.hasEntity());
+
+    // Stale version, the ideal state is returned with the current ETag
+    response = target(uri).request().header(HttpHeaders.IF_NONE_MATCH, "W/\"0-0\"").get();
+    Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+    Assert.assertEquals(response.getHeaderString(HttpHeaders.ETAG), eTag);
+    Assert.assertTrue(response.hasEntity());
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testExternalView")
   public void testPartitionHealth() throws Exception {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -306,6 +362,13 @@ public class TestResourceAccessor extends AbstractTestClass {
     createDummyMapping(clusterName, resourceNameUnhealthy, idealStateParams,
         partitionReplicaStates_2);
 
+    // Create a resource whose state model definition does not exist
+    String resourceNameUnknown = clusterName + "_db_3";
+    Map<String, String> unknownIdealStateParams = new HashMap<>(idealStateParams);
+    unknownIdealStateParams.put("StateModelDefRef", "NonExistentStateModel");
+    createDummyMapping(clusterName, resourceNameUnknown, unknownIdealStateParams,
+        partitionReplicaStates);
+
     // Get the result of getResourceHealth
     String body = get("clusters/" + clusterName + "/resources/health", null,
         Response.Status.OK.getStatusCode(), true);
@@ -318,6 +381,15 @@ public class TestResourceAccessor extends AbstractTestClass {
     Assert.assertEquals(healthStatus.get(resourceNameHealthy), "HEALTHY");
     Assert.assertEquals(healthStatus.get(resourceNamePartiallyHealthy), "PARTIAL_HEALTHY");
     Assert.assertEquals(healthStatus.get(resourceNameUnhealthy), "UNHEALTHY");
+    // A resource whose health can't be computed is reported instead of being left out
+    Assert.assertEquals(healthStatus.get(resourceNameUnknown), "UNKNOWN");
+
+    // The streamed result is the same as the buffered one
+    body = get("clusters/" + clusterName + "/resources/health",
+        ImmutableMap.of("stream", "true"), Response.Status.OK.getStatusCode(), true);
+    Assert.assertEquals(OBJECT_MAPPER.convertValue(OBJECT_MAPPER.readTree(body),
+        new TypeReference<Map<String, String>>() {
+        }), healthStatus);
     System.out.println("End test :" + TestHelper.getTestMethodName());
 
     // Re-enable the cluster
@@ -38,6 +38,7 @@ import org.apache.helix.constants.InstanceConstants;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.rest.common.HttpConstants;
 import org.apache.helix.rest.server.resources.helix.ResourceAssignmentOptimizerAccessor;
 import org.json.JSONException;
 import org.skyscreamer.jsonassert.JSONAssert;
@@ -301,6 +302,45 @@ public class TestResourceAssignmentOptimizerAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testComputePartitionAssignment")
+  public void testComputePartitionAssignmentPaginated() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    String payload = "{\"InstanceChange\" : { \"ActivateInstances\" : [\"" + toEnabledInstance
+        + "\"] }}  ";
+    Map<String, Map<String, Map<String, String>>> allAssignments = OBJECT_MAPPER.readValue(
+        post(urlBase, null, Entity.entity(payload, MediaType.APPLICATION_JSON_TYPE),
+            Response.Status.OK.getStatusCode(), true).readEntity(String.class),
+        new TypeReference<HashMap<String, Map<String, Map<String, String>>>>() {
+        });
+
+    // Each page only computes and returns the resources after the cursor
+    Map<String, Map<String, Map<String, String>>> pagedAssignments = new HashMap<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      Map<String, String> queryParams = new HashMap<>();
+      queryParams.put("limit", "1");
+      if (cursor != null) {
+        queryParams.put("cursor", cursor);
+      }
+      Response response =
+          post(urlBase, queryParams, Entity.entity(payload, MediaType.APPLICATION_JSON_TYPE),
+              Response.Status.OK.getStatusCode(), true);
+      Map<String, Map<String, Map<String, String>>> page = OBJECT_MAPPER
+          .readValue(response.readEntity(String.class),
+              new TypeReference<HashMap<String, Map<String, Map<String, String>>>>() {
+              });
+      Assert.assertTrue(page.size() <= 1);
+      pagedAssignments.putAll(page);
+      cursor = response.getHeaderString(HttpConstants.NEXT_CURSOR_HEADER);
+      pages++;
+    } while (cursor != null);
+
+    Assert.assertEquals(pagedAssignments.keySet(), allAssignments.keySet());
+    Assert.assertEquals(pages, resources.size());
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testComputePartitionAssignmentWaged")
   public void testComputePartitionAssignmentNegativeInput() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -19,9 +19,8 @@ package org.apache.helix.msdcommon.datamodel;
  * under the License.
  */
 
-import java.util.ArrayDeque;
-import java.util.Collections;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,18 +31,28 @@ import org.apache.helix.msdcommon.util.ZkValidationUtil;
 
 
 /**
- * This is a class that uses a data structure similar to trie to represent metadata store routing
- * data. It is not exactly a trie because it in essence stores a mapping (from sharding keys to
- * realm addresses) instead of pure text information; also, only the terminal nodes store meaningful
- * information (realm addresses).
+ * This is a class that represents metadata store routing data, a mapping from sharding keys to
+ * realm addresses, with the semantics of a trie over the path sections of the sharding keys.
+ * Instead of a tree of nodes, the sharding keys are kept in an immutable array sorted in an order
+ * where "/" ranks before any other character. In this order, every sharding key that is a prefix
+ * of a path is before the path, and the sharding keys under a path are right after it, so a
+ * lookup is a binary search over the array.
  */
 public class TrieRoutingData implements MetadataStoreRoutingData {
   private static final String DELIMITER = "/";
+  private static final char DELIMITER_CHAR = '/';
 
-  private final TrieNode _rootNode;
+  // Sharding keys in the order of compareShardingKeys(), and the realm address of each of them
+  private final String[] _shardingKeys;
+  private final String[] _realmAddresses;
 
   public TrieRoutingData(Map<String, List<String>> routingData)
       throws InvalidRoutingDataException {
+    this(routingData, null);
+  }
+
+  private TrieRoutingData(Map<String, List<String>> routingData, TrieRoutingData previous)
+      throws InvalidRoutingDataException {
     if (routingData == null || routingData.isEmpty()) {
       throw new InvalidRoutingDataException("routingData cannot be null or empty");
     }
@@ -54,36 +63,66 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
 
     if (isRootShardingKey(routingData)) {
       Map.Entry<String, List<String>> entry = routingData.entrySet().iterator().next();
-      _rootNode = new TrieNode(Collections.emptyMap(), "/", true, entry.getKey());
+      _shardingKeys = new String[]{DELIMITER};
+      _realmAddresses = new String[]{entry.getKey()};
     } else {
-      _rootNode = new TrieNode(new HashMap<>(), "/", false, "");
-      constructTrie(routingData);
+      // Flatten the routing data; the index of a sharding key is its input order.
+      List<String> shardingKeys = new ArrayList<>();
+      List<String> realmAddresses = new ArrayList<>();
+      for (Map.Entry<String, List<String>> entry : routingData.entrySet()) {
+        for (String shardingKey : entry.getValue()) {
+          shardingKeys.add(shardingKey);
+          realmAddresses.add(entry.getKey());
+        }
+      }
+      int[] sortedOrder = sortShardingKeys(shardingKeys, previous);
+      validateShardingKeys(shardingKeys, sortedOrder);
+
+      _shardingKeys = new String[sortedOrder.length];
+      _realmAddresses = new String[sortedOrder.length];
+      for (int i = 0; i < sortedOrder.length; i++) {
+        _shardingKeys[i] = shardingKeys.get(sortedOrder[i]);
+        _realmAddresses[i] = realmAddresses.get(sortedOrder[i]);
+      }
     }
   }
 
+  /**
+   * Build the routing data from a new version of the raw routing data, reusing the routing data
+   * built from the previous version. Only the sharding keys added since the previous version are
+   * sorted, the others keep their previous order. If the mapping did not change at all, the
+   * previous routing data is returned as is.
+   * @param previous routing data built from the previous version, may be null
+   * @param routingData a mapping from realm addresses to lists of sharding keys
+   * @return the routing data of the new version
+   * @throws InvalidRoutingDataException if the new version of the routing data is invalid
+   */
+  public static TrieRoutingData update(TrieRoutingData previous,
+      Map<String, List<String>> routingData) throws InvalidRoutingDataException {
+    TrieRoutingData updated = new TrieRoutingData(routingData, previous);
+    if (previous != null && Arrays.equals(previous._shardingKeys, updated._shardingKeys)
+        && Arrays.equals(previous._realmAddresses, updated._realmAddresses)) {
+      return previous;
+    }
+    return updated;
+  }
+
   public Map<String, String> getAllMappingUnderPath(String path)
       throws IllegalArgumentException {
     if (!ZkValidationUtil.isPathValid(path)) {
       throw new IllegalArgumentException("Provided path is not a valid Zookeeper path: " + path);
     }
 
-    TrieNode curNode = getLongestPrefixNodeAlongPath(path);
-    if (!curNode.getPath().equals(path)) {
-      return Collections.emptyMap();
-    }
-
     Map<String, String> resultMap = new HashMap<>();
-    Deque<TrieNode> nodeStack = new ArrayDeque<>();
-    nodeStack.push(curNode);
-    while (!nodeStack.isEmpty()) {
-      curNode = nodeStack.pop();
-      if (curNode.isShardingKey()) {
-        resultMap.put(curNode.getPath(), curNode.getRealmAddress());
-      } else {
-        for (TrieNode child : curNode.getChildren().values()) {
-          nodeStack.push(child);
-        }
-      }
+    int index = getFloorIndex(path);
+    if (index >= 0 && _shardingKeys[index].equals(path)) {
+      resultMap.put(_shardingKeys[index], _realmAddresses[index]);
+      return resultMap;
+    }
+    // The sharding keys under the path are right after the path in the sorted order
+    String prefix = path.equals(DELIMITER) ? DELIMITER : path + DELIMITER;
+    for (int i = index + 1; i < _shardingKeys.length && _shardingKeys[i].startsWith(prefix); i++) {
+      resultMap.put(_shardingKeys[i], _realmAddresses[i]);
     }
     return resultMap;
   }
@@ -94,12 +133,7 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
       throw new IllegalArgumentException("Provided path is not a valid Zookeeper path: " + path);
     }
 
-    TrieNode node = getLongestPrefixNodeAlongPath(path);
-    if (!node.isShardingKey()) {
-      throw new NoSuchElementException(
-          "No sharding key found within the provided path. Path: " + path);
-    }
-    return node.getRealmAddress();
+    return _realmAddresses[getShardingKeyIndexAlongPath(path)];
   }
 
   public String getShardingKeyInPath(String path)
@@ -108,12 +142,7 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
       throw new IllegalArgumentException("Provided path is not a valid Zookeeper path: " + path);
     }
 
-    TrieNode node = getLongestPrefixNodeAlongPath(path);
-    if (!node.isShardingKey()) {
-      throw new NoSuchElementException(
-          "No sharding key found within the provided path. Path: " + path);
-    }
-    return node.getPath();
+    return _shardingKeys[getShardingKeyIndexAlongPath(path)];
   }
 
   public boolean isShardingKeyInsertionValid(String shardingKey) {
@@ -122,8 +151,17 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
           "Provided shardingKey is not a valid Zookeeper path: " + shardingKey);
     }
 
-    TrieNode node = getLongestPrefixNodeAlongPath(shardingKey);
-    return !node.isShardingKey() && !node.getPath().equals(shardingKey);
+    if (shardingKey.equals(DELIMITER)) {
+      return false;
+    }
+    int index = getFloorIndex(shardingKey);
+    // Invalid if a sharding key is the same as or a parent of the new key
+    if (index >= 0 && isSameOrParentPath(_shardingKeys[index], shardingKey)) {
+      return false;
+    }
+    // Invalid if the new key is a parent of a sharding key
+    return index + 1 >= _shardingKeys.length || !_shardingKeys[index + 1]
+        .startsWith(shardingKey + DELIMITER);
   }
 
   public boolean containsKeyRealmPair(String shardingKey, String realmAddress) {
@@ -132,42 +170,202 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
           "Provided shardingKey is not a valid Zookeeper path: " + shardingKey);
     }
 
-    TrieNode node = getLongestPrefixNodeAlongPath(shardingKey);
-    return node.getPath().equals(shardingKey) && node.getRealmAddress().equals(realmAddress);
+    int index = getFloorIndex(shardingKey);
+    return index >= 0 && _shardingKeys[index].equals(shardingKey) && _realmAddresses[index]
+        .equals(realmAddress);
   }
 
   /*
-   * Given a path, find a trie node that represents the longest prefix of the path. For example,
-   * given "/a/b/c", the method starts at "/", and attempts to reach "/a", then attempts to reach
-   * "/a/b", then ends on "/a/b/c"; if any of the node doesn't exist, the traversal terminates and
-   * the last seen existing node is returned.
-   * Note:
-   * 1. When the returned TrieNode is a sharding key, it is the only sharding key along the
-   * provided path (the path points to this sharding key);
-   * 2. When the returned TrieNode is not a sharding key but it represents the provided path, the
-   * provided path is a prefix(parent) to a sharding key;
-   * 3. When the returned TrieNode is not a sharding key and it does not represent the provided
-   * path (meaning the traversal ended before the last node of the path is reached), the provided
-   * path is not associated with any sharding key and can be added as a sharding key without
-   * creating ambiguity cases among sharding keys.
+   * Given a path, find the index of the only sharding key that is the same as or a parent of the
+   * path. Sharding keys never contain each other, so it is the last sharding key that is not
+   * after the path in the sorted order, if that key is along the path.
    * @param path - the path where the search is conducted
-   * @return a TrieNode that represents the longest prefix of the path
+   * @return the index of the sharding key
+   * @throws NoSuchElementException if there is no sharding key along the path
+   */
+  private int getShardingKeyIndexAlongPath(String path) {
+    int index = getFloorIndex(path);
+    if (index < 0 || !isSameOrParentPath(_shardingKeys[index], path)) {
+      throw new NoSuchElementException(
+          "No sharding key found within the provided path. Path: " + path);
+    }
+    return index;
+  }
+
+  /*
+   * @return the index of the last sharding key that is not after the path in the sorted order,
+   * -1 if all the sharding keys are after the path
    */
-  private TrieNode getLongestPrefixNodeAlongPath(String path) {
-    if (path.equals(DELIMITER)) {
-      return _rootNode;
+  private int getFloorIndex(String path) {
+    int low = 0;
+    int high = _shardingKeys.length - 1;
+    int floor = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (compareShardingKeys(_shardingKeys[mid], path) <= 0) {
+        floor = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
     }
+    return floor;
+  }
 
-    TrieNode curNode = _rootNode;
-    TrieNode nextNode;
-    for (String pathSection : path.substring(1).split(DELIMITER, 0)) {
-      nextNode = curNode.getChildren().get(pathSection);
-      if (nextNode == null) {
-        return curNode;
+  /*
+   * Compares paths character by character, except that the delimiter ranks before any other
+   * character. So a path is followed by all the paths under it, before any sibling path that it
+   * is a name prefix of: "/a", "/a/b", "/a/c", "/a-b".
+   */
+  private static int compareShardingKeys(String path1, String path2) {
+    int length = Math.min(path1.length(), path2.length());
+    for (int i = 0; i < length; i++) {
+      char c1 = path1.charAt(i);
+      char c2 = path2.charAt(i);
+      if (c1 != c2) {
+        if (c1 == DELIMITER_CHAR) {
+          return -1;
+        }
+        if (c2 == DELIMITER_CHAR) {
+          return 1;
+        }
+        return c1 - c2;
       }
-      curNode = nextNode;
     }
-    return curNode;
+    return path1.length() - path2.length();
+  }
+
+  private static boolean isSameOrParentPath(String parent, String path) {
+    if (parent.equals(DELIMITER)) {
+      return true;
+    }
+    return path.startsWith(parent) && (path.length() == parent.length()
+        || path.charAt(parent.length()) == DELIMITER_CHAR);
+  }
+
+  /*
+   * Sorts the sharding keys, reusing the order of the previous routing data for the keys that it
+   * already contains.
+   * @return the indexes of the sharding keys in sorted order
+   */
+  private static int[] sortShardingKeys(List<String> shardingKeys, TrieRoutingData previous) {
+    List<Integer> addedKeys = new ArrayList<>();
+    int[] keyAtPreviousIndex = null;
+    if (previous != null) {
+      keyAtPreviousIndex = new int[previous._shardingKeys.length];
+      Arrays.fill(keyAtPreviousIndex, -1);
+      for (int i = 0; i < shardingKeys.size(); i++) {
+        int index = previous.getFloorIndex(shardingKeys.get(i));
+        if (index >= 0 && previous._shardingKeys[index].equals(shardingKeys.get(i))
+            && keyAtPreviousIndex[index] < 0) {
+          keyAtPreviousIndex[index] = i;
+        } else {
+          addedKeys.add(i);
+        }
+      }
+    } else {
+      for (int i = 0; i < shardingKeys.size(); i++) {
+        addedKeys.add(i);
+      }
+    }
+    addedKeys.sort((i, j) -> compareShardingKeys(shardingKeys.get(i), shardingKeys.get(j)));
+
+    // Merge the added keys into the keys kept from the previous routing data
+    int[] sortedOrder = new int[shardingKeys.size()];
+    int count = 0;
+    int addedIndex = 0;
+    if (keyAtPreviousIndex != null) {
+      for (int keptKey : keyAtPreviousIndex) {
+        if (keptKey < 0) {
+          continue;
+        }
+        while (addedIndex < addedKeys.size() && compareShardingKeys(
+            shardingKeys.get(addedKeys.get(addedIndex)), shardingKeys.get(keptKey)) < 0) {
+          sortedOrder[count++] = addedKeys.get(addedIndex++);
+        }
+        sortedOrder[count++] = keptKey;
+      }
+    }
+    while (addedIndex < addedKeys.size()) {
+      sortedOrder[count++] = addedKeys.get(addedIndex++);
+    }
+    return sortedOrder;
+  }
+
+  /*
+   * Validates the sharding keys. The first invalid sharding key in input order is reported, with
+   * the same reason as inserting the keys one by one into a trie would report.
+   * @param shardingKeys - the sharding keys in input order
+   * @param sortedOrder - the indexes of the sharding keys in sorted order
+   * @throws InvalidRoutingDataException - when there is a sharding key that is not a valid path or
+   *           is the root; when there is a sharding key which already contains a sharding key;
+   *           when there is a sharding key that is a part of another sharding key
+   */
+  private static void validateShardingKeys(List<String> shardingKeys, int[] sortedOrder)
+      throws InvalidRoutingDataException {
+    // The first sharding key that is invalid on its own
+    int invalidKey = Integer.MAX_VALUE;
+    for (int i = 0; i < shardingKeys.size(); i++) {
+      String shardingKey = shardingKeys.get(i);
+      if (!ZkValidationUtil.isPathValid(shardingKey) || shardingKey.equals(DELIMITER)) {
+        invalidKey = i;
+        break;
+      }
+    }
+
+    // The first sharding key that conflicts with a sharding key before it in input order, and the
+    // parent sharding key it conflicts with, if any
+    int conflictKey = Integer.MAX_VALUE;
+    String conflictParent = null;
+    // Sharding keys along the path of the current key, in sorted order
+    List<Integer> parentKeys = new ArrayList<>();
+    for (int key : sortedOrder) {
+      if (key >= invalidKey) {
+        // Keys after the invalid key are never inserted
+        continue;
+      }
+      String shardingKey = shardingKeys.get(key);
+      while (!parentKeys.isEmpty() && !isSameOrParentPath(
+          shardingKeys.get(parentKeys.get(parentKeys.size() - 1)), shardingKey)) {
+        parentKeys.remove(parentKeys.size() - 1);
+      }
+      for (int parentKey : parentKeys) {
+        int laterKey = Math.max(parentKey, key);
+        if (laterKey < conflictKey) {
+          conflictKey = laterKey;
+          conflictParent = null;
+        }
+        // A sharding key reports its parent key before any key it is a part of
+        if (laterKey == conflictKey && laterKey == key && !shardingKeys.get(parentKey)
+            .equals(shardingKey)) {
+          conflictParent = shardingKeys.get(parentKey);
+        }
+      }
+      parentKeys.add(key);
+    }
+
+    if (invalidKey < conflictKey) {
+      String shardingKey = shardingKeys.get(invalidKey);
+      // Missing leading delimiter is invalid
+      if (!ZkValidationUtil.isPathValid(shardingKey)) {
+        throw new InvalidRoutingDataException(
+            "Sharding key is not a valid Zookeeper path: " + shardingKey);
+      }
+      // Root can only be a sharding key if it's the only sharding key. Since this method is
+      // running, the special case has already been checked, therefore it's definitely invalid
+      throw new InvalidRoutingDataException(
+          "There exist other sharding keys. Root cannot be a sharding key.");
+    }
+    if (conflictKey != Integer.MAX_VALUE) {
+      String shardingKey = shardingKeys.get(conflictKey);
+      if (conflictParent != null) {
+        throw new InvalidRoutingDataException(
+            shardingKey + " cannot be a sharding key because " + conflictParent
+                + " is its parent key and is also a sharding key.");
+      }
+      throw new InvalidRoutingDataException(shardingKey
+          + " cannot be a sharding key because it is a parent key to another sharding key.");
+    }
   }
 
   /*
@@ -202,126 +400,4 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
 
     return false;
   }
-
-  /*
-   * Constructs a trie based on the provided routing data. It loops through all sharding keys and
-   * constructs the trie in a top down manner.
-   * @param routingData- a mapping from "sharding keys" to "realm addresses" to be parsed into a
-   *          trie
-   * @throws InvalidRoutingDataException - when there is an empty sharding key (edge case that
-   *           always renders the routing data invalid); when there is a sharding key which already
-   *           contains a sharding key (invalid); when there is a sharding key that is a part of
-   *           another sharding key (invalid); when a sharding key doesn't have a leading delimiter
-   */
-  private void constructTrie(Map<String, List<String>> routingData)
-      throws InvalidRoutingDataException {
-    for (Map.Entry<String, List<String>> entry : routingData.entrySet()) {
-      for (String shardingKey : entry.getValue()) {
-        // Missing leading delimiter is invalid
-        if (!ZkValidationUtil.isPathValid(shardingKey)) {
-          throw new InvalidRoutingDataException(
-              "Sharding key is not a valid Zookeeper path: " + shardingKey);
-        }
-
-        // Root can only be a sharding key if it's the only sharding key. Since this method is
-        // running, the special case has already been checked, therefore it's definitely invalid
-        if (shardingKey.equals(DELIMITER)) {
-          throw new InvalidRoutingDataException(
-              "There exist other sharding keys. Root cannot be a sharding key.");
-        }
-
-        // Locate the next delimiter
-        int nextDelimiterIndex = shardingKey.indexOf(DELIMITER, 1);
-        int prevDelimiterIndex = 0;
-        String keySection = shardingKey.substring(prevDelimiterIndex + 1,
-            nextDelimiterIndex > 0 ? nextDelimiterIndex : shardingKey.length());
-        TrieNode curNode = _rootNode;
-        TrieNode nextNode = curNode.getChildren().get(keySection);
-
-        // If the key section is not the last section yet, go in the loop; if the key section is the
-        // last section, exit
-        while (nextDelimiterIndex > 0) {
-          // If the node is already a leaf node, the current sharding key is invalid; if the node
-          // doesn't exist, construct a node and continue
-          if (nextNode != null && nextNode.isShardingKey()) {
-            throw new InvalidRoutingDataException(
-                shardingKey + " cannot be a sharding key because " + shardingKey
-                    .substring(0, nextDelimiterIndex)
-                    + " is its parent key and is also a sharding key.");
-          } else if (nextNode == null) {
-            nextNode =
-                new TrieNode(new HashMap<>(), shardingKey.substring(0, nextDelimiterIndex), false,
-                    "");
-            curNode.addChild(keySection, nextNode);
-          }
-          prevDelimiterIndex = nextDelimiterIndex;
-          nextDelimiterIndex = shardingKey.indexOf(DELIMITER, prevDelimiterIndex + 1);
-          keySection = shardingKey.substring(prevDelimiterIndex + 1,
-              nextDelimiterIndex > 0 ? nextDelimiterIndex : shardingKey.length());
-          curNode = nextNode;
-          nextNode = curNode.getChildren().get(keySection);
-        }
-
-        // If the last node already exists, it's a part of another sharding key, making the current
-        // sharding key invalid
-        if (nextNode != null) {
-          throw new InvalidRoutingDataException(shardingKey
-              + " cannot be a sharding key because it is a parent key to another sharding key.");
-        }
-        nextNode = new TrieNode(new HashMap<>(), shardingKey, true, entry.getKey());
-        curNode.addChild(keySection, nextNode);
-      }
-    }
-  }
-
-  private static class TrieNode {
-    /*
-     * This field is a mapping between trie key and children nodes. For example, node "a" has
-     * children "ab" and "ac", therefore the keys are "b" and "c" respectively.
-     */
-    private Map<String, TrieNode> _children;
-    /*
-     * This field states whether the path represented by the node is a sharding key
-     */
-    private final boolean _isShardingKey;
-    /*
-     * This field contains the complete path/prefix leading to the current node. For example, the
-     * name of root node is "/", then the name of its child node
-     * is "/a", and the name of the child's child node is "/a/b".
-     */
-    private final String _path;
-    /*
-     * This field represents the data contained in a node(which represents a path), and is only
-     * available to the terminal nodes.
-     */
-    private final String _realmAddress;
-
-    TrieNode(Map<String, TrieNode> children, String path, boolean isShardingKey,
-        String realmAddress) {
-      _children = children;
-      _isShardingKey = isShardingKey;
-      _path = path;
-      _realmAddress = realmAddress;
-    }
-
-    public Map<String, TrieNode> getChildren() {
-      return _children;
-    }
-
-    public boolean isShardingKey() {
-      return _isShardingKey;
-    }
-
-    public String getPath() {
-      return _path;
-    }
-
-    public String getRealmAddress() {
-      return _realmAddress;
-    }
-
-    public void addChild(String key, TrieNode node) {
-      _children.put(key, node);
-    }
-  }
-}
\ No newline at end of file
+}
@@ -19,12 +19,14 @@ package org.apache.helix.msdcommon.datamodel;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
 
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
 import org.testng.Assert;
@@ -343,4 +345,140 @@ public class TestTrieRoutingData {
   public void testContainsKeyRealmPairNoRealm() {
     Assert.assertFalse(_trie.containsKeyRealmPair("/h/i", "realmAddress0"));
   }
-}
\ No newline at end of file
+
+  /**
+   * Sharding keys that are name prefixes of each other, e.g. "/a" and "/a-b", must not be mixed up
+   * with parent keys.
+   */
+  @Test
+  public void testNamePrefixShardingKeys() throws InvalidRoutingDataException {
+    Map<String, List<String>> routingData = new HashMap<>();
+    routingData.put("realmAddress1", Arrays.asList("/a/b", "/a-b"));
+    routingData.put("realmAddress2", Arrays.asList("/a/c", "/ab/c"));
+    TrieRoutingData trie = new TrieRoutingData(routingData);
+
+    Assert.assertEquals(trie.getMetadataStoreRealm("/a-b/x"), "realmAddress1");
+    Assert.assertEquals(trie.getShardingKeyInPath("/a/b/x"), "/a/b");
+    Assert.assertEquals(trie.getMetadataStoreRealm("/ab/c"), "realmAddress2");
+    try {
+      trie.getMetadataStoreRealm("/ab");
+      Assert.fail("Expecting NoSuchElementException");
+    } catch (NoSuchElementException e) {
+      Assert.assertTrue(
+          e.getMessage().contains("No sharding key found within the provided path. Path: /ab"));
+    }
+    Map<String, String> result = trie.getAllMappingUnderPath("/a");
+    Assert.assertEquals(result.size(), 2);
+    Assert.assertEquals(result.get("/a/b"), "realmAddress1");
+    Assert.assertEquals(result.get("/a/c"), "realmAddress2");
+    Assert.assertTrue(trie.isShardingKeyInsertionValid("/a-c"));
+    Assert.assertFalse(trie.isShardingKeyInsertionValid("/a"));
+  }
+
+  @Test(dependsOnMethods = "testConstructionNormal")
+  public void testUpdate() throws InvalidRoutingDataException {
+    Map<String, List<String>> routingData = new HashMap<>();
+    routingData.put("realmAddress1", Arrays.asList("/g", "/h/i", "/h/j"));
+    routingData.put("realmAddress2", Arrays.asList("/b/c/d", "/b/f"));
+    routingData.put("realmAddress3", Collections.singletonList("/b/c/e"));
+    // Nothing changed, the previous routing data is reused
+    Assert.assertSame(TrieRoutingData.update(_trie, routingData), _trie);
+
+    routingData.put("realmAddress1", Arrays.asList("/g", "/h/i", "/a"));
+    routingData.put("realmAddress3", Arrays.asList("/b/c/e", "/b/f"));
+    routingData.put("realmAddress2", Collections.singletonList("/b/c/d"));
+    TrieRoutingData updated = TrieRoutingData.update(_trie, routingData);
+    Assert.assertNotSame(updated, _trie);
+    Assert.assertEquals(updated.getAllMappingUnderPath("/"),
+        new TrieRoutingData(routingData).getAllMappingUnderPath("/"));
+    Assert.assertEquals(updated.getMetadataStoreRealm("/a/x"), "realmAddress1");
+    Assert.assertEquals(updated.getMetadataStoreRealm("/b/f"), "realmAddress3");
+    try {
+      updated.getMetadataStoreRealm("/h/j");
+      Assert.fail("Expecting NoSuchElementException");
+    } catch (NoSuchElementException e) {
+      Assert.assertTrue(
+          e.getMessage().contains("No sharding key found within the provided path. Path: /h/j"));
+    }
+    // The previous routing data is not changed
+    Assert.assertEquals(_trie.getMetadataStoreRealm("/h/j"), "realmAddress1");
+
+    // An invalid update is rejected as if the routing data is built from scratch
+    routingData.put("realmAddress2", Arrays.asList("/b/c/d", "/b/c"));
+    try {
+      TrieRoutingData.update(_trie, routingData);
+      Assert.fail("Expecting InvalidRoutingDataException");
+    } catch (InvalidRoutingDataException e) {
+      Assert.assertTrue(e.getMessage().contains("/b/c cannot be a sharding key"));
+    }
+  }
+
+  /**
+   * Check every query on a large routing table against a linear scan of the raw routing data.
+   * The sharding keys are of different depths and many are name prefixes of each other.
+   */
+  @Test
+  public void testLargeRoutingDataAgainstScan() throws InvalidRoutingDataException {
+    Map<String, List<String>> routingData = new HashMap<>();
+    Map<String, String> keyToRealm = new HashMap<>();
+    for (int realm = 0; realm < 10; realm++) {
+      List<String> shardingKeys = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        shardingKeys.add("/cluster-" + realm + "-" + i + "/sub");
+        shardingKeys.add("/group-" + realm + "/cluster-" + i);
+      }
+      routingData.put("realmAddress" + realm, shardingKeys);
+      for (String shardingKey : shardingKeys) {
+        keyToRealm.put(shardingKey, "realmAddress" + realm);
+      }
+    }
+    TrieRoutingData trie = new TrieRoutingData(routingData);
+    Assert.assertSame(TrieRoutingData.update(trie, routingData), trie);
+    Assert.assertEquals(trie.getAllMappingUnderPath("/"), keyToRealm);
+
+    // Paths at, under, above and next to the sharding keys, generated with a fixed seed
+    Random random = new Random(42);
+    List<String> paths = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      int realm = random.nextInt(12);
+      int cluster = random.nextInt(250);
+      paths.add("/cluster-" + realm + "-" + cluster);
+      paths.add("/cluster-" + realm + "-" + cluster + "/sub");
+      paths.add("/cluster-" + realm + "-" + cluster + "/sub/CONFIGS/RESOURCE");
+      paths.add("/cluster-" + realm + "-" + cluster + "/subx");
+      paths.add("/group-" + realm);
+      paths.add("/group-" + realm + "/cluster-" + cluster + "/IDEALSTATES");
+    }
+    for (String path : paths) {
+      String expectedKey = null;
+      Map<String, String> expectedMapping = new HashMap<>();
+      for (Map.Entry<String, String> entry : keyToRealm.entrySet()) {
+        String shardingKey = entry.getKey();
+        if (path.equals(shardingKey) || path.startsWith(shardingKey + "/")) {
+          expectedKey = shardingKey;
+        }
+        if (shardingKey.startsWith(path + "/")) {
+          expectedMapping.put(shardingKey, entry.getValue());
+        }
+      }
+
+      if (expectedKey == null) {
+        try {
+          trie.getShardingKeyInPath(path);
+          Assert.fail("Expecting NoSuchElementException for path: " + path);
+        } catch (NoSuchElementException e) {
+          // OK
+        }
+        Assert.assertEquals(trie.getAllMappingUnderPath(path), expectedMapping, path);
+        Assert.assertEquals(trie.isShardingKeyInsertionValid(path), expectedMapping.isEmpty(),
+            path);
+      } else {
+        Assert.assertEquals(trie.getShardingKeyInPath(path), expectedKey);
+        Assert.assertEquals(trie.getMetadataStoreRealm(path), keyToRealm.get(expectedKey));
+        Assert.assertFalse(trie.isShardingKeyInsertionValid(path), path);
+      }
+      Assert.assertEquals(trie.containsKeyRealmPair(path, keyToRealm.get(expectedKey)),
+          path.equals(expectedKey), path);
+    }
+  }
+}
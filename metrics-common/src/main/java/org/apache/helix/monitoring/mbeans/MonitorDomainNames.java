@@ -30,5 +30,6 @@ public enum MonitorDomainNames {
   RoutingTableProvider,
   CLMParticipantReport,
   Rebalancer,
-  AggregatedView
+  AggregatedView,
+  TaskDriver
 }
@@ -89,4 +89,38 @@ public class ZkSystemPropertyKeys {
   // TODO: deprecate this config after paginated API is deployed and stable
   public static final String ZK_GETCHILDREN_PAGINATION_DISABLED =
       "zk.getChildren.pagination.disabled";
+
+  /**
+   * The number of lanes that the ZkClient event thread uses to deliver the znode change events.
+   * The events of the same path are hashed onto the same lane so they are delivered in order,
+   * and a slow listener only delays the events of the paths on its lane. The session state events
+   * are delivered by the event thread itself, so they are not blocked by the change events.
+   * <p>
+   * The default value is 0, which delivers all the events in the single event thread.
+   */
+  public static final String ZK_EVENT_THREAD_LANES = "zk.zkclient.event.thread.lanes";
+
+  /**
+   * Setting this property to {@code true} enables coalescing of the ZkClient data and child change
+   * events. If a change event of a path and listener is still pending in the event queue when
+   * another one of the same path and listener arrives, the pending event is replaced by the new
+   * one. Since the listener reads the latest znode state when the event is delivered, it sees
+   * fewer but equally fresh notifications under bursts of changes.
+   * <p>
+   * The default value is {@code false}.
+   */
+  public static final String ZK_EVENT_COALESCING_ENABLED = "zk.zkclient.event.coalescing.enabled";
+
+  /**
+   * The number of threads that a ZkConnectionManager uses to forward the ZooKeeper events to the
+   * shared ZkClients on its connection. Each shared ZkClient is pinned to one of the threads and
+   * receives its events in order from it, so it still sees a single ZooKeeper event thread. The
+   * events of clients pinned to different threads may be processed at the same time.
+   * If set to 0, the events are forwarded one client after another in the ZooKeeper event thread.
+   * The value is read when a ZkConnectionManager is created.
+   * <p>
+   * The default value is 0.
+   */
+  public static final String ZK_CONNECTION_MANAGER_FORWARDING_THREADS =
+      "zk.connection.manager.forwarding.threads";
 }
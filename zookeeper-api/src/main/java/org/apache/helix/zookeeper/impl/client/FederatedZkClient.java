@@ -23,7 +23,6 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.apache.helix.msdcommon.datamodel.MetadataStoreRoutingData;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
@@ -77,6 +76,8 @@ public class FederatedZkClient implements RealmAwareZkClient {
       DedicatedZkClientFactory.class.getSimpleName();
 
   private volatile MetadataStoreRoutingData _metadataStoreRoutingData;
+  // Realms resolved from the current _metadataStoreRoutingData, rebuilt when the routing data changes
+  private volatile ZkRealmCache _zkRealmCache;
   private final RealmAwareZkClient.RealmAwareZkConnectionConfig _connectionConfig;
   private final RealmAwareZkClient.RealmAwareZkClientConfig _clientConfig;
 
@@ -506,12 +507,14 @@ public class FederatedZkClient implements RealmAwareZkClient {
     if (ops == null) {
       throw new NullPointerException("ops must not be null.");
     }
-    boolean anyDifferent = StreamSupport.stream(ops.spliterator(), false)
-            .map(op -> getZkRealm(op.getPath()))
-            .anyMatch(s -> !s.equals(getZkRealm(ops.iterator().next().getPath())));
-
-    if (anyDifferent) {
-      throw new IllegalArgumentException("Cannot execute multi on ops of different realms!");
+    String zkRealm = null;
+    for (Op op : ops) {
+      String opZkRealm = getZkRealm(op.getPath());
+      if (zkRealm == null) {
+        zkRealm = opZkRealm;
+      } else if (!zkRealm.equals(opZkRealm)) {
+        throw new IllegalArgumentException("Cannot execute multi on ops of different realms!");
+      }
     }
     // No different zk realms so call multi on the realm of the first op
     return getZkClient(ops.iterator().next().getPath()).multi(ops);
@@ -660,15 +663,31 @@ public class FederatedZkClient implements RealmAwareZkClient {
   }
 
   private String getZkRealm(String path) {
-    if (_routingDataUpdateOnCacheMissEnabled) {
-      try {
-        return updateRoutingDataOnCacheMiss(path);
-      } catch (InvalidRoutingDataException e) {
-        throw new MultiZkException("FederatedZkClient::getZkRealm: Failed to update routing data due to invalid routing "
-            + "data!", e);
+    try {
+      return getZkRealmCache().getZkRealm(path);
+    } catch (NoSuchElementException e) {
+      if (!_routingDataUpdateOnCacheMissEnabled) {
+        throw e;
       }
     }
-    return _metadataStoreRoutingData.getMetadataStoreRealm(path);
+    try {
+      return updateRoutingDataOnCacheMiss(path);
+    } catch (InvalidRoutingDataException e) {
+      throw new MultiZkException("FederatedZkClient::getZkRealm: Failed to update routing data due to invalid routing "
+          + "data!", e);
+    }
+  }
+
+  private ZkRealmCache getZkRealmCache() {
+    MetadataStoreRoutingData routingData = _metadataStoreRoutingData;
+    ZkRealmCache zkRealmCache = _zkRealmCache;
+    // The routing data is replaced as a whole when it is refreshed, so a cache built from another
+    // routing data instance is outdated.
+    if (zkRealmCache == null || zkRealmCache._routingData != routingData) {
+      zkRealmCache = new ZkRealmCache(routingData);
+      _zkRealmCache = zkRealmCache;
+    }
+    return zkRealmCache;
   }
 
   /**
@@ -737,4 +756,51 @@ public class FederatedZkClient implements RealmAwareZkClient {
             + ". Instead, please use " + DEDICATED_ZK_CLIENT_FACTORY
             + " to create a dedicated RealmAwareZkClient for this operation.");
   }
+
+  /**
+   * Sharding key -> ZK realm cache of one routing data instance. Resolving the realm of a path
+   * from the cache takes a few hash lookups on the path prefixes, instead of validating the path
+   * and splitting it to walk the routing data trie. A sharding key is never a prefix of another
+   * one, so the first cached prefix of a path is the only sharding key along the path.
+   * Paths of a cached sharding key skip the routing data validation; ZkClient still validates them.
+   */
+  private static final class ZkRealmCache {
+    private static final char DELIMITER = '/';
+
+    private final MetadataStoreRoutingData _routingData;
+    private final Map<String, String> _shardingKeyToZkRealm = new ConcurrentHashMap<>();
+    // Set if "/" is the sharding key, which is only allowed when it is the only sharding key
+    private volatile String _rootZkRealm;
+
+    ZkRealmCache(MetadataStoreRoutingData routingData) {
+      _routingData = routingData;
+    }
+
+    String getZkRealm(String path) {
+      if (_rootZkRealm != null) {
+        return _rootZkRealm;
+      }
+      int delimiterIndex = path.indexOf(DELIMITER, 1);
+      while (delimiterIndex > 0) {
+        String zkRealm = _shardingKeyToZkRealm.get(path.substring(0, delimiterIndex));
+        if (zkRealm != null) {
+          return zkRealm;
+        }
+        delimiterIndex = path.indexOf(DELIMITER, delimiterIndex + 1);
+      }
+      String zkRealm = _shardingKeyToZkRealm.get(path);
+      if (zkRealm != null) {
+        return zkRealm;
+      }
+
+      String shardingKey = _routingData.getShardingKeyInPath(path);
+      zkRealm = _routingData.getMetadataStoreRealm(path);
+      if (shardingKey.length() == 1 && shardingKey.charAt(0) == DELIMITER) {
+        _rootZkRealm = zkRealm;
+      } else {
+        _shardingKeyToZkRealm.put(shardingKey, zkRealm);
+      }
+      return zkRealm;
+    }
+  }
 }
@@ -20,9 +20,16 @@ package org.apache.helix.zookeeper.impl.factory;
  */
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.impl.client.SharedZkClient;
 import org.apache.helix.zookeeper.impl.client.ZkClient;
 import org.apache.helix.zookeeper.exception.ZkClientException;
@@ -46,14 +53,29 @@ import org.slf4j.LoggerFactory;
  * HelixZkClient to handle user request.
  * After this is done, Dedicated HelixZkClient hires one manager for it's connection.
  * While multiple Shared ZkClients can use single connection manager if possible.
+ *
+ * The events are forwarded without holding any lock. By default they are forwarded in the
+ * ZooKeeper event thread. If {@link ZkSystemPropertyKeys#ZK_CONNECTION_MANAGER_FORWARDING_THREADS}
+ * is set, each registered watcher is pinned to one of that many forwarding threads and receives
+ * its events in order from it. So a slow watcher only delays the watchers pinned to the same
+ * thread, and every shared ZkClient still sees a single thread as its ZooKeeper event thread, which
+ * keeps its event thread checks and its single threaded event processing.
  */
 public class ZkConnectionManager extends ZkClient {
   private static Logger LOG = LoggerFactory.getLogger(ZkConnectionManager.class);
   // Client type that is used in monitor, and metrics.
   private final static String MONITOR_TYPE = "ZkConnectionManager";
+  private final static int DEFAULT_FORWARDING_THREAD_COUNT = 0;
+  private final static AtomicInteger FORWARDING_THREAD_ID = new AtomicInteger(0);
   private final String _monitorKey;
   // Set of all registered watchers
-  protected final Set<Watcher> _sharedWatchers = new HashSet<>();
+  protected final Set<Watcher> _sharedWatchers = ConcurrentHashMap.newKeySet();
+  // The event forwarders of the registered watchers
+  private final Map<Watcher, WatcherEventForwarder> _eventForwarders = new ConcurrentHashMap<>();
+  // Single threaded executors the watchers are pinned to, null if the events are forwarded in the
+  // ZooKeeper event thread
+  private final ExecutorService[] _forwardingThreads = createForwardingThreads();
+  private final AtomicInteger _nextForwardingThread = new AtomicInteger(0);
 
   /**
    * Construct and init a ZkConnection Manager.
@@ -79,6 +101,7 @@ public class ZkConnectionManager extends ZkClient {
     if (isClosed()) {
       throw new ZkClientException("Cannot add watcher to a closed client.");
     }
+    getEventForwarder(watcher);
     return _sharedWatchers.add(watcher);
   }
 
@@ -90,6 +113,7 @@ public class ZkConnectionManager extends ZkClient {
    */
   public synchronized int unregisterWatcher(Watcher watcher) {
     _sharedWatchers.remove(watcher);
+    _eventForwarders.remove(watcher);
     return _sharedWatchers.size();
   }
 
@@ -99,17 +123,39 @@ public class ZkConnectionManager extends ZkClient {
     forwardingEvent(event);
   }
 
-  private synchronized void forwardingEvent(final WatchedEvent event) {
+  private void forwardingEvent(final WatchedEvent event) {
     // note that process (then forwardingEvent) could be triggered during construction, when sharedWatchers is still null.
     if (_sharedWatchers == null || _sharedWatchers.isEmpty()) {
       return;
     }
     // forward event to all the watchers' event queue
-    for (final Watcher watcher : _sharedWatchers) {
-      watcher.process(event);
+    for (Watcher watcher : _sharedWatchers) {
+      WatcherEventForwarder forwarder = _eventForwarders.get(watcher);
+      if (forwarder == null) {
+        if (!_sharedWatchers.contains(watcher)) {
+          // Unregistered in the meantime
+          continue;
+        }
+        forwarder = getEventForwarder(watcher);
+      }
+      forwarder.forward(event);
     }
   }
 
+  /**
+   * @return the index of the forwarding thread the watcher is pinned to, -1 if the events are
+   * forwarded in the ZooKeeper event thread
+   */
+  int getForwardingThreadIndex(Watcher watcher) {
+    WatcherEventForwarder forwarder = _eventForwarders.get(watcher);
+    return forwarder == null ? -1 : forwarder._threadIndex;
+  }
+
+  // Subclasses may add watchers to the shared watchers directly, so create the forwarder lazily
+  private WatcherEventForwarder getEventForwarder(Watcher watcher) {
+    return _eventForwarders.computeIfAbsent(watcher, WatcherEventForwarder::new);
+  }
+
   @Override
   public void close() {
     // Enforce closing, if any watcher exists, throw Exception.
@@ -129,6 +175,12 @@ public class ZkConnectionManager extends ZkClient {
       }
     }
     super.close();
+    _eventForwarders.clear();
+    if (_forwardingThreads != null) {
+      for (ExecutorService forwardingThread : _forwardingThreads) {
+        forwardingThread.shutdown();
+      }
+    }
     LOG.info("ZkConnection {} was closed.", _monitorKey);
   }
 
@@ -143,6 +195,61 @@ public class ZkConnectionManager extends ZkClient {
         }
       }
       _sharedWatchers.removeAll(closedWatchers);
+      _eventForwarders.keySet().retainAll(_sharedWatchers);
+    }
+  }
+
+  private static ExecutorService[] createForwardingThreads() {
+    int threadCount = Integer.getInteger(
+        ZkSystemPropertyKeys.ZK_CONNECTION_MANAGER_FORWARDING_THREADS,
+        DEFAULT_FORWARDING_THREAD_COUNT);
+    if (threadCount <= 0) {
+      return null;
+    }
+    ExecutorService[] forwardingThreads = new ExecutorService[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      forwardingThreads[i] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable,
+            "ZkConnectionManager-EventForwarder-" + FORWARDING_THREAD_ID.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return forwardingThreads;
+  }
+
+  /**
+   * Forwards the events to one watcher in order, in the ZooKeeper event thread or in the
+   * forwarding thread the watcher is pinned to.
+   */
+  private class WatcherEventForwarder {
+    private final Watcher _watcher;
+    private final int _threadIndex;
+
+    WatcherEventForwarder(Watcher watcher) {
+      _watcher = watcher;
+      // Pin the watchers to the forwarding threads in turn
+      _threadIndex = _forwardingThreads == null ? -1 : Math
+          .floorMod(_nextForwardingThread.getAndIncrement(), _forwardingThreads.length);
+    }
+
+    void forward(WatchedEvent event) {
+      if (_threadIndex < 0) {
+        _watcher.process(event);
+        return;
+      }
+      try {
+        _forwardingThreads[_threadIndex].execute(() -> {
+          try {
+            _watcher.process(event);
+          } catch (Throwable t) {
+            LOG.error("Failed to forward event {} to watcher {}.", event, _watcher, t);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        LOG.warn("ZkConnection {} is closed, drop the event {} to watcher {}.", _monitorKey, event,
+            _watcher);
+      }
     }
   }
 }
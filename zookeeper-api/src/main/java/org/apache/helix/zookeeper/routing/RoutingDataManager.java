@@ -57,6 +57,10 @@ public class RoutingDataManager {
   // The following map stands for (RoutingDataReaderType_endpoint ID, MetadataStoreRoutingData)
   private final Map<String, MetadataStoreRoutingData> _metadataStoreRoutingDataMap =
       new ConcurrentHashMap<>();
+  // Routing data cleared by the last reset(), used to build the refreshed routing data
+  // incrementally. Same key as _metadataStoreRoutingDataMap.
+  private final Map<String, MetadataStoreRoutingData> _previousMetadataStoreRoutingDataMap =
+      new ConcurrentHashMap<>();
 
   // Tracks the time at which reset() was called last. Used to throttle reset()
   private volatile long _lastResetTimestamp;
@@ -161,8 +165,11 @@ public class RoutingDataManager {
       synchronized (RoutingDataManager.class) {
         metadataStoreRoutingData = _metadataStoreRoutingDataMap.get(routingDataCacheKey);
         if (metadataStoreRoutingData == null) {
-          metadataStoreRoutingData =
-              new TrieRoutingData(getRawRoutingData(routingDataReaderType, endpoint));
+          MetadataStoreRoutingData previousRoutingData =
+              _previousMetadataStoreRoutingDataMap.remove(routingDataCacheKey);
+          metadataStoreRoutingData = TrieRoutingData.update(
+              previousRoutingData instanceof TrieRoutingData ? (TrieRoutingData) previousRoutingData
+                  : null, getRawRoutingData(routingDataReaderType, endpoint));
           _metadataStoreRoutingDataMap.put(routingDataCacheKey, metadataStoreRoutingData);
         }
       }
@@ -185,6 +192,8 @@ public class RoutingDataManager {
 
   private synchronized void reset() {
     _rawRoutingDataMap.clear();
+    _previousMetadataStoreRoutingDataMap.clear();
+    _previousMetadataStoreRoutingDataMap.putAll(_metadataStoreRoutingDataMap);
     _metadataStoreRoutingDataMap.clear();
     _defaultMsdsEndpoint =
         System.getProperty(MetadataStoreRoutingConstants.MSDS_SERVER_ENDPOINT_KEY);
@@ -1935,7 +1935,8 @@ public class ZkClient implements Watcher {
         if (!recListeners.isEmpty()) {
           for (final RecursivePersistListener listener : recListeners) {
             _eventThread.send(
-                new ZkEventThread.ZkEvent("Data of " + path + " changed sent to " + listener) {
+                new ZkEventThread.ZkEvent("Data of " + path + " changed sent to " + listener,
+                    null, path) {
                   @Override
                   public void run() throws Exception {
                     listener.handleZNodeChange(path, event.getType());
@@ -1955,7 +1956,8 @@ public class ZkClient implements Watcher {
       for (final IZkDataListenerEntry listener : listeners) {
         _eventThread.send(new ZkEventThread.ZkEvent(
             "Data of " + path + " changed sent to " + listener.getDataListener()
-                + " prefetch data: " + listener.isPrefetchData()) {
+                + " prefetch data: " + listener.isPrefetchData(), null, path,
+            Arrays.asList(EventType.NodeDataChanged, path, listener.getDataListener())) {
           @Override
           public void run() throws Exception {
             if (!pathStatRecord.pathChecked()) {
@@ -2005,7 +2007,9 @@ public class ZkClient implements Watcher {
     try {
       final ZkPathStatRecord pathStatRecord = new ZkPathStatRecord(path);
       for (final IZkChildListener listener : childListeners) {
-        _eventThread.send(new ZkEventThread.ZkEvent("Children of " + path + " changed sent to " + listener) {
+        _eventThread.send(new ZkEventThread.ZkEvent(
+            "Children of " + path + " changed sent to " + listener, null, path,
+            Arrays.asList(EventType.NodeChildrenChanged, path, listener)) {
           @Override
           public void run() throws Exception {
             if (!pathStatRecord.pathChecked()) {
@@ -2837,7 +2841,7 @@ public class ZkClient implements Watcher {
         _asyncCallRetryThread.join(2000);
       }
       _eventThread.interrupt();
-      _eventThread.join(2000);
+      _eventThread.joinWithLanes(2000);
       // TODO: Closing _event thread here will miss final `CLOSE` state change.
       if (isManagingZkConnection()) {
         LOG.info("Closing zkclient uid:{}, zk:{}", _uid, ((ZkConnection) connection).getZookeeper());
@@ -0,0 +1,86 @@
+package org.apache.helix.zookeeper.zkclient;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The event queue of the {@link ZkEventThread} and its lanes.
+ * If coalescing is enabled, a pending event that has the same coalescing key as a new event is
+ * replaced by the new event instead of queuing both. The replacing event keeps the queue position
+ * of the first pending one, so the listener is notified once, with the latest event.
+ */
+class ZkEventQueue {
+  private final BlockingQueue<Object> _queue = new LinkedBlockingQueue<>();
+  private final boolean _coalescingEnabled;
+  // coalescing key -> the latest pending event of the key
+  private final Map<Object, ZkEventThread.ZkEvent> _pendingCoalescingEvents = new HashMap<>();
+  private final AtomicLong _coalescedEventCount;
+
+  ZkEventQueue(boolean coalescingEnabled, AtomicLong coalescedEventCount) {
+    _coalescingEnabled = coalescingEnabled;
+    _coalescedEventCount = coalescedEventCount;
+  }
+
+  void add(ZkEventThread.ZkEvent event) {
+    Object coalescingKey = event.getCoalescingKey();
+    if (!_coalescingEnabled || coalescingKey == null) {
+      _queue.add(event);
+      return;
+    }
+    synchronized (_pendingCoalescingEvents) {
+      if (_pendingCoalescingEvents.put(coalescingKey, event) != null) {
+        // The pending event is replaced and will not be delivered.
+        _coalescedEventCount.incrementAndGet();
+        return;
+      }
+    }
+    _queue.add(new CoalescingSlot(coalescingKey));
+  }
+
+  ZkEventThread.ZkEvent take() throws InterruptedException {
+    Object item = _queue.take();
+    if (item instanceof CoalescingSlot) {
+      synchronized (_pendingCoalescingEvents) {
+        return _pendingCoalescingEvents.remove(((CoalescingSlot) item)._coalescingKey);
+      }
+    }
+    return (ZkEventThread.ZkEvent) item;
+  }
+
+  int size() {
+    return _queue.size();
+  }
+
+  /**
+   * The queue position of the pending event of a coalescing key.
+   */
+  private static class CoalescingSlot {
+    private final Object _coalescingKey;
+
+    CoalescingSlot(Object coalescingKey) {
+      _coalescingKey = coalescingKey;
+    }
+  }
+}
@@ -19,10 +19,10 @@ package org.apache.helix.zookeeper.zkclient;
  * under the License.
  */
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,11 +35,26 @@ import org.slf4j.LoggerFactory;
  * would stop the ZkClient from receiving events from {@link ZooKeeper} as soon as one of the listeners blocks (because
  * it is waiting for something). {@link ZkClient} would then for instance not be able to maintain it's connection state
  * anymore.
+ * <p>
+ * Optionally, the events of a znode path can be dispatched to a number of event lanes, see
+ * {@link ZkSystemPropertyKeys#ZK_EVENT_THREAD_LANES}. The path is hashed onto one lane so the events of the
+ * same path are still delivered in order, while a slow listener only delays the paths of its own lane. The events
+ * without a path, such as the session state events, are always delivered by this thread.
+ * <p>
+ * Optionally, the pending change events of the same path and listener can be coalesced into one, see
+ * {@link ZkSystemPropertyKeys#ZK_EVENT_COALESCING_ENABLED}.
  */
 public class ZkEventThread extends Thread {
   private static Logger LOG = LoggerFactory.getLogger(ZkClient.class);
 
-  private BlockingQueue<ZkEvent> _events = new LinkedBlockingQueue<>();
+  private static final int DEFAULT_LANE_COUNT =
+      Math.max(0, Integer.getInteger(ZkSystemPropertyKeys.ZK_EVENT_THREAD_LANES, 0));
+  private static final boolean DEFAULT_COALESCING_ENABLED =
+      Boolean.getBoolean(ZkSystemPropertyKeys.ZK_EVENT_COALESCING_ENABLED);
+
+  private final AtomicLong _coalescedEventCount = new AtomicLong(0L);
+  private final ZkEventQueue _events;
+  private final EventLane[] _lanes;
 
   private long _totalEventCount = 0L;
   private long _totalEventCountHandled = 0L;
@@ -50,18 +65,47 @@ public class ZkEventThread extends Thread {
 
     private final String _description;
     private final String _sessionId;
+    private final String _path;
+    private final Object _coalescingKey;
 
     public ZkEvent(String description) {
       this(description, null);
     }
 
     ZkEvent(String description, String sessionId) {
+      this(description, sessionId, null);
+    }
+
+    /**
+     * @param path the znode path of the event. The events of the same path are delivered in order.
+     */
+    ZkEvent(String description, String sessionId, String path) {
+      this(description, sessionId, path, null);
+    }
+
+    /**
+     * @param path the znode path of the event. The events of the same path are delivered in order.
+     * @param coalescingKey if not null, a pending event with the same key can be replaced by this
+     *                      event when event coalescing is enabled. The event must only depend on
+     *                      the latest znode state so the replaced events are not needed.
+     */
+    ZkEvent(String description, String sessionId, String path, Object coalescingKey) {
       _description = description;
       _sessionId = sessionId;
+      _path = path;
+      _coalescingKey = coalescingKey;
     }
 
     public abstract void run() throws Exception;
 
+    String getPath() {
+      return _path;
+    }
+
+    Object getCoalescingKey() {
+      return _coalescingKey;
+    }
+
     /**
      * Returns a string representation of the zk event.
      * Ex. ZkEvent[description: new session event sent to listener; session: 1001754ac3b0007]
@@ -82,8 +126,61 @@ public class ZkEventThread extends Thread {
   }
 
   ZkEventThread(String name) {
+    this(name, DEFAULT_LANE_COUNT, DEFAULT_COALESCING_ENABLED);
+  }
+
+  ZkEventThread(String name, int laneCount) {
+    this(name, laneCount, DEFAULT_COALESCING_ENABLED);
+  }
+
+  /**
+   * @param name the name of the event thread
+   * @param laneCount the number of lanes to deliver the path events, 0 to deliver all the events in
+   *                  this thread
+   * @param coalescingEnabled true to coalesce the pending events with the same coalescing key
+   */
+  ZkEventThread(String name, int laneCount, boolean coalescingEnabled) {
     setDaemon(true);
     setName("ZkClient-EventThread-" + getId() + "-" + name);
+    _events = new ZkEventQueue(coalescingEnabled, _coalescedEventCount);
+    _lanes = new EventLane[laneCount > 1 ? laneCount : 0];
+    for (int i = 0; i < _lanes.length; i++) {
+      _lanes[i] = new EventLane(getName() + "-Lane-" + i,
+          new ZkEventQueue(coalescingEnabled, _coalescedEventCount));
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    for (EventLane lane : _lanes) {
+      lane.start();
+    }
+    super.start();
+  }
+
+  @Override
+  public void interrupt() {
+    for (EventLane lane : _lanes) {
+      lane.interrupt();
+    }
+    super.interrupt();
+  }
+
+  /**
+   * Wait for this thread and all the lanes to terminate, so no event is delivered once it returns.
+   * @param millis the total time in milliseconds to wait, shared by this thread and the lanes
+   */
+  public void joinWithLanes(long millis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + millis;
+    join(millis);
+    for (EventLane lane : _lanes) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        LOG.warn("Timed out waiting for ZkClient event lane {} to terminate.", lane.getName());
+        return;
+      }
+      lane.join(remaining);
+    }
   }
 
   @Override public void run() {
@@ -91,19 +188,9 @@ public class ZkEventThread extends Thread {
     try {
       while (!isInterrupted()) {
         ZkEvent zkEvent = _events.take();
-        int eventId = _eventId.incrementAndGet();
-        LOG.debug("Delivering event id:{} event: {}", eventId, zkEvent);
-        try {
-          zkEvent.run();
+        if (deliver(this, zkEvent)) {
           _totalEventCountHandled ++;
-        } catch (InterruptedException e) {
-          interrupt();
-        } catch (ZkInterruptedException e) {
-          interrupt();
-        } catch (Throwable e) {
-          LOG.error("Error handling event " + zkEvent, e);
         }
-        LOG.debug("Delivering event id: {} done", eventId);
       }
     } catch (InterruptedException e) {
       LOG.info("Terminate ZkClient event thread.");
@@ -112,19 +199,132 @@ public class ZkEventThread extends Thread {
     LOG.info("Terminate ZkClient event thread.");
   }
 
+  /**
+   * Run the event in the given thread.
+   * @return true if the event is handled without any error
+   */
+  private static boolean deliver(Thread thread, ZkEvent zkEvent) {
+    int eventId = _eventId.incrementAndGet();
+    LOG.debug("Delivering event id:{} event: {}", eventId, zkEvent);
+    boolean handled = false;
+    try {
+      zkEvent.run();
+      handled = true;
+    } catch (InterruptedException e) {
+      thread.interrupt();
+    } catch (ZkInterruptedException e) {
+      thread.interrupt();
+    } catch (Throwable e) {
+      LOG.error("Error handling event " + zkEvent, e);
+    }
+    LOG.debug("Delivering event id: {} done", eventId);
+    return handled;
+  }
+
   public void send(ZkEvent event) {
     if (!isInterrupted()) {
       LOG.debug("New event: " + event);
-      _events.add(event);
+      if (_lanes.length > 0 && event.getPath() != null) {
+        _lanes[Math.floorMod(event.getPath().hashCode(), _lanes.length)].send(event);
+      } else {
+        _events.add(event);
+      }
       _totalEventCount ++;
     }
   }
 
   public long getPendingEventsCount() {
-    return _events.size();
+    long pendingEventsCount = _events.size();
+    for (EventLane lane : _lanes) {
+      pendingEventsCount += lane.getPendingEventsCount();
+    }
+    return pendingEventsCount;
   }
 
   public long getTotalEventCount() { return _totalEventCount; }
 
-  public long getTotalHandledEventCount() { return _totalEventCountHandled; }
+  /**
+   * @return the number of events that are replaced by a newer event of the same path and listener
+   */
+  public long getCoalescedEventCount() {
+    return _coalescedEventCount.get();
+  }
+
+  public long getTotalHandledEventCount() {
+    long totalHandledEventCount = _totalEventCountHandled;
+    for (EventLane lane : _lanes) {
+      totalHandledEventCount += lane.getHandledEventCount();
+    }
+    return totalHandledEventCount;
+  }
+
+  /**
+   * @return the number of lanes delivering the path events, 0 if all the events are delivered by
+   * this thread
+   */
+  public int getLaneCount() {
+    return _lanes.length;
+  }
+
+  public long getLanePendingEventsCount(int lane) {
+    return _lanes[lane].getPendingEventsCount();
+  }
+
+  public long getLaneHandledEventCount(int lane) {
+    return _lanes[lane].getHandledEventCount();
+  }
+
+  /**
+   * @return the total time in milliseconds the lane spent on handling the events
+   */
+  public long getLaneHandlingLatency(int lane) {
+    return _lanes[lane].getHandlingLatency();
+  }
+
+  /**
+   * A lane delivers the events of the paths hashed onto it in order.
+   */
+  private static class EventLane extends Thread {
+    private final ZkEventQueue _laneEvents;
+    private final AtomicLong _handledEventCount = new AtomicLong(0L);
+    private final AtomicLong _handlingLatency = new AtomicLong(0L);
+
+    EventLane(String name, ZkEventQueue laneEvents) {
+      setDaemon(true);
+      setName(name);
+      _laneEvents = laneEvents;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!isInterrupted()) {
+          ZkEvent zkEvent = _laneEvents.take();
+          long startTime = System.currentTimeMillis();
+          if (deliver(this, zkEvent)) {
+            _handledEventCount.incrementAndGet();
+          }
+          _handlingLatency.addAndGet(System.currentTimeMillis() - startTime);
+        }
+      } catch (InterruptedException e) {
+        LOG.info("Terminate ZkClient event lane {}.", getName());
+      }
+    }
+
+    void send(ZkEvent event) {
+      _laneEvents.add(event);
+    }
+
+    long getPendingEventsCount() {
+      return _laneEvents.size();
+    }
+
+    long getHandledEventCount() {
+      return _handledEventCount.get();
+    }
+
+    long getHandlingLatency() {
+      return _handlingLatency.get();
+    }
+  }
 }
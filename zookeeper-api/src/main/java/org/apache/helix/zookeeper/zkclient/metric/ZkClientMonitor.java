@@ -45,6 +45,12 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   public static final String MONITOR_TYPE = "Type";
   public static final String MONITOR_KEY = "Key";
   protected static final String MBEAN_DESCRIPTION = "Helix Zookeeper Client Monitor";
+  // The per lane metrics if the event thread delivers the path events in multiple lanes.
+  // CallbackHandlingLatencyCounter is the total milliseconds spent on handling the events.
+  private static final String LANE_ATTRIBUTE_PREFIX = "Lane";
+  private static final String[] LANE_ATTRIBUTES = new String[] {
+      "PendingCallbackGauge", "CallbackHandledCounter", "CallbackHandlingLatencyCounter"
+  };
 
   public enum AccessType {
     READ, WRITE
@@ -281,6 +287,15 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       attributeInfoSet.add(
           new MBeanAttributeInfo("TotalCallbackHandledCounter", Long.TYPE.getName(),
               DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      attributeInfoSet.add(new MBeanAttributeInfo("CoalescedCallbackCounter", Long.TYPE.getName(),
+          DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      for (int lane = 0; lane < eventThread.getLaneCount(); lane++) {
+        for (String laneAttribute : LANE_ATTRIBUTES) {
+          attributeInfoSet.add(
+              new MBeanAttributeInfo(LANE_ATTRIBUTE_PREFIX + lane + "." + laneAttribute,
+                  Long.TYPE.getName(), DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+        }
+      }
       return attributeInfoSet;
     }
 
@@ -293,6 +308,35 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
         return getMetricObject().getTotalEventCount();
       case "TotalCallbackHandledCounter":
         return getMetricObject().getTotalHandledEventCount();
+      case "CoalescedCallbackCounter":
+        return getMetricObject().getCoalescedEventCount();
+      default:
+        if (attributeName.startsWith(LANE_ATTRIBUTE_PREFIX)) {
+          return getLaneAttributeValue(attributeName);
+        }
+        throw new MetricException("Unknown attribute name: " + attributeName);
+      }
+    }
+
+    // Lane attribute name format: Lane<index>.<attribute>
+    private Object getLaneAttributeValue(String attributeName) {
+      int separator = attributeName.indexOf('.');
+      int lane;
+      try {
+        lane = Integer.parseInt(attributeName.substring(LANE_ATTRIBUTE_PREFIX.length(), separator));
+      } catch (IndexOutOfBoundsException | NumberFormatException e) {
+        throw new MetricException("Unknown attribute name: " + attributeName);
+      }
+      if (lane < 0 || lane >= getMetricObject().getLaneCount()) {
+        throw new MetricException("Unknown attribute name: " + attributeName);
+      }
+      switch (attributeName.substring(separator + 1)) {
+      case "PendingCallbackGauge":
+        return getMetricObject().getLanePendingEventsCount(lane);
+      case "CallbackHandledCounter":
+        return getMetricObject().getLaneHandledEventCount(lane);
+      case "CallbackHandlingLatencyCounter":
+        return getMetricObject().getLaneHandlingLatency(lane);
       default:
         throw new MetricException("Unknown attribute name: " + attributeName);
       }
@@ -21,6 +21,7 @@ package org.apache.helix.zookeeper.impl.client;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +43,7 @@ import org.apache.helix.zookeeper.routing.RoutingDataManager;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
 import org.apache.zookeeper.Watcher;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -343,6 +345,25 @@ public class TestFederatedZkClient extends RealmAwareZkClientTestBase {
     Assert.assertEquals(_realmAwareZkClient.readData(TEST_REALM_ONE_VALID_PATH), realmOneZnRecord);
     Assert.assertEquals(_realmAwareZkClient.readData(TEST_REALM_TWO_VALID_PATH), realmTwoZnRecord);
 
+    // Realms are resolved from the cached sharding keys by path section, so a path that only
+    // shares a name prefix with a sharding key is still not routed.
+    try {
+      _realmAwareZkClient.exists(TEST_INVALID_PATH);
+      Assert.fail("Exists should not succeed on an invalid path!");
+    } catch (NoSuchElementException expected) {
+      // Expected
+    }
+
+    // Multi cannot be executed across realms.
+    try {
+      _realmAwareZkClient.multi(Arrays
+          .asList(Op.delete(TEST_REALM_ONE_VALID_PATH, -1),
+              Op.delete(TestConstants.TEST_KEY_LIST_2.get(0) + "/a", -1)));
+      Assert.fail("Multi should not succeed on ops of different realms!");
+    } catch (IllegalArgumentException expected) {
+      // Expected
+    }
+
     Assert.assertTrue(_realmAwareZkClient.delete(TEST_REALM_ONE_VALID_PATH));
     Assert.assertFalse(_realmAwareZkClient.exists(TEST_REALM_ONE_VALID_PATH));
 
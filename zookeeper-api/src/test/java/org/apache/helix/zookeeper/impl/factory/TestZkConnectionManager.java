@@ -0,0 +1,213 @@
+package org.apache.helix.zookeeper.impl.factory;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.impl.ZkTestBase;
+import org.apache.helix.zookeeper.zkclient.ZkConnection;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkConnectionManager extends ZkTestBase {
+  private static final Logger LOG = LoggerFactory.getLogger(TestZkConnectionManager.class);
+  private static final int WATCHER_COUNT = 50;
+  private static final int BENCHMARK_WATCHER_COUNT = 500;
+  private static final int EVENT_COUNT = 200;
+  private static final int FORWARDING_THREAD_COUNT = 4;
+
+  /**
+   * By default the events are forwarded to the watchers in the thread that processes them.
+   */
+  @Test
+  public void testForwardingEventsInEventThreadByDefault() {
+    ZkConnectionManager connectionManager =
+        new ZkConnectionManager(new ZkConnection(ZK_ADDR), 10000L, null);
+    AtomicReference<Thread> forwardingThread = new AtomicReference<>();
+    AtomicInteger received = new AtomicInteger(0);
+    Watcher watcher = event -> {
+      forwardingThread.set(Thread.currentThread());
+      received.incrementAndGet();
+    };
+    try {
+      connectionManager.registerWatcher(watcher);
+      Assert.assertEquals(connectionManager.getForwardingThreadIndex(watcher), -1);
+      connectionManager.process(new WatchedEvent(Watcher.Event.EventType.NodeDataChanged,
+          Watcher.Event.KeeperState.SyncConnected, "/event"));
+      Assert.assertEquals(received.get(), 1);
+      Assert.assertEquals(forwardingThread.get(), Thread.currentThread());
+    } finally {
+      connectionManager.unregisterWatcher(watcher);
+      connectionManager.close();
+    }
+  }
+
+  /**
+   * Watchers added to the shared watchers directly, as the deprecated subclass does, receive the
+   * events as well.
+   */
+  @Test
+  public void testSharedWatchersAreModifiable() {
+    ZkConnectionManager connectionManager =
+        new ZkConnectionManager(new ZkConnection(ZK_ADDR), 10000L, null);
+    AtomicInteger received = new AtomicInteger(0);
+    Watcher watcher = event -> received.incrementAndGet();
+    try {
+      Assert.assertTrue(connectionManager._sharedWatchers.add(watcher));
+      connectionManager.process(new WatchedEvent(Watcher.Event.EventType.NodeDataChanged,
+          Watcher.Event.KeeperState.SyncConnected, "/event"));
+      Assert.assertEquals(received.get(), 1);
+      Assert.assertTrue(connectionManager._sharedWatchers.remove(watcher));
+    } finally {
+      connectionManager.unregisterWatcher(watcher);
+      connectionManager.close();
+    }
+  }
+
+  /**
+   * With forwarding threads enabled, forward events to many watchers on one connection while one
+   * of them is blocked. Every watcher receives its events in order from the one thread it is
+   * pinned to, so a shared ZkClient keeps a single event thread. The watchers pinned to the other
+   * threads receive all the events, and forwarding does not wait for the slow watcher.
+   */
+  @Test
+  public void testForwardingEventsInOrder() throws Exception {
+    ZkConnectionManager connectionManager = createConnectionManager(FORWARDING_THREAD_COUNT);
+    List<Watcher> watchers = new ArrayList<>();
+    CountDownLatch slowWatcherBlock = new CountDownLatch(1);
+    try {
+      Watcher slowWatcher = event -> {
+        try {
+          slowWatcherBlock.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      };
+      connectionManager.registerWatcher(slowWatcher);
+      watchers.add(slowWatcher);
+      int slowThreadIndex = connectionManager.getForwardingThreadIndex(slowWatcher);
+
+      Thread eventThread = Thread.currentThread();
+      AtomicInteger outOfOrderCount = new AtomicInteger(0);
+      AtomicInteger wrongThreadCount = new AtomicInteger(0);
+      List<CountDownLatch> delivered = new ArrayList<>();
+      for (int i = 0; i < WATCHER_COUNT; i++) {
+        AtomicInteger received = new AtomicInteger(0);
+        AtomicReference<Thread> forwardingThread = new AtomicReference<>();
+        CountDownLatch allDelivered = new CountDownLatch(1);
+        Watcher watcher = event -> {
+          forwardingThread.compareAndSet(null, Thread.currentThread());
+          if (Thread.currentThread() == eventThread
+              || Thread.currentThread() != forwardingThread.get()) {
+            wrongThreadCount.incrementAndGet();
+          }
+          int expected = received.getAndIncrement();
+          if (!event.getPath().equals("/event" + expected)) {
+            outOfOrderCount.incrementAndGet();
+          }
+          if (expected == EVENT_COUNT - 1) {
+            allDelivered.countDown();
+          }
+        };
+        connectionManager.registerWatcher(watcher);
+        watchers.add(watcher);
+        if (connectionManager.getForwardingThreadIndex(watcher) != slowThreadIndex) {
+          delivered.add(allDelivered);
+        }
+      }
+      Assert.assertFalse(delivered.isEmpty());
+
+      // The slow watcher blocks its forwarding thread, the events are still handed off.
+      for (int i = 0; i < EVENT_COUNT; i++) {
+        connectionManager.process(new WatchedEvent(Watcher.Event.EventType.NodeDataChanged,
+            Watcher.Event.KeeperState.SyncConnected, "/event" + i));
+      }
+      for (CountDownLatch allDelivered : delivered) {
+        Assert.assertTrue(allDelivered.await(30, TimeUnit.SECONDS));
+      }
+      Assert.assertEquals(outOfOrderCount.get(), 0);
+      Assert.assertEquals(wrongThreadCount.get(), 0);
+    } finally {
+      slowWatcherBlock.countDown();
+      watchers.forEach(connectionManager::unregisterWatcher);
+      connectionManager.close();
+    }
+  }
+
+  /**
+   * Forward events to many watchers on one connection, in the ZooKeeper event thread and on the
+   * forwarding threads. The forwarding and delivery times are logged as a rough benchmark, only
+   * the delivery of all the events is checked since timing is environment dependent.
+   */
+  @Test
+  public void testForwardingEventsToManyWatchers() throws Exception {
+    for (int threadCount : new int[] { 0, FORWARDING_THREAD_COUNT }) {
+      ZkConnectionManager connectionManager = createConnectionManager(threadCount);
+      List<Watcher> watchers = new ArrayList<>();
+      try {
+        CountDownLatch allDelivered = new CountDownLatch(BENCHMARK_WATCHER_COUNT);
+        for (int i = 0; i < BENCHMARK_WATCHER_COUNT; i++) {
+          AtomicInteger received = new AtomicInteger(0);
+          watchers.add(event -> {
+            if (received.incrementAndGet() == EVENT_COUNT) {
+              allDelivered.countDown();
+            }
+          });
+        }
+        watchers.forEach(connectionManager::registerWatcher);
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+          connectionManager.process(new WatchedEvent(Watcher.Event.EventType.NodeDataChanged,
+              Watcher.Event.KeeperState.SyncConnected, "/event" + i));
+        }
+        long forwardingTime = System.currentTimeMillis() - startTime;
+        Assert.assertTrue(allDelivered.await(30, TimeUnit.SECONDS));
+        long deliveryTime = System.currentTimeMillis() - startTime;
+        LOG.info("Forwarded {} events to {} watchers with {} forwarding threads in {} ms, "
+                + "delivered in {} ms.", EVENT_COUNT, BENCHMARK_WATCHER_COUNT, threadCount,
+            forwardingTime, deliveryTime);
+      } finally {
+        watchers.forEach(connectionManager::unregisterWatcher);
+        connectionManager.close();
+      }
+    }
+  }
+
+  private ZkConnectionManager createConnectionManager(int forwardingThreadCount) {
+    System.setProperty(ZkSystemPropertyKeys.ZK_CONNECTION_MANAGER_FORWARDING_THREADS,
+        String.valueOf(forwardingThreadCount));
+    try {
+      return new ZkConnectionManager(new ZkConnection(ZK_ADDR), 10000L, null);
+    } finally {
+      System.clearProperty(ZkSystemPropertyKeys.ZK_CONNECTION_MANAGER_FORWARDING_THREADS);
+    }
+  }
+}
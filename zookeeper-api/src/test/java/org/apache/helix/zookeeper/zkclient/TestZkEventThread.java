@@ -0,0 +1,190 @@
+package org.apache.helix.zookeeper.zkclient;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkEventThread {
+  private static final int LANE_COUNT = 4;
+
+  @Test
+  public void testSlowPathDoesNotBlockOtherLanes() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("testSlowPath", LANE_COUNT);
+    eventThread.start();
+    try {
+      String slowPath = "/slow";
+      String fastPath = findPathOnOtherLane(slowPath);
+      CountDownLatch slowListenerBlock = new CountDownLatch(1);
+      CountDownLatch fastEventsDone = new CountDownLatch(2);
+
+      eventThread.send(new ZkEventThread.ZkEvent("slow event", null, slowPath) {
+        @Override
+        public void run() throws Exception {
+          slowListenerBlock.await();
+        }
+      });
+      eventThread.send(new ZkEventThread.ZkEvent("fast event", null, fastPath) {
+        @Override
+        public void run() {
+          fastEventsDone.countDown();
+        }
+      });
+      // Events without a path, e.g. session state events, are delivered by the event thread.
+      eventThread.send(new ZkEventThread.ZkEvent("state event") {
+        @Override
+        public void run() {
+          fastEventsDone.countDown();
+        }
+      });
+
+      Assert.assertTrue(fastEventsDone.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(eventThread.getPendingEventsCount(), 0L);
+      slowListenerBlock.countDown();
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testPerPathOrdering() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("testPerPathOrdering", LANE_COUNT);
+    eventThread.start();
+    try {
+      int eventCount = 100;
+      List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch done = new CountDownLatch(eventCount);
+      for (int i = 0; i < eventCount; i++) {
+        final int sequence = i;
+        eventThread.send(new ZkEventThread.ZkEvent("event " + i, null, "/ordered") {
+          @Override
+          public void run() {
+            delivered.add(sequence);
+            done.countDown();
+          }
+        });
+      }
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      for (int i = 0; i < eventCount; i++) {
+        Assert.assertEquals(delivered.get(i).intValue(), i);
+      }
+      Assert.assertEquals(eventThread.getLaneCount(), LANE_COUNT);
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testCoalescePendingEvents() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("testCoalescing", 0, true);
+    eventThread.start();
+    try {
+      // Block the event thread so the following events stay pending.
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch block = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("blocking event") {
+        @Override
+        public void run() throws Exception {
+          blocked.countDown();
+          block.await();
+        }
+      });
+      Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+      List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch done = new CountDownLatch(3);
+      for (int i = 0; i < 5; i++) {
+        eventThread.send(createEvent("/path", "listener1", "listener1-" + i, delivered, done));
+      }
+      eventThread.send(createEvent("/path", "listener2", "listener2", delivered, done));
+      // Events without a coalescing key are never coalesced.
+      eventThread.send(new ZkEventThread.ZkEvent("not coalesced", null, "/path") {
+        @Override
+        public void run() {
+          delivered.add("not coalesced");
+          done.countDown();
+        }
+      });
+      Assert.assertEquals(eventThread.getPendingEventsCount(), 3L);
+      Assert.assertEquals(eventThread.getCoalescedEventCount(), 4L);
+
+      block.countDown();
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      // The latest event of listener1 is delivered at the queue position of the first one.
+      Assert.assertEquals(delivered, Arrays.asList("listener1-4", "listener2", "not coalesced"));
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testJoinWithLanes() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("testJoinWithLanes", LANE_COUNT);
+    eventThread.start();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+    eventThread.send(new ZkEventThread.ZkEvent("lane event", null, "/lane") {
+      @Override
+      public void run() throws Exception {
+        started.countDown();
+        try {
+          Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+        } finally {
+          finished.countDown();
+        }
+      }
+    });
+    Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+    // The lane is interrupted out of the event, and has terminated once the join returns.
+    eventThread.interrupt();
+    eventThread.joinWithLanes(TimeUnit.SECONDS.toMillis(10));
+    Assert.assertFalse(eventThread.isAlive());
+    Assert.assertEquals(finished.getCount(), 0L);
+  }
+
+  private ZkEventThread.ZkEvent createEvent(String path, String listener, String name,
+      List<String> delivered, CountDownLatch done) {
+    return new ZkEventThread.ZkEvent(name, null, path, Arrays.asList(path, listener)) {
+      @Override
+      public void run() {
+        delivered.add(name);
+        done.countDown();
+      }
+    };
+  }
+
+  private String findPathOnOtherLane(String path) {
+    int lane = Math.floorMod(path.hashCode(), LANE_COUNT);
+    for (int i = 0; ; i++) {
+      String otherPath = "/fast" + i;
+      if (Math.floorMod(otherPath.hashCode(), LANE_COUNT) != lane) {
+        return otherPath;
+      }
+    }
+  }
+}